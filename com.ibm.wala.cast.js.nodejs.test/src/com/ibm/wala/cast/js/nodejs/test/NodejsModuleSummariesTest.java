@@ -0,0 +1,222 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2016 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+package com.ibm.wala.cast.js.nodejs.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.js.nodejs.NodejsCallGraphBuilderUtil;
+import com.ibm.wala.cast.js.nodejs.NodejsModuleSummaries;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+public class NodejsModuleSummariesTest {
+
+	private File summaryDir;
+
+	@Before
+	public void setUp() throws IOException {
+		summaryDir = Files.createTempDirectory("nodejs-summaries").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : summaryDir.listFiles()) {
+			f.delete();
+		}
+		summaryDir.delete();
+	}
+
+	@Test
+	public void testSummarizedPackage() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummary/index.js");
+		File file = new File(fileUrl.toURI());
+		File rootDir = file.getParentFile();
+
+		assertEquals(1, new NodejsModuleSummaries(summaryDir).summarizePackages(rootDir));
+
+		// the summary is kept, and reused as long as the package is unchanged
+		NodejsModuleSummaries summaries = new NodejsModuleSummaries(summaryDir);
+		assertEquals(0, summaries.summarizePackages(rootDir));
+		assertNotNull(summaries.getSummary(new File(rootDir, "node_modules/lib")));
+
+		PropagationCallGraphBuilder builder = NodejsCallGraphBuilderUtil.makeCGBuilder(rootDir, file, summaries);
+		CallGraph CG = builder.makeCallGraph(builder.getOptions());
+		String cgString = CG.toString();
+
+		assertEquals(1, summaries.getSubstitutions());
+		// callbacks passed to the package are still called, directly and through nested functions and prototypes
+		assertTrue(cgString.contains("Lindex/nodejsModule/moduleSource/done>"));
+		assertTrue(cgString.contains("Lindex/nodejsModule/moduleSource/ready>"));
+		assertTrue(cgString.contains("Lindex/nodejsModule/moduleSource/shown>"));
+		// and so are the functions of objects the package passes to them
+		assertTrue(calls(CG, "Lindex/nodejsModule/moduleSource/done", "/chain"));
+		// but the internals of the package are not analyzed
+		assertTrue(!cgString.contains("Lnode_modules_lib_helper"));
+		assertTrue(!cgString.contains("?"));
+	}
+
+	@Test
+	public void testStoredCallbackIsNotSummarized() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummaryEmitter/index.js");
+		File file = new File(fileUrl.toURI());
+		File rootDir = file.getParentFile();
+
+		// the handler is called after on() returns, which a summary of on() cannot show
+		NodejsModuleSummaries summaries = new NodejsModuleSummaries(summaryDir);
+		assertEquals(0, summaries.summarizePackages(rootDir));
+		assertNull(summaries.getSummary(new File(rootDir, "node_modules/emitter")));
+
+		PropagationCallGraphBuilder builder = NodejsCallGraphBuilderUtil.makeCGBuilder(rootDir, file, summaries);
+		CallGraph CG = builder.makeCallGraph(builder.getOptions());
+
+		assertEquals(0, summaries.getSubstitutions());
+		assertTrue(CG.toString().contains("Lindex/nodejsModule/moduleSource/heard>"));
+	}
+
+	@Test
+	public void testReturnedObjectIsNotSummarized() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummaryFactory/index.js");
+		File file = new File(fileUrl.toURI());
+		File rootDir = file.getParentFile();
+
+		// create() returns an object that is not part of the exports, which a summary of create() cannot show
+		NodejsModuleSummaries summaries = new NodejsModuleSummaries(summaryDir);
+		assertEquals(0, summaries.summarizePackages(rootDir));
+
+		PropagationCallGraphBuilder builder = NodejsCallGraphBuilderUtil.makeCGBuilder(rootDir, file, summaries);
+		CallGraph CG = builder.makeCallGraph(builder.getOptions());
+
+		assertEquals(0, summaries.getSubstitutions());
+		assertTrue(calls(CG, "/use", "Lindex/nodejsModule/moduleSource/used"));
+	}
+
+	@Test
+	public void testReexportedFunctionIsSummarized() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummaryReexport/index.js");
+		File file = new File(fileUrl.toURI());
+		File rootDir = file.getParentFile();
+
+		NodejsModuleSummaries summaries = new NodejsModuleSummaries(summaryDir);
+		assertEquals(2, summaries.summarizePackages(rootDir));
+
+		PropagationCallGraphBuilder builder = NodejsCallGraphBuilderUtil.makeCGBuilder(rootDir, file, summaries);
+		CallGraph CG = builder.makeCallGraph(builder.getOptions());
+
+		assertEquals(1, summaries.getSubstitutions());
+		// the function facade takes from base still calls its argument
+		assertTrue(CG.toString().contains("Lindex/nodejsModule/moduleSource/visited>"));
+	}
+
+	@Test
+	public void testKeyCoversDependencies() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummaryReexport/index.js");
+		Path source = new File(fileUrl.toURI()).getParentFile().toPath();
+		Path rootDir = Files.createTempDirectory("nodejs-packages");
+		try {
+			copy(source, rootDir);
+			File facade = rootDir.resolve("node_modules/facade").toFile();
+
+			assertEquals(2, new NodejsModuleSummaries(summaryDir).summarizePackages(rootDir.toFile()));
+			File before = new NodejsModuleSummaries(summaryDir).getSummary(facade);
+			assertNotNull(before);
+
+			// changing only the dependency, installed next to facade, invalidates the summary of facade too
+			Files.write(rootDir.resolve("node_modules/base/base.js"), "\n".getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.APPEND);
+			NodejsModuleSummaries summaries = new NodejsModuleSummaries(summaryDir);
+			assertNull(summaries.getSummary(facade));
+			assertEquals(2, summaries.summarizePackages(rootDir.toFile()));
+			assertTrue(!before.equals(summaries.getSummary(facade)));
+		} finally {
+			delete(rootDir);
+		}
+	}
+
+	@Test
+	public void testSymbolicLinkLoop() throws Exception {
+		URL fileUrl = getClass().getClassLoader().getResource("NodejsModuleSummaryReexport/index.js");
+		Path source = new File(fileUrl.toURI()).getParentFile().toPath();
+		Path rootDir = Files.createTempDirectory("nodejs-packages");
+		try {
+			copy(source, rootDir);
+			// as left behind by some package managers; following it naively never ends
+			Files.createSymbolicLink(rootDir.resolve("node_modules/base/node_modules"), rootDir.resolve("node_modules"));
+
+			assertEquals(2, new NodejsModuleSummaries(summaryDir).summarizePackages(rootDir.toFile()));
+		} finally {
+			Files.delete(rootDir.resolve("node_modules/base/node_modules"));
+			delete(rootDir);
+		}
+	}
+
+	/**
+	 * @return whether a function whose name ends with caller calls one whose name ends with callee
+	 */
+	private static boolean calls(CallGraph CG, String caller, String callee) {
+		for (CGNode n : CG) {
+			if (n.getMethod().getDeclaringClass().getName().toString().endsWith(caller)) {
+				for (CGNode s : Iterator2Iterable.make(CG.getSuccNodes(n))) {
+					if (s.getMethod().getDeclaringClass().getName().toString().endsWith(callee)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static void copy(Path from, Path to) throws IOException {
+		try (Stream<Path> paths = Files.walk(from)) {
+			for (Path p : paths.collect(Collectors.toList())) {
+				Path target = to.resolve(from.relativize(p).toString());
+				if (Files.isDirectory(p)) {
+					Files.createDirectories(target);
+				} else {
+					Files.copy(p, target);
+				}
+			}
+		}
+	}
+
+	private static void delete(Path dir) throws IOException {
+		List<Path> paths;
+		try (Stream<Path> s = Files.walk(dir)) {
+			paths = new ArrayList<>(s.collect(Collectors.toList()));
+		}
+		// children before their directories
+		Collections.reverse(paths);
+		for (Path p : paths) {
+			Files.delete(p);
+		}
+	}
+}
@@ -0,0 +1,12 @@
+var lib = require('lib');
+
+lib.run(function done(result) {
+	result.chain();
+});
+
+lib.later(function ready() {
+});
+
+var widget = new lib.Widget();
+widget.show(function shown() {
+});
@@ -0,0 +1,6 @@
+var Emitter = require('emitter');
+
+var emitter = new Emitter();
+emitter.on('data', function heard() {
+});
+emitter.emit('data');
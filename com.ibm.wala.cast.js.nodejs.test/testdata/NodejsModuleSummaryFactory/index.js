@@ -0,0 +1,4 @@
+var factory = require('factory');
+
+factory.create().use(function used() {
+});
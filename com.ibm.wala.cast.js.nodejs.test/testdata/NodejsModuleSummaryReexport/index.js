@@ -0,0 +1,4 @@
+var facade = require('facade');
+
+facade.each(function visited() {
+});
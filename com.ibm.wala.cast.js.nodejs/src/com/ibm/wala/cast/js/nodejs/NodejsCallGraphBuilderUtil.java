@@ -57,6 +57,15 @@ public class NodejsCallGraphBuilderUtil extends JSCallGraphUtil {
 
 	public static PropagationCallGraphBuilder makeCGBuilder(File workingDir, File mainFile)
 			throws IOException, IllegalArgumentException, WalaException {
+		return makeCGBuilder(workingDir, mainFile, null);
+	}
+
+	/**
+	 * @param summaries if not null, the main modules of required packages
+	 *            are replaced by their summaries, where these exist
+	 */
+	public static PropagationCallGraphBuilder makeCGBuilder(File workingDir, File mainFile, NodejsModuleSummaries summaries)
+			throws IOException, IllegalArgumentException, WalaException {
 		JavaScriptTranslatorFactory translatorFactory = new CAstRhinoTranslatorFactory();
 		JSCallGraphUtil.setTranslatorFactory(translatorFactory);
 
@@ -96,7 +105,7 @@ public class NodejsCallGraphBuilderUtil extends JSCallGraphUtil {
 		com.ibm.wala.ipa.callgraph.impl.Util.addDefaultSelectors(options, cha);
 
 		MethodTargetSelector baseSelector = new StandardFunctionTargetSelector(cha, options.getMethodTargetSelector());
-		NodejsRequireTargetSelector requireTargetSelector = new NodejsRequireTargetSelector(workingDir, baseSelector);
+		NodejsRequireTargetSelector requireTargetSelector = new NodejsRequireTargetSelector(workingDir, baseSelector, summaries);
 		options.setSelector(requireTargetSelector);
 
 		JSCFABuilder builder = new JSZeroOrOneXCFABuilder(cha, options, cache, null, null,
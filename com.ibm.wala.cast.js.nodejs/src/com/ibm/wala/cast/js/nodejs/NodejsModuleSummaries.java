@@ -0,0 +1,847 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2016 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+package com.ibm.wala.cast.js.nodejs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.ibm.wala.cast.ipa.callgraph.CAstCallGraphUtil;
+import com.ibm.wala.cast.ir.ssa.AstIsDefinedInstruction;
+import com.ibm.wala.cast.ir.ssa.AstLexicalAccess.Access;
+import com.ibm.wala.cast.ir.ssa.AstLexicalRead;
+import com.ibm.wala.cast.ir.ssa.AstLexicalWrite;
+import com.ibm.wala.cast.js.ssa.JavaScriptCheckReference;
+import com.ibm.wala.cast.js.ssa.JavaScriptInstanceOf;
+import com.ibm.wala.cast.js.ssa.JavaScriptInvoke;
+import com.ibm.wala.cast.js.ssa.JavaScriptTypeOfInstruction;
+import com.ibm.wala.cast.js.types.JavaScriptMethods;
+import com.ibm.wala.cast.loader.AstMethod;
+import com.ibm.wala.cast.loader.AstMethod.LexicalInformation;
+import com.ibm.wala.cast.types.AstMethodReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.SourceFileModule;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSABinaryOpInstruction;
+import com.ibm.wala.ssa.SSAConditionalBranchInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.ssa.SSAUnaryOpInstruction;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.WalaException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * Summaries of npm packages, kept in a directory on disk, that stand in for the sources of the packages when their main
+ * module is required. A summary is a small JavaScript module that rebuilds the shape of the package's
+ * <code>module.exports</code>: its objects and properties, down to a few levels, and for each exported function, the
+ * calls it makes to functions passed in as arguments, and which of its arguments, or <code>this</code>, it returns.
+ * Calls within the package, and objects it creates other than its exports, are left out, so analyzing an application
+ * against summaries costs roughly as much as analyzing the application alone.
+ *
+ * Summaries are keyed by a hash of the files of a package and of all the packages it depends on, directly or not, as
+ * declared in the package.json files and resolved the way node does. So a package whose own files and dependencies have
+ * not changed is not summarized again, and identical copies of a package share one summary.
+ *
+ * A package is not summarized, and so is analyzed from source when required, if a summary would be unsound: if an
+ * exported function stores an argument, passes it on to another function, or otherwise lets it flow anywhere other
+ * than a call or a return; if it passes to its arguments, or returns, objects that are not part of the exports, such as
+ * an object it creates; or if the exports include functions that are neither of the package nor of a dependency.
+ */
+public class NodejsModuleSummaries {
+
+	/**
+	 * changes whenever the form of summaries does
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * how deep nested objects of the exports are described
+	 */
+	private static final int MAX_DEPTH = 3;
+
+	private final File directory;
+
+	private final Map<File, String> keys = HashMapFactory.make();
+
+	private final Map<File, String> contents = HashMapFactory.make();
+
+	private int substitutions = 0;
+
+	/**
+	 * @param directory where summaries are kept; created if needed
+	 * @throws IllegalArgumentException if directory is null or cannot be created
+	 */
+	public NodejsModuleSummaries(File directory) {
+		if (directory == null) {
+			throw new IllegalArgumentException("directory is null");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalArgumentException("cannot create summary directory " + directory);
+		}
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the number of required modules replaced by their summary so far
+	 */
+	public int getSubstitutions() {
+		return substitutions;
+	}
+
+	/**
+	 * @return the file holding the summary of the package in packageDir, or null if it has not been summarized
+	 */
+	public File getSummary(File packageDir) throws IOException {
+		File summary = new File(directory, key(packageDir) + ".js");
+		return summary.isFile() ? summary : null;
+	}
+
+	/**
+	 * Summarize every package in the node_modules directories below rootDir that has no summary yet. Nested packages
+	 * are summarized first, so that their summaries can be used for the packages that contain them. Packages whose main
+	 * module cannot be analyzed on its own are skipped, and will be analyzed from source when required.
+	 *
+	 * @return the number of packages summarized
+	 */
+	public int summarizePackages(File rootDir) throws IOException {
+		List<File> packages = new ArrayList<>();
+		findPackages(new File(rootDir, "node_modules"), packages, new LinkedHashSet<File>());
+		Collections.sort(packages, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return o2.getAbsolutePath().length() - o1.getAbsolutePath().length();
+			}
+		});
+
+		int summarized = 0;
+		for (File packageDir : packages) {
+			if (getSummary(packageDir) == null) {
+				SourceFileModule main = NodejsRequireTargetSelector.loadAsDirectory(rootDir, packageDir);
+				if (main != null && !main.getFile().getName().endsWith(".json")) {
+					String summary = summarize(rootDir, packageDir, main.getFile());
+					if (summary != null) {
+						store(summary, new File(directory, key(packageDir) + ".js"));
+						summarized++;
+					}
+				}
+			}
+		}
+		return summarized;
+	}
+
+	private static void findPackages(File nodeModules, List<File> packages, Set<File> visited) throws IOException {
+		if (!visited.add(nodeModules.getCanonicalFile())) {
+			// a symbolic link back to a directory already searched
+			return;
+		}
+		File[] entries = nodeModules.listFiles();
+		if (entries == null) {
+			return;
+		}
+		for (File entry : entries) {
+			if (entry.isDirectory() && !entry.getName().startsWith(".")) {
+				if (entry.getName().startsWith("@")) {
+					// scoped packages are one level further down
+					findPackages(entry, packages, visited);
+				} else {
+					packages.add(entry);
+					findPackages(new File(entry, "node_modules"), packages, visited);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the summary of module, if it is the main module of a package that has one, or else module itself
+	 */
+	SourceFileModule substitute(File rootDir, SourceFileModule module) throws IOException {
+		if (!(module instanceof NodejsRequiredSourceModule) || module instanceof NodejsRequiredCoreModule) {
+			return module;
+		}
+		File file = module.getFile();
+		File packageDir = packageDir(file);
+		if (packageDir == null) {
+			return module;
+		}
+		SourceFileModule main = NodejsRequireTargetSelector.loadAsDirectory(rootDir, packageDir);
+		if (main == null || !main.getFile().getCanonicalFile().equals(file.getCanonicalFile())) {
+			return module;
+		}
+		File summary = getSummary(packageDir);
+		if (summary == null) {
+			return module;
+		}
+
+		substitutions++;
+		SourceFileModule summaryModule = CAstCallGraphUtil.makeSourceModule(summary.toURI().toURL(), summary.getName());
+		return new NodejsRequiredSourceModule(module.getClassName(), summary, summaryModule);
+	}
+
+	/**
+	 * @return the directory of the package file belongs to, or null if it is not in one
+	 */
+	private static File packageDir(File file) {
+		for (File d = file.getAbsoluteFile().getParentFile(); d != null && d.getParentFile() != null; d = d.getParentFile()) {
+			File parent = d.getParentFile();
+			if (parent.getName().equals("node_modules") && !d.getName().startsWith("@")) {
+				return d;
+			}
+			if (parent.getName().startsWith("@") && parent.getParentFile() != null
+					&& parent.getParentFile().getName().equals("node_modules")) {
+				return d;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the key of a package is a hash of its contents and those of every package it depends on, directly or not
+	 */
+	private String key(File packageDir) throws IOException {
+		File dir = packageDir.getCanonicalFile();
+		String key = keys.get(dir);
+		if (key == null) {
+			Set<File> dependencies = new LinkedHashSet<>();
+			addDependencies(dir, dependencies);
+			dependencies.remove(dir);
+			List<String> dependencyContents = new ArrayList<>();
+			for (File dependency : dependencies) {
+				dependencyContents.add(contents(dependency));
+			}
+			// independent of where the dependencies are installed
+			Collections.sort(dependencyContents);
+
+			MessageDigest digest = sha256();
+			digest.update(Integer.toString(VERSION).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(contents(dir).getBytes(StandardCharsets.UTF_8));
+			for (String c : dependencyContents) {
+				digest.update((byte) 0);
+				digest.update(c.getBytes(StandardCharsets.UTF_8));
+			}
+			key = hex(digest.digest());
+			keys.put(dir, key);
+		}
+		return key;
+	}
+
+	/**
+	 * @return a hash of the relative paths and contents of all the files of the package in dir
+	 */
+	private String contents(File dir) throws IOException {
+		String result = contents.get(dir);
+		if (result == null) {
+			MessageDigest digest = sha256();
+			hash(digest, dir, "", new LinkedHashSet<File>());
+			result = hex(digest.digest());
+			contents.put(dir, result);
+		}
+		return result;
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			Assertions.UNREACHABLE();
+			return null;
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * add the package in packageDir, and every package it depends on, directly or not, to result
+	 */
+	private static void addDependencies(File packageDir, Set<File> result) throws IOException {
+		if (!result.add(packageDir)) {
+			return;
+		}
+		File packageJson = new File(packageDir, "package.json");
+		if (!packageJson.isFile()) {
+			return;
+		}
+		JSONObject json;
+		try {
+			json = new JSONObject(new String(Files.readAllBytes(packageJson.toPath()), StandardCharsets.UTF_8));
+		} catch (JSONException e) {
+			return;
+		}
+		for (String field : new String[] { "dependencies", "optionalDependencies", "peerDependencies" }) {
+			JSONObject dependencies = json.optJSONObject(field);
+			if (dependencies != null) {
+				for (String name : dependencies.keySet()) {
+					File dependency = resolvePackage(packageDir, name);
+					if (dependency != null) {
+						addDependencies(dependency.getCanonicalFile(), result);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the directory of the package name as node finds it when required from packageDir, or null if there is none
+	 */
+	private static File resolvePackage(File packageDir, String name) {
+		for (File d = packageDir; d != null; d = d.getParentFile()) {
+			if (!d.getName().equals("node_modules")) {
+				File candidate = new File(new File(d, "node_modules"), name);
+				if (candidate.isDirectory()) {
+					return candidate;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param visited the directories hashed so far, so that symbolic links that lead back up the tree are followed only
+	 *          once
+	 */
+	private static void hash(MessageDigest digest, File dir, String path, Set<File> visited) throws IOException {
+		if (!visited.add(dir.getCanonicalFile())) {
+			return;
+		}
+		File[] entries = dir.listFiles();
+		if (entries == null) {
+			return;
+		}
+		Arrays.sort(entries);
+		byte[] buf = new byte[8192];
+		for (File entry : entries) {
+			String name = path + "/" + entry.getName();
+			if (entry.isDirectory()) {
+				hash(digest, entry, name, visited);
+			} else {
+				digest.update(name.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				try (InputStream in = Files.newInputStream(entry.toPath())) {
+					int n;
+					while ((n = in.read(buf)) > 0) {
+						digest.update(buf, 0, n);
+					}
+				}
+			}
+		}
+	}
+
+	// write to a temporary file first, so that concurrent runs never see a partial summary
+	private void store(String summary, File file) throws IOException {
+		File tmp = File.createTempFile("summary", ".tmp", directory);
+		try {
+			Files.write(tmp.toPath(), summary.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Analyze the main module of a package on its own, and describe what it exports.
+	 *
+	 * @return the source of the summary, or null if the module cannot be analyzed
+	 */
+	private String summarize(File rootDir, File packageDir, File mainFile) {
+		PropagationCallGraphBuilder builder;
+		CallGraph CG;
+		try {
+			builder = NodejsCallGraphBuilderUtil.makeCGBuilder(rootDir, mainFile, this);
+			CG = builder.makeCallGraph(builder.getOptions());
+		} catch (IOException | WalaException | CancelException | RuntimeException e) {
+			return null;
+		}
+
+		String moduleName = "L" + NodejsRequiredSourceModule.convertFileToClassName(rootDir, mainFile) + "/nodejsModule";
+
+		Set<InstanceKey> exports = new LinkedHashSet<>();
+		for (CGNode n : CG) {
+			if (n.getMethod().getDeclaringClass().getName().toString().equals(moduleName)) {
+				for (InstanceKey ik : builder.getPointerAnalysis().getPointsToSet(builder.getPointerKeyForReturnValue(n))) {
+					exports.add(ik);
+				}
+			}
+		}
+
+		SummaryWriter writer = new SummaryWriter(builder);
+		String value = writer.describe(exports, 0);
+		if (writer.unsound) {
+			return null;
+		}
+		writer.code.append("module.exports = ").append(value == null ? "{}" : value).append(";\n");
+		return writer.code.toString();
+	}
+
+	/**
+	 * writes the statements that rebuild the exports of one module
+	 */
+	private static class SummaryWriter {
+		private final PropagationCallGraphBuilder builder;
+
+		private final PointerAnalysis<InstanceKey> pointerAnalysis;
+
+		private final StringBuilder code = new StringBuilder();
+
+		private final Map<InstanceKey, String> names = HashMapFactory.make();
+
+		private int variables = 0;
+
+		private List<IClass> functions;
+
+		private Map<InstanceKey, List<InstanceFieldKey>> fields;
+
+		/**
+		 * set if the exports do something the summary cannot show, and so no summary should be written
+		 */
+		private boolean unsound = false;
+
+		private SummaryWriter(PropagationCallGraphBuilder builder) {
+			this.builder = builder;
+			this.pointerAnalysis = builder.getPointerAnalysis();
+		}
+
+		/**
+		 * @return an expression for a value that may be any of the given objects, or null if none can be described
+		 */
+		private String describe(Iterable<InstanceKey> objects, int depth) {
+			List<InstanceKey> described = new ArrayList<>();
+			IClass function = null;
+			String constant = null;
+			for (InstanceKey ik : objects) {
+				if (ik instanceof ConstantKey<?>) {
+					if (constant == null) {
+						constant = literal(((ConstantKey<?>) ik).getValue());
+					}
+				} else if (isFunction(ik.getConcreteType())) {
+					if (ik.getConcreteType().getName().toString().startsWith(PACKAGE_PREFIX)) {
+						// a function of this package, or one it re-exports from a dependency
+						described.add(ik);
+						if (function == null) {
+							function = ik.getConcreteType();
+						}
+					} else {
+						// e.g. a builtin or a core module function, which a summary cannot refer to
+						unsound = true;
+					}
+				} else {
+					described.add(ik);
+				}
+			}
+			if (described.isEmpty()) {
+				return constant;
+			}
+
+			for (InstanceKey ik : described) {
+				if (names.containsKey(ik)) {
+					return names.get(ik);
+				}
+			}
+			String name = "s" + variables++;
+			for (InstanceKey ik : described) {
+				names.put(ik, name);
+			}
+			code.append("var ").append(name).append(" = ").append(function == null ? "{}" : function(function)).append(";\n");
+
+			if (depth < MAX_DEPTH) {
+				Map<String, Set<InstanceKey>> properties = new TreeMap<>();
+				for (InstanceKey ik : described) {
+					for (InstanceFieldKey field : fields(ik)) {
+						String propertyName = field.getField().getName().toString();
+						if (!isInternal(propertyName)) {
+							if (!properties.containsKey(propertyName)) {
+								properties.put(propertyName, new LinkedHashSet<InstanceKey>());
+							}
+							for (InstanceKey value : pointerAnalysis.getPointsToSet(field)) {
+								properties.get(propertyName).add(value);
+							}
+						}
+					}
+				}
+				for (Map.Entry<String, Set<InstanceKey>> property : properties.entrySet()) {
+					if (property.getKey().equals("prototype") && !hasMembers(property.getValue())) {
+						// every function gets a default prototype anyway
+						continue;
+					}
+					String value = describe(property.getValue(), depth + 1);
+					if (value != null) {
+						code.append(name).append("[").append(JSONObject.quote(property.getKey())).append("] = ").append(value).append(";\n");
+					}
+				}
+			}
+			return name;
+		}
+
+		/**
+		 * @return the properties of ik with a known name; those of functions, such as their prototype, are not in the
+		 *         object catalog, so all pointer keys are searched instead
+		 */
+		private List<InstanceFieldKey> fields(InstanceKey ik) {
+			if (fields == null) {
+				fields = HashMapFactory.make();
+				for (PointerKey k : pointerAnalysis.getPointerKeys()) {
+					if (k instanceof InstanceFieldKey) {
+						InstanceKey object = ((InstanceFieldKey) k).getInstanceKey();
+						if (!fields.containsKey(object)) {
+							fields.put(object, new ArrayList<InstanceFieldKey>());
+						}
+						fields.get(object).add((InstanceFieldKey) k);
+					}
+				}
+			}
+			return fields.containsKey(ik) ? fields.get(ik) : Collections.<InstanceFieldKey> emptyList();
+		}
+
+		/**
+		 * @return whether any of the given prototype objects has properties other than its constructor
+		 */
+		private boolean hasMembers(Set<InstanceKey> prototypes) {
+			for (InstanceKey ik : prototypes) {
+				for (InstanceFieldKey field : fields(ik)) {
+					String propertyName = field.getField().getName().toString();
+					if (!isInternal(propertyName) && !propertyName.equals("constructor")) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * properties that model the runtime rather than the program, and so are not copied into summaries
+		 */
+		private static boolean isInternal(String propertyName) {
+			return "__proto__".equals(propertyName) || "class".equals(propertyName) || propertyName.startsWith("$");
+		}
+
+		/**
+		 * the start of the names of all functions defined in packages, as named by {@link NodejsRequiredSourceModule}
+		 */
+		private static final String PACKAGE_PREFIX = "Lnode_modules_";
+
+		private static String literal(Object value) {
+			if (value instanceof String) {
+				return JSONObject.quote((String) value);
+			} else if (value instanceof Number || value instanceof Boolean) {
+				return value.toString();
+			} else {
+				return null;
+			}
+		}
+
+		private static boolean isFunction(IClass type) {
+			return type != null && type.getMethod(AstMethodReference.fnSelector) instanceof AstMethod;
+		}
+
+		/**
+		 * @return a function expression that calls its arguments and returns them as the given function does
+		 */
+		private String function(IClass function) {
+			IMethod method = function.getMethod(AstMethodReference.fnSelector);
+			IR ir = builder.getAnalysisCache().getIR(method);
+			String functionName = function.getName().toString();
+
+			// value number 1 is the function itself, 2 is this, and the declared parameters follow
+			int parameters = Math.max(0, method.getNumberOfParameters() - 2);
+			String[] values = new String[ir.getSymbolTable().getMaxValueNumber() + 1];
+			Map<String, String> parameterNames = HashMapFactory.make();
+			values[2] = "this";
+			for (int i = 0; i < parameters; i++) {
+				values[i + 3] = "p" + i;
+				String[] names = ir.getLocalNames(0, i + 3);
+				if (names != null) {
+					for (String n : names) {
+						parameterNames.put(n, "p" + i);
+					}
+				}
+			}
+
+			Set<String> calls = new LinkedHashSet<>();
+			Set<String> returns = new LinkedHashSet<>();
+			if (escapes(ir, values, functionName, parameterNames.keySet())) {
+				unsound = true;
+			}
+			addCalls(method, ir, values, calls);
+			for (SSAInstruction inst : ir.getInstructions()) {
+				if (inst instanceof SSAReturnInstruction && ((SSAReturnInstruction) inst).getResult() > 0) {
+					String value = expression(method, ir, values, ((SSAReturnInstruction) inst).getResult());
+					if (!value.equals("undefined")) {
+						returns.add(value);
+					}
+				}
+			}
+
+			// arguments are also called from functions nested in this one, through lexical reads of the parameters
+			if (!parameterNames.isEmpty()) {
+				for (IClass nested : allFunctions()) {
+					if (nested.getName().toString().startsWith(functionName + "/")) {
+						IMethod nestedMethod = nested.getMethod(AstMethodReference.fnSelector);
+						IR nestedIR = builder.getAnalysisCache().getIR(nestedMethod);
+						String[] nestedValues = new String[nestedIR.getSymbolTable().getMaxValueNumber() + 1];
+						for (SSAInstruction inst : nestedIR.getInstructions()) {
+							if (inst instanceof AstLexicalRead) {
+								for (Access a : ((AstLexicalRead) inst).getAccesses()) {
+									if (functionName.equals(a.variableDefiner) && parameterNames.containsKey(a.variableName)) {
+										nestedValues[a.valueNumber] = parameterNames.get(a.variableName);
+									}
+								}
+							}
+						}
+						if (escapes(nestedIR, nestedValues, null, Collections.<String> emptySet())) {
+							unsound = true;
+						}
+						addCalls(nestedMethod, nestedIR, nestedValues, calls);
+					}
+				}
+			}
+
+			StringBuilder f = new StringBuilder("function ");
+			String simpleName = functionName.substring(functionName.lastIndexOf('/') + 1);
+			if (simpleName.matches("[a-zA-Z_$][0-9a-zA-Z_$]*")) {
+				f.append(simpleName);
+			}
+			f.append("(");
+			for (int i = 0; i < parameters; i++) {
+				f.append(i == 0 ? "" : ", ").append("p").append(i);
+			}
+			f.append(") {");
+			for (String call : calls) {
+				f.append(" ").append(call).append(";");
+			}
+			if (!returns.isEmpty()) {
+				f.append(" return ");
+				boolean first = true;
+				for (String value : returns) {
+					f.append(first ? "" : " || ").append(value);
+					first = false;
+				}
+				f.append(";");
+			}
+			f.append(" }");
+			return f.toString();
+		}
+
+		/**
+		 * add the plain calls, in ir of method, of functions that are known values
+		 */
+		private void addCalls(IMethod method, IR ir, String[] values, Set<String> calls) {
+			for (SSAInstruction inst : ir.getInstructions()) {
+				if (inst instanceof JavaScriptInvoke) {
+					JavaScriptInvoke call = (JavaScriptInvoke) inst;
+					String callee = valueOf(values, call.getFunction());
+					if (callee != null && !callee.equals("this")
+							&& !call.getCallSite().getDeclaredTarget().equals(JavaScriptMethods.ctorReference)
+							&& !call.getCallSite().getDeclaredTarget().equals(JavaScriptMethods.dispatchReference)) {
+						StringBuilder s = new StringBuilder(callee).append("(");
+						// use 1 is the receiver of the call
+						for (int i = 2; i < call.getNumberOfPositionalParameters(); i++) {
+							s.append(i == 2 ? "" : ", ").append(expression(method, ir, values, call.getUse(i)));
+						}
+						calls.add(s.append(")").toString());
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return an expression for value number vn of method: its name in values, a literal, or the variables of the
+		 *         described objects it may point to. If it may point to any other object, the summary would lose that
+		 *         flow, so it is unsound.
+		 */
+		private String expression(IMethod method, IR ir, String[] values, int vn) {
+			String value = valueOf(values, vn);
+			if (value != null) {
+				return value;
+			}
+			if (ir.getSymbolTable().isConstant(vn)) {
+				String constant = literal(ir.getSymbolTable().getConstantValue(vn));
+				return constant == null ? "undefined" : constant;
+			}
+			Set<InstanceKey> objects = pointsTo(method, ir, vn);
+			if (objects == null) {
+				unsound = true;
+				return "undefined";
+			}
+			Set<String> expressions = new LinkedHashSet<>();
+			for (InstanceKey ik : objects) {
+				if (ik instanceof ConstantKey<?>) {
+					String constant = literal(((ConstantKey<?>) ik).getValue());
+					if (constant != null) {
+						expressions.add(constant);
+					}
+				} else if (names.containsKey(ik)) {
+					expressions.add(names.get(ik));
+				} else {
+					// e.g. an object the package creates but does not export
+					unsound = true;
+				}
+			}
+			if (expressions.isEmpty()) {
+				return "undefined";
+			}
+			StringBuilder e = new StringBuilder();
+			for (String x : expressions) {
+				e.append(e.length() == 0 ? "(" : " || ").append(x);
+			}
+			return expressions.size() == 1 ? expressions.iterator().next() : e.append(")").toString();
+		}
+
+		/**
+		 * @return the objects value number vn of method may point to, or null if they are not known. Exported functions
+		 *         are often not called when a package is analyzed on its own, and so have no call graph nodes; then only
+		 *         values they read from the scope of a function that was analyzed, such as the exports of the module, are
+		 *         known.
+		 */
+		private Set<InstanceKey> pointsTo(IMethod method, IR ir, int vn) {
+			Set<InstanceKey> objects = new LinkedHashSet<>();
+			Set<CGNode> nodes = builder.getCallGraph().getNodes(method.getReference());
+			if (!nodes.isEmpty()) {
+				for (CGNode n : nodes) {
+					for (InstanceKey ik : pointerAnalysis.getPointsToSet(builder.getPointerKeyForLocal(n, vn))) {
+						objects.add(ik);
+					}
+				}
+				return objects;
+			}
+
+			for (SSAInstruction inst : Iterator2Iterable.make(ir.iterateAllInstructions())) {
+				if (inst instanceof AstLexicalRead) {
+					for (Access a : ((AstLexicalRead) inst).getAccesses()) {
+						if (a.valueNumber == vn) {
+							return lexicalPointsTo(a);
+						}
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return the objects the lexical variable read by a may point to when its defining function exits, or null if that
+		 *         function was not analyzed
+		 */
+		private Set<InstanceKey> lexicalPointsTo(Access a) {
+			Set<InstanceKey> objects = null;
+			for (CGNode n : builder.getCallGraph()) {
+				if (n.getMethod() instanceof AstMethod && n.getMethod().getDeclaringClass().getName().toString().equals(a.variableDefiner)) {
+					LexicalInformation lexicalInfo = ((AstMethod) n.getMethod()).lexicalInfo();
+					Pair<String, String>[] exposedNames = lexicalInfo.getExposedNames();
+					for (int i = 0; exposedNames != null && i < exposedNames.length; i++) {
+						if (exposedNames[i].fst.equals(a.variableName) && exposedNames[i].snd.equals(a.variableDefiner)) {
+							if (objects == null) {
+								objects = new LinkedHashSet<>();
+							}
+							int exitValue = lexicalInfo.getExitExposedUses()[i];
+							for (InstanceKey ik : pointerAnalysis.getPointsToSet(builder.getPointerKeyForLocal(n, exitValue))) {
+								objects.add(ik);
+							}
+						}
+					}
+				}
+			}
+			return objects;
+		}
+
+		/**
+		 * @return whether an argument, one of the values named in values other than this, is used in ir in a way the
+		 *         summary does not show: anything but calling it, returning it or testing it. That includes storing it,
+		 *         which lets it be called later, and passing it on to another function.
+		 * @param functionName the function of ir, which may expose its own parameters, those named parameterNames, to
+		 *          nested functions; null for a nested function
+		 */
+		private static boolean escapes(IR ir, String[] values, String functionName, Set<String> parameterNames) {
+			for (SSAInstruction inst : Iterator2Iterable.make(ir.iterateAllInstructions())) {
+				for (int i = 0; i < inst.getNumberOfUses(); i++) {
+					String value = valueOf(values, inst.getUse(i));
+					if (value != null && !value.equals("this") && !isShown(inst, i, functionName, parameterNames)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return whether use i of inst is one that summaries show, or that does not matter to them
+		 */
+		private static boolean isShown(SSAInstruction inst, int i, String functionName, Set<String> parameterNames) {
+			if (inst instanceof JavaScriptInvoke) {
+				MethodReference target = ((JavaScriptInvoke) inst).getCallSite().getDeclaredTarget();
+				return i == 0 && !target.equals(JavaScriptMethods.ctorReference) && !target.equals(JavaScriptMethods.dispatchReference);
+			} else if (inst instanceof AstLexicalWrite) {
+				// a function exposing its own parameter to nested functions, which are checked on their own
+				Access a = ((AstLexicalWrite) inst).getAccess(i);
+				return functionName != null && functionName.equals(a.variableDefiner) && parameterNames.contains(a.variableName);
+			} else {
+				return inst instanceof SSAReturnInstruction || inst instanceof SSAConditionalBranchInstruction
+						|| inst instanceof SSABinaryOpInstruction || inst instanceof SSAUnaryOpInstruction
+						|| inst instanceof JavaScriptTypeOfInstruction || inst instanceof JavaScriptInstanceOf
+						|| inst instanceof JavaScriptCheckReference || inst instanceof AstIsDefinedInstruction;
+			}
+		}
+
+		private static String valueOf(String[] values, int vn) {
+			return vn > 0 && vn < values.length ? values[vn] : null;
+		}
+
+		/**
+		 * @return every function of the packages analyzed, so also the nested functions of re-exported ones
+		 */
+		private List<IClass> allFunctions() {
+			if (functions == null) {
+				functions = new ArrayList<>();
+				for (IClass c : builder.getClassHierarchy()) {
+					if (c.getName().toString().startsWith(PACKAGE_PREFIX) && isFunction(c)) {
+						functions.add(c);
+					}
+				}
+			}
+			return functions;
+		}
+	}
+
+}
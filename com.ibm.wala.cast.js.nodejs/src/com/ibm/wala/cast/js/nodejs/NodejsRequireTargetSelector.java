@@ -30,7 +30,6 @@ import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.classLoader.SourceFileModule;
-import com.ibm.wala.classLoader.SourceModule;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.MethodTargetSelector;
 import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
@@ -57,13 +56,23 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
 
 	private File rootDir;
 	private MethodTargetSelector base;
+	private NodejsModuleSummaries summaries;
 	private PropagationCallGraphBuilder builder;
 	
 	private HashMap<String, IMethod> previouslyRequired = HashMapFactory.make();
 
 	public NodejsRequireTargetSelector(File rootDir, MethodTargetSelector base) {
+		this(rootDir, base, null);
+	}
+
+	/**
+	 * @param summaries if not null, required packages that have a summary
+	 *            are replaced by it
+	 */
+	public NodejsRequireTargetSelector(File rootDir, MethodTargetSelector base, NodejsModuleSummaries summaries) {
 		this.rootDir = rootDir;
 		this.base = base;
+		this.summaries = summaries;
 	}
 
 	public void setCallGraphBuilder(PropagationCallGraphBuilder builder) {
@@ -101,7 +110,10 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
 			for (String target : targets) {
 				try {
 					File workingDir = new File(receiver.getSourceFileName()).getParentFile();
-					SourceModule sourceModule = resolve(rootDir, workingDir, target);
+					SourceFileModule sourceModule = resolve(rootDir, workingDir, target);
+					if (summaries != null) {
+						sourceModule = summaries.substitute(rootDir, sourceModule);
+					}
 					if (previouslyRequired.containsKey(sourceModule.getClassName())) {
 						return previouslyRequired.get(sourceModule.getClassName());
 					}
@@ -246,7 +258,7 @@ public class NodejsRequireTargetSelector implements MethodTargetSelector {
 	 * @param d
 	 * @throws IOException
 	 */
-	private static SourceFileModule loadAsDirectory(File rootDir, File d) throws IOException {
+	static SourceFileModule loadAsDirectory(File rootDir, File d) throws IOException {
 		// 1.
 		File packageJsonFile = new File(d, "package.json");
 		if (packageJsonFile.isFile()) {
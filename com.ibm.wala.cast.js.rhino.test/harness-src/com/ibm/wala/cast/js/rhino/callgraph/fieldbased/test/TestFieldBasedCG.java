@@ -10,10 +10,18 @@
  *****************************************************************************/
 package com.ibm.wala.cast.js.rhino.callgraph.fieldbased.test;
 
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.ibm.wala.cast.ir.translator.TranslatorToCAst.Error;
+import com.ibm.wala.cast.js.html.DefaultSourceExtractor;
 import com.ibm.wala.cast.js.test.FieldBasedCGUtil.BuilderType;
+import com.ibm.wala.cast.js.util.CallGraph2JSON;
+import com.ibm.wala.util.NullProgressMonitor;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.WalaException;
 
@@ -144,6 +152,25 @@ public class TestFieldBasedCG extends AbstractFieldBasedTest {
     runTest("tests/fieldbased/callbacks2.js", assertionsForCallbacks2, BuilderType.OPTIMISTIC_WORKLIST);
   }
 
+  private Map<String, Set<String>> edges(String script, BuilderType builderType) throws WalaException, CancelException {
+    URL url = TestFieldBasedCG.class.getClassLoader().getResource(script);
+    return CallGraph2JSON.extractEdges(util.buildCG(url, builderType, new NullProgressMonitor(), false, DefaultSourceExtractor.factory).fst);
+  }
+
+  /**
+   * Difference propagation only saves work: the worklist builder finds the same call graph without it.
+   */
+  @Test
+  public void testDifferencePropagation() throws WalaException, CancelException {
+    String[] scripts = { "tests/fieldbased/simple.js", "tests/fieldbased/oneshot.js", "tests/fieldbased/callbacks.js",
+        "tests/fieldbased/callbacks2.js", "tests/fieldbased/lexical.js", "tests/fieldbased/reflective_calls.js",
+        "tests/fieldbased/new.js", "tests/jquery_spec_test.js" };
+    for(String script : scripts) {
+      Assert.assertEquals(script, edges(script, BuilderType.OPTIMISTIC_WORKLIST_NO_DIFFERENCE_PROPAGATION),
+          edges(script, BuilderType.OPTIMISTIC_WORKLIST));
+    }
+  }
+
   // @Test
   public void testBug2979() throws WalaException, Error, CancelException {
     System.err.println(runTest("pages/2979.html", new Object[][]{}, BuilderType.PESSIMISTIC, BuilderType.OPTIMISTIC, BuilderType.OPTIMISTIC_WORKLIST));
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import static com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil.makeHierarchy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.ipa.callgraph.CAstCallGraphUtil;
+import com.ibm.wala.cast.ir.ssa.AstIRFactory;
+import com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil;
+import com.ibm.wala.cast.js.loader.JavaScriptLoader;
+import com.ibm.wala.cast.js.loader.JavaScriptLoaderFactory;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.cast.js.translator.CachingJavaScriptTranslatorFactory;
+import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
+import com.ibm.wala.cast.loader.AstMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+
+public class TestCAstCacheRhino {
+
+  private static final String[] scripts = new String[] { "simple.js", "functions.js", "objects.js", "extjs_switch.js", "try.js",
+      "string-prims.js", "jquery_spec_test.js" };
+
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws IOException {
+    JSCallGraphUtil.setTranslatorFactory(new CAstRhinoTranslatorFactory());
+    cacheDir = Files.createTempDirectory("cast-cache").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    for (File f : cacheDir.listFiles()) {
+      f.delete();
+    }
+    cacheDir.delete();
+  }
+
+  /**
+   * @return the IR of every method loaded from the scripts, by method signature
+   */
+  private static Map<String, String> loadIR(JavaScriptTranslatorFactory translatorFactory) throws IOException, ClassHierarchyException {
+    List<Module> modules = new ArrayList<>();
+    for (String script : scripts) {
+      modules.add(JSCallGraphBuilderUtil.makeSourceModules("tests", script)[0]);
+    }
+    modules.add(JSCallGraphUtil.getPrologueFile("prologue.js"));
+
+    JavaScriptLoaderFactory loaders = new JavaScriptLoaderFactory(translatorFactory);
+    IClassHierarchy cha = makeHierarchy(CAstCallGraphUtil.makeScope(modules.toArray(new Module[modules.size()]), loaders,
+        JavaScriptLoader.JS), loaders);
+
+    IRFactory<IMethod> factory = AstIRFactory.makeDefaultFactory();
+    Map<String, String> result = new TreeMap<>();
+    for (IClass c : cha) {
+      for (IMethod m : c.getDeclaredMethods()) {
+        if (m instanceof AstMethod && !m.isAbstract()) {
+          result.put(m.getSignature(), factory.makeIR(m, Everywhere.EVERYWHERE, SSAOptions.defaultOptions()).toString());
+        } else {
+          result.put(m.getSignature(), "");
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * the prologue is not cacheable, since its stream cannot be read twice
+   */
+  @Test
+  public void testCachedIR() throws IOException, ClassHierarchyException {
+    Map<String, String> expected = loadIR(new CAstRhinoTranslatorFactory());
+
+    CachingJavaScriptTranslatorFactory cold = new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(), cacheDir);
+    Assert.assertEquals(expected, loadIR(cold));
+    Assert.assertEquals(0, cold.getHits());
+    Assert.assertEquals(scripts.length, cold.getMisses());
+
+    CachingJavaScriptTranslatorFactory warm = new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(), cacheDir);
+    Map<String, String> actual = loadIR(warm);
+    Assert.assertEquals(scripts.length, warm.getHits());
+    Assert.assertEquals(0, warm.getMisses());
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, String> e : expected.entrySet()) {
+      Assert.assertEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import static com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil.makeHierarchy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.ipa.callgraph.CAstCallGraphUtil;
+import com.ibm.wala.cast.ir.ssa.AstIRFactory;
+import com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil;
+import com.ibm.wala.cast.js.loader.JavaScriptLoader;
+import com.ibm.wala.cast.js.loader.JavaScriptLoaderFactory;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.cast.js.translator.CachingJavaScriptTranslatorFactory;
+import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
+import com.ibm.wala.cast.loader.AstMethod;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.impl.CAstOperator;
+import com.ibm.wala.cast.tree.impl.CompactCAstImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+
+public class TestCompactCAstRhino {
+
+  private static final String[] scripts = new String[] { "simple.js", "functions.js", "objects.js", "extjs_switch.js", "try.js",
+      "string-prims.js", "jquery_spec_test.js" };
+
+  @Before
+  public void setUp() {
+    JSCallGraphUtil.setTranslatorFactory(new CAstRhinoTranslatorFactory());
+  }
+
+  /**
+   * @return the IR of every method loaded from the scripts, by method signature
+   */
+  private static Map<String, String> loadIR(JavaScriptTranslatorFactory translatorFactory) throws IOException, ClassHierarchyException {
+    List<Module> modules = new ArrayList<>();
+    for (String script : scripts) {
+      modules.add(JSCallGraphBuilderUtil.makeSourceModules("tests", script)[0]);
+    }
+    modules.add(JSCallGraphUtil.getPrologueFile("prologue.js"));
+
+    JavaScriptLoaderFactory loaders = new JavaScriptLoaderFactory(translatorFactory);
+    IClassHierarchy cha = makeHierarchy(CAstCallGraphUtil.makeScope(modules.toArray(new Module[modules.size()]), loaders,
+        JavaScriptLoader.JS), loaders);
+
+    IRFactory<IMethod> factory = AstIRFactory.makeDefaultFactory();
+    Map<String, String> result = new TreeMap<>();
+    for (IClass c : cha) {
+      for (IMethod m : c.getDeclaredMethods()) {
+        if (m instanceof AstMethod && !m.isAbstract()) {
+          result.put(m.getSignature(), factory.makeIR(m, Everywhere.EVERYWHERE, SSAOptions.defaultOptions()).toString());
+        } else {
+          result.put(m.getSignature(), "");
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameIR(Map<String, String> expected, Map<String, String> actual) {
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, String> e : expected.entrySet()) {
+      Assert.assertEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+    }
+  }
+
+  @Test
+  public void testNodes() {
+    CompactCAstImpl ast = new CompactCAstImpl();
+    CAstNode x = ast.makeConstant("x");
+    CAstNode call = ast.makeNode(CAstNode.BINARY_EXPR, CAstOperator.OP_ADD, x, ast.makeConstant(1));
+    Assert.assertEquals(CAstNode.BINARY_EXPR, call.getKind());
+    Assert.assertEquals(3, call.getChildCount());
+    Assert.assertSame(CAstOperator.OP_ADD, call.getChild(0));
+    Assert.assertEquals(x, call.getChild(1));
+    Assert.assertEquals(x.hashCode(), call.getChild(1).hashCode());
+    Assert.assertEquals(CAstNode.CONSTANT, call.getChild(2).getKind());
+    Assert.assertEquals(1, call.getChild(2).getValue());
+    Assert.assertEquals(0, x.getChildCount());
+    Assert.assertNotEquals(x, new CompactCAstImpl().makeConstant("x"));
+    Assert.assertEquals(3, ast.getNodeCount());
+  }
+
+  @Test
+  public void testCompactIR() throws IOException, ClassHierarchyException {
+    assertSameIR(loadIR(new CAstRhinoTranslatorFactory()), loadIR(new CAstRhinoTranslatorFactory(true)));
+  }
+
+  @Test
+  public void testCachedCompactIR() throws IOException, ClassHierarchyException {
+    Map<String, String> expected = loadIR(new CAstRhinoTranslatorFactory());
+
+    File cacheDir = Files.createTempDirectory("cast-cache").toFile();
+    try {
+      CachingJavaScriptTranslatorFactory cold = new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(true), cacheDir);
+      assertSameIR(expected, loadIR(cold));
+      CachingJavaScriptTranslatorFactory warm = new CachingJavaScriptTranslatorFactory(new CAstRhinoTranslatorFactory(true), cacheDir);
+      assertSameIR(expected, loadIR(warm));
+      Assert.assertEquals(scripts.length, warm.getHits());
+    } finally {
+      for (File f : cacheDir.listFiles()) {
+        f.delete();
+      }
+      cacheDir.delete();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.js.ipa.callgraph.ContextBudgetSelector;
+import com.ibm.wala.cast.js.ipa.callgraph.JSAnalysisOptions;
+import com.ibm.wala.cast.js.ipa.callgraph.JSCFABuilder;
+import com.ibm.wala.cast.js.ipa.summaries.JavaScriptConstructorFunctions.JavaScriptConstructor;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.ContextInsensitiveSelector;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.WalaException;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+public class TestContextBudgetRhino {
+
+  @Before
+  public void setUp() {
+    JSCallGraphBuilderUtil.setTranslatorFactory(new CAstRhinoTranslatorFactory());
+  }
+
+  private static Set<String> methods(CallGraph CG) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : CG) {
+      result.add(n.getMethod().getSignature());
+    }
+    return result;
+  }
+
+  @Test
+  public void testBoundedContexts() throws IOException, WalaException, IllegalArgumentException, CancelException {
+    JSCFABuilder unbounded = JSCallGraphBuilderUtil.makeScriptCGBuilder("tests", "simple.js",
+        JSCallGraphBuilderUtil.CGBuilderType.ONE_CFA, TestContextBudgetRhino.class.getClassLoader());
+    CallGraph full = unbounded.makeCallGraph(unbounded.getOptions());
+    Assert.assertNull(unbounded.getContextBudget());
+
+    JSCFABuilder bounded = JSCallGraphBuilderUtil.makeScriptCGBuilder("tests", "simple.js",
+        JSCallGraphBuilderUtil.CGBuilderType.ONE_CFA, TestContextBudgetRhino.class.getClassLoader());
+    ((JSAnalysisOptions) bounded.getOptions()).setMaxContextsPerMethod(1);
+    CallGraph CG = bounded.makeCallGraph(bounded.getOptions());
+    ContextBudgetSelector budget = bounded.getContextBudget();
+    Assert.assertNotNull(budget);
+    Assert.assertFalse(budget.getMethodsOverBudget().isEmpty());
+    Assert.assertTrue(CG.getNumberOfNodes() < full.getNumberOfNodes());
+
+    for (IMethod m : budget.getMethodsOverBudget().keySet()) {
+      Assert.assertTrue(CG.getNode(m, Everywhere.EVERYWHERE) != null);
+    }
+    for (CGNode n : CG) {
+      if (!(n.getMethod() instanceof JavaScriptConstructor)) {
+        Assert.assertTrue(n.toString(), CG.getNodes(n.getMethod().getReference()).size() <= 2);
+      }
+    }
+
+    // falling back to less precise contexts loses no methods
+    Assert.assertTrue(methods(CG).containsAll(methods(full)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoBudget() {
+    new ContextBudgetSelector(new ContextInsensitiveSelector(), 0);
+  }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst.Error;
+import com.ibm.wala.cast.js.html.DefaultSourceExtractor;
+import com.ibm.wala.cast.js.html.JSSourceExtractor;
+import com.ibm.wala.cast.js.html.MappedSourceModule;
+import com.ibm.wala.cast.js.html.MappedSourceStringModule;
+import com.ibm.wala.cast.js.html.WebUtil;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.WalaException;
+
+public class TestInMemoryPageRhino {
+
+  private static final String[] pages = new String[] { "page1.html", "page2.html", "page3.html", "list.html", "windowx.html" };
+
+  private boolean useTempFile;
+
+  private boolean useTempName;
+
+  @Before
+  public void setUp() {
+    JSCallGraphBuilderUtil.setTranslatorFactory(new CAstRhinoTranslatorFactory());
+    useTempFile = JSSourceExtractor.USE_TEMP_FILE;
+    useTempName = JSSourceExtractor.USE_TEMP_NAME;
+    JSSourceExtractor.USE_TEMP_NAME = false;
+  }
+
+  @After
+  public void tearDown() {
+    JSSourceExtractor.USE_TEMP_FILE = useTempFile;
+    JSSourceExtractor.USE_TEMP_NAME = useTempName;
+  }
+
+  private static URL page(String name) {
+    return TestInMemoryPageRhino.class.getClassLoader().getResource("pages/" + name);
+  }
+
+  private static String text(Set<MappedSourceModule> sources) throws IOException {
+    Assert.assertEquals(1, sources.size());
+    try (InputStream s = sources.iterator().next().getInputStream()) {
+      return IOUtils.toString(s);
+    }
+  }
+
+  private static Set<String> nodes(URL url) throws IllegalArgumentException, CancelException, WalaException {
+    CallGraph CG = JSCallGraphBuilderUtil.makeHTMLCG(url, JSCallGraphBuilderUtil.CGBuilderType.ZERO_ONE_CFA, DefaultSourceExtractor.factory);
+    Set<String> result = new TreeSet<>();
+    for (CGNode n : CG) {
+      result.add(n.toString());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameSource() throws IOException, Error {
+    for (String page : pages) {
+      JSSourceExtractor.USE_TEMP_FILE = true;
+      String inFile = text(WebUtil.extractScriptFromHTML(page(page), DefaultSourceExtractor.factory).fst);
+      JSSourceExtractor.USE_TEMP_FILE = false;
+      Set<MappedSourceModule> inMemory = WebUtil.extractScriptFromHTML(page(page), DefaultSourceExtractor.factory).fst;
+      Assert.assertTrue(inMemory.iterator().next() instanceof MappedSourceStringModule);
+      Assert.assertEquals(page, inFile, text(inMemory));
+      try (InputStream s = inMemory.iterator().next().getURL().openStream()) {
+        Assert.assertEquals(page, inFile, IOUtils.toString(s));
+      }
+    }
+  }
+
+  @Test
+  public void testSameCallGraph() throws IllegalArgumentException, CancelException, WalaException {
+    JSSourceExtractor.USE_TEMP_FILE = true;
+    Set<String> inFile = nodes(page("page3.html"));
+    JSSourceExtractor.USE_TEMP_FILE = false;
+    Assert.assertEquals(inFile, nodes(page("page3.html")));
+  }
+
+  @Test
+  public void testParallelExtraction() throws IOException, Error {
+    JSSourceExtractor.USE_TEMP_FILE = false;
+    List<URL> urls = new ArrayList<>();
+    for (String page : pages) {
+      urls.add(page(page));
+    }
+    Map<URL, Set<MappedSourceModule>> sequential = WebUtil.extractScriptsFromHTML(urls, DefaultSourceExtractor.factory, 1);
+    Map<URL, Set<MappedSourceModule>> parallel = WebUtil.extractScriptsFromHTML(urls, DefaultSourceExtractor.factory, 4);
+    Assert.assertEquals(urls, new ArrayList<>(parallel.keySet()));
+    for (URL url : urls) {
+      Assert.assertEquals(url.toString(), text(sequential.get(url)), text(parallel.get(url)));
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationFinder;
+import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationSummary;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.SourceModule;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+
+public class TestParallelCorrelationsRhino {
+
+  private static final String[] scripts = new String[] { "forin.js", "badforin.js", "badforin2.js", "badforin3.js", "objects.js",
+      "jquery_spec_test.js" };
+
+  /**
+   * @return the correlations found in the scripts, by method signature
+   */
+  private static Map<String, String> findCorrelations(int threads) throws IOException, ClassHierarchyException {
+    List<SourceModule> modules = new ArrayList<>();
+    for (String script : scripts) {
+      modules.add((SourceModule) JSCallGraphBuilderUtil.makeSourceModules("tests", script)[0]);
+    }
+
+    Map<IMethod, CorrelationSummary> summaries = new CorrelationFinder(new CAstRhinoTranslatorFactory(), threads)
+        .findCorrelatedAccesses(modules);
+    Map<String, String> result = new TreeMap<>();
+    for (Map.Entry<IMethod, CorrelationSummary> e : summaries.entrySet()) {
+      result.put(e.getKey().getSignature(), e.getValue().pp().toString());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameCorrelations() throws IOException, ClassHierarchyException {
+    Map<String, String> sequential = findCorrelations(1);
+    Assert.assertFalse(sequential.isEmpty());
+    Assert.assertEquals(sequential, findCorrelations(4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoThreads() {
+    new CorrelationFinder(new CAstRhinoTranslatorFactory(), 0);
+  }
+}
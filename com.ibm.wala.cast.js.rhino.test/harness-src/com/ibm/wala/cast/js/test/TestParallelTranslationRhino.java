@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.test;
+
+import static com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil.makeHierarchy;
+import static com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil.makeLoaders;
+import static com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil.setTranslatorFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.cast.ipa.callgraph.CAstCallGraphUtil;
+import com.ibm.wala.cast.ir.ssa.AstIRFactory;
+import com.ibm.wala.cast.js.ipa.callgraph.JSCallGraphUtil;
+import com.ibm.wala.cast.js.loader.JavaScriptLoader;
+import com.ibm.wala.cast.js.loader.JavaScriptLoaderFactory;
+import com.ibm.wala.cast.js.translator.CAstRhinoTranslatorFactory;
+import com.ibm.wala.cast.loader.AstMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+
+public class TestParallelTranslationRhino {
+
+  private static final String[] scripts = new String[] { "simple.js", "functions.js", "objects.js", "inherit.js", "nested.js",
+      "string-prims.js", "jquery_spec_test.js" };
+
+  @Before
+  public void setUp() {
+    setTranslatorFactory(new CAstRhinoTranslatorFactory());
+  }
+
+  /**
+   * @return the IR of every method loaded from the scripts, by method signature
+   */
+  private static Map<String, String> loadIR(int threads) throws IOException, ClassHierarchyException {
+    List<Module> modules = new ArrayList<>();
+    for (String script : scripts) {
+      modules.add(JSCallGraphBuilderUtil.makeSourceModules("tests", script)[0]);
+    }
+    modules.add(JSCallGraphUtil.getPrologueFile("prologue.js"));
+
+    JavaScriptLoaderFactory loaders = makeLoaders();
+    loaders.setTranslationThreads(threads);
+    IClassHierarchy cha = makeHierarchy(CAstCallGraphUtil.makeScope(modules.toArray(new Module[modules.size()]), loaders,
+        JavaScriptLoader.JS), loaders);
+
+    IRFactory<IMethod> factory = AstIRFactory.makeDefaultFactory();
+    Map<String, String> result = new TreeMap<>();
+    for (IClass c : cha) {
+      for (IMethod m : c.getDeclaredMethods()) {
+        if (m instanceof AstMethod && !m.isAbstract()) {
+          result.put(m.getSignature(), factory.makeIR(m, Everywhere.EVERYWHERE, SSAOptions.defaultOptions()).toString());
+        } else {
+          result.put(m.getSignature(), "");
+        }
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameIR() throws IOException, ClassHierarchyException {
+    Map<String, String> sequential = loadIR(1);
+    Map<String, String> parallel = loadIR(4);
+    Assert.assertEquals(sequential.keySet(), parallel.keySet());
+    for (Map.Entry<String, String> e : sequential.entrySet()) {
+      Assert.assertEquals(e.getKey(), e.getValue(), parallel.get(e.getKey()));
+    }
+  }
+}
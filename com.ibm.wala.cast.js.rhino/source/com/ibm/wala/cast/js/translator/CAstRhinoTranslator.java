@@ -11,11 +11,16 @@
 package com.ibm.wala.cast.js.translator;
 
 import com.ibm.wala.cast.ir.translator.RewritingTranslatorToCAst;
+import com.ibm.wala.cast.tree.CAst;
 import com.ibm.wala.cast.tree.impl.CAstImpl;
 import com.ibm.wala.classLoader.ModuleEntry;
 
 public class CAstRhinoTranslator extends RewritingTranslatorToCAst {    
   public CAstRhinoTranslator(ModuleEntry m, boolean replicateForDoLoops) {
-    super(m, new RhinoToAstTranslator(new CAstImpl(), m, m.getName(), replicateForDoLoops));
-   }
+    this(m, replicateForDoLoops, new CAstImpl());
+  }
+
+  public CAstRhinoTranslator(ModuleEntry m, boolean replicateForDoLoops, CAst Ast) {
+    super(m, new RhinoToAstTranslator(Ast, m, m.getName(), replicateForDoLoops));
+  }
 }
@@ -12,13 +12,29 @@ package com.ibm.wala.cast.js.translator;
 
 import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
 import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.impl.CAstImpl;
+import com.ibm.wala.cast.tree.impl.CompactCAstImpl;
 import com.ibm.wala.classLoader.ModuleEntry;
 
 public class CAstRhinoTranslatorFactory implements JavaScriptTranslatorFactory {
 
+  private final boolean compact;
+
+  public CAstRhinoTranslatorFactory() {
+    this(false);
+  }
+
+  /**
+   * @param compact whether to build the CAst of each script with a {@link CompactCAstImpl}, which needs much less memory for
+   *          large scripts
+   */
+  public CAstRhinoTranslatorFactory(boolean compact) {
+    this.compact = compact;
+  }
+
 	@Override
   public TranslatorToCAst make(CAst ast, ModuleEntry M) {
-		return new CAstRhinoTranslator(M, false);
+		return new CAstRhinoTranslator(M, false, compact ? new CompactCAstImpl() : new CAstImpl());
 	}
 }
 
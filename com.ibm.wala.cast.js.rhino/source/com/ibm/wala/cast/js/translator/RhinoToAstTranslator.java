@@ -107,6 +107,8 @@ import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
 import com.ibm.wala.cast.tree.CAstType;
 import com.ibm.wala.cast.tree.impl.CAstOperator;
 import com.ibm.wala.cast.tree.impl.CAstSymbolImpl;
+import com.ibm.wala.cast.tree.impl.CompactCAstImpl;
+import com.ibm.wala.cast.tree.impl.CompactControlFlowMap;
 import com.ibm.wala.cast.tree.impl.RangePosition;
 import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
 import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
@@ -544,7 +546,9 @@ public class RhinoToAstTranslator implements TranslatorToCAst {
     }
 
     final CAstNode ast = noteSourcePosition(child, Ast.makeNode(CAstNode.BLOCK_STMT, stmts), n);
-    final CAstControlFlowMap map = child.cfg();
+    // a compact copy of the control flow no longer refers to the Rhino tree
+    final CAstControlFlowMap map = Ast instanceof CompactCAstImpl ? new CompactControlFlowMap((CompactCAstImpl) Ast, child.cfg())
+        : child.cfg();
     final CAstSourcePositionMap pos = child.pos();
 
     // not sure if we need this copy --MS
@@ -554,7 +558,11 @@ public class RhinoToAstTranslator implements TranslatorToCAst {
   }
     
   private Position makePosition(AstNode n) {
-    URL url = ((SourceModule)sourceModule).getURL();
+    // share one URL among all positions; getURL() may make a new one each time
+    if (sourceURL == null) {
+      sourceURL = ((SourceModule)sourceModule).getURL();
+    }
+    URL url = sourceURL;
     int line = n.getLineno(); 
     Position pos = new RangePosition(url, line, n.getAbsolutePosition(), n.getAbsolutePosition()+n.getLength());
 
@@ -2505,6 +2513,8 @@ private CAstNode[] walkChildren(final Node n, WalkContext context) {
 
   private final ModuleEntry sourceModule;
 
+  private URL sourceURL;
+
   final private Reader sourceReader;
 
   private int tempVarNum = 0;
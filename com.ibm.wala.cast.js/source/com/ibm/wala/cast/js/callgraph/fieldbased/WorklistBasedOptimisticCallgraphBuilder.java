@@ -10,6 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.cast.js.callgraph.fieldbased;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,16 +52,41 @@ import com.ibm.wala.util.collections.Pair;
  *
  */
 public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraphBuilder {
-	/** The maximum number of iterations to perform. */
+	/**
+	 * The maximum number of iterations to perform.
+	 * 
+	 * @deprecated not consulted: difference propagation pushes each function along each edge at most once
+	 */
+	@Deprecated
 	public int ITERATION_CUTOFF = Integer.MAX_VALUE;
 	
 	private final boolean handleCallApply;
 	
+	private final boolean differencePropagation;
+	
 	private FlowGraphBuilder builder;
 	
+	/** number of (vertex, function) facts derived by the last call graph extraction */
+	private long propagatedFacts;
+	
+	/** number of worklist items processed by the last call graph extraction */
+	private long processedVertices;
+	
+	/** number of flow edges added for call edges by the last call graph extraction */
+	private long addedFlowEdges;
+	
 	public WorklistBasedOptimisticCallgraphBuilder(IClassHierarchy cha, AnalysisOptions options, IAnalysisCacheView cache, boolean supportFullPointerAnalysis) {
+		this(cha, options, cache, supportFullPointerAnalysis, true);
+	}
+
+	/**
+	 * @param differencePropagation if false, every visit to a vertex pushes all functions reaching it on to its
+	 *          successors again, as this builder used to; the call graph is the same either way
+	 */
+	public WorklistBasedOptimisticCallgraphBuilder(IClassHierarchy cha, AnalysisOptions options, IAnalysisCacheView cache, boolean supportFullPointerAnalysis, boolean differencePropagation) {
 		super(cha, options, cache, supportFullPointerAnalysis);
 		handleCallApply = options instanceof JSAnalysisOptions && ((JSAnalysisOptions)options).handleCallApply();
+		this.differencePropagation = differencePropagation;
 	}
 
 	@Override
@@ -65,112 +95,171 @@ public class WorklistBasedOptimisticCallgraphBuilder extends FieldBasedCallGraph
 	  return builder.buildFlowGraph();
 	}
 
+	/**
+	 * Propagates reaching functions by difference propagation: only functions that newly reach a vertex are
+	 * pushed on to its successors, and a flow edge added for a newly discovered call edge only carries the
+	 * functions already reaching its source.
+	 */
 	@Override
   public Set<Pair<CallVertex,FuncVertex>> extractCallGraphEdges(FlowGraph flowgraph, IProgressMonitor monitor) throws CancelException {
-	  VertexFactory factory = flowgraph.getVertexFactory();
-	  Set<Vertex> worklist = HashSetFactory.make();
-	  Map<Vertex, Set<FuncVertex>> reachingFunctions = HashMapFactory.make();
-	  Map<VarVertex, JavaScriptInvoke> reflectiveCalleeVertices = HashMapFactory.make();
-	  
-	  for(Vertex v : flowgraph) {
-	    if(v instanceof FuncVertex) {
-	      FuncVertex fv = (FuncVertex)v;
-	      worklist.add(fv);
-	      MapUtil.findOrCreateSet(reachingFunctions, fv).add(fv);
-	    }
+	  propagatedFacts = 0;
+	  processedVertices = 0;
+	  addedFlowEdges = 0;
+	  return new Propagation(flowgraph).solve(monitor);
+	}
+
+	public long getPropagatedFacts() {
+	  return propagatedFacts;
+	}
+
+	public long getProcessedVertices() {
+	  return processedVertices;
+	}
+
+	public long getAddedFlowEdges() {
+	  return addedFlowEdges;
+	}
+
+	/**
+	 * @deprecated flow edges for new call edges are now added, and propagated along, by
+	 *             {@link #extractCallGraphEdges(FlowGraph, IProgressMonitor)} itself
+	 */
+	@Deprecated
+	public void addFlowEdge(FlowGraph flowgraph, Vertex from, Vertex to, Set<Vertex> worklist) {
+	  flowgraph.addEdge(from, to);
+	  worklist.add(from);
+	}
+
+	/**
+	 * State of one call graph extraction: for each vertex, the functions known to reach it, and those among them
+	 * that have not yet been pushed on to its successors.
+	 */
+	private class Propagation {
+	  private final FlowGraph flowgraph;
+	  private final VertexFactory factory;
+	  private final Map<Vertex, Set<FuncVertex>> reachingFunctions = HashMapFactory.make();
+	  private final Map<Vertex, Set<FuncVertex>> delta = HashMapFactory.make();
+	  private final Deque<Vertex> worklist = new ArrayDeque<>();
+	  private final Map<VarVertex, JavaScriptInvoke> reflectiveCalleeVertices = HashMapFactory.make();
+
+	  Propagation(FlowGraph flowgraph) {
+	    this.flowgraph = flowgraph;
+	    this.factory = flowgraph.getVertexFactory();
 	  }
-	  
-	  while(!worklist.isEmpty()) {
-      MonitorUtil.throwExceptionIfCanceled(monitor);
-
-      Vertex v = worklist.iterator().next();
-      worklist.remove(v);
-      Set<FuncVertex> vReach = MapUtil.findOrCreateSet(reachingFunctions, v);
-	    for(Vertex w : Iterator2Iterable.make(flowgraph.getSucc(v))) {
+
+	  Set<Pair<CallVertex,FuncVertex>> solve(IProgressMonitor monitor) throws CancelException {
+	    for(Vertex v : flowgraph) {
+	      if(v instanceof FuncVertex) {
+	        propagate(v, Collections.singleton((FuncVertex)v));
+	      }
+	    }
+
+	    while(!worklist.isEmpty()) {
 	      MonitorUtil.throwExceptionIfCanceled(monitor);
 
-	      Set<FuncVertex> wReach = MapUtil.findOrCreateSet(reachingFunctions, w);
-	      boolean changed = false;
+	      Vertex v = worklist.removeFirst();
+	      Set<FuncVertex> vDelta = delta.remove(v);
+	      ++processedVertices;
+	      Collection<FuncVertex> pushed = differencePropagation ? vDelta : new ArrayList<>(reachingFunctions.get(v));
+	      for(Vertex w : Iterator2Iterable.make(flowgraph.getSucc(v))) {
+	        propagate(w, pushed);
+	      }
+	    }
+
+	    Set<Pair<CallVertex, FuncVertex>> res = HashSetFactory.make();
+	    for(Map.Entry<Vertex, Set<FuncVertex>> e : reachingFunctions.entrySet())
+	      if(e.getKey() instanceof CallVertex)
+	        for(FuncVertex fv : e.getValue())
+	          res.add(Pair.make((CallVertex)e.getKey(), fv));
+	    return res;
+	  }
+
+	  // record that the functions in fvs reach w, and handle the ones that are new there
+	  private void propagate(Vertex w, Collection<FuncVertex> fvs) {
+	    Set<FuncVertex> wReach = MapUtil.findOrCreateSet(reachingFunctions, w);
+	    for(FuncVertex fv : fvs) {
+	      if(!wReach.add(fv))
+	        continue;
+	      ++propagatedFacts;
+	      pending(w).add(fv);
+
 	      if(w instanceof CallVertex) {
-	        for(FuncVertex fv : vReach) {
-	          if(wReach.add(fv)) {
-	            changed = true;
-	            addCallEdge(flowgraph, (CallVertex)w, fv, worklist);
-
-	            // special handling of invocations of Function.prototype.call
-	            if(handleCallApply && changed && fv.getFullName().equals("Lprologue.js/Function_prototype_call")) {
-	              JavaScriptInvoke invk = ((CallVertex)w).getInstruction();
-	              VarVertex reflectiveCalleeVertex = factory.makeVarVertex(((CallVertex)w).getCaller(), invk.getUse(1));
-                reflectiveCalleeVertices.put(reflectiveCalleeVertex, invk);
-                for(FuncVertex fw : MapUtil.findOrCreateSet(reachingFunctions, reflectiveCalleeVertex))
-                  addReflectiveCallEdge(flowgraph, reflectiveCalleeVertex, invk, fw, worklist);
-	            }
-	          }
+	        addCallEdge((CallVertex)w, fv);
+
+	        // special handling of invocations of Function.prototype.call
+	        if(handleCallApply && fv.getFullName().equals("Lprologue.js/Function_prototype_call")) {
+	          JavaScriptInvoke invk = ((CallVertex)w).getInstruction();
+	          VarVertex reflectiveCalleeVertex = factory.makeVarVertex(((CallVertex)w).getCaller(), invk.getUse(1));
+	          reflectiveCalleeVertices.put(reflectiveCalleeVertex, invk);
+	          for(FuncVertex fw : new ArrayList<>(MapUtil.findOrCreateSet(reachingFunctions, reflectiveCalleeVertex)))
+	            addReflectiveCallEdge(reflectiveCalleeVertex, invk, fw);
 	        }
 	      } else if(handleCallApply && reflectiveCalleeVertices.containsKey(w)) {
-	        JavaScriptInvoke invk = reflectiveCalleeVertices.get(w);
-	        for(FuncVertex fv : vReach) {
-	          if(wReach.add(fv)) {
-	            changed = true;
-	            addReflectiveCallEdge(flowgraph, (VarVertex)w, invk, fv, worklist);
-	          }
-	        }
-	      } else {
-
-	        changed = wReach.addAll(vReach);
+	        addReflectiveCallEdge((VarVertex)w, reflectiveCalleeVertices.get(w), fv);
 	      }
-	      if(changed)
-	        worklist.add(w);
 	    }
 	  }
-	  
-	  Set<Pair<CallVertex, FuncVertex>> res = HashSetFactory.make();
-	  for(Vertex v : reachingFunctions.keySet())
-	    if(v instanceof CallVertex)
-	      for(FuncVertex fv : reachingFunctions.get(v))
-	        res.add(Pair.make((CallVertex)v, fv));
-	  return res;
-	}
 
-	// add flow corresponding to a new call edge
-	private void addCallEdge(FlowGraph flowgraph, CallVertex c, FuncVertex callee, Set<Vertex> worklist) {
-		VertexFactory factory = flowgraph.getVertexFactory();
-		FuncVertex caller = c.getCaller();
-		JavaScriptInvoke invk = c.getInstruction();
-	
-		int offset = 0;
-    if (invk.getDeclaredTarget().getSelector().equals(JavaScriptMethods.ctorReference.getSelector())) {
-      offset = 1;
-    }
-    
-		for(int i=0;i<invk.getNumberOfPositionalParameters();++i) {
-		  // only flow receiver into 'this' if invk is, in fact, a method call
-      flowgraph.addEdge(factory.makeVarVertex(caller, invk.getUse(i)), factory.makeArgVertex(callee));
-		  if(i != 1 || !invk.getDeclaredTarget().getSelector().equals(AstMethodReference.fnSelector))
-		    addFlowEdge(flowgraph, factory.makeVarVertex(caller, invk.getUse(i)), factory.makeParamVertex(callee, i+offset), worklist);
-		}
-
-		// flow from return vertex to result vertex
-		addFlowEdge(flowgraph, factory.makeRetVertex(callee), factory.makeVarVertex(caller, invk.getDef()), worklist);			
-	}
+	  // the functions reaching v that are yet to be pushed on to its successors; v is queued if it was not already
+	  private Set<FuncVertex> pending(Vertex v) {
+	    Set<FuncVertex> vDelta = delta.get(v);
+	    if(vDelta == null) {
+	      MapUtil.findOrCreateSet(reachingFunctions, v);
+	      vDelta = HashSetFactory.make();
+	      delta.put(v, vDelta);
+	      worklist.add(v);
+	    }
+	    return vDelta;
+	  }
 
-  public void addFlowEdge(FlowGraph flowgraph, Vertex from, Vertex to, Set<Vertex> worklist) {
-    flowgraph.addEdge(from, to);
-    worklist.add(from);
-  }
-	
-	// add data flow corresponding to a reflective invocation via Function.prototype.call
-	// NB: for f.call(...), f will _not_ appear as a call target, but the appropriate argument and return data flow will be set up
-  private void addReflectiveCallEdge(FlowGraph flowgraph, VarVertex reflectiveCallee, JavaScriptInvoke invk, FuncVertex realCallee, Set<Vertex> worklist) {
-    VertexFactory factory = flowgraph.getVertexFactory();
-    FuncVertex caller = reflectiveCallee.getFunction();
-
-    // flow from arguments to parameters
-    for(int i=2;i<invk.getNumberOfPositionalParameters();++i) {
-      addFlowEdge(flowgraph, factory.makeVarVertex(caller, invk.getUse(i)), factory.makeParamVertex(realCallee, i-1), worklist);
-
-      // flow from return vertex to result vertex
-      addFlowEdge(flowgraph, factory.makeRetVertex(realCallee), factory.makeVarVertex(caller, invk.getDef()), worklist);
-    }
-  }
+	  // add flow corresponding to a new call edge
+	  private void addCallEdge(CallVertex c, FuncVertex callee) {
+	    FuncVertex caller = c.getCaller();
+	    JavaScriptInvoke invk = c.getInstruction();
+
+	    int offset = 0;
+	    if (invk.getDeclaredTarget().getSelector().equals(JavaScriptMethods.ctorReference.getSelector())) {
+	      offset = 1;
+	    }
+
+	    for(int i=0;i<invk.getNumberOfPositionalParameters();++i) {
+	      addFlowEdge(factory.makeVarVertex(caller, invk.getUse(i)), factory.makeArgVertex(callee));
+	      // only flow receiver into 'this' if invk is, in fact, a method call
+	      if(i != 1 || !invk.getDeclaredTarget().getSelector().equals(AstMethodReference.fnSelector))
+	        addFlowEdge(factory.makeVarVertex(caller, invk.getUse(i)), factory.makeParamVertex(callee, i+offset));
+	    }
+
+	    // flow from return vertex to result vertex
+	    addFlowEdge(factory.makeRetVertex(callee), factory.makeVarVertex(caller, invk.getDef()));
+	  }
+
+	  // a new edge has not seen any of the functions already reaching its source, so push all of them along it
+	  private void addFlowEdge(Vertex from, Vertex to) {
+	    boolean added = flowgraph.addEdge(from, to);
+	    if(added)
+	      ++addedFlowEdges;
+	    if(!differencePropagation) {
+	      // revisit the source, which pushes everything reaching it along all its edges again
+	      pending(from);
+	    } else if(added) {
+	      Set<FuncVertex> fromReach = reachingFunctions.get(from);
+	      if(fromReach != null && !fromReach.isEmpty())
+	        propagate(to, new ArrayList<>(fromReach));
+	    }
+	  }
+
+	  // add data flow corresponding to a reflective invocation via Function.prototype.call
+	  // NB: for f.call(...), f will _not_ appear as a call target, but the appropriate argument and return data flow will be set up
+	  private void addReflectiveCallEdge(VarVertex reflectiveCallee, JavaScriptInvoke invk, FuncVertex realCallee) {
+	    FuncVertex caller = reflectiveCallee.getFunction();
+
+	    // flow from arguments to parameters
+	    for(int i=2;i<invk.getNumberOfPositionalParameters();++i) {
+	      addFlowEdge(factory.makeVarVertex(caller, invk.getUse(i)), factory.makeParamVertex(realCallee, i-1));
+
+	      // flow from return vertex to result vertex
+	      addFlowEdge(factory.makeRetVertex(realCallee), factory.makeVarVertex(caller, invk.getDef()));
+	    }
+	  }
+	}
 }
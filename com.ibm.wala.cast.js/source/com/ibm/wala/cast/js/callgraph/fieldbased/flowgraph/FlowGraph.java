@@ -63,9 +63,9 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.graph.Graph;
-import com.ibm.wala.util.graph.GraphReachability;
 import com.ibm.wala.util.graph.GraphSlicer;
 import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.SCCReachability;
 import com.ibm.wala.util.graph.impl.ExtensionGraph;
 import com.ibm.wala.util.graph.impl.InvertedGraph;
 import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
@@ -89,7 +89,7 @@ public class FlowGraph implements Iterable<Vertex> {
 	
 	// the transitive closure of the inverse of this.graph, 
 	// but without paths going through the Unknown vertex
-	private GraphReachability<Vertex,FuncVertex> optimistic_closure;
+	private SCCReachability<Vertex,FuncVertex> optimistic_closure;
 	
 	public FlowGraph() {
 		this.graph = new SlowSparseNumberedGraph<>(1);
@@ -104,7 +104,7 @@ public class FlowGraph implements Iterable<Vertex> {
 		optimistic_closure = computeClosure(graph, monitor, FuncVertex.class);
 	}
 	
-	private static <T> GraphReachability<Vertex, T> computeClosure(NumberedGraph<Vertex> graph, IProgressMonitor monitor, final Class<?> type) throws CancelException {
+	private static <T> SCCReachability<Vertex, T> computeClosure(NumberedGraph<Vertex> graph, IProgressMonitor monitor, final Class<?> type) throws CancelException {
 		// prune flowgraph by taking out 'unknown' vertex
 		Graph<Vertex> pruned_flowgraph = GraphSlicer.prune(graph, t -> t.accept(new AbstractVertexVisitor<Boolean>() {
     	@Override
@@ -118,9 +118,9 @@ public class FlowGraph implements Iterable<Vertex> {
     	}
     }));
 		
-		// compute transitive closure
-		GraphReachability<Vertex, T> optimistic_closure = 
-		    new GraphReachability<>(
+		// compute transitive closure over the condensation of the flow graph
+		SCCReachability<Vertex, T> optimistic_closure = 
+		    new SCCReachability<>(
 		      new InvertedGraph<>(pruned_flowgraph),
 		      type::isInstance
 		    );
@@ -137,8 +137,10 @@ public class FlowGraph implements Iterable<Vertex> {
 	/**
 	 * Adds an edge from vertex <code>from</code> to vertex <code>to</code>, adding the vertices
 	 * to the graph if they are not in there yet.
+	 * 
+	 * @return true if the edge was not in the graph before
 	 */
-	public void addEdge(Vertex from, Vertex to) {
+	public boolean addEdge(Vertex from, Vertex to) {
 		if(!graph.containsNode(from))
 			graph.addNode(from);
 		if(!graph.containsNode(to))
@@ -147,7 +149,9 @@ public class FlowGraph implements Iterable<Vertex> {
 		if(!graph.hasEdge(from, to)) {
 		  optimistic_closure = null;   
 		  graph.addEdge(from, to);
+		  return true;
 		}
+		return false;
 	}
 
 	/**
@@ -176,7 +180,7 @@ public class FlowGraph implements Iterable<Vertex> {
       
       private final Map<Pair<PrototypeField,ObjectVertex>,PrototypeFieldVertex> proto = HashMapFactory.make();
       
-      private GraphReachability<Vertex,ObjectVertex> pointerAnalysis = computeClosure(graph, monitor, ObjectVertex.class);
+      private SCCReachability<Vertex,ObjectVertex> pointerAnalysis = computeClosure(graph, monitor, ObjectVertex.class);
 
       private final ExtensionGraph<Vertex> dataflow = new ExtensionGraph<>(graph);
 
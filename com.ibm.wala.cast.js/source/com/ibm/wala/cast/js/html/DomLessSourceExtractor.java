@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
@@ -324,16 +325,26 @@ public class DomLessSourceExtractor extends JSSourceExtractor {
     htmlCallback.writeToFinalRegion(finalRegion);
     
     // writing the final region into one SourceFileModule.
-    File outputFile = createOutputFile(entrypointUrl, DELETE_UPON_EXIT, USE_TEMP_NAME);
-    tempFile = outputFile;
-    FileMapping fileMapping;
-    try (final PrintWriter printer = new PrintWriter(new FileWriter(outputFile))) {
-      fileMapping = finalRegion.writeToFile(printer);
-    }
-    if (fileMapping == null) {
-      fileMapping = new EmptyFileMapping();
+    MappedSourceModule singleFileModule;
+    if (USE_TEMP_FILE) {
+      File outputFile = createOutputFile(entrypointUrl, DELETE_UPON_EXIT, USE_TEMP_NAME);
+      tempFile = outputFile;
+      FileMapping fileMapping;
+      try (final PrintWriter printer = new PrintWriter(new FileWriter(outputFile))) {
+        fileMapping = finalRegion.writeToFile(printer);
+      }
+      if (fileMapping == null) {
+        fileMapping = new EmptyFileMapping();
+      }
+      singleFileModule = new MappedSourceFileModule(outputFile, outputFile.getName(), fileMapping);
+    } else {
+      tempFile = null;
+      FileMapping fileMapping = finalRegion.getMapping();
+      if (fileMapping == null) {
+        fileMapping = new EmptyFileMapping();
+      }
+      singleFileModule = new MappedSourceStringModule(outputName(entrypointUrl, USE_TEMP_NAME), entrypointUrl, finalRegion.getText(), fileMapping);
     }
-    MappedSourceModule singleFileModule = new MappedSourceFileModule(outputFile, outputFile.getName(), fileMapping);
     return Collections.singleton(singleFileModule);
   }
 
@@ -341,12 +352,27 @@ public class DomLessSourceExtractor extends JSSourceExtractor {
     return new HtmlCallback(entrypointUrl, urlResolver);
   }
 
-  private static File createOutputFile(URL url, boolean delete, boolean useTempName) throws IOException {
-    File outputFile;
+  private static final AtomicLong outputCount = new AtomicLong();
+
+  private static String baseName(URL url) {
     String fileName = new File(url.getFile()).getName();
     if (fileName.length() < 5) {
       fileName = "xxxx" + fileName; 
     }
+    return fileName;
+  }
+
+  /**
+   * the name of an in-memory module for url, made as that of the file from {@link #createOutputFile(URL, boolean, boolean)} would be
+   */
+  private static String outputName(URL url, boolean useTempName) {
+    String fileName = baseName(url);
+    return useTempName ? fileName + outputCount.incrementAndGet() + ".js" : fileName;
+  }
+
+  private static File createOutputFile(URL url, boolean delete, boolean useTempName) throws IOException {
+    File outputFile;
+    String fileName = baseName(url);
     if (useTempName) {
       outputFile = File.createTempFile(fileName, ".js");
     } else {
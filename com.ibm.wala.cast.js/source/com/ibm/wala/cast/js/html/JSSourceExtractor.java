@@ -30,12 +30,18 @@ public abstract class JSSourceExtractor {
 
   public static boolean USE_TEMP_NAME = true;
 
+  /**
+   * if false, the combined source of a page is kept in memory, as a {@link MappedSourceStringModule}, rather than
+   * written to a temp file
+   */
+  public static boolean USE_TEMP_FILE = true;
+
   public abstract Set<MappedSourceModule> extractSources(URL entrypointUrl, IHtmlParser htmlParser, IUrlResolver urlResolver) throws IOException, Error;
   
   /**
    * Returns the temporary file created by a call to
    * {@link #extractSources(URL, IHtmlParser, IUrlResolver)} which holds all the
-   * discovered JS source. If no such file exists, returns <code>null</code>
+   * discovered JS source. If no such file exists, as when {@link #USE_TEMP_FILE} is false, returns <code>null</code>
    */
   public abstract File getTempFile();
   
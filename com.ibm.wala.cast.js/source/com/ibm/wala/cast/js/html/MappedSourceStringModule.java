@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.html;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.io.FileSuffixes;
+
+/**
+ * A {@link MappedSourceModule} whose source is kept in memory, so that scripts extracted from a page need not be
+ * written to a file before they are translated.
+ */
+public class MappedSourceStringModule implements MappedSourceModule {
+  private final String name;
+  private final String source;
+  private final FileMapping fileMapping;
+  private final URL url;
+
+  /**
+   * @param name the name of the module, as for a file
+   * @param context the module's URL is name, resolved against context; reading it yields the source
+   * @param source the code of the module
+   * @param fileMapping the mapping of positions in source to the documents it came from
+   * @throws IllegalArgumentException if name, context or source is null, or they do not make a URL
+   */
+  public MappedSourceStringModule(String name, URL context, final String source, FileMapping fileMapping) {
+    if (name == null) {
+      throw new IllegalArgumentException("name is null");
+    }
+    if (context == null) {
+      throw new IllegalArgumentException("context is null");
+    }
+    if (source == null) {
+      throw new IllegalArgumentException("source is null");
+    }
+    this.name = name;
+    this.source = source;
+    this.fileMapping = fileMapping;
+    try {
+      this.url = new URL(context, name, new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL u) {
+          return new URLConnection(u) {
+            @Override
+            public void connect() {
+            }
+
+            @Override
+            public InputStream getInputStream() {
+              return MappedSourceStringModule.this.getInputStream();
+            }
+          };
+        }
+      });
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("bad module name " + name, e);
+    }
+  }
+
+  @Override
+  public FileMapping getMapping() {
+    return fileMapping;
+  }
+
+  /**
+   * @return the source, encoded as a file written with the default charset would be
+   */
+  @Override
+  public InputStream getInputStream() {
+    return new ByteArrayInputStream(source.getBytes(Charset.defaultCharset()));
+  }
+
+  @Override
+  public Reader getInputReader() {
+    return new StringReader(source);
+  }
+
+  @Override
+  public URL getURL() {
+    return url;
+  }
+
+  @Override
+  public Iterator<? extends ModuleEntry> getEntries() {
+    return new NonNullSingletonIterator<>(this);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getClassName() {
+    return FileSuffixes.stripSuffix(name);
+  }
+
+  @Override
+  public boolean isClassFile() {
+    return false;
+  }
+
+  @Override
+  public boolean isSourceFile() {
+    return true;
+  }
+
+  @Override
+  public boolean isModuleFile() {
+    return false;
+  }
+
+  @Override
+  public Module asModule() {
+    return this;
+  }
+
+  @Override
+  public Module getContainer() {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "MappedSourceStringModule:" + name;
+  }
+}
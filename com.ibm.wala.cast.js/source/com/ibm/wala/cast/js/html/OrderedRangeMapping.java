@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.html;
+
+import java.util.Arrays;
+
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+
+/**
+ * The mappings of consecutive ranges of a {@link SourceRegion}, with the bounds of the ranges kept in int arrays so that
+ * the range of a position is found by binary search. Where ranges share a boundary, the later one wins, as it would in
+ * a {@link CompositeFileMapping} built by adding each range in front of the previous ones.
+ */
+public class OrderedRangeMapping implements FileMapping {
+  private final int[] starts;
+  private final int[] ends;
+  private final int[] startingLines;
+  private final int[] endingLines;
+  private final FileMapping[] mappings;
+
+  /**
+   * @param count how many entries of the arrays are used; ranges must be given in order, with starts and ends, and
+   *          starting and ending lines, never decreasing
+   */
+  OrderedRangeMapping(int[] starts, int[] ends, int[] startingLines, int[] endingLines, FileMapping[] mappings, int count) {
+    this.starts = Arrays.copyOf(starts, count);
+    this.ends = Arrays.copyOf(ends, count);
+    this.startingLines = Arrays.copyOf(startingLines, count);
+    this.endingLines = Arrays.copyOf(endingLines, count);
+    this.mappings = Arrays.copyOf(mappings, count);
+  }
+
+  @Override
+  public IncludedPosition getIncludedPosition(Position pos) {
+    if (pos.getFirstOffset() != -1) {
+      return find(starts, ends, pos.getFirstOffset(), pos.getLastOffset(), pos);
+    } else {
+      return find(startingLines, endingLines, pos.getFirstLine(), pos.getLastLine() == -1 ? pos.getFirstLine() : pos.getLastLine(), pos);
+    }
+  }
+
+  private IncludedPosition find(int[] from, int[] to, int first, int last, Position pos) {
+    // the last range starting at or before first
+    int lo = 0, hi = from.length - 1, i = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (from[mid] <= first) {
+        i = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    // earlier ranges also start in time, but end no later
+    for (; i >= 0 && to[i] >= last; i--) {
+      IncludedPosition result = mappings[i].getIncludedPosition(pos);
+      if (result != null) {
+        return result;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(mappings);
+  }
+}
@@ -15,6 +15,7 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URL;
+import java.util.Arrays;
 
 import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
 
@@ -28,20 +29,39 @@ public class SourceRegion {
   private final StringBuilder source = new StringBuilder();
   
   /**
-   * source location information
+   * source location information: the mapping of each range of this region
+   * that has one, in order
    */
-  private FileMapping fileMapping;
+  private int[] starts = new int[8];
+  private int[] ends = new int[8];
+  private int[] startingLines = new int[8];
+  private int[] endingLines = new int[8];
+  private FileMapping[] mappings = new FileMapping[8];
+  private int mappingCount = 0;
+
   private int currentLine = 1;
   
   public SourceRegion() {
   }
 
   public void print(final String text, Position originalPos, URL url, boolean bogusURL){
+    append(text, false, originalPos, url, bogusURL);
+  }
+
+  public void println(String text, Position originalPos, URL url, boolean bogusURL){
+    append(text, true, originalPos, url, bogusURL);
+  }
+
+  // appends the newline separately, to avoid copying large scripts
+  private void append(final String text, final boolean newline, Position originalPos, URL url, boolean bogusURL) {
     int startOffset = source.length();
-    source.append(text);      
+    source.append(text);
+    if (newline) {
+      source.append('\n');
+    }
     int endOffset = source.length();
 
-    int numberOfLineDrops = getNumberOfLineDrops(text);
+    int numberOfLineDrops = getNumberOfLineDrops(text) + (newline? 1: 0);
 
     if (originalPos != null) {
       RangeFileMapping map;
@@ -49,24 +69,32 @@ public class SourceRegion {
         map = new RangeFileMapping(startOffset, endOffset, currentLine, currentLine+numberOfLineDrops, originalPos, url) {
           @Override
           public Reader getInputStream() throws IOException {
-            return new StringReader(text);
+            return new StringReader(newline? text + "\n": text);
           }
         }; 
       } else {
         map = new RangeFileMapping(startOffset, endOffset, currentLine, currentLine+numberOfLineDrops, originalPos, url);
       }
-      if (fileMapping == null) {
-        fileMapping = map;
-      } else {
-        fileMapping = new CompositeFileMapping(map, fileMapping);
-      }
+      addMapping(startOffset, endOffset, currentLine, currentLine+numberOfLineDrops, map);
     }
     
     currentLine += numberOfLineDrops;
   }
 
-  public void println(String text, Position originalPos, URL url, boolean bogusURL){
-    print(text + "\n", originalPos, url, bogusURL);
+  private void addMapping(int start, int end, int startingLine, int endingLine, FileMapping map) {
+    if (mappingCount == mappings.length) {
+      int size = 2 * mappingCount;
+      starts = Arrays.copyOf(starts, size);
+      ends = Arrays.copyOf(ends, size);
+      startingLines = Arrays.copyOf(startingLines, size);
+      endingLines = Arrays.copyOf(endingLines, size);
+      mappings = Arrays.copyOf(mappings, size);
+    }
+    starts[mappingCount] = start;
+    ends[mappingCount] = end;
+    startingLines[mappingCount] = startingLine;
+    endingLines[mappingCount] = endingLine;
+    mappings[mappingCount++] = map;
   }
   
   public void print(String text){
@@ -74,37 +102,55 @@ public class SourceRegion {
   }
 
   public void println(String text){
-    print(text + "\n");
+    println(text, null, null, true);
+  }
+
+  /**
+   * @return the source location information for the region as it is now, or
+   *         <code>null</code> if it has none
+   */
+  public FileMapping getMapping() {
+    if (mappingCount == 0) {
+      return null;
+    } else if (mappingCount == 1) {
+      return mappings[0];
+    } else {
+      return new OrderedRangeMapping(starts, ends, startingLines, endingLines, mappings, mappingCount);
+    }
+  }
+
+  /**
+   * @return the source code of the region
+   */
+  public String getText() {
+    return source.toString();
   }
   
   public FileMapping writeToFile(PrintWriter ps){
-    ps.print(source.toString());
+    ps.append(source);
     ps.flush();
-    return fileMapping;
+    return getMapping();
   }
   
   public void write(SourceRegion otherRegion){
     int rangeStart = source.length();
-    String text = otherRegion.source.toString();
-    source.append(text);
+    source.append(otherRegion.source);
     int rangeEnd = source.length();
 
-    int numberOfLineDrops = getNumberOfLineDrops(text);
+    int numberOfLineDrops = otherRegion.currentLine - 1;
 
-    if (otherRegion.fileMapping != null) {
-      FileMapping map = new NestedRangeMapping(rangeStart, rangeEnd, currentLine, currentLine+numberOfLineDrops, otherRegion.fileMapping);
-      if (fileMapping == null) {
-        fileMapping = map;
-      } else {
-        fileMapping = new CompositeFileMapping(map, fileMapping);
-      }
+    FileMapping otherMapping = otherRegion.getMapping();
+    if (otherMapping != null) {
+      FileMapping map = new NestedRangeMapping(rangeStart, rangeEnd, currentLine, currentLine+numberOfLineDrops, otherMapping);
+      addMapping(rangeStart, rangeEnd, currentLine, currentLine+numberOfLineDrops, map);
     }
 
     currentLine += numberOfLineDrops;
   }
   
   public void dump(PrintWriter ps){
-    ps.println(source.toString());
+    ps.append(source);
+    ps.println();
   }
   
   private static int getNumberOfLineDrops(String text) {
@@ -40,7 +40,7 @@ public class WebPageLoaderFactory extends JavaScriptLoaderFactory {
 
   @Override
   protected IClassLoader makeTheLoader(IClassHierarchy cha) {
-    return new JavaScriptLoader( cha, translatorFactory, preprocessor ) {
+    JavaScriptLoader loader = new JavaScriptLoader( cha, translatorFactory, preprocessor ) {
       @Override
       protected TranslatorToIR initTranslator() {
         return new JSAstTranslator(this) {
@@ -124,5 +124,7 @@ public class WebPageLoaderFactory extends JavaScriptLoaderFactory {
         };
       }
     };
+    loader.setTranslationThreads(translationThreads);
+    return loader;
   }
 }
@@ -17,7 +17,17 @@ import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import com.ibm.wala.cast.ir.translator.TranslatorToCAst.Error;
@@ -52,6 +62,51 @@ public class WebUtil {
     }
   }
   
+  /**
+   * Extracts the scripts of several pages, using up to the given number of threads. Each page gets its own extractor
+   * and parser. Unless {@link JSSourceExtractor#USE_TEMP_FILE} is false, each page is also written to its own file.
+   * 
+   * @return the extracted sources of each page, in the order of urls
+   * @throws IllegalArgumentException if threads is less than 1
+   * @throws Error if any page cannot be parsed
+   */
+  public static Map<URL, Set<MappedSourceModule>> extractScriptsFromHTML(Collection<URL> urls, final Supplier<JSSourceExtractor> fSourceExtractor, int threads) throws Error {
+    if (threads < 1) {
+      throw new IllegalArgumentException("need at least one thread, not " + threads);
+    }
+    Map<URL, Set<MappedSourceModule>> result = new LinkedHashMap<>();
+    if (threads == 1 || urls.size() < 2) {
+      for (URL url : urls) {
+        result.put(url, extractScriptFromHTML(url, fSourceExtractor).fst);
+      }
+    } else {
+      ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, urls.size()));
+      try {
+        List<Future<Set<MappedSourceModule>>> pages = new ArrayList<>(urls.size());
+        for (final URL url : urls) {
+          pages.add(pool.submit(() -> extractScriptFromHTML(url, fSourceExtractor).fst));
+        }
+        Iterator<Future<Set<MappedSourceModule>>> page = pages.iterator();
+        for (URL url : urls) {
+          result.put(url, page.next().get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("interrupted while extracting scripts", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        } else if (e.getCause() instanceof java.lang.Error) {
+          throw (java.lang.Error) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+    return result;
+  }
+
   public static void main(String[] args) throws MalformedURLException, Error {
     System.err.println(extractScriptFromHTML(new URL(args[0]), Boolean.parseBoolean(args[1])? DefaultSourceExtractor.factory: DomLessSourceExtractor.factory));
   }
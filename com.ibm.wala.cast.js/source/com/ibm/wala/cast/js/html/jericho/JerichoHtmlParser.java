@@ -34,7 +34,10 @@ import net.htmlparser.jericho.Source;
  * Uses the Jericho parser to go over the HTML
  */
 public class JerichoHtmlParser implements IHtmlParser{
-    static Set<Warning> warnings = HashSetFactory.make();
+    /**
+     * errors logged by Jericho while parsing; per thread, so that pages can be parsed concurrently
+     */
+    static final ThreadLocal<Set<Warning>> warnings = ThreadLocal.withInitial(HashSetFactory::make);
 
     static{
       class CAstLoggerProvider implements LoggerProvider {
@@ -50,7 +53,7 @@ public class JerichoHtmlParser implements IHtmlParser{
 
             @Override
             public void error(final String arg0) {
-              warnings.add(new Warning() {
+              warnings.get().add(new Warning() {
                 @Override
                 public String getMsg() {
                   return arg0;
@@ -102,6 +105,7 @@ public class JerichoHtmlParser implements IHtmlParser{
 
 	@Override
   public void parse(URL url, Reader reader, IHtmlCallback callback, String fileName) throws TranslatorToCAst.Error {
+	  Set<Warning> warnings = JerichoHtmlParser.warnings.get();
 	  warnings.clear();
 		Parser parser = new Parser(callback, fileName);
 		Source src;
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.ipa.callgraph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
+import com.ibm.wala.cast.js.ipa.summaries.JavaScriptConstructorFunctions.JavaScriptConstructor;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A context selector that bounds the number of contexts a base selector may create for each method. Once a method has
+ * the maximum number of contexts, calls that would need a new one get {@link Everywhere#EVERYWHERE} instead, so each
+ * method has at most that many nodes plus an {@link Everywhere#EVERYWHERE} one. The methods that reached the bound are
+ * reported by {@link #getMethodsOverBudget()}.
+ *
+ * Contexts of constructors are never replaced, since the heap abstraction relies on them; see
+ * {@link JavaScriptConstructorContextSelector}.
+ */
+public class ContextBudgetSelector implements ContextSelector {
+
+  private final ContextSelector base;
+
+  private final int maxContextsPerMethod;
+
+  /**
+   * the contexts given out so far for each method, other than {@link Everywhere#EVERYWHERE}
+   */
+  private final Map<IMethod, Set<Context>> contexts = HashMapFactory.make();
+
+  /**
+   * for each method that reached the bound, how many times a new context was refused
+   */
+  private final Map<IMethod, Integer> refusals = HashMapFactory.make();
+
+  /**
+   * @param maxContextsPerMethod the most contexts, other than {@link Everywhere#EVERYWHERE}, that base may create for
+   *          any one method
+   * @throws IllegalArgumentException if base is null or maxContextsPerMethod is less than 1
+   */
+  public ContextBudgetSelector(ContextSelector base, int maxContextsPerMethod) {
+    if (base == null) {
+      throw new IllegalArgumentException("base is null");
+    }
+    if (maxContextsPerMethod < 1) {
+      throw new IllegalArgumentException("need a budget of at least one context, not " + maxContextsPerMethod);
+    }
+    this.base = base;
+    this.maxContextsPerMethod = maxContextsPerMethod;
+  }
+
+  public ContextSelector getBase() {
+    return base;
+  }
+
+  public int getMaxContextsPerMethod() {
+    return maxContextsPerMethod;
+  }
+
+  @Override
+  public Context getCalleeTarget(CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+    Context baseContext = base.getCalleeTarget(caller, site, callee, actualParameters);
+    if (callee instanceof JavaScriptConstructor || baseContext == null || Everywhere.EVERYWHERE.equals(baseContext)
+        || baseContext instanceof IllegalArgumentExceptionContext) {
+      return baseContext;
+    }
+
+    Set<Context> known = contexts.get(callee);
+    if (known == null) {
+      known = HashSetFactory.make();
+      contexts.put(callee, known);
+    }
+    if (known.contains(baseContext)) {
+      return baseContext;
+    } else if (known.size() < maxContextsPerMethod) {
+      known.add(baseContext);
+      return baseContext;
+    } else {
+      Integer count = refusals.get(callee);
+      refusals.put(callee, count == null ? 1 : count + 1);
+      return Everywhere.EVERYWHERE;
+    }
+  }
+
+  @Override
+  public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+    return base.getRelevantParameters(caller, site);
+  }
+
+  /**
+   * @return how many contexts other than {@link Everywhere#EVERYWHERE} have been given out for m
+   */
+  public int getContextCount(IMethod m) {
+    Set<Context> known = contexts.get(m);
+    return known == null ? 0 : known.size();
+  }
+
+  /**
+   * @return the methods that reached the bound, each with the number of times a new context for it was refused
+   */
+  public Map<IMethod, Integer> getMethodsOverBudget() {
+    return Collections.unmodifiableMap(refusals);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("at most " + maxContextsPerMethod + " contexts per method");
+    for (Map.Entry<IMethod, Integer> e : refusals.entrySet()) {
+      sb.append("\n  ").append(e.getKey().getSignature()).append(": refused ").append(e.getValue());
+    }
+    return sb.toString();
+  }
+}
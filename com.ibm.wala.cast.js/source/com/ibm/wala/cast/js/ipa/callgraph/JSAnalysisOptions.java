@@ -27,6 +27,12 @@ public class JSAnalysisOptions extends AnalysisOptions {
   
   private boolean useLoadFileTargetSelector = true;
 
+  /**
+   * if positive, the most contexts a call graph builder may create for any one
+   * method; see {@link ContextBudgetSelector}. Defaults to 0, for no bound.
+   */
+  private int maxContextsPerMethod = 0;
+
   public JSAnalysisOptions(AnalysisScope scope, Iterable<? extends Entrypoint> e) {
     super(scope, e);
   }
@@ -50,4 +56,19 @@ public class JSAnalysisOptions extends AnalysisOptions {
     this.useLoadFileTargetSelector = useIt;
   }
 
+  /**
+   * the most contexts a call graph builder may create for any one method, or 0
+   * if there is no bound
+   */
+  public int getMaxContextsPerMethod() {
+    return maxContextsPerMethod;
+  }
+
+  public void setMaxContextsPerMethod(int maxContextsPerMethod) {
+    if (maxContextsPerMethod < 0) {
+      throw new IllegalArgumentException("negative bound " + maxContextsPerMethod);
+    }
+    this.maxContextsPerMethod = maxContextsPerMethod;
+  }
+
 }
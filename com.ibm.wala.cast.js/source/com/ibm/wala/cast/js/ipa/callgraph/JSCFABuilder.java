@@ -19,6 +19,8 @@ import com.ibm.wala.cast.js.types.JavaScriptTypes;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
 import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
@@ -26,6 +28,7 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.EmptyIterator;
 import com.ibm.wala.util.strings.Atom;
 
@@ -113,4 +116,29 @@ public abstract class JSCFABuilder extends JSSSAPropagationCallGraphBuilder {
     });
   }
 
+  /**
+   * If the options bound the contexts per method, wraps the context selector in
+   * a {@link ContextBudgetSelector} before building, so the bound also covers
+   * selectors added after this builder was made.
+   */
+  @Override
+  public CallGraph makeCallGraph(AnalysisOptions options, IProgressMonitor monitor) throws IllegalArgumentException,
+      CallGraphBuilderCancelException {
+    if (options instanceof JSAnalysisOptions && !(getContextSelector() instanceof ContextBudgetSelector)) {
+      int max = ((JSAnalysisOptions) options).getMaxContextsPerMethod();
+      if (max > 0) {
+        setContextSelector(new ContextBudgetSelector(getContextSelector(), max));
+      }
+    }
+    return super.makeCallGraph(options, monitor);
+  }
+
+  /**
+   * @return the selector bounding the contexts per method, which reports the
+   *         methods that reached the bound, or <code>null</code> if there is none
+   */
+  public ContextBudgetSelector getContextBudget() {
+    return getContextSelector() instanceof ContextBudgetSelector ? (ContextBudgetSelector) getContextSelector() : null;
+  }
+
 }
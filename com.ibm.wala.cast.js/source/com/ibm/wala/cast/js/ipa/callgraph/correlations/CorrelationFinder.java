@@ -19,10 +19,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ibm.wala.cast.ipa.callgraph.CAstAnalysisScope;
 import com.ibm.wala.cast.ir.ssa.AbstractReflectiveGet;
@@ -79,9 +85,23 @@ public class CorrelationFinder {
   private final static boolean IGNORE_NUMERIC_INDICES = false;
   
   private final JavaScriptTranslatorFactory translatorFactory;
+
+  private final int threads;
   
   public CorrelationFinder(JavaScriptTranslatorFactory translatorFactory) {
+    this(translatorFactory, 1);
+  }
+
+  /**
+   * @param threads how many threads translate the scripts and summarize their functions; the summaries found do not depend on
+   *          it, but the translator factory must be able to work on several scripts at once
+   */
+  public CorrelationFinder(JavaScriptTranslatorFactory translatorFactory, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + threads);
+    }
     this.translatorFactory = translatorFactory;
+    this.threads = threads;
   }
 
   @SuppressWarnings("unused")
@@ -283,6 +303,7 @@ public class CorrelationFinder {
   public Map<IMethod, CorrelationSummary> findCorrelatedAccesses(SourceModule[] scripts_array) throws ClassHierarchyException {
     JSCallGraphUtil.setTranslatorFactory(translatorFactory);
     JavaScriptLoaderFactory loaders = JSCallGraphUtil.makeLoaders(null);
+    loaders.setTranslationThreads(threads);
     CAstAnalysisScope scope = new CAstAnalysisScope(scripts_array, loaders, Collections.singleton(JavaScriptLoader.JS));
     IClassHierarchy cha = ClassHierarchyFactory.make(scope, loaders, JavaScriptLoader.JS);
     try {
@@ -290,16 +311,46 @@ public class CorrelationFinder {
     } catch (WalaException e) {
       return Collections.emptyMap();
     }
-    IRFactory<IMethod> factory = AstIRFactory.makeDefaultFactory();
+    final IRFactory<IMethod> factory = AstIRFactory.makeDefaultFactory();
 
-    Map<IMethod, CorrelationSummary> correlations = HashMapFactory.make();
+    // inherited methods are seen once per subclass, but only need to be summarized once
+    Set<IMethod> methods = new LinkedHashSet<>();
     for(IClass klass : cha) {
-      for(IMethod method : klass.getAllMethods()) {
-        IR ir = factory.makeIR(method, Everywhere.EVERYWHERE, SSAOptions.defaultOptions());
-        CorrelationSummary summary = findCorrelatedAccesses(method, ir);
+      methods.addAll(klass.getAllMethods());
+    }
+
+    Map<IMethod, CorrelationSummary> correlations = HashMapFactory.make();
+    if (threads == 1 || methods.size() < 2) {
+      for(IMethod method : methods) {
+        CorrelationSummary summary = findCorrelatedAccesses(method, factory.makeIR(method, Everywhere.EVERYWHERE, SSAOptions.defaultOptions()));
         if(!summary.getCorrelations().isEmpty())
           correlations.put(method, summary);
       }
+    } else {
+      ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, methods.size()));
+      try {
+        List<Future<CorrelationSummary>> results = new ArrayList<>(methods.size());
+        for(final IMethod method : methods) {
+          results.add(pool.submit(() -> findCorrelatedAccesses(method, factory.makeIR(method, Everywhere.EVERYWHERE, SSAOptions.defaultOptions()))));
+        }
+        // collect the summaries in the order of the methods, as on one thread
+        Iterator<Future<CorrelationSummary>> result = results.iterator();
+        for(IMethod method : methods) {
+          CorrelationSummary summary = result.next().get();
+          if(!summary.getCorrelations().isEmpty())
+            correlations.put(method, summary);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("interrupted while finding correlations", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof java.lang.Error) {
+          throw (java.lang.Error) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
     }
     
     return correlations;
@@ -262,7 +262,13 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
   }
   
   public static CorrelatedPairExtractionPolicy make(CAstEntity entity, Map<IMethod, CorrelationSummary> summaries) {
-    CorrelatedPairExtractionPolicy policy = new CorrelatedPairExtractionPolicy();
+    return makeForPositions(entity, summariesByPosition(summaries));
+  }
+
+  /**
+   * @return the summaries of the source methods among the given ones, keyed by the position of each method
+   */
+  public static Map<Position, CorrelationSummary> summariesByPosition(Map<IMethod, CorrelationSummary> summaries) {
     Map<Position, CorrelationSummary> summary_map = HashMapFactory.make();
     for(Map.Entry<IMethod, CorrelationSummary> e : summaries.entrySet()) {
       if(e.getKey() instanceof AstMethod) {
@@ -271,7 +277,15 @@ public class CorrelatedPairExtractionPolicy extends ExtractionPolicy {
           summary_map.put(pos, e.getValue());
       }
     }
-    return addCorrelations(entity, summary_map, policy);
+    return summary_map;
+  }
+
+  /**
+   * like {@link #make(CAstEntity, Map)}, for summaries already keyed by {@link #summariesByPosition(Map)}; this avoids
+   * rebuilding that map for every entity
+   */
+  public static CorrelatedPairExtractionPolicy makeForPositions(CAstEntity entity, Map<Position, CorrelationSummary> summaries) {
+    return addCorrelations(entity, summaries, new CorrelatedPairExtractionPolicy());
   }
   
   @Override
@@ -19,6 +19,7 @@ import com.ibm.wala.cast.js.ipa.callgraph.correlations.CorrelationSummary;
 import com.ibm.wala.cast.js.translator.JavaScriptTranslatorFactory;
 import com.ibm.wala.cast.tree.CAst;
 import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
 import com.ibm.wala.cast.tree.rewrite.CAstBasicRewriter.NoKey;
 import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
 import com.ibm.wala.classLoader.IMethod;
@@ -26,18 +27,36 @@ import com.ibm.wala.classLoader.SourceModule;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 
 public class CorrelatedPairExtractorFactory implements CAstRewriterFactory<NodePos, NoKey> {
-  private final Map<IMethod, CorrelationSummary> summaries;
+  private final Map<Position, CorrelationSummary> summaries;
 
   public CorrelatedPairExtractorFactory(JavaScriptTranslatorFactory translatorFactory, URL entryPoint) throws ClassHierarchyException {
-    this(new CorrelationFinder(translatorFactory).findCorrelatedAccesses(entryPoint));
+    this(translatorFactory, entryPoint, 1);
   }
   
   public CorrelatedPairExtractorFactory(JavaScriptTranslatorFactory translatorFactory, SourceModule[] scripts) throws ClassHierarchyException {
-    this(new CorrelationFinder(translatorFactory).findCorrelatedAccesses(scripts));
+    this(translatorFactory, scripts, 1);
+  }
+
+  /**
+   * find correlations on the given number of threads; see {@link CorrelationFinder#CorrelationFinder(JavaScriptTranslatorFactory, int)}
+   */
+  public CorrelatedPairExtractorFactory(JavaScriptTranslatorFactory translatorFactory, URL entryPoint, int threads) throws ClassHierarchyException {
+    this(new CorrelationFinder(translatorFactory, threads).findCorrelatedAccesses(entryPoint));
+  }
+
+  /**
+   * find correlations on the given number of threads; see {@link CorrelationFinder#CorrelationFinder(JavaScriptTranslatorFactory, int)}
+   */
+  public CorrelatedPairExtractorFactory(JavaScriptTranslatorFactory translatorFactory, SourceModule[] scripts, int threads) throws ClassHierarchyException {
+    this(new CorrelationFinder(translatorFactory, threads).findCorrelatedAccesses(scripts));
   }
   
+  /**
+   * The extractors made by this factory only read the summaries, so they may rewrite several scripts at once, as they do when
+   * the loader translates scripts on several threads.
+   */
   public CorrelatedPairExtractorFactory(Map<IMethod, CorrelationSummary> summaries) {
-    this.summaries = summaries;
+    this.summaries = CorrelatedPairExtractionPolicy.summariesByPosition(summaries);
   }
 
   @Override
@@ -45,7 +64,7 @@ public class CorrelatedPairExtractorFactory implements CAstRewriterFactory<NodeP
     ExtractionPolicyFactory policyFactory = new ExtractionPolicyFactory() {
       @Override
       public ExtractionPolicy createPolicy(CAstEntity entity) {
-        CorrelatedPairExtractionPolicy policy = CorrelatedPairExtractionPolicy.make(entity, summaries);
+        CorrelatedPairExtractionPolicy policy = CorrelatedPairExtractionPolicy.makeForPositions(entity, summaries);
         assert policy != null;
         return policy;
       }
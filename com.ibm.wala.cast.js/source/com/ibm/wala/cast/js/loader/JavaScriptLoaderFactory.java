@@ -24,6 +24,11 @@ import com.ibm.wala.types.ClassLoaderReference;
 public class JavaScriptLoaderFactory extends SingleClassLoaderFactory {
   protected final JavaScriptTranslatorFactory translatorFactory;
   protected final CAstRewriterFactory<?, ?> preprocessor;
+
+  /**
+   * the number of threads on which the loader translates scripts to CAst
+   */
+  protected int translationThreads = 1;
   
   public JavaScriptLoaderFactory(JavaScriptTranslatorFactory factory) {
     this(factory, null);
@@ -34,9 +39,22 @@ public class JavaScriptLoaderFactory extends SingleClassLoaderFactory {
     this.preprocessor = preprocessor;
   }
 
+  /**
+   * Parse and translate scripts to CAst on n threads; see {@link JavaScriptLoader#setTranslationThreads(int)}. The translator
+   * factory and preprocessor must be able to work on several scripts at once.
+   */
+  public void setTranslationThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    translationThreads = n;
+  }
+
   @Override
   protected IClassLoader makeTheLoader(IClassHierarchy cha) {
-    return new JavaScriptLoader( cha, translatorFactory, preprocessor );
+    JavaScriptLoader loader = new JavaScriptLoader( cha, translatorFactory, preprocessor );
+    loader.setTranslationThreads(translationThreads);
+    return loader;
   }
 
   @Override
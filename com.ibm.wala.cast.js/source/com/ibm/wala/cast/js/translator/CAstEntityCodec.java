@@ -0,0 +1,795 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.translator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.cast.js.types.JavaScriptTypes;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstAnnotation;
+import com.ibm.wala.cast.tree.CAstControlFlowMap;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.tree.CAstNodeTypeMap;
+import com.ibm.wala.cast.tree.CAstQualifier;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap;
+import com.ibm.wala.cast.tree.CAstSourcePositionMap.Position;
+import com.ibm.wala.cast.tree.CAstType;
+import com.ibm.wala.cast.tree.impl.CAstControlFlowRecorder;
+import com.ibm.wala.cast.tree.impl.CAstOperator;
+import com.ibm.wala.cast.tree.impl.CAstSourcePositionRecorder;
+import com.ibm.wala.cast.tree.impl.CAstSymbolImpl;
+import com.ibm.wala.cast.tree.impl.CompactCAstImpl;
+import com.ibm.wala.cast.tree.impl.CompactControlFlowMap;
+import com.ibm.wala.cast.tree.impl.RangePosition;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * Binary encoding of the CAst of a JavaScript file, as produced by the JavaScript front ends: the entity tree with
+ * the AST, control flow map and source positions of each entity.
+ *
+ * Nodes are numbered across the whole file, children before parents, so that sharing between trees and references
+ * from control flow maps, position maps and scoped entity maps survive the round trip.
+ *
+ * @see CachingJavaScriptTranslatorFactory
+ */
+final class CAstEntityCodec {
+
+  static final int MAGIC = 0x43417374;
+
+  static final int VERSION = 1;
+
+  /**
+   * thrown when an entity contains data this encoding does not cover
+   */
+  static class UnsupportedCAstException extends Exception {
+    private static final long serialVersionUID = -2715630213471209113L;
+
+    UnsupportedCAstException(String message) {
+      super(message);
+    }
+  }
+
+  // value tags
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte LONG = 5;
+  private static final byte FLOAT = 6;
+  private static final byte CHARACTER = 7;
+  private static final byte SYMBOL = 8;
+  private static final byte ENTITY = 9;
+  private static final byte NODE = 10;
+  private static final byte TYPE = 11;
+  private static final byte SWITCH_DEFAULT = 12;
+
+  // node tags
+  private static final byte TREE = 0;
+  private static final byte CONSTANT = 1;
+  private static final byte OPERATOR = 2;
+  private static final byte EXCEPTION_TO_EXIT = 3;
+
+  private static final int STRING_CHUNK = 16 * 1024;
+
+  private static final Map<String, CAstOperator> operators = constants(CAstOperator.class, CAstOperator.class);
+
+  private static final Map<String, TypeReference> types = constants(JavaScriptTypes.class, TypeReference.class);
+
+  /**
+   * @return the public static fields of c of type t, by their value's string form
+   */
+  private static <T> Map<String, T> constants(Class<?> c, Class<T> t) {
+    Map<String, T> result = HashMapFactory.make();
+    for (Field f : c.getFields()) {
+      if (Modifier.isStatic(f.getModifiers()) && t.isAssignableFrom(f.getType())) {
+        try {
+          T value = t.cast(f.get(null));
+          result.put(key(value), value);
+        } catch (IllegalAccessException e) {
+          Assertions.UNREACHABLE();
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String key(Object constant) {
+    return constant instanceof CAstOperator ? (String) ((CAstOperator) constant).getValue() : constant.toString();
+  }
+
+  private CAstEntityCodec() {
+  }
+
+  /**
+   * write entity, whose positions refer to moduleURL, to out
+   *
+   * @throws UnsupportedCAstException if the entity cannot be encoded; nothing useful has been written to out then
+   */
+  static void write(CAstEntity entity, URL moduleURL, DataOutputStream out) throws IOException, UnsupportedCAstException {
+    new Writer(moduleURL, out).write(entity);
+  }
+
+  /**
+   * read an entity written by {@link #write}, building its nodes with ast and pointing its positions at moduleURL
+   */
+  static CAstEntity read(CAst ast, URL moduleURL, DataInputStream in) throws IOException {
+    return new Reader(ast, moduleURL, in).read();
+  }
+
+  private static class Writer {
+    private final URL moduleURL;
+
+    private final DataOutputStream out;
+
+    private final Map<CAstEntity, Integer> entities = new IdentityHashMap<>();
+
+    private final List<CAstEntity> entityList = new ArrayList<>();
+
+    private final Map<CAstNode, Integer> nodes = new IdentityHashMap<>();
+
+    // nodes of a CompactCAstImpl are handles that are equal, but not identical, each time they are reached
+    private final Map<CAstNode, Integer> compactNodes = HashMapFactory.make();
+
+    private final List<CAstNode> nodeList = new ArrayList<>();
+
+    private final Map<URL, Integer> urls = HashMapFactory.make();
+
+    Writer(URL moduleURL, DataOutputStream out) {
+      this.moduleURL = moduleURL;
+      this.out = out;
+    }
+
+    void write(CAstEntity root) throws IOException, UnsupportedCAstException {
+      entity(root);
+      for (int i = 0; i < entityList.size(); i++) {
+        collect(entityList.get(i));
+      }
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entityList.size());
+      out.writeInt(nodeList.size());
+      for (CAstNode n : nodeList) {
+        writeNode(n);
+      }
+      for (CAstEntity e : entityList) {
+        writeEntity(e);
+      }
+    }
+
+    private int entity(CAstEntity e) throws UnsupportedCAstException {
+      Integer id = entities.get(e);
+      if (id == null) {
+        if (e.getType() != JSAstTranslator.Any) {
+          throw new UnsupportedCAstException("type " + e.getType() + " of " + e);
+        }
+        if (e.getArgumentDefaults() != null && e.getArgumentDefaults().length > 0) {
+          throw new UnsupportedCAstException("argument defaults of " + e);
+        }
+        if (e.getNodeTypeMap() != null) {
+          throw new UnsupportedCAstException("node types of " + e);
+        }
+        if (e.getAnnotations() != null && !e.getAnnotations().isEmpty()) {
+          throw new UnsupportedCAstException("annotations of " + e);
+        }
+        id = entityList.size();
+        entities.put(e, id);
+        entityList.add(e);
+      }
+      return id;
+    }
+
+    // number all nodes referenced by e, and all entities referenced by those nodes
+    private void collect(CAstEntity e) throws UnsupportedCAstException {
+      number(e.getAST());
+      for (Map.Entry<CAstNode, Collection<CAstEntity>> s : e.getAllScopedEntities().entrySet()) {
+        if (s.getKey() != null) {
+          number(s.getKey());
+        }
+        for (CAstEntity child : s.getValue()) {
+          entity(child);
+        }
+      }
+      if (!(e.getControlFlow() instanceof CAstControlFlowRecorder || e.getControlFlow() instanceof CompactControlFlowMap)) {
+        throw new UnsupportedCAstException("control flow map of " + e);
+      }
+      CAstControlFlowMap cfg = e.getControlFlow();
+      for (CAstNode n : cfg.getMappedNodes()) {
+        number(n);
+        for (Object label : cfg.getTargetLabels(n)) {
+          if (label instanceof CAstNode) {
+            number((CAstNode) label);
+          }
+          number(cfg.getTarget(n, label));
+        }
+      }
+      for (Iterator<CAstNode> ns = e.getSourceMap().getMappedNodes(); ns.hasNext();) {
+        number(ns.next());
+      }
+    }
+
+    // number root and its descendants, children first
+    private void number(CAstNode root) throws UnsupportedCAstException {
+      if (root == null || nodeTable(root).containsKey(root)) {
+        return;
+      }
+      List<CAstNode> stack = new ArrayList<>();
+      List<Integer> next = new ArrayList<>();
+      stack.add(root);
+      next.add(0);
+      while (!stack.isEmpty()) {
+        int top = stack.size() - 1;
+        CAstNode n = stack.get(top);
+        int i = next.get(top);
+        if (i < n.getChildCount()) {
+          next.set(top, i + 1);
+          CAstNode child = n.getChild(i);
+          if (child != null && !nodeTable(child).containsKey(child)) {
+            stack.add(child);
+            next.add(0);
+          }
+        } else {
+          stack.remove(top);
+          next.remove(top);
+          if (!nodeTable(n).containsKey(n)) {
+            if (n.getKind() == CAstNode.CONSTANT && n.getValue() instanceof CAstEntity) {
+              entity((CAstEntity) n.getValue());
+            }
+            nodeTable(n).put(n, nodeList.size());
+            nodeList.add(n);
+          }
+        }
+      }
+    }
+
+    private boolean isMappedAst(CAstControlFlowMap cfg, CAstNode n) {
+      if (cfg instanceof CompactControlFlowMap) {
+        return ((CompactControlFlowMap) cfg).isMappedAst(n);
+      } else {
+        return ((CAstControlFlowRecorder) cfg).isMappedAst(n);
+      }
+    }
+
+    private Map<CAstNode, Integer> nodeTable(CAstNode n) {
+      return CompactCAstImpl.isCompactNode(n) ? compactNodes : nodes;
+    }
+
+    private int node(CAstNode n) {
+      return n == null ? -1 : nodeTable(n).get(n);
+    }
+
+    private List<CAstNode> subtree(CAstNode root) {
+      List<CAstNode> result = new ArrayList<>();
+      Map<CAstNode, Boolean> seen = new IdentityHashMap<>();
+      Map<CAstNode, Boolean> seenCompact = HashMapFactory.make();
+      if (root != null) {
+        result.add(root);
+        (CompactCAstImpl.isCompactNode(root) ? seenCompact : seen).put(root, true);
+      }
+      for (int i = 0; i < result.size(); i++) {
+        CAstNode n = result.get(i);
+        for (int j = 0; j < n.getChildCount(); j++) {
+          CAstNode child = n.getChild(j);
+          if (child != null && (CompactCAstImpl.isCompactNode(child) ? seenCompact : seen).put(child, true) == null) {
+            result.add(child);
+          }
+        }
+      }
+      return result;
+    }
+
+    private void writeNode(CAstNode n) throws IOException, UnsupportedCAstException {
+      if (n == CAstControlFlowMap.EXCEPTION_TO_EXIT) {
+        out.writeByte(EXCEPTION_TO_EXIT);
+      } else if (n instanceof CAstOperator) {
+        String op = (String) n.getValue();
+        if (operators.get(op) != n) {
+          throw new UnsupportedCAstException("operator " + n);
+        }
+        out.writeByte(OPERATOR);
+        writeString(op);
+      } else if (n.getKind() == CAstNode.CONSTANT) {
+        out.writeByte(CONSTANT);
+        writeValue(n.getValue());
+      } else {
+        if (n.getValue() != null) {
+          throw new UnsupportedCAstException("value of " + n);
+        }
+        out.writeByte(TREE);
+        out.writeInt(n.getKind());
+        out.writeInt(n.getChildCount());
+        for (int i = 0; i < n.getChildCount(); i++) {
+          out.writeInt(node(n.getChild(i)));
+        }
+      }
+    }
+
+    private void writeEntity(CAstEntity e) throws IOException, UnsupportedCAstException {
+      out.writeInt(e.getKind());
+      writeString(e.getName());
+      String[] args = e.getArgumentNames();
+      out.writeInt(args.length);
+      for (String arg : args) {
+        writeString(arg);
+      }
+      writePosition(e.getPosition());
+      out.writeInt(node(e.getAST()));
+
+      Map<CAstNode, Collection<CAstEntity>> scoped = e.getAllScopedEntities();
+      out.writeInt(scoped.size());
+      for (Map.Entry<CAstNode, Collection<CAstEntity>> s : scoped.entrySet()) {
+        out.writeInt(node(s.getKey()));
+        out.writeInt(s.getValue().size());
+        for (CAstEntity child : s.getValue()) {
+          out.writeInt(entities.get(child));
+        }
+      }
+
+      // nodes the translator may query even though they have no edges
+      CAstControlFlowMap cfg = e.getControlFlow();
+      List<CAstNode> unconnected = new ArrayList<>();
+      for (CAstNode n : subtree(e.getAST())) {
+        if (n != CAstControlFlowMap.EXCEPTION_TO_EXIT && isMappedAst(cfg, n) && cfg.getTargetLabels(n).isEmpty()
+            && cfg.getSourceNodes(n).isEmpty()) {
+          unconnected.add(n);
+        }
+      }
+      out.writeInt(unconnected.size());
+      for (CAstNode n : unconnected) {
+        out.writeInt(node(n));
+      }
+
+      Collection<CAstNode> mapped = cfg.getMappedNodes();
+      out.writeInt(mapped.size());
+      for (CAstNode n : mapped) {
+        out.writeInt(node(n));
+        Collection<Object> labels = cfg.getTargetLabels(n);
+        out.writeInt(labels.size());
+        for (Object label : labels) {
+          writeValue(label);
+          out.writeInt(node(cfg.getTarget(n, label)));
+        }
+      }
+
+      CAstSourcePositionMap pos = e.getSourceMap();
+      List<CAstNode> positioned = new ArrayList<>();
+      for (Iterator<CAstNode> ns = pos.getMappedNodes(); ns.hasNext();) {
+        positioned.add(ns.next());
+      }
+      out.writeInt(positioned.size());
+      for (CAstNode n : positioned) {
+        out.writeInt(node(n));
+        writePosition(pos.getPosition(n));
+      }
+    }
+
+    private void writePosition(Position p) throws IOException, UnsupportedCAstException {
+      if (p == null) {
+        out.writeBoolean(false);
+        return;
+      }
+      if (p.getClass() != RangePosition.class) {
+        throw new UnsupportedCAstException("position " + p);
+      }
+      out.writeBoolean(true);
+      URL url = p.getURL();
+      Integer u = urls.get(url);
+      if (u != null) {
+        out.writeInt(u);
+      } else {
+        // a new url: -1 for the module itself, -2 followed by the url otherwise
+        urls.put(url, urls.size());
+        if (url.equals(moduleURL)) {
+          out.writeInt(-1);
+        } else {
+          out.writeInt(-2);
+          writeString(url.toExternalForm());
+        }
+      }
+      out.writeInt(p.getFirstLine());
+      out.writeInt(p.getLastLine());
+      out.writeInt(p.getFirstOffset());
+      out.writeInt(p.getLastOffset());
+    }
+
+    private void writeValue(Object v) throws IOException, UnsupportedCAstException {
+      if (v == null) {
+        out.writeByte(NULL);
+      } else if (v instanceof String) {
+        out.writeByte(STRING);
+        writeString((String) v);
+      } else if (v instanceof Integer) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) v);
+      } else if (v instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) v);
+      } else if (v instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) v);
+      } else if (v instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) v);
+      } else if (v instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) v);
+      } else if (v instanceof Character) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) v);
+      } else if (v.getClass() == CAstSymbolImpl.class) {
+        CAstSymbolImpl s = (CAstSymbolImpl) v;
+        if (s.type() != JSAstTranslator.Any) {
+          throw new UnsupportedCAstException("type of symbol " + s);
+        }
+        out.writeByte(SYMBOL);
+        writeString(s.name());
+        out.writeBoolean(s.isFinal());
+        out.writeBoolean(s.isCaseInsensitive());
+        writeValue(s.defaultInitValue());
+      } else if (v instanceof CAstEntity) {
+        out.writeByte(ENTITY);
+        out.writeInt(entities.get(v));
+      } else if (v instanceof CAstNode) {
+        out.writeByte(NODE);
+        out.writeInt(node((CAstNode) v));
+      } else if (v instanceof TypeReference && types.get(key(v)) == v) {
+        out.writeByte(TYPE);
+        writeString(key(v));
+      } else if (v == CAstControlFlowMap.SWITCH_DEFAULT) {
+        out.writeByte(SWITCH_DEFAULT);
+      } else {
+        throw new UnsupportedCAstException("value " + v + " of " + v.getClass());
+      }
+    }
+
+    // writeUTF handles any string, but only up to 64k bytes at a time
+    private void writeString(String s) throws IOException {
+      out.writeInt(s.length());
+      for (int i = 0; i < s.length(); i += STRING_CHUNK) {
+        out.writeUTF(s.substring(i, Math.min(s.length(), i + STRING_CHUNK)));
+      }
+    }
+  }
+
+  private static class Reader {
+    private final CAst ast;
+
+    private final URL moduleURL;
+
+    private final DataInputStream in;
+
+    private final List<URL> urls = new ArrayList<>();
+
+    private CachedEntity[] entities;
+
+    private CAstNode[] nodes;
+
+    Reader(CAst ast, URL moduleURL, DataInputStream in) {
+      this.ast = ast;
+      this.moduleURL = moduleURL;
+      this.in = in;
+    }
+
+    CAstEntity read() throws IOException {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not a CAst cache file of version " + VERSION);
+      }
+      entities = new CachedEntity[in.readInt()];
+      for (int i = 0; i < entities.length; i++) {
+        entities[i] = new CachedEntity();
+      }
+      nodes = new CAstNode[in.readInt()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = readNode();
+      }
+      for (CachedEntity e : entities) {
+        readEntity(e);
+      }
+      return entities[0];
+    }
+
+    private CAstNode node(int id) throws IOException {
+      if (id == -1) {
+        return null;
+      } else if (id < 0 || id >= nodes.length || nodes[id] == null) {
+        throw new IOException("bad node reference " + id);
+      }
+      return nodes[id];
+    }
+
+    private CAstNode readNode() throws IOException {
+      byte tag = in.readByte();
+      switch (tag) {
+      case EXCEPTION_TO_EXIT:
+        return CAstControlFlowMap.EXCEPTION_TO_EXIT;
+      case OPERATOR: {
+        CAstOperator op = operators.get(readString());
+        if (op == null) {
+          throw new IOException("unknown operator");
+        }
+        return op;
+      }
+      case CONSTANT:
+        return ast.makeConstant(readValue());
+      case TREE: {
+        int kind = in.readInt();
+        CAstNode[] children = new CAstNode[in.readInt()];
+        for (int i = 0; i < children.length; i++) {
+          children[i] = node(in.readInt());
+        }
+        return ast.makeNode(kind, children);
+      }
+      default:
+        throw new IOException("bad node tag " + tag);
+      }
+    }
+
+    private void readEntity(CachedEntity e) throws IOException {
+      e.kind = in.readInt();
+      e.name = readString();
+      e.arguments = new String[in.readInt()];
+      for (int i = 0; i < e.arguments.length; i++) {
+        e.arguments[i] = readString();
+      }
+      e.position = readPosition();
+      e.ast = node(in.readInt());
+
+      int scopes = in.readInt();
+      for (int i = 0; i < scopes; i++) {
+        CAstNode construct = node(in.readInt());
+        int count = in.readInt();
+        List<CAstEntity> children = new ArrayList<>(count);
+        for (int j = 0; j < count; j++) {
+          children.add(entities[in.readInt()]);
+        }
+        e.subs.put(construct, children);
+      }
+
+      int unconnected = in.readInt();
+      for (int i = 0; i < unconnected; i++) {
+        CAstNode n = node(in.readInt());
+        e.cfg.map(n, n);
+      }
+
+      int mapped = in.readInt();
+      for (int i = 0; i < mapped; i++) {
+        CAstNode from = node(in.readInt());
+        if (!e.cfg.isMappedAst(from)) {
+          e.cfg.map(from, from);
+        }
+        int labels = in.readInt();
+        for (int j = 0; j < labels; j++) {
+          Object label = readValue();
+          CAstNode to = node(in.readInt());
+          if (!e.cfg.isMappedAst(to)) {
+            e.cfg.map(to, to);
+          }
+          e.cfg.add(from, to, label);
+        }
+      }
+
+      int positioned = in.readInt();
+      for (int i = 0; i < positioned; i++) {
+        CAstNode n = node(in.readInt());
+        e.pos.setPosition(n, readPosition());
+      }
+    }
+
+    private Position readPosition() throws IOException {
+      if (!in.readBoolean()) {
+        return null;
+      }
+      int u = in.readInt();
+      URL url;
+      if (u == -1) {
+        url = moduleURL;
+        urls.add(url);
+      } else if (u == -2) {
+        url = new URL(readString());
+        urls.add(url);
+      } else if (u >= 0 && u < urls.size()) {
+        url = urls.get(u);
+      } else {
+        throw new IOException("bad url reference " + u);
+      }
+      return new RangePosition(url, in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    private Object readValue() throws IOException {
+      byte tag = in.readByte();
+      switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString();
+      case INTEGER:
+        return in.readInt();
+      case DOUBLE:
+        return in.readDouble();
+      case BOOLEAN:
+        return in.readBoolean();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case CHARACTER:
+        return in.readChar();
+      case SYMBOL: {
+        String name = readString();
+        boolean isFinal = in.readBoolean();
+        boolean isCaseInsensitive = in.readBoolean();
+        return new CAstSymbolImpl(name, JSAstTranslator.Any, isFinal, isCaseInsensitive, readValue());
+      }
+      case ENTITY: {
+        int id = in.readInt();
+        if (id < 0 || id >= entities.length) {
+          throw new IOException("bad entity reference " + id);
+        }
+        return entities[id];
+      }
+      case NODE:
+        return node(in.readInt());
+      case TYPE: {
+        TypeReference type = types.get(readString());
+        if (type == null) {
+          throw new IOException("unknown type");
+        }
+        return type;
+      }
+      case SWITCH_DEFAULT:
+        return CAstControlFlowMap.SWITCH_DEFAULT;
+      default:
+        throw new IOException("bad value tag " + tag);
+      }
+    }
+
+    private String readString() throws IOException {
+      int length = in.readInt();
+      if (length == 0) {
+        return "";
+      } else if (length <= STRING_CHUNK) {
+        return in.readUTF();
+      }
+      StringBuilder s = new StringBuilder(length);
+      while (s.length() < length) {
+        s.append(in.readUTF());
+      }
+      return s.toString();
+    }
+  }
+
+  /**
+   * a script or function read back from the cache
+   */
+  private static class CachedEntity implements CAstEntity {
+    private int kind;
+
+    private String name;
+
+    private String[] arguments;
+
+    private Position position;
+
+    private CAstNode ast;
+
+    private final Map<CAstNode, Collection<CAstEntity>> subs = HashMapFactory.make();
+
+    private final CAstSourcePositionRecorder pos = new CAstSourcePositionRecorder();
+
+    private final CAstControlFlowRecorder cfg = new CAstControlFlowRecorder(pos);
+
+    @Override
+    public String toString() {
+      return "<JS function " + getName() + ">";
+    }
+
+    @Override
+    public int getKind() {
+      return kind;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getSignature() {
+      Assertions.UNREACHABLE();
+      return null;
+    }
+
+    @Override
+    public String[] getArgumentNames() {
+      return arguments;
+    }
+
+    @Override
+    public CAstNode[] getArgumentDefaults() {
+      return new CAstNode[0];
+    }
+
+    @Override
+    public int getArgumentCount() {
+      return arguments.length;
+    }
+
+    @Override
+    public Map<CAstNode, Collection<CAstEntity>> getAllScopedEntities() {
+      return Collections.unmodifiableMap(subs);
+    }
+
+    @Override
+    public Iterator<CAstEntity> getScopedEntities(CAstNode construct) {
+      if (subs.containsKey(construct))
+        return subs.get(construct).iterator();
+      else
+        return EmptyIterator.instance();
+    }
+
+    @Override
+    public CAstNode getAST() {
+      return ast;
+    }
+
+    @Override
+    public CAstControlFlowMap getControlFlow() {
+      return cfg;
+    }
+
+    @Override
+    public CAstSourcePositionMap getSourceMap() {
+      return pos;
+    }
+
+    @Override
+    public Position getPosition() {
+      return position;
+    }
+
+    @Override
+    public CAstNodeTypeMap getNodeTypeMap() {
+      return null;
+    }
+
+    @Override
+    public Collection<CAstQualifier> getQualifiers() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public CAstType getType() {
+      return JSAstTranslator.Any;
+    }
+
+    @Override
+    public Collection<CAstAnnotation> getAnnotations() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.cast.js.translator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.cast.ir.translator.RewritingTranslatorToCAst;
+import com.ibm.wala.cast.ir.translator.TranslatorToCAst;
+import com.ibm.wala.cast.js.html.MappedSourceModule;
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstEntity;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.CopyKey;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriter.RewriteContext;
+import com.ibm.wala.cast.tree.rewrite.CAstRewriterFactory;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.SourceFileModule;
+import com.ibm.wala.classLoader.SourceModule;
+import com.ibm.wala.classLoader.SourceURLModule;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * A translator factory that keeps the CAst produced by another factory in a directory on disk, keyed by a hash of the
+ * contents and name of each source file, so that unchanged files are not parsed and translated again on later runs.
+ *
+ * What is cached is the result of the underlying translator, including any rewriting it does itself; rewriters added
+ * to the returned translator, such as the loader's preprocessor, still run every time. The underlying factory's class
+ * name is part of the key; factories of the same class that translate differently should be given distinct
+ * configuration strings. Modules other than plain source files and URLs, and files whose CAst cannot be encoded, are
+ * simply translated every time.
+ */
+public class CachingJavaScriptTranslatorFactory implements JavaScriptTranslatorFactory {
+
+  private final JavaScriptTranslatorFactory base;
+
+  private final File directory;
+
+  private final String configuration;
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  public CachingJavaScriptTranslatorFactory(JavaScriptTranslatorFactory base, File directory) {
+    this(base, directory, base == null ? null : base.getClass().getName());
+  }
+
+  /**
+   * @param base the factory whose translations are cached
+   * @param directory where cached translations are kept; created if needed
+   * @param configuration distinguishes the output of differently configured factories
+   * @throws IllegalArgumentException if any argument is null, or directory cannot be created
+   */
+  public CachingJavaScriptTranslatorFactory(JavaScriptTranslatorFactory base, File directory, String configuration) {
+    if (base == null) {
+      throw new IllegalArgumentException("base is null");
+    }
+    if (directory == null) {
+      throw new IllegalArgumentException("directory is null");
+    }
+    if (configuration == null) {
+      throw new IllegalArgumentException("configuration is null");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create cache directory " + directory);
+    }
+    this.base = base;
+    this.directory = directory;
+    this.configuration = configuration;
+  }
+
+  /**
+   * @return the number of files whose CAst was read from the cache
+   */
+  public int getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of files that had to be translated
+   */
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * only files and URLs can be read once for the key and again for translation; mapped modules are left out since
+   * their positions depend on the enclosing page
+   */
+  private static boolean isCacheable(ModuleEntry M) {
+    return (M instanceof SourceFileModule || M instanceof SourceURLModule) && !(M instanceof MappedSourceModule);
+  }
+
+  @Override
+  public TranslatorToCAst make(CAst ast, ModuleEntry M) {
+    if (isCacheable(M)) {
+      return new RewritingTranslatorToCAst(M, new CachedTranslator(ast, (SourceModule) M));
+    } else {
+      return base.make(ast, M);
+    }
+  }
+
+  private class CachedTranslator implements TranslatorToCAst {
+    private final CAst ast;
+
+    private final SourceModule M;
+
+    private CachedTranslator(CAst ast, SourceModule M) {
+      this.ast = ast;
+      this.M = M;
+    }
+
+    @Override
+    public <C extends RewriteContext<K>, K extends CopyKey<K>> void addRewriter(CAstRewriterFactory<C, K> factory, boolean prepend) {
+      // rewriters are applied by the enclosing RewritingTranslatorToCAst
+      Assertions.UNREACHABLE();
+    }
+
+    @Override
+    public CAstEntity translateToCAst() throws Error, IOException {
+      File file = new File(directory, key(contents()) + ".cast");
+
+      if (file.isFile()) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+          CAstEntity entity = CAstEntityCodec.read(ast, M.getURL(), in);
+          hits.incrementAndGet();
+          return entity;
+        } catch (IOException | RuntimeException e) {
+          // unreadable or stale entry; translate again and replace it
+          file.delete();
+        }
+      }
+
+      misses.incrementAndGet();
+      CAstEntity entity = base.make(ast, M).translateToCAst();
+      store(entity, file);
+      return entity;
+    }
+
+    private byte[] contents() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (InputStream in = M.getInputStream()) {
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+          bytes.write(buf, 0, n);
+        }
+      }
+      return bytes.toByteArray();
+    }
+
+    private String key(byte[] contents) {
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        Assertions.UNREACHABLE();
+        return null;
+      }
+      digest.update(Integer.toString(CAstEntityCodec.VERSION).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(M.getName().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(contents);
+
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    }
+
+    // write to a temporary file first, so that concurrent runs never see a partial entry
+    private void store(CAstEntity entity, File file) {
+      File tmp = null;
+      try {
+        tmp = File.createTempFile("cast", ".tmp", directory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+          CAstEntityCodec.write(entity, M.getURL(), out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        tmp = null;
+      } catch (IOException | CAstEntityCodec.UnsupportedCAstException e) {
+        // the cache is only an optimization; this file will be translated again next time
+      } finally {
+        if (tmp != null) {
+          tmp.delete();
+        }
+      }
+    }
+  }
+}
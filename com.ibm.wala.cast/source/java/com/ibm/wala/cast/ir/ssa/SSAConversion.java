@@ -28,6 +28,7 @@ import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.ssa.SymbolTable;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntIntHashMap;
 import com.ibm.wala.util.collections.IteratorUtil;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorIntSet;
@@ -64,7 +65,7 @@ public class SSAConversion extends AbstractSSAConversion {
 
   private SSA2LocalMap computedLocalMap;
 
-  private Map<Integer,Integer> assignments = HashMapFactory.make();
+  private IntIntHashMap assignments = new IntIntHashMap();
   
   //
   // Copy propagation history
@@ -277,7 +278,7 @@ public class SSAConversion extends AbstractSSAConversion {
       MutableIntSet vals = IntSetUtil.make();
       while (assignments.containsKey(v) && !vals.contains(v)) {
         vals.add(v);
-        v = assignments.get(v);
+        v = assignments.get(v, -1);
         vNames = namesData[v];
         x.addAll(Arrays.asList(vNames));        
       }
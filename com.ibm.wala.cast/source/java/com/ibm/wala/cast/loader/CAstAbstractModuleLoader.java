@@ -15,12 +15,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ibm.wala.cast.ir.translator.AstTranslator;
 import com.ibm.wala.cast.ir.translator.AstTranslator.AstLexicalInformation;
@@ -66,6 +71,11 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader {
 
   private static final boolean DEBUG = false;
 
+  /**
+   * the number of threads on which module entries are translated to CAst
+   */
+  private int translationThreads = 1;
+
   public CAstAbstractModuleLoader(IClassHierarchy cha, IClassLoader parent) {
     super(cha, parent);
   }
@@ -74,6 +84,18 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader {
     this(cha, null);
   }
 
+  /**
+   * Translate module entries to CAst on n threads. IR is still generated on the thread calling {@link #init(List)}, in the order of
+   * the entries, so the loaded classes and IR are the same as with one thread. The CAst translators made by
+   * {@link #getTranslatorToCAst(CAst, ModuleEntry)}, and any rewriters they apply, must be able to run on several entries at once.
+   */
+  public void setTranslationThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    translationThreads = n;
+  }
+
   /**
    * create the appropriate CAst translator for the language and source module
    */
@@ -114,9 +136,37 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader {
     final CAst ast = new CAstImpl();
 
     // convert everything to CAst
-    final Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities = new LinkedHashSet<>();
+    final List<ModuleEntry> entries = new ArrayList<>();
     for (Module module : modules) {
-      translateModuleToCAst(module, ast, topLevelEntities);
+      collectModuleEntries(module, entries);
+    }
+    final Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities = new LinkedHashSet<>();
+    if (translationThreads == 1 || entries.size() < 2) {
+      for (ModuleEntry entry : entries) {
+        translateModuleEntryToCAst(entry, ast).record(topLevelEntities);
+      }
+    } else {
+      ExecutorService pool = Executors.newFixedThreadPool(Math.min(translationThreads, entries.size()));
+      try {
+        List<Future<EntryTranslation>> results = new ArrayList<>(entries.size());
+        for (final ModuleEntry entry : entries) {
+          results.add(pool.submit(() -> translateModuleEntryToCAst(entry, ast)));
+        }
+        // record the results in the order of the entries, so that IR is generated as it is on one thread
+        for (Future<EntryTranslation> result : results) {
+          result.get().record(topLevelEntities);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("interrupted while translating to CAst", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
     }
 
     // generate IR as needed
@@ -142,59 +192,89 @@ public abstract class CAstAbstractModuleLoader extends CAstAbstractLoader {
   }
 
   /**
-   * translate moduleEntry to CAst and store result in topLevelEntities
-   * 
-   * @param ast
-   * @param topLevelEntities
+   * The outcome of translating one module entry to CAst: the entity, if any, and the warnings about the entry.
    */
-  private void translateModuleEntryToCAst(ModuleEntry moduleEntry, CAst ast, Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities) {
+  private final class EntryTranslation {
+    private final ModuleEntry moduleEntry;
+
+    private CAstEntity fileEntity;
+
+    private Set<Warning> warnings;
+
+    private EntryTranslation(ModuleEntry moduleEntry) {
+      this.moduleEntry = moduleEntry;
+    }
+
+    /**
+     * store the entity in topLevelEntities and the warnings in this loader
+     */
+    private void record(Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities) {
+      if (fileEntity != null) {
+        topLevelEntities.add(Pair.make(fileEntity, moduleEntry));
+      }
+      if (warnings != null) {
+        addMessage(moduleEntry, warnings);
+      }
+    }
+  }
+
+  /**
+   * translate moduleEntry to CAst. This changes nothing in the loader, and so may be run for several entries at once.
+   */
+  private EntryTranslation translateModuleEntryToCAst(ModuleEntry moduleEntry, CAst ast) {
+    EntryTranslation result = new EntryTranslation(moduleEntry);
     try {
-      if (moduleEntry.isModuleFile()) {
-        // nested module
-        translateModuleToCAst(moduleEntry.asModule(), ast, topLevelEntities);
-      } else {
-        TranslatorToCAst xlatorToCAst = getTranslatorToCAst(ast, moduleEntry);
+      TranslatorToCAst xlatorToCAst = getTranslatorToCAst(ast, moduleEntry);
 
-        CAstEntity fileEntity = null;
-        try {
-          fileEntity = xlatorToCAst.translateToCAst();
-        
-          if (DEBUG) {
-            CAstPrinter.printTo(fileEntity, new PrintWriter(System.err));
-          }
-          topLevelEntities.add(Pair.make(fileEntity, moduleEntry));
+      try {
+        result.fileEntity = xlatorToCAst.translateToCAst();
 
-        } catch (TranslatorToCAst.Error e) {
-          addMessage(moduleEntry, e.warning);
+        if (DEBUG) {
+          CAstPrinter.printTo(result.fileEntity, new PrintWriter(System.err));
         }
+
+      } catch (TranslatorToCAst.Error e) {
+        result.warnings = e.warning;
       }
     } catch (final IOException e) {
-      addMessage(moduleEntry, new Warning(Warning.SEVERE) {
+      result.warnings = Collections.<Warning>singleton(new Warning(Warning.SEVERE) {
         @Override
         public String getMsg() {
           return "I/O issue: " + e.getMessage();
         }
       });
     } catch (final RuntimeException e) {
-      final ByteArrayOutputStream s = new ByteArrayOutputStream();
-      PrintStream ps = new PrintStream(s);
-      e.printStackTrace(ps);
-      addMessage(moduleEntry, new Warning(Warning.SEVERE) {
-        @Override
-        public String getMsg() {
-          return "Parsing issue: " + new String(s.toByteArray());
-        }
-      });
+      result.warnings = Collections.singleton(parsingIssue(e));
     }
+    return result;
+  }
+
+  private static Warning parsingIssue(RuntimeException e) {
+    final ByteArrayOutputStream s = new ByteArrayOutputStream();
+    PrintStream ps = new PrintStream(s);
+    e.printStackTrace(ps);
+    return new Warning(Warning.SEVERE) {
+      @Override
+      public String getMsg() {
+        return "Parsing issue: " + new String(s.toByteArray());
+      }
+    };
   }
 
   /**
-   * translate all relevant entities in the module to CAst, storing the results
-   * in topLevelEntities
+   * add the entries of the module to be translated to entries, in order, replacing nested modules by their entries
    */
-  private void translateModuleToCAst(Module module, CAst ast, Set<Pair<CAstEntity, ModuleEntry>> topLevelEntities) {
+  private void collectModuleEntries(Module module, List<ModuleEntry> entries) {
     for (ModuleEntry me : Iterator2Iterable.make(module.getEntries())) {
-      translateModuleEntryToCAst(me, ast, topLevelEntities);
+      if (me.isModuleFile()) {
+        try {
+          collectModuleEntries(me.asModule(), entries);
+        } catch (RuntimeException e) {
+          addMessage(me, parsingIssue(e));
+        }
+      } else {
+        entries.add(me);
+      }
     }
   }
 
@@ -76,7 +76,7 @@ public class CAstControlFlowRecorder implements CAstControlFlowMap {
 
     @Override
     public boolean equals(Object o) {
-      return (o instanceof Key) && from == ((Key) o).from
+      return (o instanceof Key) && from.equals(((Key) o).from)
           && ((label == null) ? ((Key) o).label == null : label.equals(((Key) o).label));
     }
 
@@ -174,8 +174,8 @@ public class CAstControlFlowRecorder implements CAstControlFlowMap {
   public void map(Object node, CAstNode ast) {
     assert node != null;
     assert ast != null;
-    assert !nodeToCAst.containsKey(node) || nodeToCAst.get(node) == ast : node + " already mapped:\n" + this;
-    assert !CAstToNode.containsKey(ast) || CAstToNode.get(ast) == node : ast + " already mapped:\n" + this;
+    assert !nodeToCAst.containsKey(node) || nodeToCAst.get(node).equals(ast) : node + " already mapped:\n" + this;
+    assert !CAstToNode.containsKey(ast) || CAstToNode.get(ast).equals(node) : ast + " already mapped:\n" + this;
     nodeToCAst.put(node, ast);
     cachedMappedNodes = null;
     CAstToNode.put(ast, node);
@@ -197,6 +197,22 @@ public class CAstControlFlowRecorder implements CAstControlFlowMap {
     return nodeToCAst.containsKey(node);
   }
 
+  /**
+   * Whether some object has been mapped to the ast node `ast', so that control
+   * flow queries on it are valid even if it has no edges.
+   */
+  public boolean isMappedAst(CAstNode ast) {
+    return CAstToNode.containsKey(ast);
+  }
+
+  /**
+   * All ast nodes that some object has been mapped to, including those without
+   * edges.
+   */
+  public Collection<CAstNode> getMappedAsts() {
+    return Collections.unmodifiableSet(CAstToNode.keySet());
+  }
+
   @Override
   public String toString() {
     StringBuffer sb = new StringBuffer("control flow map\n");
@@ -11,6 +11,7 @@
 package com.ibm.wala.cast.tree.impl;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ibm.wala.cast.tree.CAst;
 import com.ibm.wala.cast.tree.CAstNode;
@@ -25,11 +26,11 @@ import com.ibm.wala.cast.util.CAstPrinter;
  * 
  */
 public class CAstImpl implements CAst {
-  private int nextID = 0;
+  private final AtomicInteger nextID = new AtomicInteger();
 
   @Override
   public String makeUnique() {
-    return "id" + (nextID++);
+    return "id" + nextID.getAndIncrement();
   }
 
   protected static class CAstNodeImpl implements CAstNode {
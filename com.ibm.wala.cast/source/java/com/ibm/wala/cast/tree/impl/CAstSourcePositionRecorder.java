@@ -15,29 +15,63 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 
 import com.ibm.wala.cast.tree.CAstNode;
 import com.ibm.wala.cast.tree.CAstSourcePositionMap;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.CompoundIterator;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 
 public class CAstSourcePositionRecorder implements CAstSourcePositionMap {
  
   private final HashMap<CAstNode, Position> positions = HashMapFactory.make();
 
+  /**
+   * {@link RangePosition}s of nodes made by a {@link CompactCAstImpl}, kept in int arrays
+   */
+  private CompactPositions compact;
+
   @Override
   public Position getPosition(CAstNode n) {
+    if (compact != null) {
+      int number = compact.ast.getNodeNumber(n);
+      if (number != -1) {
+        Position p = compact.get(number);
+        if (p != null) {
+          return p;
+        }
+      }
+    }
     return positions.get(n);
   }
 
   @Override
   public Iterator<CAstNode> getMappedNodes() {
-    return positions.keySet().iterator();
+    if (compact == null) {
+      return positions.keySet().iterator();
+    } else {
+      return new CompoundIterator<>(positions.keySet().iterator(), compact.nodes());
+    }
   }
 
   public void setPosition(CAstNode n, Position p) {
+    if (p != null && p.getClass() == RangePosition.class && n instanceof CompactCAstImpl.Node) {
+      CompactCAstImpl ast = ((CompactCAstImpl.Node) n).owner();
+      if (compact == null) {
+        compact = new CompactPositions(ast);
+      }
+      if (compact.ast == ast) {
+        compact.put(ast.getNodeNumber(n), p);
+        return;
+      }
+    }
+
+    if (compact != null && compact.ast.getNodeNumber(n) != -1) {
+      compact.remove(compact.ast.getNodeNumber(n));
+    }
     positions.put(n, p);
   }
 
@@ -103,4 +137,124 @@ public class CAstSourcePositionRecorder implements CAstSourcePositionMap {
       setPosition(node, other.getPosition(node));
     }
   }
+
+  /**
+   * positions by node number, in an open-addressing table; each entry holds the node number and five ints: first and
+   * last line, first and last offset, and an index into a small table of URLs
+   */
+  private static class CompactPositions {
+    private static final int FIELDS = 6;
+
+    private final CompactCAstImpl ast;
+
+    /**
+     * entry index + 1 for each occupied slot, 0 for empty ones
+     */
+    private int[] slots = new int[16];
+
+    private int[] entries = new int[8 * FIELDS];
+
+    private int size = 0;
+
+    private URL[] urls = new URL[1];
+
+    private int urlCount = 0;
+
+    private CompactPositions(CompactCAstImpl ast) {
+      this.ast = ast;
+    }
+
+    private int slot(int number) {
+      int mask = slots.length - 1;
+      int i = (number * 0x9E3779B1) & mask;
+      while (slots[i] != 0 && entries[(slots[i] - 1) * FIELDS] != number) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+
+    private int urlIndex(URL url) {
+      // compare by identity; URL.equals may resolve host names
+      for (int i = urlCount - 1; i >= 0; i--) {
+        if (urls[i] == url) {
+          return i;
+        }
+      }
+      if (urlCount == urls.length) {
+        urls = Arrays.copyOf(urls, 2 * urlCount);
+      }
+      urls[urlCount] = url;
+      return urlCount++;
+    }
+
+    private void put(int number, Position p) {
+      int i = slot(number);
+      int e;
+      if (slots[i] == 0) {
+        if (2 * (size + 1) > slots.length) {
+          rehash(2 * slots.length);
+          i = slot(number);
+        }
+        if ((size + 1) * FIELDS > entries.length) {
+          entries = Arrays.copyOf(entries, 2 * entries.length);
+        }
+        e = size++;
+        slots[i] = e + 1;
+      } else {
+        e = slots[i] - 1;
+      }
+
+      int base = e * FIELDS;
+      entries[base] = number;
+      entries[base + 1] = p.getFirstLine();
+      entries[base + 2] = p.getLastLine();
+      entries[base + 3] = p.getFirstOffset();
+      entries[base + 4] = p.getLastOffset();
+      entries[base + 5] = urlIndex(p.getURL());
+    }
+
+    private Position get(int number) {
+      int i = slot(number);
+      if (slots[i] == 0) {
+        return null;
+      }
+      int base = (slots[i] - 1) * FIELDS;
+      return new RangePosition(urls[entries[base + 5]], entries[base + 1], entries[base + 2], entries[base + 3],
+          entries[base + 4]);
+    }
+
+    private void remove(int number) {
+      int i = slot(number);
+      if (slots[i] != 0) {
+        // move the last entry into the hole, then rebuild the slots
+        int e = slots[i] - 1;
+        size--;
+        System.arraycopy(entries, size * FIELDS, entries, e * FIELDS, FIELDS);
+        rehash(slots.length);
+      }
+    }
+
+    private void rehash(int length) {
+      slots = new int[length];
+      for (int e = 0; e < size; e++) {
+        slots[slot(entries[e * FIELDS])] = e + 1;
+      }
+    }
+
+    private Iterator<CAstNode> nodes() {
+      return new Iterator<CAstNode>() {
+        private int e = 0;
+
+        @Override
+        public boolean hasNext() {
+          return e < size;
+        }
+
+        @Override
+        public CAstNode next() {
+          return ast.getNode(entries[FIELDS * e++]);
+        }
+      };
+    }
+  }
 }
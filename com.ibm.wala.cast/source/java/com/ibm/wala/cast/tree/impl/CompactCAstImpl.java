@@ -0,0 +1,336 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+package com.ibm.wala.cast.tree.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.cast.tree.CAst;
+import com.ibm.wala.cast.tree.CAstNode;
+import com.ibm.wala.cast.util.CAstPrinter;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * An implementation of CAst that stores its trees in a few shared arrays rather than as one object per node. Each node is
+ * a number; its kind, and the start of its children in a common pool of child numbers, are kept in parallel int arrays.
+ * Constants keep their value in a separate pool, and children that were not made by this factory, such as
+ * {@link CAstOperator}s, are stored once in a table of foreign nodes.
+ *
+ * The {@link CAstNode}s handed out are small handles holding a node number, which are created as trees are traversed;
+ * handles for the same node are therefore equal, but not necessarily identical. Their hash codes are well spread, which
+ * keeps maps keyed by nodes fast, and {@link CAstSourcePositionRecorder} uses the node numbers to store positions in int
+ * arrays.
+ *
+ * Like {@link CAstImpl}, this class offers no way to mutate trees. Unlike it, instances are not thread safe, so each
+ * translator should use its own.
+ */
+public class CompactCAstImpl implements CAst {
+
+  /**
+   * marks, in the kinds array, nodes made by makeConstant
+   */
+  private static final int VALUE = -1;
+
+  /**
+   * returned by findRef for nodes that are not stored
+   */
+  static final int NO_REF = Integer.MIN_VALUE;
+
+  private static final int INITIAL_SIZE = 64;
+
+  private final AtomicInteger nextID = new AtomicInteger();
+
+  /**
+   * the kind of each node, or VALUE for constants
+   */
+  private int[] kinds = new int[INITIAL_SIZE];
+
+  /**
+   * where the children of each node start in the child pool; the children of node n end where those of node n+1 start.
+   * For a constant, the pool holds the index of its value instead.
+   */
+  private int[] starts = new int[INITIAL_SIZE + 1];
+
+  private int nodeCount = 0;
+
+  /**
+   * children of all nodes; non-negative entries are node numbers of this factory, negative entries are -1 - the index of a
+   * foreign node
+   */
+  private int[] pool = new int[INITIAL_SIZE * 2];
+
+  private int poolSize = 0;
+
+  private Object[] values = new Object[INITIAL_SIZE];
+
+  private int valueCount = 0;
+
+  private CAstNode[] foreign = new CAstNode[8];
+
+  private int foreignCount = 0;
+
+  private final Map<CAstNode, Integer> foreignIndex = HashMapFactory.make();
+
+  @Override
+  public String makeUnique() {
+    return "id" + nextID.getAndIncrement();
+  }
+
+  /**
+   * @return the number of nodes made so far
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * @return whether n was made by some CompactCAstImpl, and so may be equal to other handles on the same node
+   */
+  public static boolean isCompactNode(CAstNode n) {
+    return n instanceof Node;
+  }
+
+  /**
+   * @return the number of this node, if n was made by this factory, or -1 otherwise
+   */
+  public int getNodeNumber(CAstNode n) {
+    if (n instanceof Node && ((Node) n).owner() == this) {
+      return ((Node) n).number;
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the node with number i
+   * @throws IllegalArgumentException if no such node has been made
+   */
+  public CAstNode getNode(int i) {
+    if (i < 0 || i >= nodeCount) {
+      throw new IllegalArgumentException("no node " + i);
+    }
+    return new Node(i);
+  }
+
+  private int newNode(int kind, int childCount) {
+    if (nodeCount == kinds.length) {
+      kinds = Arrays.copyOf(kinds, 2 * nodeCount);
+      starts = Arrays.copyOf(starts, 2 * nodeCount + 1);
+    }
+    if (poolSize + childCount > pool.length) {
+      pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + childCount));
+    }
+    kinds[nodeCount] = kind;
+    starts[nodeCount] = poolSize;
+    starts[nodeCount + 1] = poolSize + childCount;
+    return nodeCount++;
+  }
+
+  /**
+   * @return how n is stored as a child: its number, or -1 - its index among the foreign nodes, which it is added to if
+   *         needed
+   */
+  int ref(CAstNode n) {
+    int ref = findRef(n);
+    if (ref != NO_REF) {
+      return ref;
+    }
+
+    if (foreignCount == foreign.length) {
+      foreign = Arrays.copyOf(foreign, 2 * foreignCount);
+    }
+    foreignIndex.put(n, foreignCount);
+    foreign[foreignCount] = n;
+    return -1 - foreignCount++;
+  }
+
+  /**
+   * @return how n is stored as a child, or NO_REF if it is a foreign node that has not been stored
+   */
+  int findRef(CAstNode n) {
+    int number = getNodeNumber(n);
+    if (number != -1) {
+      return number;
+    }
+    Integer i = foreignIndex.get(n);
+    return i == null ? NO_REF : -1 - i;
+  }
+
+  /**
+   * @return the node stored as ref
+   */
+  CAstNode node(int ref) {
+    return ref >= 0 ? new Node(ref) : foreign[-1 - ref];
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode[] cs) {
+    if (kind == VALUE) {
+      throw new IllegalArgumentException("bad kind " + kind);
+    }
+    for (int i = 0; i < cs.length; i++)
+      assert cs[i] != null : "argument " + i + " is null for node kind " + kind + " [" + CAstPrinter.entityKindAsString(kind)
+          + "]";
+
+    int n = newNode(kind, cs.length);
+    for (int i = 0; i < cs.length; i++) {
+      // ref may grow the foreign table, but never the pool
+      pool[poolSize + i] = ref(cs[i]);
+    }
+    poolSize += cs.length;
+    return new Node(n);
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode[] cs) {
+    CAstNode[] children = new CAstNode[cs.length + 1];
+    children[0] = c1;
+    System.arraycopy(cs, 0, children, 1, cs.length);
+    return makeNode(kind, children);
+  }
+
+  @Override
+  public CAstNode makeNode(int kind) {
+    return makeNode(kind, new CAstNode[0]);
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1) {
+    return makeNode(kind, new CAstNode[] { c1 });
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode c2) {
+    return makeNode(kind, new CAstNode[] { c1, c2 });
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode c2, CAstNode c3) {
+    return makeNode(kind, new CAstNode[] { c1, c2, c3 });
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode c2, CAstNode c3, CAstNode c4) {
+    return makeNode(kind, new CAstNode[] { c1, c2, c3, c4 });
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode c2, CAstNode c3, CAstNode c4, CAstNode c5) {
+    return makeNode(kind, new CAstNode[] { c1, c2, c3, c4, c5 });
+  }
+
+  @Override
+  public CAstNode makeNode(int kind, CAstNode c1, CAstNode c2, CAstNode c3, CAstNode c4, CAstNode c5, CAstNode c6) {
+    return makeNode(kind, new CAstNode[] { c1, c2, c3, c4, c5, c6 });
+  }
+
+  @Override
+  public CAstNode makeConstant(Object value) {
+    if (valueCount == values.length) {
+      values = Arrays.copyOf(values, 2 * valueCount);
+    }
+    int n = newNode(VALUE, 1);
+    pool[poolSize++] = valueCount;
+    values[valueCount++] = value;
+    return new Node(n);
+  }
+
+  @Override
+  public CAstNode makeConstant(boolean value) {
+    return makeConstant(value ? Boolean.TRUE : Boolean.FALSE);
+  }
+
+  @Override
+  public CAstNode makeConstant(char value) {
+    return makeConstant(new Character(value));
+  }
+
+  @Override
+  public CAstNode makeConstant(short value) {
+    return makeConstant(new Short(value));
+  }
+
+  @Override
+  public CAstNode makeConstant(int value) {
+    return makeConstant(new Integer(value));
+  }
+
+  @Override
+  public CAstNode makeConstant(long value) {
+    return makeConstant(new Long(value));
+  }
+
+  @Override
+  public CAstNode makeConstant(float value) {
+    return makeConstant(new Float(value));
+  }
+
+  @Override
+  public CAstNode makeConstant(double value) {
+    return makeConstant(new Double(value));
+  }
+
+  /**
+   * a handle on one node of this factory
+   */
+  final class Node implements CAstNode {
+    private final int number;
+
+    private Node(int number) {
+      this.number = number;
+    }
+
+    CompactCAstImpl owner() {
+      return CompactCAstImpl.this;
+    }
+
+    @Override
+    public int getKind() {
+      int kind = kinds[number];
+      return kind == VALUE ? CAstNode.CONSTANT : kind;
+    }
+
+    @Override
+    public Object getValue() {
+      return kinds[number] == VALUE ? values[pool[starts[number]]] : null;
+    }
+
+    @Override
+    public CAstNode getChild(int n) {
+      if (n < 0 || n >= getChildCount()) {
+        throw new NoSuchElementException(n + " of " + CAstPrinter.print(this));
+      }
+      return node(pool[starts[number] + n]);
+    }
+
+    @Override
+    public int getChildCount() {
+      return kinds[number] == VALUE ? 0 : starts[number + 1] - starts[number];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Node && ((Node) o).number == number && ((Node) o).owner() == owner();
+    }
+
+    @Override
+    public int hashCode() {
+      return number * 0x9E3779B1;
+    }
+
+    @Override
+    public String toString() {
+      return kinds[number] == VALUE ? "CAstValue: " + getValue() : number + ":" + CAstPrinter.print(this);
+    }
+  }
+}
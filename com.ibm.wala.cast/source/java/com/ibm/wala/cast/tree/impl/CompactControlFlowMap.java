@@ -0,0 +1,270 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+package com.ibm.wala.cast.tree.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.ibm.wala.cast.tree.CAstControlFlowMap;
+import com.ibm.wala.cast.tree.CAstNode;
+
+/**
+ * A read-only copy of a finished control flow map over the nodes of a {@link CompactCAstImpl}, with the edges kept in int
+ * arrays by node number. Unlike a {@link CAstControlFlowRecorder}, it holds no reference to the parse tree objects that
+ * the map was recorded in terms of, so those can be collected once translation is done.
+ */
+public class CompactControlFlowMap implements CAstControlFlowMap {
+  private final CompactCAstImpl ast;
+
+  /**
+   * node references, as stored by the CAst, of the mapped nodes; those with edges come first
+   */
+  private final int[] mapped;
+
+  /**
+   * how many of the mapped nodes have edges, and so are returned by getMappedNodes()
+   */
+  private final int mappedWithEdges;
+
+  /**
+   * index + 1 into mapped of each occupied slot, 0 for empty ones
+   */
+  private final int[] slots;
+
+  /**
+   * the edges from mapped node i are edgeStart[i] to edgeStart[i+1]
+   */
+  private final int[] edgeStart;
+
+  private final Object[] labels;
+
+  /**
+   * the target of each edge, as an index into mapped, or -1 if the map gave none
+   */
+  private final int[] targets;
+
+  /**
+   * the sources of the edges into mapped node i are sources[sourceStart[i]] to sources[sourceStart[i+1]]
+   */
+  private final int[] sourceStart;
+
+  private final int[] sources;
+
+  /**
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public CompactControlFlowMap(CompactCAstImpl ast, CAstControlFlowMap map) {
+    if (ast == null) {
+      throw new IllegalArgumentException("ast is null");
+    }
+    if (map == null) {
+      throw new IllegalArgumentException("map is null");
+    }
+    this.ast = ast;
+
+    // a recorder also answers queries on nodes that were mapped without edges, so keep those too
+    Collection<CAstNode> nodes = map.getMappedNodes();
+    Collection<CAstNode> mappedAsts = map instanceof CAstControlFlowRecorder ? ((CAstControlFlowRecorder) map).getMappedAsts()
+        : Collections.<CAstNode> emptySet();
+    int[] m = new int[nodes.size() + mappedAsts.size()];
+    slots = new int[tableSize(m.length)];
+    int size = add(m, 0, nodes);
+    int withEdges = size;
+    size = add(m, size, mappedAsts);
+    mapped = size == m.length ? m : Arrays.copyOf(m, size);
+    mappedWithEdges = withEdges;
+
+    int edgeCount = 0;
+    for (int i = 0; i < withEdges; i++) {
+      edgeCount += map.getTargetLabels(ast.node(mapped[i])).size();
+    }
+    edgeStart = new int[size + 1];
+    labels = new Object[edgeCount];
+    targets = new int[edgeCount];
+    int e = 0;
+    for (int i = 0; i < size; i++) {
+      edgeStart[i] = e;
+      if (i >= withEdges) {
+        continue;
+      }
+      CAstNode from = ast.node(mapped[i]);
+      for (Object label : map.getTargetLabels(from)) {
+        CAstNode to = map.getTarget(from, label);
+        labels[e] = label;
+        targets[e] = to == null ? -1 : slots[slot(mapped, ast.ref(to))] - 1;
+        e++;
+      }
+    }
+    edgeStart[size] = e;
+
+    // each source is listed once per target, even if it has several edges to it
+    sourceStart = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      for (int j = edgeStart[i]; j < edgeStart[i + 1]; j++) {
+        if (targets[j] != -1 && isFirstEdgeTo(i, j)) {
+          sourceStart[targets[j] + 1]++;
+        }
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      sourceStart[i + 1] += sourceStart[i];
+    }
+    sources = new int[sourceStart[size]];
+    int[] fill = new int[size];
+    for (int i = 0; i < size; i++) {
+      for (int j = edgeStart[i]; j < edgeStart[i + 1]; j++) {
+        if (targets[j] != -1 && isFirstEdgeTo(i, j)) {
+          int t = targets[j];
+          sources[sourceStart[t] + fill[t]++] = i;
+        }
+      }
+    }
+  }
+
+  private int add(int[] m, int size, Collection<CAstNode> nodes) {
+    for (CAstNode n : nodes) {
+      if (n != null) {
+        int ref = ast.ref(n);
+        int s = slot(m, ref);
+        if (slots[s] == 0) {
+          m[size] = ref;
+          slots[s] = ++size;
+        }
+      }
+    }
+    return size;
+  }
+
+  private boolean isFirstEdgeTo(int from, int edge) {
+    for (int j = edgeStart[from]; j < edge; j++) {
+      if (targets[j] == targets[edge]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int tableSize(int n) {
+    int size = 16;
+    while (size < 2 * n) {
+      size *= 2;
+    }
+    return size;
+  }
+
+  private int slot(int[] m, int ref) {
+    int mask = slots.length - 1;
+    int i = (ref * 0x9E3779B1) & mask;
+    while (slots[i] != 0 && m[slots[i] - 1] != ref) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * @return the index into mapped of n, or -1 if it is not mapped
+   */
+  private int index(CAstNode n) {
+    int ref = ast.findRef(n);
+    if (ref == CompactCAstImpl.NO_REF) {
+      return -1;
+    }
+    return slots[slot(mapped, ref)] - 1;
+  }
+
+  /**
+   * Whether the recorder this map was made from had n mapped, even if it has no edges.
+   */
+  public boolean isMappedAst(CAstNode n) {
+    return index(n) != -1;
+  }
+
+  @Override
+  public CAstNode getTarget(CAstNode from, Object label) {
+    int i = index(from);
+    if (i != -1) {
+      for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+        if (label == null ? labels[e] == null : label.equals(labels[e])) {
+          return targets[e] == -1 ? null : ast.node(mapped[targets[e]]);
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Collection<Object> getTargetLabels(CAstNode from) {
+    final int i = index(from);
+    if (i == -1) {
+      return Collections.emptyList();
+    }
+    return new AbstractList<Object>() {
+      @Override
+      public Object get(int index) {
+        return labels[edgeStart[i] + index];
+      }
+
+      @Override
+      public int size() {
+        return edgeStart[i + 1] - edgeStart[i];
+      }
+    };
+  }
+
+  @Override
+  public Collection<Object> getSourceNodes(CAstNode to) {
+    final int i = index(to);
+    if (i == -1) {
+      return Collections.emptyList();
+    }
+    return new AbstractList<Object>() {
+      @Override
+      public Object get(int index) {
+        return ast.node(mapped[sources[sourceStart[i] + index]]);
+      }
+
+      @Override
+      public int size() {
+        return sourceStart[i + 1] - sourceStart[i];
+      }
+    };
+  }
+
+  @Override
+  public Collection<CAstNode> getMappedNodes() {
+    return new AbstractList<CAstNode>() {
+      @Override
+      public CAstNode get(int index) {
+        return ast.node(mapped[index]);
+      }
+
+      @Override
+      public int size() {
+        return mappedWithEdges;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer("control flow map\n");
+    for (int i = 0; i < mapped.length; i++) {
+      for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+        sb.append(ast.node(mapped[i])).append(" -- ").append(labels[e]).append(" --> ");
+        sb.append(targets[e] == -1 ? null : ast.node(mapped[targets[e]])).append("\n");
+      }
+    }
+    sb.append("\n");
+    return sb.toString();
+  }
+}
@@ -36,8 +36,10 @@ import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.IntegerUnionFind;
 import com.ibm.wala.util.intset.LongSet;
@@ -49,6 +51,8 @@ import com.ibm.wala.util.intset.MutableLongSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseLongSetFactory;
+import com.ibm.wala.util.intset.OffHeapBitVectorIntSet;
+import com.ibm.wala.util.intset.OffHeapBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.OffsetBitVector;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
@@ -311,6 +315,35 @@ public class PrimitivesTest extends WalaTestCase {
 
     temp2.clear();
     Assert.assertTrue(temp2.isEmpty());
+
+    // nextElement visits each element once, in increasing order
+    Assert.assertEquals(-1, temp2.nextElement(0));
+    temp2 = factory.parse("{0,5,31,32,33,63,64,100,1000}");
+    for (int idx = 2000; idx < 2100; idx++) {
+      temp2.add(idx);
+    }
+    checkNextElement(temp2);
+    Assert.assertEquals(0, temp2.nextElement(-3));
+    Assert.assertEquals(31, temp2.nextElement(6));
+    Assert.assertEquals(1000, temp2.nextElement(101));
+    Assert.assertEquals(2000, temp2.nextElement(1001));
+    Assert.assertEquals(-1, temp2.nextElement(2100));
+    checkNextElement(factory.makeCopy(temp2));
+    temp2.remove(31);
+    temp2.remove(2050);
+    checkNextElement(temp2);
+  }
+
+  private static void checkNextElement(IntSet s) {
+    int count = 0;
+    int last = -1;
+    for (int i = s.nextElement(0); i != -1; i = s.nextElement(i + 1)) {
+      Assert.assertTrue(i > last);
+      Assert.assertTrue(s.contains(i));
+      last = i;
+      count++;
+    }
+    Assert.assertEquals(s.size(), count);
   }
 
   /**
@@ -341,6 +374,105 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new BitVectorIntSetFactory());
   }
 
+  /**
+   * an {@link IntSet} that leaves {@link IntSet#nextElement(int)} to its default, and iterates in decreasing order
+   */
+  private static final class DescendingIntSet implements IntSet {
+    private static final long serialVersionUID = 1L;
+
+    private final IntSet s;
+
+    DescendingIntSet(IntSet s) {
+      this.s = s;
+    }
+
+    @Override
+    public boolean contains(int i) {
+      return s.contains(i);
+    }
+
+    @Override
+    public boolean containsAny(IntSet set) {
+      return s.containsAny(set);
+    }
+
+    @Override
+    public IntSet intersection(IntSet that) {
+      return s.intersection(that);
+    }
+
+    @Override
+    public IntSet union(IntSet that) {
+      return s.union(that);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return s.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      return s.size();
+    }
+
+    @Override
+    public void foreach(IntSetAction action) {
+      s.foreach(action);
+    }
+
+    @Override
+    public void foreachExcluding(IntSet X, IntSetAction action) {
+      s.foreachExcluding(X, action);
+    }
+
+    @Override
+    public int max() {
+      return s.max();
+    }
+
+    @Override
+    public boolean sameValue(IntSet that) {
+      return s.sameValue(that);
+    }
+
+    @Override
+    public boolean isSubset(IntSet that) {
+      return s.isSubset(that);
+    }
+
+    @Override
+    public IntIterator intIterator() {
+      return new IntIterator() {
+        private int next = s.isEmpty() ? -1 : s.max();
+
+        @Override
+        public boolean hasNext() {
+          return next != -1;
+        }
+
+        @Override
+        public int next() {
+          int result = next;
+          do {
+            next--;
+          } while (next >= 0 && !s.contains(next));
+          return result;
+        }
+      };
+    }
+  }
+
+  @Test public void testDefaultNextElement() {
+    IntSet s = new DescendingIntSet(SparseIntSet.pair(5, 100));
+    checkNextElement(s);
+    Assert.assertEquals(5, s.nextElement(0));
+    Assert.assertEquals(5, s.nextElement(5));
+    Assert.assertEquals(100, s.nextElement(6));
+    Assert.assertEquals(-1, s.nextElement(101));
+    Assert.assertEquals(-1, new DescendingIntSet(new BitVectorIntSetFactory().make()).nextElement(0));
+  }
+
   /**
    * Test the SemiSparseMutableIntSet implementation
    */
@@ -348,6 +480,28 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /**
+   * Test the OffHeapBitVectorIntSet implementation
+   */
+  @Test public void testOffHeapBitVectorIntSet() {
+    OffHeapBitVectorIntSetFactory factory = new OffHeapBitVectorIntSetFactory();
+    doMutableIntSet(factory);
+
+    // freed storage is reused, and a freed set may be used again
+    OffHeapBitVectorIntSet a = factory.parse("{1,100,1000}");
+    long reserved = factory.getReservedWords();
+    a.free();
+    Assert.assertTrue(a.isEmpty());
+    OffHeapBitVectorIntSet b = factory.parse("{1,100,1000}");
+    Assert.assertEquals(reserved, factory.getReservedWords());
+    a.add(5);
+    Assert.assertTrue(a.sameValue(SparseIntSet.singleton(5)));
+    Assert.assertTrue(b.sameValue(new BitVectorIntSetFactory().parse("{1,100,1000}")));
+
+    factory.dispose();
+    Assert.assertEquals(0, factory.getReservedWords());
+  }
+
   /**
    * Test the MutableSparseIntSet implementation
    */
@@ -0,0 +1,84 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.basic;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.GraphReachability;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.SCCReachability;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+public class SCCReachabilityTest {
+
+  private static Set<Integer> toSet(OrdinalSet<Integer> s) {
+    Set<Integer> result = HashSetFactory.make();
+    for (Integer i : s) {
+      result.add(i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testCycles() throws CancelException {
+    NumberedGraph<String> g = SlowSparseNumberedGraph.make();
+    for (String n : new String[] { "A", "B", "C", "D", "E" }) {
+      g.addNode(n);
+    }
+    g.addEdge("A", "B");
+    g.addEdge("B", "A");
+    g.addEdge("B", "C");
+    g.addEdge("C", "D");
+    g.addEdge("D", "C");
+    g.addEdge("E", "D");
+
+    SCCReachability<String, String> r = new SCCReachability<>(g, n -> n.equals("A") || n.equals("D"));
+    r.solve(null);
+    Assert.assertEquals(3, r.getComponentCount());
+    Assert.assertEquals(2, r.getReachableSet("A").size());
+    Assert.assertEquals(2, r.getReachableSet("B").size());
+    Assert.assertEquals(1, r.getReachableSet("C").size());
+    Assert.assertTrue(r.getReachableSet("E").contains("D"));
+    Assert.assertTrue(r.getReachableSet("X").isEmpty());
+  }
+
+  @Test
+  public void testSameAsGraphReachability() throws CancelException {
+    Random random = new Random(17);
+    for (int round = 0; round < 20; round++) {
+      NumberedGraph<Integer> g = SlowSparseNumberedGraph.make();
+      int size = 50 + random.nextInt(200);
+      for (int i = 0; i < size; i++) {
+        g.addNode(i);
+      }
+      for (int i = 0; i < size * 2; i++) {
+        g.addEdge(random.nextInt(size), random.nextInt(size));
+      }
+
+      GraphReachability<Integer, Integer> expected = new GraphReachability<>(g, n -> n % 3 == 0);
+      expected.solve(null);
+      SCCReachability<Integer, Integer> actual = new SCCReachability<>(g, n -> n % 3 == 0);
+      actual.solve(null);
+
+      for (int i = 0; i < size; i++) {
+        Assert.assertEquals("node " + i, toSet(expected.getReachableSet(i)), toSet(actual.getReachableSet(i)));
+      }
+    }
+  }
+}
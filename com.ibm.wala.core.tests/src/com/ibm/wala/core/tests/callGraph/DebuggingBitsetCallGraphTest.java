@@ -24,6 +24,7 @@ import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.OffHeapBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 
 /**
@@ -71,4 +72,13 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
 
+  @Test public void testOffHeapBitVector() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    OffHeapBitVectorIntSetFactory offHeap = new OffHeapBitVectorIntSetFactory();
+    try {
+      runBitsetTest(offHeap, new BitVectorIntSetFactory());
+    } finally {
+      offHeap.dispose();
+    }
+  }
+
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Check that sharing equal points-to sets after solving does not change the pointer analysis
+ */
+public class PointsToSetCompactionTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(PointsToSetCompactionTest.class);
+  }
+
+  private static Map<PointerKey, String> summarize(PointerAnalysis<InstanceKey> pa) {
+    Map<PointerKey, String> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      result.put(k, OrdinalSet.toCollection(pa.getPointsToSet(k)).toString());
+    }
+    return result;
+  }
+
+  private static SSAPropagationCallGraphBuilder solve() throws ClassHierarchyException, IllegalArgumentException, CancelException,
+      IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  @Test public void testCompaction() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    SSAPropagationCallGraphBuilder builder = solve();
+    PointerAnalysisImpl pa = (PointerAnalysisImpl) builder.getPointerAnalysis();
+    Map<PointerKey, String> before = summarize(pa);
+    Assert.assertTrue(pa.compactPointsToSets() > 0);
+    Assert.assertEquals(before, summarize(pa));
+    // compacting again finds nothing new to share
+    Assert.assertEquals(0, pa.compactPointsToSets());
+  }
+
+  @Test public void testResumeAfterCompaction() throws ClassHierarchyException, IllegalArgumentException, CancelException,
+      IOException {
+    SSAPropagationCallGraphBuilder builder = solve();
+    PointerAnalysisImpl pa = (PointerAnalysisImpl) builder.getPointerAnalysis();
+    Map<PointerKey, String> before = summarize(pa);
+    Map<PointerKey, OrdinalSet<InstanceKey>> held = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      held.put(k, pa.getPointsToSet(k));
+    }
+    Assert.assertTrue(pa.compactPointsToSets() > 0);
+
+    // sets obtained before compaction keep their contents
+    for (Map.Entry<PointerKey, OrdinalSet<InstanceKey>> e : held.entrySet()) {
+      Assert.assertEquals(before.get(e.getKey()), OrdinalSet.toCollection(e.getValue()).toString());
+    }
+
+    // solving again changes nothing, so nothing is unshared
+    PropagationSystem system = builder.getPropagationSystem();
+    system.addAllStatementsToWorkList();
+    system.solve(null);
+    Assert.assertEquals(before, summarize(pa));
+    Assert.assertEquals(0, pa.compactPointsToSets());
+
+    // a change to one variable is not seen by the variables it shared its set with
+    PointsToSetVariable changed = null, other = null;
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (system.isImplicit(k) || system.isUnified(k)) {
+        continue;
+      }
+      PointsToSetVariable v = system.findOrCreatePointsToSet(k);
+      if (v.isShared()) {
+        if (changed == null) {
+          changed = v;
+        } else if (v.getValue() == changed.getValue()) {
+          other = v;
+          break;
+        }
+      }
+    }
+    Assert.assertNotNull(other);
+    String otherBefore = other.getValue().toString();
+    int fresh = changed.getValue().max() + 1;
+    changed.add(fresh);
+    Assert.assertFalse(changed.isShared());
+    Assert.assertTrue(changed.contains(fresh));
+    Assert.assertFalse(other.contains(fresh));
+    Assert.assertEquals(otherBefore, other.getValue().toString());
+  }
+
+  @Test public void testInverseFilterAfterCompaction() throws ClassHierarchyException, IllegalArgumentException, CancelException,
+      IOException {
+    SSAPropagationCallGraphBuilder builder = solve();
+    PointerAnalysisImpl pa = (PointerAnalysisImpl) builder.getPointerAnalysis();
+    Assert.assertTrue(pa.compactPointsToSets() > 0);
+
+    PropagationSystem system = builder.getPropagationSystem();
+    PointsToSetVariable shared = null;
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (!system.isImplicit(k) && !system.isUnified(k)) {
+        PointsToSetVariable v = system.findOrCreatePointsToSet(k);
+        if (v.isShared() && v.size() > 1) {
+          shared = v;
+          break;
+        }
+      }
+    }
+    Assert.assertNotNull(shared);
+
+    // the filter of a receiver in an object-sensitive context copies the value of a shared variable
+    InstanceKey excluded = system.getInstanceKey(shared.getValue().max());
+    PointsToSetVariable filtered = new PointsToSetVariable(shared.getPointerKey());
+    Assert.assertTrue(new FilteredPointerKey.SingleInstanceFilter(excluded).addInverseFiltered(system, filtered, shared));
+    Assert.assertEquals(shared.size() - 1, filtered.size());
+    Assert.assertFalse(filtered.contains(system.getInstanceIndex(excluded)));
+    Assert.assertTrue(shared.isShared());
+
+    // and solving resumes from the compacted sets
+    system.addAllStatementsToWorkList();
+    system.solve(null);
+    Assert.assertEquals(0, pa.compactPointsToSets());
+  }
+}
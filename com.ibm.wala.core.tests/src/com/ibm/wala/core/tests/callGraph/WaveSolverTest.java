@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.analysis.reflection.InstanceKeyWithNode;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractFieldPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractLocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.MapUtil;
+
+/**
+ * Check that the wave propagation solver computes the same results as the standard solver
+ */
+public class WaveSolverTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(WaveSolverTest.class);
+  }
+
+  private static SSAPropagationCallGraphBuilder build(ClassHierarchy cha, AnalysisScope scope, boolean wave)
+      throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.JLEX_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setUseWavePropagation(wave);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    builder.makeCallGraph(options, null);
+    return builder;
+  }
+
+  private static boolean isInRootMethod(PointerKey k) {
+    CGNode node = null;
+    if (k instanceof AbstractLocalPointerKey) {
+      node = ((AbstractLocalPointerKey) k).getNode();
+    } else if (k instanceof AbstractFieldPointerKey && ((AbstractFieldPointerKey) k).getInstanceKey() instanceof InstanceKeyWithNode) {
+      node = ((InstanceKeyWithNode) ((AbstractFieldPointerKey) k).getInstanceKey()).getNode();
+    }
+    return node != null && node.getMethod() instanceof AbstractRootMethod;
+  }
+
+  /**
+   * Pointer and instance keys of different builds are not comparable, and synthetic allocation sites are numbered in the order
+   * they are discovered; so, compare the printed pointer keys and the concrete types they point to, ignoring keys that belong to
+   * the synthetic root methods.
+   */
+  private static Map<String, Set<String>> summarize(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      if (isInRootMethod(k)) {
+        continue;
+      }
+      Set<String> s = MapUtil.findOrCreateSet(result, k.toString());
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        s.add(ik.getConcreteType().toString());
+      }
+    }
+    return result;
+  }
+
+  @Test public void testJLex() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+
+    SSAPropagationCallGraphBuilder standard = build(cha, scope, false);
+    SSAPropagationCallGraphBuilder wave = build(cha, scope, true);
+
+    CallGraph standardCG = standard.getCallGraph();
+    CallGraph waveCG = wave.getCallGraph();
+    Assert.assertEquals(standardCG.getNumberOfNodes(), waveCG.getNumberOfNodes());
+    for (CGNode n : standardCG) {
+      Assert.assertNotNull("missing node " + n, waveCG.getNode(n.getMethod(), n.getContext()));
+    }
+
+    Assert.assertEquals(summarize(standard.getPointerAnalysis()), summarize(wave.getPointerAnalysis()));
+  }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.IntIntHashMap;
+import com.ibm.wala.util.collections.IntObjectHashMap;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * Tests the primitive-keyed hash maps against {@link java.util.HashMap}, with random operations over a small key range so that
+ * removals and collisions are common.
+ */
+public class PrimitiveHashMapTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(PrimitiveHashMapTest.class);
+  }
+
+  private static final int OPERATIONS = 20000;
+
+  private static final int KEYS = 300;
+
+  @Test public void testObjectInt() {
+    Random r = new Random(17);
+    ObjectIntHashMap<String> map = new ObjectIntHashMap<>();
+    Map<String, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      String key = (r.nextInt(10) == 0) ? null : "k" + r.nextInt(KEYS);
+      if (r.nextInt(3) == 0) {
+        Assert.assertEquals(expected.remove(key) != null, map.remove(key));
+      } else {
+        int value = r.nextInt();
+        expected.put(key, value);
+        map.put(key, value);
+      }
+      Assert.assertEquals(expected.size(), map.size());
+      Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+    for (Map.Entry<String, Integer> e : expected.entrySet()) {
+      Assert.assertEquals(e.getValue().intValue(), map.get(e.getKey(), -1));
+    }
+    int n = 0;
+    for (Iterator<String> it = map.keyIterator(); it.hasNext(); n++) {
+      Assert.assertTrue(expected.containsKey(it.next()));
+    }
+    Assert.assertEquals(expected.size(), n);
+    Assert.assertEquals(-1, map.get("missing", -1));
+
+    ObjectIntHashMap<String> copy = new ObjectIntHashMap<>(map);
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(expected.size(), copy.size());
+  }
+
+  @Test public void testObjectIntInsertionOrder() {
+    ObjectIntHashMap<Integer> map = new ObjectIntHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put(1000 - i, i);
+    }
+    int i = 0;
+    for (Iterator<Integer> it = map.keyIterator(); it.hasNext(); i++) {
+      Assert.assertEquals(1000 - i, it.next().intValue());
+    }
+  }
+
+  @Test public void testIntObject() {
+    Random r = new Random(42);
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+    Map<Integer, String> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = r.nextInt(KEYS) - KEYS / 2;
+      if (r.nextInt(3) == 0) {
+        Assert.assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        String value = "v" + i;
+        Assert.assertEquals(expected.put(key, value), map.put(key, value));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    for (Map.Entry<Integer, String> e : expected.entrySet()) {
+      Assert.assertEquals(e.getValue(), map.get(e.getKey()));
+    }
+    int n = 0;
+    Iterator<String> values = map.valueIterator();
+    for (IntIterator it = map.keyIterator(); it.hasNext(); n++) {
+      Assert.assertEquals(expected.get(it.next()), values.next());
+    }
+    Assert.assertEquals(expected.size(), n);
+  }
+
+  @Test public void testIntInt() {
+    Random r = new Random(7);
+    IntIntHashMap map = new IntIntHashMap();
+    Map<Integer, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = r.nextInt(KEYS) * 1024;
+      if (r.nextInt(3) == 0) {
+        Assert.assertEquals(expected.remove(key) != null, map.remove(key));
+      } else {
+        expected.put(key, i);
+        map.put(key, i);
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+      Assert.assertEquals(e.getValue().intValue(), map.get(e.getKey(), -1));
+    }
+    int n = 0;
+    for (IntIterator it = map.keyIterator(); it.hasNext(); n++) {
+      Assert.assertTrue(expected.containsKey(it.next()));
+    }
+    Assert.assertEquals(expected.size(), n);
+  }
+}
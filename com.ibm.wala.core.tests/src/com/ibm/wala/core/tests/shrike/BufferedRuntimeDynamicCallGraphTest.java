@@ -0,0 +1,25 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.shrike.cg.BufferedRuntime;
+
+/**
+ * Run the dynamic call graph tests with the instrumented code calling {@link BufferedRuntime}.
+ */
+public class BufferedRuntimeDynamicCallGraphTest extends DynamicCallGraphTest {
+
+  public BufferedRuntimeDynamicCallGraphTest() {
+    testRuntime = BufferedRuntime.class.getName();
+  }
+
+}
@@ -0,0 +1,228 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.cg.BinaryTraceReader;
+import com.ibm.wala.shrike.cg.BufferedRuntime;
+import com.ibm.wala.shrike.cg.OfflineDynamicCallGraph;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.CodeReader;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Checks the trace that {@link BufferedRuntime} writes, by calling its entry points as instrumented code would, and checks which
+ * calls {@link OfflineDynamicCallGraph} leaves untraced.
+ *
+ * {@link BufferedRuntime} reads its configuration when it is initialized, so this class must be the only user of it in its JVM.
+ */
+public class BufferedRuntimeTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(BufferedRuntimeTest.class);
+  }
+
+  private static File trace;
+
+  private static File makeTempFile(String suffix, String contents) throws IOException {
+    File f = File.createTempFile("wala-test", suffix);
+    f.deleteOnExit();
+    if (contents != null) {
+      Files.write(f.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return f;
+  }
+
+  @BeforeClass
+  public static void configureRuntime() throws IOException {
+    trace = makeTempFile(".gz", null);
+    System.setProperty("dynamicCGFile", trace.getPath());
+    System.setProperty("dynamicCGFilter", makeTempFile(".txt", "p\\/Excluded\n").getPath());
+  }
+
+  private static void call(String klass, String method) {
+    BufferedRuntime.addToCallStack("L" + klass + ";", method, BufferedRuntime.NULL_TAG);
+    enter(klass, method);
+  }
+
+  private static void enter(String klass, String method) {
+    BufferedRuntime.execution(klass, method, BufferedRuntime.NULL_TAG);
+  }
+
+  private static void exit(String klass, String method, boolean returnToCaller) {
+    BufferedRuntime.termination(klass, method, BufferedRuntime.NULL_TAG, false);
+    if (returnToCaller) {
+      BufferedRuntime.pop();
+    }
+  }
+
+  @Test
+  public void testTrace() throws IOException, InterruptedException {
+    enter("p/Main", "<clinit>()V");
+    exit("p/Main", "<clinit>()V", false);
+
+    enter("p/Main", "main([Ljava/lang/String;)V");
+    for (int i = 0; i < 2; i++) {
+      call("p/A", "foo()V");
+      exit("p/A", "foo()V", true);
+    }
+
+    // an excluded method is not traced, but calls from it are
+    call("p/Excluded", "bar()V");
+    call("p/A", "baz()V");
+    exit("p/A", "baz()V", true);
+    exit("p/Excluded", "bar()V", true);
+
+    // uninstrumented code calls back into instrumented code
+    BufferedRuntime.addToCallStack("Ljava/util/Collections;", "sort(Ljava/util/List;)V", BufferedRuntime.NULL_TAG);
+    enter("p/A", "compareTo(Ljava/lang/Object;)I");
+    exit("p/A", "compareTo(Ljava/lang/Object;)I", false);
+    BufferedRuntime.pop();
+
+    // the outermost method of another thread is called by the JVM
+    Thread t = new Thread(() -> {
+      enter("p/A", "run()V");
+      exit("p/A", "run()V", false);
+    });
+    t.start();
+    t.join();
+
+    exit("p/Main", "main([Ljava/lang/String;)V", false);
+    BufferedRuntime.endTrace();
+
+    final List<String> edges = new ArrayList<>();
+    BinaryTraceReader.read(trace.getPath(), (callerClass, callerMethod, calleeClass, calleeMethod) -> edges
+        .add((callerMethod == null ? callerClass : callerClass + " " + callerMethod) + " -> " + calleeClass + " " + calleeMethod));
+
+    Set<String> expected = HashSetFactory.make();
+    expected.add("clinit -> p/Main <clinit>()V");
+    expected.add("root -> p/Main main([Ljava/lang/String;)V");
+    expected.add("p/Main main([Ljava/lang/String;)V -> p/A foo()V");
+    expected.add("p/Excluded bar()V -> p/A baz()V");
+    expected.add("callbacks -> p/A compareTo(Ljava/lang/Object;)I");
+    expected.add("callbacks -> p/A run()V");
+    Assert.assertEquals(expected, HashSetFactory.make(edges));
+    Assert.assertEquals("each edge once", expected.size(), edges.size());
+  }
+
+  /**
+   * instrumented by {@link #testUntracedCalls()}
+   */
+  static class Calls {
+    static int f(int k) {
+      return Math.max(k, 1) + String.valueOf(k).length();
+    }
+  }
+
+  private static byte[] readClass(Class<?> c) throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    try (final InputStream s = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+      byte[] buf = new byte[4096];
+      int n;
+      while ((n = s.read(buf)) > 0) {
+        b.write(buf, 0, n);
+      }
+    }
+    return b.toByteArray();
+  }
+
+  /**
+   * @return the classes and names of the methods that method name of the class calls, as "class.name"
+   */
+  private static List<String> callees(ClassReader cr, String name) throws Exception {
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      if (cr.getMethodName(m).equals(name)) {
+        ClassReader.AttrIterator attrs = new ClassReader.AttrIterator();
+        cr.initMethodAttributeIterator(m, attrs);
+        for (; attrs.isValid(); attrs.advance()) {
+          if (attrs.getName().equals("Code")) {
+            CTDecoder decoder = new CTDecoder(new CodeReader(attrs));
+            decoder.decode();
+            List<String> result = new ArrayList<>();
+            for (IInstruction i : decoder.getInstructions()) {
+              if (i instanceof IInvokeInstruction) {
+                IInvokeInstruction inv = (IInvokeInstruction) i;
+                result.add(inv.getClassType() + "." + inv.getMethodName());
+              }
+            }
+            return result;
+          }
+        }
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * Static calls into excluded classes cannot reach instrumented code, so they are left alone; a virtual call on an excluded class is
+   * still traced.
+   */
+  @Test
+  public void testUntracedCalls() throws Exception {
+    String entry = Calls.class.getName().replace('.', '/') + ".class";
+    File in = makeTempFile(".jar", null);
+    try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(in))) {
+      out.putNextEntry(new JarEntry(entry));
+      out.write(readClass(Calls.class));
+      out.closeEntry();
+    }
+    File out = makeTempFile(".jar", null);
+    Files.delete(out.toPath());
+    OfflineDynamicCallGraph.main(new String[] { in.getPath(), "-o", out.getPath(), "--runtime", BufferedRuntime.class.getName(),
+        "--exclusions", makeTempFile(".txt", "java\\/.*\n").getPath() });
+
+    ClassReader cr;
+    try (final JarFile jar = new JarFile(out)) {
+      ByteArrayOutputStream b = new ByteArrayOutputStream();
+      try (final InputStream s = jar.getInputStream(jar.getEntry(entry))) {
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = s.read(buf)) > 0) {
+          b.write(buf, 0, n);
+        }
+      }
+      cr = new ClassReader(b.toByteArray());
+    }
+
+    List<String> calls = callees(cr, "f");
+    Assert.assertTrue(calls.toString(), calls.contains("Ljava/lang/Math;.max"));
+    Assert.assertTrue(calls.toString(), calls.contains("Ljava/lang/String;.valueOf"));
+    Assert.assertFalse(calls.toString(), calls.contains("Ljava/lang/String;.length"));
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      if (cr.getMethodName(m).startsWith("$shrike$trampoline$")) {
+        Assert.assertFalse(callees(cr, cr.getMethodName(m)).contains("Ljava/lang/Math;.max"));
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassFileModule;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.CodeReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.shrike.ShrikeClassReaderHandle;
+
+public class ClassReaderBufferTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ClassReaderBufferTest.class);
+  }
+
+  private static byte[] readClass(Class<?> c) throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    try (final InputStream s = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+      byte[] buf = new byte[4096];
+      int n;
+      while ((n = s.read(buf)) > 0) {
+        b.write(buf, 0, n);
+      }
+    }
+    return b.toByteArray();
+  }
+
+  /**
+   * a reader of a direct buffer holding the class between other data must see the same class as a reader of the array
+   */
+  @Test
+  public void testDirectBuffer() throws IOException, InvalidClassFileException {
+    byte[] bytes = readClass(String.class);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 20);
+    buffer.position(7);
+    buffer.put(bytes);
+    buffer.position(7);
+    buffer.limit(7 + bytes.length);
+
+    ClassReader expected = new ClassReader(bytes);
+    ClassReader actual = new ClassReader(buffer);
+    Assert.assertEquals(7, buffer.position());
+    Assert.assertEquals(bytes.length, actual.getLength());
+
+    Assert.assertEquals(expected.getName(), actual.getName());
+    Assert.assertEquals(expected.getSuperName(), actual.getSuperName());
+    Assert.assertArrayEquals(expected.getInterfaceNames(), actual.getInterfaceNames());
+    Assert.assertEquals(expected.getFieldCount(), actual.getFieldCount());
+    Assert.assertEquals(expected.getMethodCount(), actual.getMethodCount());
+    ClassReader.AttrIterator expectedIter = new ClassReader.AttrIterator();
+    ClassReader.AttrIterator actualIter = new ClassReader.AttrIterator();
+    for (int m = 0; m < expected.getMethodCount(); m++) {
+      Assert.assertEquals(expected.getMethodName(m), actual.getMethodName(m));
+      Assert.assertEquals(expected.getMethodType(m), actual.getMethodType(m));
+      expected.initMethodAttributeIterator(m, expectedIter);
+      actual.initMethodAttributeIterator(m, actualIter);
+      for (; expectedIter.isValid(); expectedIter.advance(), actualIter.advance()) {
+        Assert.assertEquals(expectedIter.getName(), actualIter.getName());
+        if (expectedIter.getName().equals("Code")) {
+          Assert.assertArrayEquals(new CodeReader(expectedIter).getBytecode(), new CodeReader(actualIter).getBytecode());
+        }
+      }
+      Assert.assertFalse(actualIter.isValid());
+    }
+
+    Assert.assertArrayEquals(bytes, actual.getBytes());
+    Assert.assertSame(actual.getBytes(), actual.getBytes());
+  }
+
+  @Test
+  public void testHeapBufferIsNotCopied() throws IOException, InvalidClassFileException {
+    byte[] bytes = readClass(String.class);
+    Assert.assertSame(bytes, new ClassReader(ByteBuffer.wrap(bytes)).getBytes());
+  }
+
+  /**
+   * class files from directories are read onto the heap unless mapping is asked for
+   */
+  @Test
+  public void testClassFileIsNotMapped() throws IOException, InvalidClassFileException {
+    byte[] bytes = readClass(String.class);
+    File f = File.createTempFile("String", ".class");
+    f.deleteOnExit();
+    Files.write(f.toPath(), bytes);
+
+    ClassReader r = new ShrikeClassReaderHandle(new ClassFileModule(f, null)).get();
+    Assert.assertEquals("java/lang/String", r.getName());
+    Assert.assertEquals(ShrikeClassReaderHandle.MAP_CLASS_FILES && bytes.length >= ShrikeClassReaderHandle.MAP_THRESHOLD,
+        r.getByteBuffer().isDirect());
+    Assert.assertArrayEquals(bytes, r.getBytes());
+  }
+}
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeCT.ClassConstants;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+
+public class ClassWriterTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ClassWriterTest.class);
+  }
+
+  private static final String[] STRINGS = { "plain", "", "nul\u0000byte", "café", "€中文", "😀",
+      "߿ࠀ\u0080\u007f", new String(new char[1000]).replace('\u0000', '中') };
+
+  /**
+   * @return the CONSTANT_Utf8 entry for s, encoded by the JDK's modified UTF-8 writer
+   */
+  private static byte[] utf8Entry(String s) throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    try (final DataOutputStream out = new DataOutputStream(b)) {
+      out.writeByte(ClassConstants.CONSTANT_Utf8);
+      out.writeUTF(s);
+    }
+    return b.toByteArray();
+  }
+
+  private static int indexOf(byte[] data, byte[] pattern) {
+    outer: for (int i = 0; i + pattern.length <= data.length; i++) {
+      for (int j = 0; j < pattern.length; j++) {
+        if (data[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * UTF-8 entries, which are sized before they are written, must come out as the modified UTF-8 of the class file format, with no
+   * bytes to spare at the end of the class.
+   */
+  @Test
+  public void testUtf8Entries() throws IOException, InvalidClassFileException {
+    ClassWriter w = new ClassWriter();
+    w.setMajorVersion(52);
+    w.setNameIndex(w.addCPClass("p/Strings"));
+    w.setSuperNameIndex(w.addCPClass("java/lang/Object"));
+    int[] indices = new int[STRINGS.length];
+    for (int i = 0; i < STRINGS.length; i++) {
+      indices[i] = w.addCPUtf8(STRINGS[i]);
+    }
+    byte[] bytes = w.makeBytes();
+
+    int end = 0;
+    List<String> all = new ArrayList<>(Arrays.asList(STRINGS));
+    all.add("p/Strings");
+    all.add("java/lang/Object");
+    for (String s : all) {
+      byte[] entry = utf8Entry(s);
+      int at = indexOf(bytes, entry);
+      Assert.assertTrue("no entry for " + s, at >= 0);
+      end = Math.max(end, at + entry.length);
+    }
+    // access flags, this, super, and no interfaces, fields, methods or attributes follow the last entry
+    Assert.assertEquals(end + 14, bytes.length);
+
+    ClassReader r = new ClassReader(bytes);
+    Assert.assertEquals("p/Strings", r.getName());
+    for (int i = 0; i < STRINGS.length; i++) {
+      Assert.assertEquals(STRINGS[i], r.getCP().getCPUtf8(indices[i]));
+    }
+  }
+}
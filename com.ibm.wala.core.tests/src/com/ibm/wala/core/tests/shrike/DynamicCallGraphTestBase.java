@@ -15,6 +15,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +35,7 @@ import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.properties.WalaProperties;
+import com.ibm.wala.shrike.cg.BinaryTraceReader;
 import com.ibm.wala.shrike.cg.OfflineDynamicCallGraph;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -47,6 +50,16 @@ import com.ibm.wala.util.io.TemporaryFile;
 public abstract class DynamicCallGraphTestBase extends WalaTestCase {
   
   protected boolean testPatchCalls = false;
+
+  /**
+   * the runtime class the instrumented code calls, or null for the default {@link com.ibm.wala.shrike.cg.Runtime}
+   */
+  protected String testRuntime = null;
+
+  /**
+   * the number of threads with which to instrument the test jar
+   */
+  protected int testThreads = 1;
   
   protected static String getClasspathEntry(String elt) {
     for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
@@ -101,6 +114,12 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
       if (testPatchCalls) {
         args.add("--patch-calls");
       }
+      if (testRuntime != null) {
+        args.addAll(Arrays.asList("--runtime", testRuntime));
+      }
+      if (testThreads > 1) {
+        args.addAll(Arrays.asList("--threads", String.valueOf(testThreads)));
+      }
       OfflineDynamicCallGraph.main(args.toArray(new String[ args.size() ]));
       Assert.assertTrue("expected to create " + instrumentedJarLocation, Files.exists(instrumentedJarLocation));
       instrumentedJarBuilt = true;
@@ -193,9 +212,19 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
     Assert.assertTrue("could not find " + notFound, notFound.isEmpty());
   }
  
+  private BufferedReader openTrace() throws IOException {
+    if (BinaryTraceReader.isBinaryTrace(cgLocation.toString())) {
+      StringWriter text = new StringWriter();
+      BinaryTraceReader.toText(cgLocation.toString(), text);
+      return new BufferedReader(new StringReader(text.toString()));
+    } else {
+      return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))));
+    }
+  }
+
   protected void check(CallGraph staticCG, EdgesTest test, Predicate<MethodReference> filter) throws IOException {
     int lines = 0;
-    try (final BufferedReader dynamicEdgesFile = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))))) {
+    try (final BufferedReader dynamicEdgesFile = openTrace()) {
       String line;
       loop: while ((line = dynamicEdgesFile.readLine()) != null) {
         if (line.startsWith("call to") || line.startsWith("return from")) {
@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.tools.InstrumentationCache;
+
+public class InstrumentationCacheTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(InstrumentationCacheTest.class);
+  }
+
+  private static File makeCacheDir() throws IOException {
+    File dir = Files.createTempDirectory("wala-cache").toFile();
+    dir.deleteOnExit();
+    return dir;
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    File dir = makeCacheDir();
+    byte[] original = { 1, 2, 3 };
+    byte[] instrumented = { 4, 5, 6, 7 };
+
+    InstrumentationCache cache = new InstrumentationCache(dir, "config", 1 << 20);
+    String key = cache.key(original);
+    Assert.assertNull(cache.lookup(key));
+    cache.store(key, "p/A", instrumented);
+    cache.store(cache.key(new byte[] { 8 }), "p/B", null);
+
+    // a new cache on the same directory, as in a later build
+    cache = new InstrumentationCache(dir, "config", 1 << 20);
+    InstrumentationCache.Entry a = cache.lookup(cache.key(original));
+    Assert.assertNotNull(a);
+    Assert.assertEquals("p/A", a.getClassName());
+    Assert.assertArrayEquals(instrumented, a.getBytes());
+    InstrumentationCache.Entry b = cache.lookup(cache.key(new byte[] { 8 }));
+    Assert.assertNotNull(b);
+    Assert.assertNull(b.getBytes());
+    Assert.assertEquals(2, cache.getHits());
+    Assert.assertEquals(0, cache.getMisses());
+
+    // another configuration does not see these classes
+    InstrumentationCache other = new InstrumentationCache(dir, "other config", 1 << 20);
+    Assert.assertNull(other.lookup(other.key(original)));
+    Assert.assertEquals(1, other.getMisses());
+  }
+
+  @Test
+  public void testSizeLimit() throws IOException {
+    File dir = makeCacheDir();
+    InstrumentationCache cache = new InstrumentationCache(dir, "config", 10000);
+    for (int i = 0; i < 100; i++) {
+      cache.store(cache.key(new byte[] { (byte) i }), "p/C" + i, new byte[500]);
+      Assert.assertTrue(cache.getSize() <= 10000);
+    }
+    Assert.assertTrue(cache.getEvictions() > 0);
+    Assert.assertNotNull(cache.lookup(cache.key(new byte[] { 99 })));
+    Assert.assertEquals(cache.getSize(), new InstrumentationCache(dir, "config", 10000).getSize());
+  }
+
+  @Test
+  public void testDependencies() throws IOException {
+    File dir = makeCacheDir();
+    byte[] a = { 1 };
+    byte[] b = { 2 };
+    String[] dependencyOfA = { "Lp/Super; 1" };
+
+    InstrumentationCache cache = new InstrumentationCache(dir, "config", 1 << 20, bytes -> bytes[0] == 1 ? dependencyOfA[0] : "");
+    cache.store(cache.key(a), "p/A", a);
+    cache.store(cache.key(b), "p/B", b);
+
+    // only the class whose dependencies changed misses
+    dependencyOfA[0] = "Lp/Super; 2";
+    Assert.assertNull(cache.lookup(cache.key(a)));
+    Assert.assertNotNull(cache.lookup(cache.key(b)));
+  }
+}
@@ -0,0 +1,23 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+/**
+ * Run the dynamic call graph tests on a jar instrumented by several threads.
+ */
+public class ParallelInstrumentationDynamicCallGraphTest extends DynamicCallGraphTest {
+
+  public ParallelInstrumentationDynamicCallGraphTest() {
+    testThreads = 4;
+  }
+
+}
@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.core.tests.shrike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.Compiler;
+import com.ibm.wala.shrikeBT.ConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.ExceptionHandler;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.PopInstruction;
+import com.ibm.wala.shrikeBT.ReturnInstruction;
+import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.shrikeCT.CTCompiler;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.StackMapConstants.Item;
+import com.ibm.wala.shrikeCT.StackMapConstants.StackMapFrame;
+import com.ibm.wala.shrikeCT.StackMapTableWriter;
+
+public class StackMapTableWriterTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(StackMapTableWriterTest.class);
+  }
+
+  /**
+   * a method whose stack holds one word at label 5 on the branch path and two on the fall-through path
+   */
+  private static MethodData mismatch() {
+    IInstruction[] instructions = { ConstantInstruction.make(0), ConstantInstruction.make(0), ConstantInstruction.make(0),
+        ConditionalBranchInstruction.make(Constants.TYPE_int, ConditionalBranchInstruction.Operator.EQ, 5),
+        ConstantInstruction.make(0), PopInstruction.make(1), ReturnInstruction.make(Constants.TYPE_void) };
+    return new MethodData(Constants.ACC_PUBLIC | Constants.ACC_STATIC, "LTest;", "mismatch", "()V", instructions,
+        new ExceptionHandler[instructions.length][0], new int[instructions.length]);
+  }
+
+  /**
+   * a frame for the one basic block start, label 5, of {@link #mismatch()}
+   */
+  private static List<StackMapFrame> oldFrames(Compiler.Output output) {
+    int[] offsets = output.getInstructionOffsets();
+    Item[] none = new Item[0];
+    Item[] oneInt = { Item.ITEM_Integer };
+    List<StackMapFrame> frames = new ArrayList<>();
+    frames.add(new StackMapFrame(255, offsets[5], none, oneInt));
+    return frames;
+  }
+
+  private static Compiler.Output compile(MethodData md) {
+    CTCompiler compiler = CTCompiler.make(new ClassWriter(), md);
+    compiler.compile();
+    return compiler.getOutput();
+  }
+
+  /**
+   * Without an explicit request for laziness, invalid bytecode is reported even when all the old frames can be reused.
+   */
+  @Test public void testVerifiesByDefault() {
+    MethodData md = mismatch();
+    Compiler.Output output = compile(md);
+    try {
+      StackMapTableWriter.stackMapTable(md, output, null, null, oldFrames(output));
+      Assert.fail("expected a FailureException");
+    } catch (FailureException e) {
+      // expected
+    }
+  }
+
+  /**
+   * When verification is not asked for, a method whose old frames all still apply is not analyzed.
+   */
+  @Test public void testLazyReusesFrames() throws FailureException {
+    MethodData md = mismatch();
+    Compiler.Output output = compile(md);
+    List<StackMapFrame> frames = oldFrames(output);
+    Assert.assertEquals(frames, StackMapTableWriter.stackMapTable(md, output, null, null, frames, false));
+  }
+}
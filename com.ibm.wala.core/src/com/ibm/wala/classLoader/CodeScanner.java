@@ -66,7 +66,7 @@ public class CodeScanner {
       SyntheticMethod sm = (SyntheticMethod) m;
       return getFieldsRead(sm.getStatements());
     } else {
-      return getFieldsReadFromShrikeBT((ShrikeCTMethod) m);
+      return getFieldsReadFromShrikeBT((IBytecodeMethod) m);
     }
   }
 
@@ -82,7 +82,7 @@ public class CodeScanner {
       SyntheticMethod sm = (SyntheticMethod) m;
       return getFieldsWritten(sm.getStatements());
     } else {
-      return getFieldsWrittenFromShrikeBT((ShrikeCTMethod) m);
+      return getFieldsWrittenFromShrikeBT((IBytecodeMethod) m);
     }
   }
 
@@ -115,7 +115,7 @@ public class CodeScanner {
       SyntheticMethod sm = (SyntheticMethod) m;
       return getNewSites(sm.getStatements());
     } else {
-      return getNewSitesFromShrikeBT((ShrikeCTMethod) m);
+      return getNewSitesFromShrikeBT((IBytecodeMethod) m);
     }
   }
 
@@ -200,11 +200,11 @@ public class CodeScanner {
    * @return Iterator of TypeReference
    * @throws InvalidClassFileException
    */
-  private static Collection<NewSiteReference> getNewSitesFromShrikeBT(ShrikeCTMethod M) throws InvalidClassFileException {
+  private static Collection<NewSiteReference> getNewSitesFromShrikeBT(IBytecodeMethod<?> M) throws InvalidClassFileException {
     return M.getNewSites();
   }
 
-  private static List<FieldReference> getFieldsReadFromShrikeBT(ShrikeCTMethod M) throws InvalidClassFileException {
+  private static List<FieldReference> getFieldsReadFromShrikeBT(IBytecodeMethod<?> M) throws InvalidClassFileException {
     // TODO move the logic here from ShrikeCTMethodWrapper
     LinkedList<FieldReference> result = new LinkedList<>();
     for (FieldReference fr : Iterator2Iterable.make(M.getFieldsRead())) {
@@ -213,7 +213,7 @@ public class CodeScanner {
     return result;
   }
 
-  private static List<FieldReference> getFieldsWrittenFromShrikeBT(ShrikeCTMethod M) throws InvalidClassFileException {
+  private static List<FieldReference> getFieldsWrittenFromShrikeBT(IBytecodeMethod<?> M) throws InvalidClassFileException {
     // TODO move the logic here from ShrikeCTMethodWrapper
     LinkedList<FieldReference> result = new LinkedList<>();
     for (FieldReference fr : Iterator2Iterable.make(M.getFieldsWritten())) {
@@ -11,10 +11,12 @@
 package com.ibm.wala.classLoader;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import com.ibm.wala.shrikeBT.ExceptionHandler;
 import com.ibm.wala.shrikeBT.IndirectionData;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.annotations.Annotation;
 
 /**
@@ -47,6 +49,21 @@ public interface IBytecodeMethod<I>extends IMethod {
    */
   Collection<CallSiteReference> getCallSites() throws InvalidClassFileException;
 
+  /**
+   * @return the allocation sites declared in the bytecode for this method
+   */
+  Collection<NewSiteReference> getNewSites() throws InvalidClassFileException;
+
+  /**
+   * @return the fields read by the bytecode of this method
+   */
+  Iterator<FieldReference> getFieldsRead() throws InvalidClassFileException;
+
+  /**
+   * @return the fields written by the bytecode of this method
+   */
+  Iterator<FieldReference> getFieldsWritten() throws InvalidClassFileException;
+
   /**
    * @return information about any indirect uses of local variables
    */
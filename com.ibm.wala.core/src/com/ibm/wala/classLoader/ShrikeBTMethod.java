@@ -217,7 +217,7 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   /**
    * @throws InvalidClassFileException
    */
-  Collection<NewSiteReference> getNewSites() throws InvalidClassFileException {
+  public Collection<NewSiteReference> getNewSites() throws InvalidClassFileException {
     Collection<NewSiteReference> empty = Collections.emptySet();
     if (isNative()) {
       return empty;
@@ -196,6 +196,12 @@ public class AnalysisOptions {
    * Should call graph construction handle arrays of zero-length differently?
    */
   private boolean handleZeroLengthArray = true;
+
+  /**
+   * Should the pointer analysis be solved by wave propagation over the condensed assignment graph, rather than by the standard
+   * worklist solver? See {@link com.ibm.wala.ipa.callgraph.propagation.WaveSolver}.
+   */
+  private boolean useWavePropagation = false;
   
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
@@ -438,4 +444,18 @@ public class AnalysisOptions {
   public void setHandleZeroLengthArray(boolean handleZeroLengthArray) {
     this.handleZeroLengthArray = handleZeroLengthArray;
   }
+
+  /**
+   * Should the pointer analysis be solved by wave propagation over the condensed assignment graph?
+   */
+  public boolean getUseWavePropagation() {
+    return useWavePropagation;
+  }
+
+  /**
+   * Should the pointer analysis be solved by wave propagation over the condensed assignment graph?
+   */
+  public void setUseWavePropagation(boolean useWavePropagation) {
+    this.useWavePropagation = useWavePropagation;
+  }
 }
@@ -13,6 +13,7 @@ package com.ibm.wala.ipa.callgraph.propagation;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.wala.classLoader.IClass;
@@ -38,10 +39,14 @@ import com.ibm.wala.ssa.SSAPiInstruction;
 import com.ibm.wala.ssa.SSAThrowInstruction;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
@@ -138,6 +143,55 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
     }
   }
 
+  /**
+   * Hash-cons the points-to sets computed by the solver: variables whose points-to sets are equal are made to share a single set,
+   * and the duplicates are dropped. Call this once solving is done, to cut the memory retained by clients that keep this pointer
+   * analysis alive. Points-to sets obtained before stay valid. The shared sets are copied on write, so solving may still resume
+   * afterwards.
+   *
+   * @return the number of duplicate sets dropped
+   */
+  public int compactPointsToSets() {
+    Map<Integer, List<PointsToSetVariable>> buckets = HashMapFactory.make();
+    int duplicates = 0;
+    for (PointerKey key : Iterator2Iterable.make(pointsToMap.iterateKeys())) {
+      if (pointsToMap.isImplicit(key) || pointsToMap.isUnified(key)) {
+        continue;
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      MutableIntSet S = v.getValue();
+      if (S == null) {
+        continue;
+      }
+      List<PointsToSetVariable> bucket = MapUtil.findOrCreateList(buckets, contentHash(S));
+      PointsToSetVariable canonical = null;
+      for (PointsToSetVariable c : bucket) {
+        if (c.getValue() == S || c.getValue().sameValue(S)) {
+          canonical = c;
+          break;
+        }
+      }
+      if (canonical == null) {
+        bucket.add(v);
+      } else if (canonical.getValue() != S) {
+        v.share(canonical);
+        duplicates++;
+      }
+    }
+    return duplicates;
+  }
+
+  /**
+   * a hash of the contents of S, independent of the order in which S is iterated
+   */
+  private static int contentHash(IntSet S) {
+    int h = S.size();
+    for (IntIterator it = S.intIterator(); it.hasNext();) {
+      h += it.next() * 0x9E3779B9;
+    }
+    return h;
+  }
+
   /**
    * did the pointer analysis use a type filter for a given points-to set? (this is ugly).
    */
@@ -781,6 +781,14 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
     // special logic to clean up side effects
     updateSideEffectsForUnification(cache, rep);
+
+    // the representative now holds the union; the other sets are dead
+    PointsToSetVariable pRef = pointsToMap.getPointsToSet(rep);
+    for (PointsToSetVariable p : cache) {
+      if (p != pRef) {
+        p.release();
+      }
+    }
   }
 
   /**
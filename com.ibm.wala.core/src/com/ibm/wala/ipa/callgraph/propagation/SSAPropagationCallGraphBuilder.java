@@ -2416,6 +2416,9 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
    */
   @Override
   protected IPointsToSolver makeSolver() {
+    if (getOptions().getUseWavePropagation()) {
+      return new WaveSolver(system, this);
+    }
     return new StandardSolver(system, this);
     // return usePreTransitiveSolver ? (IPointsToSolver) new PreTransitiveSolver(system, this) : new StandardSolver(system, this);
     // return true ? (IPointsToSolver)new PreTransitiveSolver(system,this) : new
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVector;
+
+/**
+ * wave propagation solver for pointer analysis.
+ *
+ * Instead of evaluating one statement at a time off the worklist, this solver periodically computes the strongly connected
+ * components of the assignment graph and orders them topologically. Each wave then pushes points-to sets along assignment edges in
+ * that order, iterating each SCC to a local fixed point as if it were a single collapsed node, so that a change travels the whole
+ * copy chain in one pass. Between waves, the remaining statements (field reads and writes, filters, dispatch) are evaluated; these
+ * may add new assignment edges, which are picked up by the next wave.
+ *
+ * The SCCs are not unified in the underlying {@link PropagationSystem}, since the builder may still add constraints to any member
+ * of a cycle, and members may carry different type filters.
+ */
+@SuppressWarnings("rawtypes")
+public class WaveSolver extends AbstractPointsToSolver {
+
+  private static final boolean DEBUG_PHASES = DEBUG || false;
+
+  /**
+   * A tuning parameter; by what fraction must the number of variables grow before we recompute the SCCs of the assignment graph?
+   */
+  private static final double CONDENSATION_GROWTH_FACTOR = 0.1;
+
+  /**
+   * A tuning parameter; how many changes, as a fraction of the number of variables, may be deferred to a later wave because they
+   * run against the current topological order before we recompute the SCCs of the assignment graph?
+   */
+  private static final double MAX_DEFERRED_FACTOR = 0.05;
+
+  private boolean firstSolve = true;
+
+  /**
+   * The SCCs of the assignment graph, in topological order
+   */
+  private PointsToSetVariable[][] sccs;
+
+  /**
+   * sccIndex[i] is the index in {@link #sccs} of the SCC holding the variable with graph node id i, or -1 if that variable was not
+   * in the assignment graph at the last condensation.
+   */
+  private int[] sccIndex = new int[0];
+
+  private int variablesAtLastCondensation = 0;
+
+  private int deferredSinceLastCondensation = 0;
+
+  private int nWaves = 0;
+
+  public WaveSolver(PropagationSystem system, PropagationCallGraphBuilder builder) {
+    super(system, builder);
+  }
+
+  /*
+   * @see com.ibm.wala.ipa.callgraph.propagation.IPointsToSolver#solve()
+   */
+  @Override
+  public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    int i = 0;
+    do {
+      i++;
+
+      if (DEBUG_PHASES) {
+        System.err.println("Iteration " + i);
+      }
+      propagate(monitor);
+      if (DEBUG_PHASES) {
+        System.err.println("Solved " + i + " after " + nWaves + " waves");
+      }
+
+      if (getBuilder().getOptions().getMaxNumberOfNodes() > -1) {
+        if (getBuilder().getCallGraph().getNumberOfNodes() >= getBuilder().getOptions().getMaxNumberOfNodes()) {
+          if (DEBUG) {
+            System.err.println("Bail out from call graph limit" + i);
+          }
+          throw CancelException.make("reached call graph size limit");
+        }
+      }
+
+      // Add constraints until there are no new discovered nodes
+      getBuilder().addConstraintsFromNewNodes(monitor);
+
+      if (i <= getBuilder().getOptions().getReflectionOptions().getNumFlowToCastIterations()) {
+        getReflectionHandler().updateForReflection(monitor);
+      }
+      // Handling reflection may have discovered new nodes!
+      getBuilder().addConstraintsFromNewNodes(monitor);
+
+      if (monitor != null) { monitor.worked(i); }
+    } while (!getSystem().emptyWorkList());
+  }
+
+  /**
+   * Solve the current set of statements by waves, until the worklist is empty.
+   */
+  @SuppressWarnings("unchecked")
+  private void propagate(IProgressMonitor monitor) throws CancelException {
+    PropagationSystem system = getSystem();
+    if (firstSolve) {
+      system.initForFirstSolve();
+      firstSolve = false;
+    }
+    Worklist workList = system.getWorklist();
+    while (!workList.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      if (needsCondensation()) {
+        condense();
+      }
+      nWaves++;
+
+      // the sources of pending assignments seed the wave; everything else is evaluated after it
+      BitVector dirtySCCs = new BitVector();
+      BitVector dirtyVariables = new BitVector();
+      List<AbstractStatement> others = new ArrayList<>();
+      while (!workList.isEmpty()) {
+        AbstractStatement s = workList.takeStatement();
+        if (s instanceof AssignEquation) {
+          PointsToSetVariable rhs = ((AssignEquation) s).getRightHandSide();
+          int scc = getSCC(rhs);
+          if (scc != -1) {
+            dirtyVariables.set(rhs.getGraphNodeId());
+            dirtySCCs.set(scc);
+            continue;
+          }
+        }
+        others.add(s);
+      }
+
+      wave(dirtySCCs, dirtyVariables);
+
+      for (AbstractStatement s : others) {
+        if (evaluate(s) && s.getLHS() != null) {
+          system.changedVariable((PointsToSetVariable) s.getLHS());
+        }
+      }
+    }
+  }
+
+  /**
+   * Push points-to sets along the assignment edges leaving the dirty variables, visiting SCCs in topological order.
+   *
+   * @param dirtySCCs indices of SCCs holding at least one dirty variable
+   * @param dirtyVariables graph node ids of variables whose assignment successors must be updated
+   */
+  private void wave(BitVector dirtySCCs, BitVector dirtyVariables) {
+    PropagationSystem system = getSystem();
+    BitVector changedVariables = new BitVector();
+    for (int c = dirtySCCs.nextSetBit(0); c != -1; c = dirtySCCs.nextSetBit(c + 1)) {
+      boolean changed;
+      do {
+        changed = false;
+        for (PointsToSetVariable v : sccs[c]) {
+          int id = v.getGraphNodeId();
+          if (!dirtyVariables.get(id)) {
+            continue;
+          }
+          dirtyVariables.clear(id);
+          boolean vChanged = changedVariables.get(id);
+          for (AbstractStatement s : Iterator2Iterable.make(system.getStatementsThatUse(v))) {
+            if (!(s instanceof AssignEquation)) {
+              if (vChanged) {
+                system.addToWorkList(s);
+              }
+              continue;
+            }
+            if (!evaluate(s)) {
+              continue;
+            }
+            PointsToSetVariable lhs = ((AssignEquation) s).getLHS();
+            int target = getSCC(lhs);
+            if (target == c) {
+              changed = true;
+            } else if (target > c) {
+              dirtySCCs.set(target);
+            } else {
+              // the edge runs against the current order; leave it to the next wave
+              deferredSinceLastCondensation++;
+              system.changedVariable(lhs);
+              continue;
+            }
+            dirtyVariables.set(lhs.getGraphNodeId());
+            changedVariables.set(lhs.getGraphNodeId());
+          }
+        }
+      } while (changed);
+    }
+  }
+
+  /**
+   * @return true iff evaluating s changed its left-hand side
+   */
+  @SuppressWarnings("unchecked")
+  private boolean evaluate(AbstractStatement s) {
+    byte code = s.evaluate();
+    getSystem().incNumberOfEvaluations();
+    if (AbstractFixedPointSolver.isFixed(code)) {
+      getSystem().removeStatement(s);
+    }
+    return AbstractFixedPointSolver.isChanged(code);
+  }
+
+  /**
+   * @return index of the SCC holding v, or -1 if v was not in the assignment graph at the last condensation
+   */
+  private int getSCC(PointsToSetVariable v) {
+    int id = v.getGraphNodeId();
+    return (id < 0 || id >= sccIndex.length) ? -1 : sccIndex[id];
+  }
+
+  private boolean needsCondensation() {
+    if (sccs == null) {
+      return true;
+    }
+    int nVariables = getSystem().getAssignmentGraph().getNumberOfNodes();
+    if (nVariables - variablesAtLastCondensation > CONDENSATION_GROWTH_FACTOR * variablesAtLastCondensation) {
+      return true;
+    }
+    return deferredSinceLastCondensation > MAX_DEFERRED_FACTOR * nVariables;
+  }
+
+  /**
+   * Compute the SCCs of the assignment graph in topological order.
+   */
+  private void condense() {
+    NumberedGraph<PointsToSetVariable> graph = getSystem().getAssignmentGraph();
+    List<PointsToSetVariable[]> result = new ArrayList<>();
+    int[] index = new int[graph.getMaxNumber() + 1];
+    Arrays.fill(index, -1);
+    for (Set<PointsToSetVariable> scc : Iterator2Iterable.make(new SCCIterator<>(graph))) {
+      PointsToSetVariable[] members = scc.toArray(new PointsToSetVariable[scc.size()]);
+      for (PointsToSetVariable v : members) {
+        index[v.getGraphNodeId()] = result.size();
+      }
+      result.add(members);
+    }
+    sccs = result.toArray(new PointsToSetVariable[result.size()][]);
+    sccIndex = index;
+    variablesAtLastCondensation = graph.getNumberOfNodes();
+    deferredSinceLastCondensation = 0;
+    if (DEBUG_PHASES) {
+      System.err.println("Condensed " + variablesAtLastCondensation + " variables into " + sccs.length + " SCCs");
+    }
+  }
+}
@@ -27,6 +27,7 @@ import com.ibm.wala.util.collections.CompoundIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
@@ -78,12 +79,12 @@ public abstract class IR implements IRView {
   /**
    * Mapping from NewSiteReference program counters to instruction[] indices
    */
-  private final Map<NewSiteReference, Integer> newSiteMapping = HashMapFactory.make();
+  private final ObjectIntHashMap<NewSiteReference> newSiteMapping = new ObjectIntHashMap<>();
 
   /**
    * Mapping from PEI program counters to instruction[] indices
    */
-  final private Map<ProgramCounter, Integer> peiMapping = HashMapFactory.make();
+  final private ObjectIntHashMap<ProgramCounter> peiMapping = new ObjectIntHashMap<>();
 
   /**
    * Mapping from SSAInstruction to Basic Block, computed lazily
@@ -125,10 +126,10 @@ public abstract class IR implements IRView {
           callSiteMapping.add(((SSAAbstractInvokeInstruction) x).getCallSite().getProgramCounter(), i);
         }
         if (x instanceof SSANewInstruction) {
-          newSiteMapping.put(((SSANewInstruction) x).getNewSite(), new Integer(i));
+          newSiteMapping.put(((SSANewInstruction) x).getNewSite(), i);
         }
         if (x.isPEI()) {
-           peiMapping.put(new ProgramCounter(cfg.getProgramCounter(i)), new Integer(i));
+           peiMapping.put(new ProgramCounter(cfg.getProgramCounter(i)), i);
         }
       }
     }
@@ -575,28 +576,38 @@ public abstract class IR implements IRView {
 
   /**
    * Return the new instruction corresponding to an allocation site
+   * 
+   * @throws IllegalArgumentException if site is not an allocation site in this IR
    */
   public SSANewInstruction getNew(NewSiteReference site) {
-    Integer i = newSiteMapping.get(site);
-    return (SSANewInstruction) instructions[i.intValue()];
+    return (SSANewInstruction) instructions[getNewInstructionIndex(site)];
   }
 
   /**
    * Return the instruction index corresponding to an allocation site
+   * 
+   * @throws IllegalArgumentException if site is not an allocation site in this IR
    */
   public int getNewInstructionIndex(NewSiteReference site) {
-    Integer i = newSiteMapping.get(site);
-    return i.intValue();
+    int i = newSiteMapping.get(site, -1);
+    if (i == -1) {
+      throw new IllegalArgumentException("no allocation site " + site + " in " + method);
+    }
+    return i;
   }
 
   /**
    * @param pc a program counter
    * @return the instruction (a PEI) at this program counter
+   * @throws IllegalArgumentException if there is no PEI at pc in this IR
    */
   @Override
   public SSAInstruction getPEI(ProgramCounter pc) {
-    Integer i = peiMapping.get(pc);
-    return instructions[i.intValue()];
+    int i = peiMapping.get(pc, -1);
+    if (i == -1) {
+      throw new IllegalArgumentException("no PEI at " + pc + " in " + method);
+    }
+    return instructions[i];
   }
 
   /**
@@ -604,7 +615,7 @@ public abstract class IR implements IRView {
    */
   @Override
   public Iterator<NewSiteReference> iterateNewSites() {
-    return newSiteMapping.keySet().iterator();
+    return newSiteMapping.keyIterator();
   }
 
   /**
@@ -81,6 +81,28 @@ public class SSACache {
     return ir;
   }
 
+  /**
+   * Record an IR built outside this cache, e.g. ahead of time on several threads, as the IR of its method in context c.
+   *
+   * @return the IR now cached for the method of ir: ir itself, unless one was already cached
+   * @throws IllegalArgumentException if ir is null
+   */
+  public synchronized IR cacheIR(IR ir, Context c) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    if (factory.contextIsIrrelevant(ir.getMethod())) {
+      c = Everywhere.EVERYWHERE;
+    }
+
+    IR cached = (IR) irCache.find(ir.getMethod(), c, ir.getOptions());
+    if (cached != null) {
+      return cached;
+    }
+    irCache.cache(ir.getMethod(), c, ir.getOptions(), ir);
+    return ir;
+  }
+
   /**
    * @param m a method
    * @param options options governing ssa construction
@@ -10,9 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.ssa;
 
-import java.util.HashMap;
-
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.debug.Assertions;
 
 /**
@@ -34,7 +32,7 @@ public class SymbolTable implements Cloneable {
   /**
    * Mapping from Constant -&gt; value number
    */
-  private HashMap<ConstantValue, Integer> constants = HashMapFactory.make(10);
+  private ObjectIntHashMap<ConstantValue> constants = new ObjectIntHashMap<>(10);
 
   private boolean copy = false;
   
@@ -75,18 +73,17 @@ public class SymbolTable implements Cloneable {
    */
   int findOrCreateConstant(Object o) {
     ConstantValue v = new ConstantValue(o);
-    Integer result = constants.get(v);
-    if (result == null) {
+    int result = constants.get(v, -1);
+    if (result == -1) {
       assert ! copy : "making value for " + o;
-      int r = getNewValueNumber();
-      result = Integer.valueOf(r);
+      result = getNewValueNumber();
       constants.put(v, result);
-      assert r < nextFreeValueNumber;
-      values[r] = v;
+      assert result < nextFreeValueNumber;
+      values[result] = v;
     } else {
-      assert values[result.intValue()] instanceof ConstantValue;
+      assert values[result] instanceof ConstantValue;
     }
-    return result.intValue();
+    return result;
 
   }
 
@@ -448,7 +445,7 @@ public class SymbolTable implements Cloneable {
       if (this.defaultValues != null) {
         nt.defaultValues = this.defaultValues.clone();
       }
-      nt.constants = HashMapFactory.make(this.constants);
+      nt.constants = new ObjectIntHashMap<>(this.constants);
       nt.copy = true;
       return nt;
     } catch (CloneNotSupportedException e) {
@@ -35,6 +35,15 @@ public final class Descriptor {
    */
   private final Key key;
 
+  private static synchronized Descriptor findOrCreate(Key k) {
+    Descriptor result = map.get(k);
+    if (result == null) {
+      result = new Descriptor(k);
+      map.put(k, result);
+    }
+    return result;
+  }
+
   /**
    * @param parameters the parameters for a descriptor
    * @param returnType the return type
@@ -47,13 +56,7 @@ public final class Descriptor {
     if (parameters != null && parameters.length == 0) {
       parameters = null;
     }
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   /**
@@ -63,13 +66,7 @@ public final class Descriptor {
   public static Descriptor findOrCreate(Language l, ImmutableByteArray b) throws IllegalArgumentException {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
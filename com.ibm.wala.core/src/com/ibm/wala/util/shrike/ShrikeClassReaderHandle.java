@@ -13,7 +13,12 @@ package com.ibm.wala.util.shrike;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
+import com.ibm.wala.classLoader.FileModule;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -30,6 +35,18 @@ import com.ibm.wala.util.ref.CacheReference;
 public class ShrikeClassReaderHandle {
 
   private final static boolean DEBUG = false;
+
+  /**
+   * if set, class files of at least {@link #MAP_THRESHOLD} bytes that come from directories are memory-mapped rather than read onto
+   * the heap. Off by default: a mapping is only released when its reader is garbage collected, which heap pressure alone need not
+   * cause, and while it lives the file stays locked on some platforms and must not be truncated.
+   */
+  public final static boolean MAP_CLASS_FILES = "true".equals(System.getProperty("com.ibm.wala.util.shrike.mapClassFiles"));
+
+  /**
+   * the smallest class file that is mapped when {@link #MAP_CLASS_FILES} is set; smaller ones cost more as a mapping than as an array
+   */
+  public final static long MAP_THRESHOLD = 64 * 1024;
   /**
    * The module entry that defines the class file
    */
@@ -68,16 +85,33 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
+      if (entry instanceof FileModule) {
+        Path file = ((FileModule) entry).getFile().toPath();
+        try {
+          if (MAP_CLASS_FILES && Files.size(file) >= MAP_THRESHOLD) {
+            // read a big class file in place rather than copying it onto the heap
+            try (final FileChannel c = FileChannel.open(file, StandardOpenOption.READ)) {
+              result = new ClassReader(c.map(FileChannel.MapMode.READ_ONLY, 0, c.size()));
+            }
+          } else {
+            result = new ClassReader(Files.readAllBytes(file));
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+          Assertions.UNREACHABLE();
+        }
+      } else {
+        ByteArrayOutputStream S = new ByteArrayOutputStream();
+        try {
+          InputStream s = entry.getInputStream();
+          readBytes(s, S);
+          s.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+          Assertions.UNREACHABLE();
+        }
+        result = new ClassReader(S.toByteArray());
       }
-      result = new ClassReader(S.toByteArray());
       reader = CacheReference.make(result);
     }
     return result;
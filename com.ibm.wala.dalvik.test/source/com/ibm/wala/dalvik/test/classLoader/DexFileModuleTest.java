@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.classLoader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jf.dexlib2.AccessFlags;
+import org.jf.dexlib2.DexFileFactory;
+import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.iface.Annotation;
+import org.jf.dexlib2.iface.ClassDef;
+import org.jf.dexlib2.iface.Field;
+import org.jf.dexlib2.iface.Method;
+import org.jf.dexlib2.immutable.ImmutableClassDef;
+import org.jf.dexlib2.immutable.ImmutableDexFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.dalvik.classLoader.DexFileModule;
+import com.ibm.wala.dalvik.classLoader.DexModuleEntry;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+
+public class DexFileModuleTest {
+
+  private static ClassDef classDef(String type, String sourceFile) {
+    return new ImmutableClassDef(type, AccessFlags.PUBLIC.getValue(), "Ljava/lang/Object;", Collections.<String> emptyList(),
+        sourceFile, Collections.<Annotation> emptySet(), Collections.<Field> emptyList(), Collections.<Method> emptyList());
+  }
+
+  private static File dex(ClassDef... classes) throws IOException {
+    File f = File.createTempFile("test", ".dex");
+    f.deleteOnExit();
+    ArrayList<ClassDef> defs = new ArrayList<>();
+    Collections.addAll(defs, classes);
+    DexFileFactory.writeDexFile(f.getAbsolutePath(), new ImmutableDexFile(Opcodes.forApi(24), defs));
+    return f;
+  }
+
+  private static File apk(Map<String, File> dexes) throws IOException {
+    File f = File.createTempFile("test", ".apk");
+    f.deleteOnExit();
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(f))) {
+      zip.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+      zip.closeEntry();
+      for (Map.Entry<String, File> dex : dexes.entrySet()) {
+        zip.putNextEntry(new ZipEntry(dex.getKey()));
+        zip.write(Files.readAllBytes(dex.getValue().toPath()));
+        zip.closeEntry();
+      }
+    }
+    return f;
+  }
+
+  /**
+   * @return the source file of each class of m, by class name
+   */
+  private static Map<String, String> classes(DexFileModule m) {
+    Map<String, String> result = new TreeMap<>();
+    for (ModuleEntry e : Iterator2Iterable.make(m.getEntries())) {
+      result.put(e.getClassName(), ((DexModuleEntry) e).getClassDefItem().getSourceFile());
+    }
+    return result;
+  }
+
+  private static Map<String, File> multidex() throws IOException {
+    // zip entries in an order other than that of the dex numbers
+    Map<String, File> dexes = new TreeMap<>();
+    dexes.put("classes.dex", dex(classDef("LA;", "first"), classDef("LB;", "first")));
+    dexes.put("classes10.dex", dex(classDef("LE;", "tenth")));
+    dexes.put("classes2.dex", dex(classDef("LC;", "second"), classDef("LA;", "second")));
+    dexes.put("classes3.dex", dex(classDef("LD;", "third")));
+    return dexes;
+  }
+
+  @Test
+  public void testMultidex() throws IOException {
+    for (int threads : new int[] { 1, 4 }) {
+      DexFileModule m = DexFileModule.make(apk(multidex()), threads);
+      Assert.assertEquals(4, m.getDexFiles().size());
+      Assert.assertSame(m.getDexFiles().get(0), m.getDexFile());
+
+      Map<String, String> expected = new TreeMap<>();
+      expected.put("LA", "first");
+      expected.put("LB", "first");
+      expected.put("LC", "second");
+      expected.put("LD", "third");
+      expected.put("LE", "tenth");
+      Assert.assertEquals(expected, classes(m));
+
+      // each entry knows the dex file that defines its class
+      String[] sources = { "first", "second", "third", "tenth" };
+      for (ModuleEntry e : Iterator2Iterable.make(m.getEntries())) {
+        DexModuleEntry entry = (DexModuleEntry) e;
+        int dex = Arrays.asList(sources).indexOf(entry.getClassDefItem().getSourceFile());
+        Assert.assertSame(e.getClassName(), m.getDexFiles().get(dex), entry.getDexFile());
+      }
+    }
+  }
+
+  @Test
+  public void testDexFile() throws IOException {
+    DexFileModule m = DexFileModule.make(dex(classDef("LA;", "only")));
+    Assert.assertEquals(1, m.getDexFiles().size());
+    Assert.assertEquals(Collections.singletonMap("LA", "only"), classes(m));
+    Assert.assertSame(m.getDexFile(), ((DexModuleEntry) m.getEntries().next()).getDexFile());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoDex() throws IOException {
+    DexFileModule.make(apk(Collections.<String, File> emptyMap()));
+  }
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dalvik.test.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jf.dexlib2.AccessFlags;
+import org.jf.dexlib2.DexFileFactory;
+import org.jf.dexlib2.Opcode;
+import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.iface.Annotation;
+import org.jf.dexlib2.iface.ClassDef;
+import org.jf.dexlib2.iface.ExceptionHandler;
+import org.jf.dexlib2.iface.Field;
+import org.jf.dexlib2.iface.Method;
+import org.jf.dexlib2.iface.MethodParameter;
+import org.jf.dexlib2.iface.TryBlock;
+import org.jf.dexlib2.iface.debug.DebugItem;
+import org.jf.dexlib2.iface.instruction.Instruction;
+import org.jf.dexlib2.immutable.ImmutableClassDef;
+import org.jf.dexlib2.immutable.ImmutableDexFile;
+import org.jf.dexlib2.immutable.ImmutableMethod;
+import org.jf.dexlib2.immutable.ImmutableMethodImplementation;
+import org.jf.dexlib2.immutable.instruction.ImmutableInstruction10x;
+import org.jf.dexlib2.immutable.instruction.ImmutableInstruction21c;
+import org.jf.dexlib2.immutable.instruction.ImmutableInstruction22c;
+import org.jf.dexlib2.immutable.instruction.ImmutableInstruction35c;
+import org.jf.dexlib2.immutable.reference.ImmutableFieldReference;
+import org.jf.dexlib2.immutable.reference.ImmutableMethodReference;
+import org.jf.dexlib2.immutable.reference.ImmutableTypeReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.CodeScanner;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.dalvik.classLoader.DexIMethod;
+import com.ibm.wala.dalvik.classLoader.DexIRFactory;
+import com.ibm.wala.dalvik.dex.instructions.New;
+import com.ibm.wala.dalvik.dex.instructions.NewArray;
+import com.ibm.wala.dalvik.dex.instructions.NewArrayFilled;
+import com.ibm.wala.dalvik.test.util.Util;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Iterator2Collection;
+
+public class DexIMethodTest {
+
+  private static Method method(String name, String returnType, int accessFlags, int registers, Instruction... code) {
+    return new ImmutableMethod("LTest;", name, Collections.<MethodParameter> emptyList(), returnType, accessFlags,
+        Collections.<Annotation> emptySet(), new ImmutableMethodImplementation(registers, Arrays.asList(code),
+            Collections.<TryBlock<? extends ExceptionHandler>> emptyList(), Collections.<DebugItem> emptyList()));
+  }
+
+  /**
+   * @return a class Test whose static method m allocates a Test and an int[], reads field f, writes field g and makes
+   *         three calls
+   */
+  private static File dex() throws IOException {
+    Method init = method("<init>", "V", AccessFlags.PUBLIC.getValue() | AccessFlags.CONSTRUCTOR.getValue(), 1,
+        new ImmutableInstruction35c(Opcode.INVOKE_DIRECT, 1, 0, 0, 0, 0, 0,
+            new ImmutableMethodReference("Ljava/lang/Object;", "<init>", Collections.<String> emptyList(), "V")),
+        new ImmutableInstruction10x(Opcode.RETURN_VOID));
+    Method m = method("m", "V", AccessFlags.PUBLIC.getValue() | AccessFlags.STATIC.getValue(), 3,
+        new ImmutableInstruction21c(Opcode.NEW_INSTANCE, 0, new ImmutableTypeReference("LTest;")),
+        new ImmutableInstruction35c(Opcode.INVOKE_DIRECT, 1, 0, 0, 0, 0, 0,
+            new ImmutableMethodReference("LTest;", "<init>", Collections.<String> emptyList(), "V")),
+        new ImmutableInstruction22c(Opcode.IGET, 1, 0, new ImmutableFieldReference("LTest;", "f", "I")),
+        new ImmutableInstruction21c(Opcode.SPUT, 1, new ImmutableFieldReference("LTest;", "g", "I")),
+        new ImmutableInstruction22c(Opcode.NEW_ARRAY, 2, 1, new ImmutableTypeReference("[I")),
+        new ImmutableInstruction35c(Opcode.INVOKE_VIRTUAL, 1, 0, 0, 0, 0, 0,
+            new ImmutableMethodReference("Ljava/lang/Object;", "hashCode", Collections.<String> emptyList(), "I")),
+        new ImmutableInstruction35c(Opcode.INVOKE_STATIC, 0, 0, 0, 0, 0, 0,
+            new ImmutableMethodReference("LTest;", "m", Collections.<String> emptyList(), "V")),
+        new ImmutableInstruction10x(Opcode.RETURN_VOID));
+
+    ClassDef test = new ImmutableClassDef("LTest;", AccessFlags.PUBLIC.getValue(), "Ljava/lang/Object;",
+        Collections.<String> emptyList(), "Test.java", Collections.<Annotation> emptySet(), Collections.<Field> emptyList(),
+        Arrays.asList(init, m));
+
+    File f = File.createTempFile("test", ".dex");
+    f.deleteOnExit();
+    DexFileFactory.writeDexFile(f.getAbsolutePath(), new ImmutableDexFile(Opcodes.forApi(24), Collections.singleton(test)));
+    return f;
+  }
+
+  private static DexIMethod m(IClassHierarchy cha) {
+    IClass test = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, "LTest"));
+    return (DexIMethod) test.getMethod(Selector.make("m()V"));
+  }
+
+  @Test
+  public void testReferences() throws IOException, ClassHierarchyException, InvalidClassFileException {
+    IClassHierarchy cha = ClassHierarchyFactory.make(Util.makeDalvikScope(null, null, dex().getAbsolutePath()));
+    DexIMethod m = m(cha);
+    ClassLoaderReference app = ClassLoaderReference.Application;
+    TypeReference test = TypeReference.findOrCreate(app, "LTest");
+
+    List<NewSiteReference> newSites = new ArrayList<>();
+    newSites.add(NewSiteReference.make(0, test));
+    newSites.add(NewSiteReference.make(9, TypeReference.findOrCreate(app, "[I")));
+    Assert.assertEquals(newSites, new ArrayList<>(m.getNewSites()));
+
+    Assert.assertEquals(Collections.singletonList(FieldReference.findOrCreate(app, "LTest", "f", "I")),
+        Iterator2Collection.toList(m.getFieldsRead()));
+    Assert.assertEquals(Collections.singletonList(FieldReference.findOrCreate(app, "LTest", "g", "I")),
+        Iterator2Collection.toList(m.getFieldsWritten()));
+
+    // code scanning, as used by CHA and RTA, finds the same without casting to a Shrike method
+    Assert.assertEquals(newSites, new ArrayList<>(CodeScanner.getNewSites(m)));
+    Assert.assertEquals(Iterator2Collection.toList(m.getFieldsRead()), new ArrayList<>(CodeScanner.getFieldsRead(m)));
+    Assert.assertEquals(Iterator2Collection.toList(m.getFieldsWritten()), new ArrayList<>(CodeScanner.getFieldsWritten(m)));
+
+    List<CallSiteReference> callSites = new ArrayList<>();
+    callSites.add(CallSiteReference.make(2, MethodReference.findOrCreate(test, "<init>", "()V"),
+        IInvokeInstruction.Dispatch.SPECIAL));
+    callSites.add(CallSiteReference.make(11,
+        MethodReference.findOrCreate(app, "Ljava/lang/Object", "hashCode", "()I"), IInvokeInstruction.Dispatch.VIRTUAL));
+    callSites.add(CallSiteReference.make(14, MethodReference.findOrCreate(test, "m", "()V"),
+        IInvokeInstruction.Dispatch.STATIC));
+    Assert.assertEquals(callSites, new ArrayList<>(m.getCallSites()));
+  }
+
+  @Test
+  public void testSameReferencesAsParsed() throws IOException, ClassHierarchyException {
+    IClassHierarchy cha = ClassHierarchyFactory.make(Util.makeDalvikScope(null, null, dex().getAbsolutePath()));
+    AnalysisCache cache = new AnalysisCacheImpl(new DexIRFactory());
+    for (IMethod m : m(cha).getDeclaringClass().getDeclaredMethods()) {
+      DexIMethod dm = (DexIMethod) m;
+      List<CallSiteReference> scanned = new ArrayList<>(dm.getCallSites());
+      List<NewSiteReference> scannedNewSites = new ArrayList<>(dm.getNewSites());
+      Assert.assertSame(dm.getDexInstructions(), dm.getDexInstructions());
+      Assert.assertEquals(m.toString(), scanned, new ArrayList<>(dm.getCallSites()));
+
+      List<NewSiteReference> parsedNewSites = new ArrayList<>();
+      for (com.ibm.wala.dalvik.dex.instructions.Instruction inst : dm.getDexInstructions()) {
+        if (inst instanceof New) {
+          parsedNewSites.add(((New) inst).newSiteRef);
+        } else if (inst instanceof NewArray) {
+          parsedNewSites.add(((NewArray) inst).newSiteRef);
+        } else if (inst instanceof NewArrayFilled) {
+          parsedNewSites.add(((NewArrayFilled) inst).newSiteRef);
+        }
+      }
+      Assert.assertEquals(m.toString(), parsedNewSites, scannedNewSites);
+      // and the IR, which the context interpreter no longer builds for them, has the same sites
+      Assert.assertEquals(m.toString(), parsedNewSites, Iterator2Collection.toList(cache.getIR(m).iterateNewSites()));
+    }
+  }
+
+  @Test
+  public void testBuildApplicationIRs() throws IOException, ClassHierarchyException {
+    String dex = dex().getAbsolutePath();
+    AnalysisCache sequential = new AnalysisCacheImpl(new DexIRFactory());
+    DexIMethod expected = m(ClassHierarchyFactory.make(Util.makeDalvikScope(null, null, dex)));
+
+    for (int threads : new int[] { 1, 4 }) {
+      IClassHierarchy cha = ClassHierarchyFactory.make(Util.makeDalvikScope(null, null, dex));
+      AnalysisCache cache = new AnalysisCacheImpl(new DexIRFactory());
+      Assert.assertEquals(2, DexIRFactory.buildApplicationIRs(cha, cache, threads));
+
+      DexIMethod m = m(cha);
+      IR ir = cache.getIR(m);
+      Assert.assertSame(ir, cache.getSSACache().cacheIR(new DexIRFactory().makeIR(m, Everywhere.EVERYWHERE, cache.getSSAOptions()),
+          Everywhere.EVERYWHERE));
+      Assert.assertEquals(sequential.getIR(expected).toString(), ir.toString());
+    }
+  }
+}
@@ -17,6 +17,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ibm.wala.cfg.AbstractCFG;
 import com.ibm.wala.cfg.BytecodeCFG;
@@ -54,7 +55,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
     private final DexIMethod dexMethod;
     private final Context context;
 
-    private static int totalEdges = 0;
+    private static final AtomicInteger totalEdges = new AtomicInteger();
 
     /**
      * Cache this here for efficiency
@@ -85,7 +86,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
     }
 
     public static int getTotalEdges() {
-        return totalEdges;
+        return totalEdges.get();
     }
 
     @Override
@@ -286,13 +287,8 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
                             exceptionTypes = HashSetFactory.make(exceptionTypes);
                             MethodReference target = MethodReference.findOrCreate(l, loader.getReference(), call.clazzName, call
                                     .methodName, call.descriptor);
-                            try {
-                                exceptionTypes.addAll(l.inferInvokeExceptions(target, cha));
-                            } catch (InvalidClassFileException e) {
-                                e.printStackTrace();
-                                Assertions.UNREACHABLE();
-                            }
-                            IMethod mTarget = cha.resolveMethod(target);
+                            exceptionTypes.addAll(inferInvokeExceptions(l, target, cha));
+                            IMethod mTarget = resolveMethod(target, cha);
                             if (mTarget == null) {
                               goToAllHandlers = true;
                             }
@@ -330,7 +326,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
                                 if (DEBUG) {
                                     System.err.println(" caughtException " + caughtException);
                                 }
-                                IClass caughtClass = cha.lookupClass(caughtException);
+                                IClass caughtClass = lookupClass(caughtException, cha);
                                 if (caughtClass == null) {
                                     // conservatively add the edge, and raise a warning
                                     addExceptionalEdgeTo(b);
@@ -352,21 +348,21 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
                                 }
                             }
                             if (caughtException != null) {
-                                IClass caughtClass = cha.lookupClass(caughtException);
+                                IClass caughtClass = lookupClass(caughtException, cha);
                                 // the set "caught" should be the set of exceptions that MUST
                                 // have been caught by the handlers in scope
                                 ArrayList<TypeReference> caught = new ArrayList<>(exceptionTypes.size());
                                 // check if we should add an edge to the catch block.
                                 for (TypeReference t : exceptionTypes) {
                                     if (t != null) {
-                                        IClass klass = cha.lookupClass(t);
+                                        IClass klass = lookupClass(t, cha);
                                         if (klass == null) {
                                             Warnings.add(FailedExceptionResolutionWarning.create(caughtException));
                                             // conservatively add an edge
                                             addExceptionalEdgeTo(b);
                                         } else {
-                                            boolean subtype1 = cha.isSubclassOf(klass, caughtClass);
-                                            if (subtype1 || cha.isSubclassOf(caughtClass, klass)) {
+                                            boolean subtype1 = isSubclassOf(klass, caughtClass, cha);
+                                            if (subtype1 || isSubclassOf(caughtClass, klass, cha)) {
                                                 // add the edge and null out the type from the array
                                                 addExceptionalEdgeTo(b);
                                                 if (subtype1) {
@@ -393,6 +389,41 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
             }
         }
 
+        /*
+         * The class hierarchy queries below may load class details lazily, and IRs
+         * can be built on several threads, so they hold the hierarchy's lock.
+         */
+
+        private Collection<TypeReference> inferInvokeExceptions(BytecodeLanguage l, MethodReference target, IClassHierarchy cha) {
+            synchronized (cha) {
+                try {
+                    return l.inferInvokeExceptions(target, cha);
+                } catch (InvalidClassFileException e) {
+                    e.printStackTrace();
+                    Assertions.UNREACHABLE();
+                    return null;
+                }
+            }
+        }
+
+        private IMethod resolveMethod(MethodReference target, IClassHierarchy cha) {
+            synchronized (cha) {
+                return cha.resolveMethod(target);
+            }
+        }
+
+        private IClass lookupClass(TypeReference type, IClassHierarchy cha) {
+            synchronized (cha) {
+                return cha.lookupClass(type);
+            }
+        }
+
+        private boolean isSubclassOf(IClass c, IClass t, IClassHierarchy cha) {
+            synchronized (cha) {
+                return cha.isSubclassOf(c, t);
+            }
+        }
+
         /**
          * @param pei a potentially-excepting instruction
          * @return the exception types that pei may throw, independent of the class hierarchy. null if none.
@@ -562,12 +593,12 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock> implemen
         }
 
         private void addNormalEdgeTo(BasicBlock b) {
-            totalEdges++;
+            totalEdges.incrementAndGet();
             addNormalEdge(this, b);
         }
 
         private void addExceptionalEdgeTo(BasicBlock b) {
-            totalEdges++;
+            totalEdges.incrementAndGet();
             addExceptionalEdge(this, b);
         }
 
@@ -47,88 +47,232 @@
 
 package com.ibm.wala.dalvik.classLoader;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.jar.JarFile;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.jf.dexlib2.DexFileFactory;
 import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.ClassDef;
 import org.jf.dexlib2.iface.DexFile;
 
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.ModuleEntry;
-import com.ibm.wala.util.io.TemporaryFile;
+import com.ibm.wala.util.collections.Pair;
 
 /**
  * A module which is a wrapper around .dex and .apk file.
  *
+ * An .apk or .jar may hold several dex files, classes.dex, classes2.dex, and so
+ * on; they are all read straight from the archive, and their classes make up
+ * the entries of the module. As on a device, a class defined in more than one
+ * of them is taken from the first.
+ *
  * @author barjo
  */
 public class DexFileModule implements Module {
+    private static final Pattern DEX_ENTRY = Pattern.compile("classes(\\d*)\\.dex");
+
+    private static final Opcodes OPCODES = Opcodes.forApi(24);
+
 	private final File f;
-    private final DexFile dexfile;
+    private final List<DexFile> dexfiles;
     private final Collection<ModuleEntry> entries;
 
     public static DexFileModule make(File f) throws IllegalArgumentException, IOException {
-    	if (f.getName().endsWith("jar")) {
-    		try (final JarFile jar = new JarFile(f)) {
-    			return new DexFileModule(jar);
-    		}
-    	} else {
-    		return new DexFileModule(f);
-    	}
+        return make(f, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads
+     *            how many dex files of an archive may be read at once
+     */
+    public static DexFileModule make(File f, int threads) throws IllegalArgumentException, IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("need at least one thread, not " + threads);
+        }
+        if (isZip(f)) {
+            try (final ZipFile zip = new ZipFile(f)) {
+                return new DexFileModule(f, readDexEntries(zip, threads));
+            }
+        } else {
+            return new DexFileModule(f);
+        }
+    }
+
+    private static boolean isZip(File f) throws IOException {
+        try (final DataInputStream s = new DataInputStream(new FileInputStream(f))) {
+            return f.length() >= 4 && s.readInt() == 0x504b0304;
+        }
+    }
+
+    /**
+     * @return the dex entries of zip, classes.dex first and then in order of
+     *         their numbers
+     */
+    private static List<ZipEntry> dexEntries(ZipFile zip) {
+        List<ZipEntry> result = new ArrayList<>();
+        for (ZipEntry e : Collections.list(zip.entries())) {
+            if (DEX_ENTRY.matcher(e.getName()).matches()) {
+                result.add(e);
+            }
+        }
+        result.sort((a, b) -> Integer.compare(dexNumber(a), dexNumber(b)));
+        return result;
+    }
+
+    private static int dexNumber(ZipEntry e) {
+        Matcher m = DEX_ENTRY.matcher(e.getName());
+        m.matches();
+        return m.group(1).isEmpty() ? 1 : Integer.parseInt(m.group(1));
+    }
+
+    private static List<Pair<DexBackedDexFile, List<ClassDef>>> readDexEntries(final ZipFile zip, int threads) throws IOException {
+        List<ZipEntry> dexEntries = dexEntries(zip);
+        if (dexEntries.isEmpty()) {
+            throw new IllegalArgumentException("no dex files in " + zip.getName());
+        }
+
+        List<Pair<DexBackedDexFile, List<ClassDef>>> result = new ArrayList<>(dexEntries.size());
+        if (threads == 1 || dexEntries.size() < 2) {
+            for (ZipEntry e : dexEntries) {
+                result.add(readDexEntry(zip, e));
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, dexEntries.size()));
+            try {
+                List<Future<Pair<DexBackedDexFile, List<ClassDef>>>> dexes = new ArrayList<>(dexEntries.size());
+                for (final ZipEntry e : dexEntries) {
+                    dexes.add(pool.submit(() -> readDexEntry(zip, e)));
+                }
+                for (Future<Pair<DexBackedDexFile, List<ClassDef>>> dex : dexes) {
+                    result.add(dex.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while reading " + zip.getName(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return result;
     }
-    
-    private static File tf(JarFile f) throws IOException {
-    	String name = f.getName();
-    	if (name.indexOf('/') >= 0) {
-    		name = name.substring(name.lastIndexOf('/')+1);
-    	}
-    	File tf = Files.createTempFile("name", "_classes.dex").toFile();
-    	tf.deleteOnExit();
-    	System.err.println("using " + tf);
-    	return tf;
+
+    /**
+     * reads a dex file from zip into memory, with its class definitions
+     */
+    private static Pair<DexBackedDexFile, List<ClassDef>> readDexEntry(ZipFile zip, ZipEntry e) throws IOException {
+        byte[] bytes;
+        try (final InputStream s = zip.getInputStream(e)) {
+            if (e.getSize() >= 0 && e.getSize() <= Integer.MAX_VALUE) {
+                bytes = new byte[(int) e.getSize()];
+                new DataInputStream(s).readFully(bytes);
+            } else {
+                bytes = readAll(s);
+            }
+        }
+        DexBackedDexFile dex = new DexBackedDexFile(OPCODES, bytes);
+        return Pair.<DexBackedDexFile, List<ClassDef>> make(dex, new ArrayList<ClassDef>(dex.getClasses()));
     }
-    
-    private DexFileModule(JarFile f) throws IllegalArgumentException, IOException {    	
-    	this(TemporaryFile.streamToFile(tf(f), f.getInputStream(f.getEntry("classes.dex"))));
+
+    private static byte[] readAll(InputStream s) throws IOException {
+        byte[] bytes = new byte[64 * 1024];
+        int size = 0;
+        for (int n; (n = s.read(bytes, size, bytes.length - size)) != -1; ) {
+            size += n;
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * size);
+            }
+        }
+        return Arrays.copyOf(bytes, size);
     }
-    
+
     /**
      * @param f
-     *            the .dex or .apk file
+     *            the .dex file
      * @throws IllegalArgumentException
      */
-    private DexFileModule(File f) throws IllegalArgumentException {    	
+    private DexFileModule(File f) throws IllegalArgumentException {
         try {
-        		this.f = f;
-            dexfile = DexFileFactory.loadDexFile(f, Opcodes.forApi(24));
+            this.f = f;
+            DexBackedDexFile dexfile = DexFileFactory.loadDexFile(f, OPCODES);
+            dexfiles = Collections.<DexFile> singletonList(dexfile);
+            entries = makeEntries(Collections.singletonList(dexfile),
+                    Collections.<Collection<? extends ClassDef>> singletonList(dexfile.getClasses()));
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
+    }
 
-        // create ModuleEntries from ClassDefItem
-        entries = new HashSet<>();
+    private DexFileModule(File f, List<Pair<DexBackedDexFile, List<ClassDef>>> dexes) {
+        this.f = f;
+        List<DexBackedDexFile> dexfiles = new ArrayList<>(dexes.size());
+        List<Collection<? extends ClassDef>> classes = new ArrayList<>(dexes.size());
+        for (Pair<DexBackedDexFile, List<ClassDef>> dex : dexes) {
+            dexfiles.add(dex.fst);
+            classes.add(dex.snd);
+        }
+        this.dexfiles = Collections.<DexFile> unmodifiableList(dexfiles);
+        entries = makeEntries(dexfiles, classes);
+    }
 
-        for (ClassDef cdefitems : dexfile.getClasses()) {
-            entries.add(new DexModuleEntry(cdefitems, this));
+    /**
+     * @param classes
+     *            the classes of each of dexfiles, in the same order
+     */
+    private Collection<ModuleEntry> makeEntries(List<DexBackedDexFile> dexfiles, List<Collection<? extends ClassDef>> classes) {
+        // create ModuleEntries from ClassDefItem; entries are equal by class
+        // name, so the first dex file defining a class wins
+        Collection<ModuleEntry> entries = new HashSet<>();
+        for (int i = 0; i < dexfiles.size(); i++) {
+            for (ClassDef cdefitems : classes.get(i)) {
+                entries.add(new DexModuleEntry(cdefitems, dexfiles.get(i), this));
+            }
         }
+        return entries;
     }
 
     /**
-     * @return The DexFile associated to this module.
+     * @return The first DexFile of this module, classes.dex for an archive.
      */
     public DexFile getDexFile() {
-        return dexfile;
+        return dexfiles.get(0);
+    }
+
+    /**
+     * @return All DexFiles of this module, classes.dex first for an archive.
+     */
+    public List<DexFile> getDexFiles() {
+        return dexfiles;
     }
 
     /**
-     * @return The DexFile associated to this module.
+     * @return The .dex, .apk or .jar file of this module.
      */
     public File getFile() {
         return f;
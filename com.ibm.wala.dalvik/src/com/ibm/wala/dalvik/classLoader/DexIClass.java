@@ -60,6 +60,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.jf.dexlib2.AnnotationVisibility;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.ClassDef;
 import org.jf.dexlib2.iface.Field;
 import org.jf.dexlib2.iface.Method;
@@ -392,4 +393,11 @@ public class DexIClass extends BytecodeClass<IClassLoader> {
 	public DexFileModule getContainer() {
 		return dexModuleEntry.getContainer();
 	}
+
+	/**
+	 * @return the dex file of the container that defines this class
+	 */
+	DexBackedDexFile getDexFile() {
+		return dexModuleEntry.getDexFile();
+	}
 }
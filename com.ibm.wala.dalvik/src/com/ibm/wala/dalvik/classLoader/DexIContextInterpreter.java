@@ -91,19 +91,18 @@ public class DexIContextInterpreter implements SSAContextInterpreter {
 
     @Override
     public Iterator<NewSiteReference> iterateNewSites(CGNode node) {
-        return getIR(node).iterateNewSites();
+        // the same sites as those of the IR, without building it
+        return ((DexIMethod)node.getMethod()).getNewSites().iterator();
     }
 
     @Override
     public Iterator<FieldReference> iterateFieldsWritten(CGNode node) {
-        // TODO implement this!
-        throw new RuntimeException("not yet implemented");
+        return ((DexIMethod)node.getMethod()).getFieldsWritten();
     }
 
     @Override
     public Iterator<FieldReference> iterateFieldsRead(CGNode node) {
-        // TODO implement this!
-        throw new RuntimeException("not yet implemented");
+        return ((DexIMethod)node.getMethod()).getFieldsRead();
     }
 
     @Override
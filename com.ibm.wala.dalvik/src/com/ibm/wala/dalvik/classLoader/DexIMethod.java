@@ -63,17 +63,24 @@ import static org.jf.dexlib2.AccessFlags.VOLATILE;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jf.dexlib2.Opcode;
 import org.jf.dexlib2.analysis.ClassPath;
 import org.jf.dexlib2.analysis.ClassPathResolver;
+import org.jf.dexlib2.analysis.ClassProvider;
+import org.jf.dexlib2.analysis.DexClassProvider;
 import org.jf.dexlib2.analysis.MethodAnalyzer;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.AnnotationElement;
+import org.jf.dexlib2.iface.DexFile;
 import org.jf.dexlib2.iface.Method;
 import org.jf.dexlib2.iface.TryBlock;
+import org.jf.dexlib2.iface.instruction.ReferenceInstruction;
 import org.jf.dexlib2.iface.instruction.SwitchPayload;
 import org.jf.dexlib2.iface.instruction.TwoRegisterInstruction;
 import org.jf.dexlib2.iface.instruction.formats.ArrayPayload;
@@ -140,6 +147,7 @@ import com.ibm.wala.dalvik.dex.instructions.UnaryOperation;
 import com.ibm.wala.dalvik.dex.instructions.UnaryOperation.OpID;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeBT.ExceptionHandler;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
 import com.ibm.wala.shrikeBT.IndirectionData;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
@@ -183,9 +191,18 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 	
 	protected InstructionArray instructions;
 
+	/**
+	 * the parsed instructions as an array, built on first use
+	 */
+	private Instruction[] instructionArray;
 
+	/**
+	 * the references found by {@link #scanReferences()}, on first use
+	 */
+	private References references;
 
-	private static int totalInsts = 0;
+
+	private static final AtomicInteger totalInsts = new AtomicInteger();
 
 	public DexIMethod(Method encodedMethod, DexIClass klass) {
 		eMethod = encodedMethod;
@@ -193,7 +210,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 	}
 
 	public static int getTotalInsts() {
-		return totalInsts;
+		return totalInsts.get();
 	}
 
 	//------------------------------------------
@@ -613,7 +630,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
 
 	@Override
-	public ExceptionHandler[][] getHandlers() {
+	public synchronized ExceptionHandler[][] getHandlers() {
 
 		if (handlers != null)
 			return handlers;
@@ -707,10 +724,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
 	@Override
 	public Instruction[] getInstructions() {
-		if (instructions == null)
-			parseBytecode();
-
-		return instructions.toArray(new Instruction[ instructions.size() ]);
+		return getDexInstructions();
 	}
 
 	private boolean odexMethod() {
@@ -726,13 +740,23 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 	Iterable<? extends org.jf.dexlib2.iface.instruction.Instruction> deodex() {
 		try {
 			DexFileModule m = myClass.getContainer();
+			DexBackedDexFile dex = myClass.getDexFile();
 
+			// the boot class path is looked for next to the module's file
 			ClassPathResolver path = 
-					new ClassPathResolver(Collections.singletonList(m.getFile().getParent() + "/"),
+					new ClassPathResolver(Collections.singletonList(m.getFile().getAbsoluteFile().getParent() + "/"),
 							Collections.<String>emptyList(),
-							m.getDexFile());
+							dex);
+
+			// the other dex files of a multidex archive come after the one defining this method
+			List<ClassProvider> providers = new ArrayList<>(path.getResolvedClassProviders());
+			for (DexFile other : m.getDexFiles()) {
+				if (other != dex) {
+					providers.add(new DexClassProvider(other));
+				}
+			}
 
-			ClassPath cp = new ClassPath(path.getResolvedClassProviders(), false, m.getDexFile().getOpcodes().artVersion);
+			ClassPath cp = new ClassPath(providers, false, dex.getOpcodes().artVersion);
 
 			MethodAnalyzer analyzer = new MethodAnalyzer(cp, eMethod, null, false);
 
@@ -867,7 +891,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 		int currentCodeAddress = 0;
 		for (org.jf.dexlib2.iface.instruction.Instruction inst: instrucs)
 		{
-			totalInsts++;
+			totalInsts.incrementAndGet();
 			instCounter++;
 			//          instLoc = pc - instCounter;
 			instLoc = currentCodeAddress;
@@ -1730,7 +1754,7 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
 				String cname = ((org.jf.dexlib2.iface.reference.MethodReference)((Instruction3rc)inst).getReference()).getDefiningClass();
 				String mname = ((org.jf.dexlib2.iface.reference.MethodReference)((Instruction3rc)inst).getReference()).getName();
-				String pname = ((org.jf.dexlib2.iface.reference.MethodReference)((Instruction3rc)inst).getReference()).getReturnType();
+				String pname = DexUtil.getSignature((org.jf.dexlib2.iface.reference.MethodReference)((Instruction3rc)inst).getReference());
 
 				if (cname.endsWith(";"))
 					cname = cname.substring(0,cname.length()-1);
@@ -3204,13 +3228,23 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 		instructions.add(new Invoke.InvokeVirtual(instLoc, cname, mname, pname, args, opcode, this));
 	}
 
-	public Instruction[] getDexInstructions() {
-		return instructions().toArray(new Instruction[instructions().size()]);
+	/**
+	 * @return the parsed instructions of this method; the array is shared, and
+	 * must not be modified.
+	 */
+	public synchronized Instruction[] getDexInstructions() {
+		if (instructionArray == null)
+			instructionArray = instructions().toArray(new Instruction[instructions().size()]);
+		return instructionArray;
 	}
 
 
 
-	protected InstructionArray instructions(){
+	/**
+	 * Parsing is synchronized, so that the IR of several methods can be built
+	 * on different threads.
+	 */
+	protected synchronized InstructionArray instructions(){
 		if (instructions == null)
 			parseBytecode();
 		return instructions;
@@ -3286,9 +3320,18 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
 
         // assert(false) : "Please review getCallSites-Implementation before use!";        // TODO
 
+        InstructionArray parsed;
+        synchronized (this) {
+            parsed = instructions;
+        }
+        if (parsed == null) {
+            // no need to translate every instruction just to find the calls
+            return Collections.unmodifiableCollection(references().callSites);
+        }
+
         ArrayList<CallSiteReference> csites = new ArrayList<>();
         // XXX The call Sites in this method or to this method?!!!
-        for (Instruction inst: instructions()) {
+        for (Instruction inst: parsed) {
             if (inst instanceof Invoke) {
                 // Locate the Target
             	MethodReference target = MethodReference.findOrCreate(
@@ -3308,6 +3351,165 @@ public class DexIMethod implements IBytecodeMethod<Instruction> {
         return Collections.unmodifiableCollection(csites);
 	}
 
+	/**
+	 * @return the allocation sites of this method, found without translating its instructions
+	 */
+	@Override
+	public Collection<NewSiteReference> getNewSites() {
+		return Collections.unmodifiableCollection(references().newSites);
+	}
+
+	/**
+	 * @return the fields this method reads, found without translating its instructions
+	 */
+	@Override
+	public Iterator<com.ibm.wala.types.FieldReference> getFieldsRead() {
+		return Collections.unmodifiableList(references().fieldsRead).iterator();
+	}
+
+	/**
+	 * @return the fields this method writes, found without translating its instructions
+	 */
+	@Override
+	public Iterator<com.ibm.wala.types.FieldReference> getFieldsWritten() {
+		return Collections.unmodifiableList(references().fieldsWritten).iterator();
+	}
+
+	/**
+	 * The call sites, allocation sites and field accesses of a method.
+	 */
+	private static class References {
+		final List<CallSiteReference> callSites = new ArrayList<>();
+		final List<NewSiteReference> newSites = new ArrayList<>();
+		final List<com.ibm.wala.types.FieldReference> fieldsRead = new ArrayList<>();
+		final List<com.ibm.wala.types.FieldReference> fieldsWritten = new ArrayList<>();
+	}
+
+	/**
+	 * Scanning is synchronized like parsing, and done at most once.
+	 */
+	private synchronized References references() {
+		if (references == null)
+			references = scanReferences();
+		return references;
+	}
+
+	/**
+	 * Find the references of this method with one pass over the dexlib
+	 * instructions, without building the instructions that
+	 * {@link #parseBytecode()} does; the sites have the same program counters
+	 * as the parsed instructions.
+	 */
+	private References scanReferences() {
+		if (isNative() || eMethod.getImplementation() == null) {
+			return new References();
+		}
+
+		References refs = scanReferences(eMethod.getImplementation().getInstructions(), true);
+		if (refs == null) {
+			// found an odex instruction, so start over with the deodexed ones
+			refs = scanReferences(deodex(), false);
+		}
+		return refs;
+	}
+
+	/**
+	 * @param stopAtOdex whether to give up on finding an odex instruction,
+	 * rather than check for them with a separate pass first
+	 * @return the references of instrucs, or null if stopAtOdex and there is
+	 * an odex instruction
+	 */
+	private References scanReferences(Iterable<? extends org.jf.dexlib2.iface.instruction.Instruction> instrucs, boolean stopAtOdex) {
+		References refs = new References();
+		WDexClassLoaderImpl loader = myClass.getClassLoader() instanceof WDexClassLoaderImpl? (WDexClassLoaderImpl)myClass.getClassLoader(): null;
+		ClassLoaderReference loaderRef = myClass.getClassLoader().getReference();
+
+		int pc = 0;
+		for (org.jf.dexlib2.iface.instruction.Instruction inst: instrucs) {
+			if (stopAtOdex && inst.getOpcode().odexOnly()) {
+				return null;
+			}
+
+			IInvokeInstruction.Dispatch dispatch = null;
+			switch(inst.getOpcode()) {
+			case NEW_INSTANCE:
+			case NEW_ARRAY:
+			case FILLED_NEW_ARRAY:
+			case FILLED_NEW_ARRAY_RANGE: {
+				org.jf.dexlib2.iface.reference.TypeReference t = (org.jf.dexlib2.iface.reference.TypeReference)((ReferenceInstruction)inst).getReference();
+				refs.newSites.add(NewSiteReference.make(pc, loader != null? loader.lookupTypeReference(t): DexUtil.getTypeReference(t, loaderRef)));
+				break;
+			}
+			case IGET:
+			case IGET_WIDE:
+			case IGET_OBJECT:
+			case IGET_BOOLEAN:
+			case IGET_BYTE:
+			case IGET_CHAR:
+			case IGET_SHORT:
+			case SGET:
+			case SGET_WIDE:
+			case SGET_OBJECT:
+			case SGET_BOOLEAN:
+			case SGET_BYTE:
+			case SGET_CHAR:
+			case SGET_SHORT:
+				refs.fieldsRead.add(fieldReference(loader, loaderRef, (FieldReference)((ReferenceInstruction)inst).getReference()));
+				break;
+			case IPUT:
+			case IPUT_WIDE:
+			case IPUT_OBJECT:
+			case IPUT_BOOLEAN:
+			case IPUT_BYTE:
+			case IPUT_CHAR:
+			case IPUT_SHORT:
+			case SPUT:
+			case SPUT_WIDE:
+			case SPUT_OBJECT:
+			case SPUT_BOOLEAN:
+			case SPUT_BYTE:
+			case SPUT_CHAR:
+			case SPUT_SHORT:
+				refs.fieldsWritten.add(fieldReference(loader, loaderRef, (FieldReference)((ReferenceInstruction)inst).getReference()));
+				break;
+			case INVOKE_VIRTUAL:
+			case INVOKE_VIRTUAL_RANGE:
+				dispatch = IInvokeInstruction.Dispatch.VIRTUAL;
+				break;
+			case INVOKE_SUPER:
+			case INVOKE_SUPER_RANGE:
+			case INVOKE_DIRECT:
+			case INVOKE_DIRECT_RANGE:
+				dispatch = IInvokeInstruction.Dispatch.SPECIAL;
+				break;
+			case INVOKE_STATIC:
+			case INVOKE_STATIC_RANGE:
+				dispatch = IInvokeInstruction.Dispatch.STATIC;
+				break;
+			case INVOKE_INTERFACE:
+			case INVOKE_INTERFACE_RANGE:
+				dispatch = IInvokeInstruction.Dispatch.INTERFACE;
+				break;
+			default:
+				break;
+			}
+
+			if (dispatch != null) {
+				org.jf.dexlib2.iface.reference.MethodReference m = (org.jf.dexlib2.iface.reference.MethodReference)((ReferenceInstruction)inst).getReference();
+				MethodReference target = loader != null? loader.lookupMethodReference(m): DexUtil.getMethodReference(m, loaderRef);
+				refs.callSites.add(CallSiteReference.make(pc, target, dispatch));
+			}
+
+			pc += inst.getCodeUnits();
+		}
+
+		return refs;
+	}
+
+	private static com.ibm.wala.types.FieldReference fieldReference(WDexClassLoaderImpl loader, ClassLoaderReference loaderRef, FieldReference f) {
+		return loader != null? loader.lookupFieldReference(f): DexUtil.getFieldReference(f, loaderRef);
+	}
+
 	@Override
 	public SourcePosition getSourcePosition(int instructionIndex) {
 		return null;
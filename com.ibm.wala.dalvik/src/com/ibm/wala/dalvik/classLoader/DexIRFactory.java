@@ -12,10 +12,21 @@
 
 package com.ibm.wala.dalvik.classLoader;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.dalvik.ssa.DexSSABuilder;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.DefaultIRFactory;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSACFG;
@@ -24,6 +35,7 @@ import com.ibm.wala.ssa.SSAOptions;
 import com.ibm.wala.ssa.ShrikeIndirectionData;
 import com.ibm.wala.ssa.SymbolTable;
 import com.ibm.wala.ssa.analysis.DeadAssignmentElimination;
+import com.ibm.wala.types.ClassLoaderReference;
 
 public class DexIRFactory extends DefaultIRFactory {
     public final static boolean buildLocalMap = false;
@@ -135,4 +147,69 @@ public class DexIRFactory extends DefaultIRFactory {
     		return true;
     	return super.contextIsIrrelevant(method);
     }
+
+    /**
+     * Build the IR of every Dex method of the application loader, on up to threads threads, and record it in the
+     * {@link com.ibm.wala.ssa.SSACache} of cache. Meant for analyses that reach all application methods anyway: run it
+     * before call graph construction, which then finds each IR already built.
+     *
+     * @return the number of IRs built
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public static int buildApplicationIRs(IClassHierarchy cha, final AnalysisCache cache, int threads) {
+        if (cha == null) {
+            throw new IllegalArgumentException("null cha");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("null cache");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("need at least one thread, not " + threads);
+        }
+
+        // declared methods are computed lazily, so collect them before going parallel
+        List<DexIMethod> methods = new ArrayList<>();
+        for (IClass klass : cha) {
+            if (ClassLoaderReference.Application.equals(klass.getClassLoader().getReference())) {
+                for (IMethod m : klass.getDeclaredMethods()) {
+                    if (m instanceof DexIMethod && !m.isAbstract() && !m.isNative()) {
+                        methods.add((DexIMethod) m);
+                    }
+                }
+            }
+        }
+
+        if (threads == 1 || methods.size() < 2) {
+            for (DexIMethod m : methods) {
+                buildIR(m, cache);
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, methods.size()));
+            try {
+                List<Future<?>> irs = new ArrayList<>(methods.size());
+                for (final DexIMethod m : methods) {
+                    irs.add(pool.submit(() -> buildIR(m, cache)));
+                }
+                for (Future<?> ir : irs) {
+                    ir.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while building IRs", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return methods.size();
+    }
+
+    private static void buildIR(DexIMethod m, AnalysisCache cache) {
+        IR ir = cache.getIRFactory().makeIR(m, Everywhere.EVERYWHERE, cache.getSSAOptions());
+        cache.getSSACache().cacheIR(ir, Everywhere.EVERYWHERE);
+    }
 }
@@ -50,6 +50,8 @@ package com.ibm.wala.dalvik.classLoader;
 
 import java.io.InputStream;
 
+import org.jf.dexlib2.dexbacked.DexBackedClassDef;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.ClassDef;
 
 import com.ibm.wala.classLoader.Module;
@@ -59,10 +61,20 @@ public class DexModuleEntry implements ModuleEntry {
 
     private final ClassDef classDefItem;
     private final String className;
+    private final DexBackedDexFile dexFile;
     private final DexFileModule container;
     
     public DexModuleEntry(ClassDef cdefitems, DexFileModule container) {
+        this(cdefitems, cdefitems instanceof DexBackedClassDef ? ((DexBackedClassDef) cdefitems).dexFile : null, container);
+    }
+
+    /**
+     * @param dexFile
+     *            the dex file of container that defines the class
+     */
+    public DexModuleEntry(ClassDef cdefitems, DexBackedDexFile dexFile, DexFileModule container) {
         classDefItem = cdefitems;
+        this.dexFile = dexFile;
         this.container = container;
         String temp =cdefitems.getType();
 //      className = temp;
@@ -77,6 +89,15 @@ public class DexModuleEntry implements ModuleEntry {
         return classDefItem;
     }
 
+    /**
+     * @return the dex file that defines the class, which for a multidex
+     *         archive need not be the first one of the module; null if the
+     *         class was not read from a dex file
+     */
+    public DexBackedDexFile getDexFile() {
+        return dexFile;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.ibm.wala.classLoader.ModuleEntry#asModule()
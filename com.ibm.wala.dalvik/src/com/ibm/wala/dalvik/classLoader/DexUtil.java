@@ -186,6 +186,34 @@ public class DexUtil {
 		return TypeReference.findOrCreate(clr, getTypeName(type));
 	}
 	
+	private static String stripSemicolon(String name) {
+		return name.endsWith(";")? name.substring(0, name.length()-1): name;
+	}
+
+	/**
+	 * @return the WALA reference for ref, named as {@link DexIMethod} names
+	 * the targets of invoke instructions
+	 */
+	static MethodReference getMethodReference(org.jf.dexlib2.iface.reference.MethodReference ref, ClassLoaderReference clr) {
+		return MethodReference.findOrCreate(clr, stripSemicolon(ref.getDefiningClass()), ref.getName(), getSignature(ref));
+	}
+
+	/**
+	 * @return the WALA reference for ref, named as {@link DexIMethod} names
+	 * the fields of get and put instructions
+	 */
+	static FieldReference getFieldReference(org.jf.dexlib2.iface.reference.FieldReference ref, ClassLoaderReference clr) {
+		return FieldReference.findOrCreate(clr, stripSemicolon(ref.getDefiningClass()), stripSemicolon(ref.getName()), stripSemicolon(ref.getType()));
+	}
+
+	/**
+	 * @return the WALA reference for ref, named as {@link DexIMethod} names
+	 * the types of allocations
+	 */
+	static TypeReference getTypeReference(org.jf.dexlib2.iface.reference.TypeReference ref, ClassLoaderReference clr) {
+		return TypeReference.findOrCreate(clr, stripSemicolon(ref.getType()));
+	}
+
 	static TypeName getTypeName(String fieldType) {
 		ImmutableByteArray fieldTypeArray = ImmutableByteArray.make(fieldType);
 	    TypeName T = null;
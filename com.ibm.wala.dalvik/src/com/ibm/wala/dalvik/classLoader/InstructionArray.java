@@ -48,13 +48,13 @@
 package com.ibm.wala.dalvik.classLoader;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import com.ibm.wala.dalvik.dex.instructions.Instruction;
+import com.ibm.wala.util.collections.IntIntHashMap;
 
 /**
  * Collection of Instruction wich allow to get an instruction from its table
@@ -64,13 +64,13 @@ import com.ibm.wala.dalvik.dex.instructions.Instruction;
  */
 public class InstructionArray implements Collection<Instruction> {
     List<Instruction> instructions;
-    Map<Integer, Integer> pc2index;
-    List<Integer> index2pc;
+    IntIntHashMap pc2index;
+    int[] index2pc;
 
     public InstructionArray() {
         instructions = new ArrayList<>();
-        pc2index = new HashMap<>();
-        index2pc = new ArrayList<>();
+        pc2index = new IntIntHashMap();
+        index2pc = new int[16];
     }
 
     @Override
@@ -78,8 +78,12 @@ public class InstructionArray implements Collection<Instruction> {
         boolean ret = instructions.add(e);
 
         if (ret) {
-            pc2index.put(e.pc, size() - 1);
-            index2pc.add(e.pc);
+            int index = size() - 1;
+            pc2index.put(e.pc, index);
+            if (index == index2pc.length) {
+                index2pc = Arrays.copyOf(index2pc, 2 * index2pc.length);
+            }
+            index2pc[index] = e.pc;
         }
 
         return ret;
@@ -174,7 +178,15 @@ public class InstructionArray implements Collection<Instruction> {
     	if (!pc2index.containsKey(pc) && pc2index.containsKey(pc+1)) {
     		pc++;
     	}
-        return pc2index.get(pc);
+        return indexOf(pc);
+    }
+
+    private int indexOf(int pc) {
+        int index = pc2index.get(pc, -1);
+        if (index == -1) {
+            throw new IllegalArgumentException("no instruction at pc " + pc);
+        }
+        return index;
     }
 
     /**
@@ -183,7 +195,10 @@ public class InstructionArray implements Collection<Instruction> {
      * @return The byte code address of the instruction index
      */
     public int getPcFromIndex(int index) {
-        return index2pc.get(index);
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("no instruction at index " + index);
+        }
+        return index2pc[index];
     }
 
 
@@ -200,7 +215,7 @@ public class InstructionArray implements Collection<Instruction> {
      * @return The instruction from its pc.
      */
     public Instruction getFromPc(int pc) {
-        return instructions.get(pc2index.get(pc));
+        return instructions.get(indexOf(pc));
 
     }
 }
@@ -51,8 +51,16 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
+import org.jf.dexlib2.dexbacked.raw.FieldIdItem;
+import org.jf.dexlib2.dexbacked.raw.MethodIdItem;
+import org.jf.dexlib2.dexbacked.reference.DexBackedFieldReference;
+import org.jf.dexlib2.dexbacked.reference.DexBackedMethodReference;
+import org.jf.dexlib2.dexbacked.reference.DexBackedTypeReference;
+
 import com.ibm.wala.classLoader.ClassLoaderImpl;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IClassLoader;
@@ -60,7 +68,11 @@ import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.config.SetOfClasses;
@@ -193,6 +205,76 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
     }
 
 
+    /**
+     * WALA references for the method, field and type ids of each dex file
+     * loaded by this loader, indexed by id and made on first use
+     */
+    private final Map<DexBackedDexFile, MethodReference[]> methodReferences = HashMapFactory.make();
+    private final Map<DexBackedDexFile, FieldReference[]> fieldReferences = HashMapFactory.make();
+    private final Map<DexBackedDexFile, TypeReference[]> typeReferences = HashMapFactory.make();
+
+    /**
+     * @return the WALA reference for a method referenced by the code of a
+     * class of this loader; references from dex files are translated only once
+     */
+    synchronized MethodReference lookupMethodReference(org.jf.dexlib2.iface.reference.MethodReference ref) {
+        if (!(ref instanceof DexBackedMethodReference)) {
+            return DexUtil.getMethodReference(ref, getReference());
+        }
+        DexBackedMethodReference dexRef = (DexBackedMethodReference) ref;
+        MethodReference[] table = methodReferences.get(dexRef.dexFile);
+        if (table == null) {
+            table = new MethodReference[dexRef.dexFile.getMethodCount()];
+            methodReferences.put(dexRef.dexFile, table);
+        }
+        int id = (dexRef.methodIdItemOffset - dexRef.dexFile.getMethodIdItemOffset(0)) / MethodIdItem.ITEM_SIZE;
+        if (table[id] == null) {
+            table[id] = DexUtil.getMethodReference(ref, getReference());
+        }
+        return table[id];
+    }
+
+    /**
+     * @return the WALA reference for a field referenced by the code of a
+     * class of this loader; references from dex files are translated only once
+     */
+    synchronized FieldReference lookupFieldReference(org.jf.dexlib2.iface.reference.FieldReference ref) {
+        if (!(ref instanceof DexBackedFieldReference)) {
+            return DexUtil.getFieldReference(ref, getReference());
+        }
+        DexBackedFieldReference dexRef = (DexBackedFieldReference) ref;
+        FieldReference[] table = fieldReferences.get(dexRef.dexFile);
+        if (table == null) {
+            table = new FieldReference[dexRef.dexFile.getFieldCount()];
+            fieldReferences.put(dexRef.dexFile, table);
+        }
+        int id = (dexRef.fieldIdItemOffset - dexRef.dexFile.getFieldIdItemOffset(0)) / FieldIdItem.ITEM_SIZE;
+        if (table[id] == null) {
+            table[id] = DexUtil.getFieldReference(ref, getReference());
+        }
+        return table[id];
+    }
+
+    /**
+     * @return the WALA reference for a type referenced by the code of a
+     * class of this loader; references from dex files are translated only once
+     */
+    synchronized TypeReference lookupTypeReference(org.jf.dexlib2.iface.reference.TypeReference ref) {
+        if (!(ref instanceof DexBackedTypeReference)) {
+            return DexUtil.getTypeReference(ref, getReference());
+        }
+        DexBackedTypeReference dexRef = (DexBackedTypeReference) ref;
+        TypeReference[] table = typeReferences.get(dexRef.dexFile);
+        if (table == null) {
+            table = new TypeReference[dexRef.dexFile.getTypeCount()];
+            typeReferences.put(dexRef.dexFile, table);
+        }
+        if (table[dexRef.typeIndex] == null) {
+            table[dexRef.typeIndex] = DexUtil.getTypeReference(ref, getReference());
+        }
+        return table[dexRef.typeIndex];
+    }
+
     /**
      * @return the IClassHierarchy of this classLoader.
      */
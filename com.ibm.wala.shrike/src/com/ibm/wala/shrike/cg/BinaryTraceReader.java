@@ -0,0 +1,190 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads the call graph traces written by {@link BufferedRuntime}.
+ *
+ * A trace is a gzipped stream of a header (the int {@link #MAGIC} and the int {@link #VERSION}) followed by records, each starting
+ * with a tag byte:
+ * <ul>
+ * <li>{@link #METHOD}: an int method number, then the class (as a descriptor without the leading L) and the method name and
+ * descriptor, as UTF strings. Method numbers are assigned in order from 0, and each method is recorded before any edge that uses it.
+ * <li>{@link #EDGES}: an int count, then that many pairs of int caller and callee method numbers. The caller may instead be
+ * {@link #ROOT}, {@link #CLINIT} or {@link #CALLBACKS} for calls from outside the instrumented code.
+ * </ul>
+ * Each edge appears at most once.
+ *
+ * Run as a program, this converts a binary trace into the textual format written by {@link Runtime}.
+ */
+public class BinaryTraceReader {
+
+  public static final int MAGIC = 0x57444347;
+
+  public static final int VERSION = 1;
+
+  public static final byte METHOD = 1;
+
+  public static final byte EDGES = 2;
+
+  public static final int ROOT = -1;
+
+  public static final int CLINIT = -2;
+
+  public static final int CALLBACKS = -3;
+
+  public interface EdgeVisitor {
+    /**
+     * @param callerClass the class of the caller, or one of "root", "clinit" and "callbacks" for calls from outside the instrumented
+     *          code, as in the traces of {@link Runtime}
+     * @param callerMethod the name and descriptor of the caller, or null if callerClass is not a class
+     */
+    void edge(String callerClass, String callerMethod, String calleeClass, String calleeMethod);
+  }
+
+  /**
+   * @return true iff the file holds a trace in the format written by {@link BufferedRuntime}
+   */
+  public static boolean isBinaryTrace(String fileName) throws IOException {
+    try (final DataInputStream in = open(fileName)) {
+      return in.readInt() == MAGIC;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  private static DataInputStream open(String fileName) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName))));
+  }
+
+  /**
+   * Pass each edge of the trace in the file to the visitor, in the order in which they were written.
+   */
+  public static void read(String fileName, EdgeVisitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor is null");
+    }
+    try (final DataInputStream in = open(fileName)) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(fileName + " is not a binary call graph trace");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("unsupported trace version " + version + " in " + fileName);
+      }
+      ArrayList<String> classes = new ArrayList<>();
+      ArrayList<String> methods = new ArrayList<>();
+      int tag;
+      while ((tag = in.read()) != -1) {
+        switch (tag) {
+        case METHOD: {
+          int id = in.readInt();
+          if (id != classes.size()) {
+            throw new IOException("unexpected method number " + id + " in " + fileName);
+          }
+          classes.add(in.readUTF());
+          methods.add(in.readUTF());
+          break;
+        }
+        case EDGES: {
+          int count = in.readInt();
+          for (int i = 0; i < count; i++) {
+            int caller = in.readInt();
+            int callee = in.readInt();
+            String callerClass;
+            String callerMethod = null;
+            switch (caller) {
+            case ROOT:
+              callerClass = "root";
+              break;
+            case CLINIT:
+              callerClass = "clinit";
+              break;
+            case CALLBACKS:
+              callerClass = "callbacks";
+              break;
+            default:
+              callerClass = classes.get(caller);
+              callerMethod = methods.get(caller);
+            }
+            visitor.edge(callerClass, callerMethod, classes.get(callee), methods.get(callee));
+          }
+          break;
+        }
+        default:
+          throw new IOException("unexpected record " + tag + " in " + fileName);
+        }
+      }
+    }
+  }
+
+  /**
+   * Write the edges of the trace in the file as lines in the textual format of {@link Runtime}.
+   */
+  public static void toText(String fileName, final Writer out) throws IOException {
+    if (out == null) {
+      throw new IllegalArgumentException("out is null");
+    }
+    try {
+      read(fileName, (callerClass, callerMethod, calleeClass, calleeMethod) -> {
+        try {
+          out.write(callerClass);
+          if (callerMethod != null) {
+            out.write('\t');
+            out.write(callerMethod);
+          }
+          out.write('\t');
+          out.write(calleeClass);
+          out.write('\t');
+          out.write(calleeMethod);
+          out.write('\n');
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * usage: BinaryTraceReader binaryTrace textTrace
+   *
+   * The textual trace is gzipped, like those written by {@link Runtime}.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("usage: BinaryTraceReader binaryTrace textTrace");
+      System.exit(1);
+    }
+    try (final Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(args[1])), "UTF-8"))) {
+      toText(args[0], out);
+    }
+  }
+}
@@ -0,0 +1,483 @@
+/******************************************************************************
+ * Copyright (c) 2002 - 2014 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *****************************************************************************/
+
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.wala.util.config.FileOfClasses;
+import com.ibm.wala.util.config.SetOfClasses;
+
+/**
+ * A runtime for code instrumented by {@link OfflineDynamicCallGraph}, for programs where the overhead of {@link Runtime} is too high.
+ * Select it by instrumenting with <code>--runtime com.ibm.wala.shrike.cg.BufferedRuntime</code>. It reads the same dynamicCGFile and
+ * dynamicCGFilter properties as {@link Runtime}, and writes the trace in the binary format of {@link BinaryTraceReader}.
+ *
+ * {@link Runtime} walks the stack and writes a line of text under a global lock for every call. Instead, this runtime
+ * <ul>
+ * <li>numbers each method the first time it runs, and keeps a shadow stack of method numbers per thread;
+ * <li>tells callbacks from uninstrumented code apart by checking the method being entered against the call site that the caller
+ * announced with {@link #addToCallStack(String, String, Object)}, rather than by walking the stack;
+ * <li>records each edge once per thread, in a buffer of its own; and
+ * <li>hands full buffers to a background thread, which drops edges already written by other threads and writes the rest.
+ * </ul>
+ * The "call to" and "return from" lines of {@link Runtime} are not recorded, and a {@link Runtime.Policy} cannot be installed.
+ *
+ * Note that this class must not refer to {@link Runtime}, whose initialization opens the trace file as well.
+ */
+public class BufferedRuntime {
+
+  /**
+   * number of edges in a buffer
+   */
+  private static final int BUFFER_EDGES = 4096;
+
+  /**
+   * marks the end of the trace in the queue of full buffers
+   */
+  private static final int[] END = new int[0];
+
+  private static final long NO_EDGE = Long.MIN_VALUE;
+
+  /**
+   * A set of edges, each packed into a long as the caller and callee numbers.
+   */
+  private static final class EdgeSet {
+    private long[] table = newTable(1024);
+
+    private int size = 0;
+
+    private static long[] newTable(int n) {
+      long[] result = new long[n];
+      Arrays.fill(result, NO_EDGE);
+      return result;
+    }
+
+    private static int hash(long edge) {
+      long h = edge * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return true iff the edge was not already in the set
+     */
+    boolean add(long edge) {
+      int mask = table.length - 1;
+      int s = hash(edge) & mask;
+      while (table[s] != NO_EDGE) {
+        if (table[s] == edge) {
+          return false;
+        }
+        s = (s + 1) & mask;
+      }
+      table[s] = edge;
+      if (2 * ++size > table.length) {
+        long[] old = table;
+        table = newTable(2 * old.length);
+        mask = table.length - 1;
+        for (long e : old) {
+          if (e != NO_EDGE) {
+            int t = hash(e) & mask;
+            while (table[t] != NO_EDGE) {
+              t = (t + 1) & mask;
+            }
+            table[t] = e;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The tracing state of one thread.
+   */
+  private static final class ThreadState {
+    /**
+     * the shadow call stack; the bottom entry stands for the caller of the thread's first method
+     */
+    private int[] stack = new int[64];
+
+    private int depth = 1;
+
+    /**
+     * whether this is the first thread to run instrumented code, whose outermost method is called by the JVM
+     */
+    private final boolean initial;
+
+    /**
+     * the name and descriptor of the method that the current call site is about to invoke, or null if none
+     */
+    private String expectedMethod;
+
+    /**
+     * cache of method numbers, keyed by the identity of the class and method strings; see {@link BufferedRuntime#intern}
+     */
+    private Object[] cacheClasses = new Object[256];
+
+    private Object[] cacheMethods = new Object[256];
+
+    private int[] cacheCodes = new int[256];
+
+    private int cacheSize = 0;
+
+    private final EdgeSet edges = new EdgeSet();
+
+    /**
+     * edges not yet handed to the writer; buffer[0] holds the number of edges, and caller and callee numbers follow
+     */
+    private int[] buffer = makeBuffer();
+
+    ThreadState(boolean initial) {
+      this.initial = initial;
+      stack[0] = BinaryTraceReader.ROOT;
+    }
+
+    int methodCode(String klass, String method) {
+      int mask = cacheClasses.length - 1;
+      int s = (klass.hashCode() * 31 + method.hashCode()) & mask;
+      for (Object c = cacheClasses[s]; c != null; c = cacheClasses[s]) {
+        if (c == klass && cacheMethods[s] == method) {
+          return cacheCodes[s];
+        }
+        s = (s + 1) & mask;
+      }
+      int code = intern(klass, method);
+      cacheClasses[s] = klass;
+      cacheMethods[s] = method;
+      cacheCodes[s] = code;
+      if (2 * ++cacheSize > cacheClasses.length) {
+        growCache();
+      }
+      return code;
+    }
+
+    private void growCache() {
+      Object[] oldClasses = cacheClasses;
+      Object[] oldMethods = cacheMethods;
+      int[] oldCodes = cacheCodes;
+      cacheClasses = new Object[2 * oldClasses.length];
+      cacheMethods = new Object[2 * oldClasses.length];
+      cacheCodes = new int[2 * oldClasses.length];
+      int mask = cacheClasses.length - 1;
+      for (int i = 0; i < oldClasses.length; i++) {
+        if (oldClasses[i] != null) {
+          int s = (oldClasses[i].hashCode() * 31 + oldMethods[i].hashCode()) & mask;
+          while (cacheClasses[s] != null) {
+            s = (s + 1) & mask;
+          }
+          cacheClasses[s] = oldClasses[i];
+          cacheMethods[s] = oldMethods[i];
+          cacheCodes[s] = oldCodes[i];
+        }
+      }
+    }
+
+    void push(int method) {
+      if (depth == stack.length) {
+        stack = Arrays.copyOf(stack, 2 * depth);
+      }
+      stack[depth++] = method;
+    }
+
+    void pop() {
+      if (depth > 1) {
+        depth--;
+      }
+    }
+
+    int top() {
+      return stack[depth - 1];
+    }
+
+    void record(int caller, int callee) {
+      if (edges.add(((long) caller << 32) | (callee & 0xffffffffL))) {
+        synchronized (this) {
+          if (buffer == null) {
+            // the trace has ended
+            return;
+          }
+          int n = buffer[0];
+          buffer[2 * n + 1] = caller;
+          buffer[2 * n + 2] = callee;
+          buffer[0] = ++n;
+          if (n == BUFFER_EDGES) {
+            handOff(buffer);
+            buffer = makeBuffer();
+          }
+        }
+      }
+    }
+
+    /**
+     * give the pending edges to the writer, and stop recording
+     */
+    synchronized void finish() {
+      if (buffer != null && buffer[0] > 0) {
+        handOff(buffer);
+      }
+      buffer = null;
+    }
+  }
+
+  private static final ThreadLocal<ThreadState> state = ThreadLocal.withInitial(BufferedRuntime::newThreadState);
+
+  /**
+   * states of all threads that have run instrumented code
+   */
+  private static final ArrayList<ThreadState> threads = new ArrayList<>();
+
+  /**
+   * method numbers, keyed by class and method; the number of an excluded method is stored complemented
+   */
+  private static final HashMap<String, Integer> methodCodes = new HashMap<>();
+
+  private static final LinkedBlockingQueue<int[]> fullBuffers = new LinkedBlockingQueue<>();
+
+  private static final ConcurrentLinkedQueue<int[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+  private static SetOfClasses filter;
+
+  /**
+   * the trace, or null if it has ended or could not be opened. Guarded by methodCodes.
+   */
+  private static DataOutputStream output;
+
+  private static Thread writer;
+
+  public static Object NULL_TAG = new Object() {
+    @Override
+    public String toString() {
+      return "NULL TAG";
+    }
+  };
+
+  static {
+    String filterFileName = System.getProperty("dynamicCGFilter");
+    if (filterFileName != null) {
+      try (final FileInputStream in = new FileInputStream(filterFileName)) {
+        filter = new FileOfClasses(in);
+      } catch (IOException e) {
+        filter = null;
+      }
+    }
+
+    String fileName = System.getProperty("dynamicCGFile");
+    try {
+      if (fileName == null) {
+        throw new IOException("no dynamicCGFile given");
+      }
+      output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(fileName)), 1 << 16));
+      output.writeInt(BinaryTraceReader.MAGIC);
+      output.writeInt(BinaryTraceReader.VERSION);
+
+      writer = new Thread(BufferedRuntime::writeBuffers, "call graph trace writer");
+      writer.setDaemon(true);
+      writer.start();
+
+      java.lang.Runtime.getRuntime().addShutdownHook(new Thread(BufferedRuntime::endTrace));
+    } catch (IOException e) {
+      System.err.println("not tracing calls: " + e);
+      output = null;
+    }
+  }
+
+  private static ThreadState newThreadState() {
+    synchronized (threads) {
+      ThreadState s = new ThreadState(threads.isEmpty());
+      threads.add(s);
+      return s;
+    }
+  }
+
+  private static int[] makeBuffer() {
+    int[] b = freeBuffers.poll();
+    if (b == null) {
+      b = new int[2 * BUFFER_EDGES + 1];
+    }
+    b[0] = 0;
+    return b;
+  }
+
+  private static void handOff(int[] buffer) {
+    fullBuffers.add(buffer);
+  }
+
+  private static String bashToDescriptor(String className) {
+    if (className.startsWith("class ")) {
+      className = className.substring(6);
+    }
+    if (className.indexOf('.') >= 0) {
+      className = className.replace('.', '/');
+    }
+    return className;
+  }
+
+  /**
+   * @return the number of the method, complemented if the method's class is excluded from the trace
+   */
+  private static int intern(String klass, String method) {
+    String descriptor = bashToDescriptor(klass);
+    String key = descriptor + "\t" + method;
+    synchronized (methodCodes) {
+      Integer code = methodCodes.get(key);
+      if (code == null) {
+        int id = methodCodes.size();
+        code = (filter != null && filter.contains(descriptor)) ? ~id : id;
+        methodCodes.put(key, code);
+        if (output != null) {
+          try {
+            output.writeByte(BinaryTraceReader.METHOD);
+            output.writeInt(id);
+            output.writeUTF(descriptor);
+            output.writeUTF(method);
+          } catch (IOException e) {
+            traceFailed(e);
+          }
+        }
+      }
+      return code;
+    }
+  }
+
+  private static void traceFailed(IOException e) {
+    System.err.println("stopped tracing calls: " + e);
+    try {
+      output.close();
+    } catch (IOException ignored) {
+      // the trace is lost anyway
+    }
+    output = null;
+  }
+
+  /**
+   * body of the writer thread
+   */
+  private static void writeBuffers() {
+    EdgeSet written = new EdgeSet();
+    while (true) {
+      int[] buffer;
+      try {
+        buffer = fullBuffers.take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (buffer == END) {
+        return;
+      }
+      int n = buffer[0];
+      int unique = 0;
+      for (int i = 0; i < n; i++) {
+        int caller = buffer[2 * i + 1];
+        int callee = buffer[2 * i + 2];
+        if (written.add(((long) caller << 32) | (callee & 0xffffffffL))) {
+          buffer[2 * unique + 1] = caller;
+          buffer[2 * unique + 2] = callee;
+          unique++;
+        }
+      }
+      if (unique > 0) {
+        synchronized (methodCodes) {
+          if (output != null) {
+            try {
+              output.writeByte(BinaryTraceReader.EDGES);
+              output.writeInt(unique);
+              for (int i = 1; i <= 2 * unique; i++) {
+                output.writeInt(buffer[i]);
+              }
+            } catch (IOException e) {
+              traceFailed(e);
+            }
+          }
+        }
+      }
+      freeBuffers.add(buffer);
+    }
+  }
+
+  /**
+   * Write all pending edges and close the trace. Edges of calls made afterwards are dropped.
+   */
+  public static void endTrace() {
+    if (writer == null) {
+      return;
+    }
+    synchronized (threads) {
+      for (ThreadState s : threads) {
+        s.finish();
+      }
+    }
+    fullBuffers.add(END);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      // close the trace anyway
+    }
+    synchronized (methodCodes) {
+      if (output != null) {
+        try {
+          output.close();
+        } catch (IOException e) {
+          System.err.println("could not close call graph trace: " + e);
+        }
+        output = null;
+      }
+    }
+  }
+
+  public static void execution(String klass, String method, @SuppressWarnings("unused") Object receiver) {
+    ThreadState t = state.get();
+    String expected = t.expectedMethod;
+    t.expectedMethod = null;
+    int code = t.methodCode(klass, method);
+    if (code >= 0) {
+      int caller;
+      if (method.startsWith("<clinit>")) {
+        caller = BinaryTraceReader.CLINIT;
+      } else if (method.equals(expected) || (t.depth == 1 && t.initial)) {
+        // called from the announced call site, or the outermost method of the program
+        caller = t.top();
+      } else if (method.startsWith("finalize")) {
+        caller = BinaryTraceReader.ROOT;
+      } else {
+        caller = BinaryTraceReader.CALLBACKS;
+      }
+      t.record(caller, code);
+      t.push(code);
+    } else {
+      t.push(~code);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  public static void termination(String klass, String method, Object receiver, boolean exception) {
+    state.get().pop();
+  }
+
+  public static void pop() {
+    state.get().expectedMethod = null;
+  }
+
+  @SuppressWarnings("unused")
+  public static void addToCallStack(String klass, String method, Object receiver) {
+    state.get().expectedMethod = method;
+  }
+}
@@ -16,7 +16,14 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.ibm.wala.shrikeBT.ConstantInstruction;
 import com.ibm.wala.shrikeBT.Constants;
@@ -35,14 +42,18 @@ import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
 import com.ibm.wala.shrikeBT.shrikeCT.CTUtils;
 import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
 import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeBT.tools.InstrumentationCache;
+import com.ibm.wala.shrikeCT.ClassConstants;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.ClassWriter;
 import com.ibm.wala.shrikeCT.ConstantPoolParser;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.FileOfClasses;
 import com.ibm.wala.util.config.SetOfClasses;
@@ -65,6 +76,9 @@ public class OfflineDynamicCallGraph {
   private static class AddTracingToInvokes extends MethodEditor.Visitor {
     @Override
     public void visitInvoke(IInvokeInstruction inv) {
+      if (isUntracedCall(inv)) {
+        return;
+      }
       final String calleeClass = inv.getClassType();
       final String calleeMethod = inv.getMethodName() + inv.getMethodSignature();
       addInstructionExceptionHandler(/*"java.lang.Throwable"*/null, new MethodEditor.Patch() {
@@ -94,6 +108,26 @@ public class OfflineDynamicCallGraph {
     }
   }
 
+  /**
+   * A static or special call to an excluded class can only reach code that is not instrumented, so it needs no call site tracing.
+   * Virtual and interface calls keep it, since they may dispatch into instrumented subclasses.
+   */
+  private static boolean isUntracedCall(IInvokeInstruction inv) {
+    if (filter == null || inv instanceof InvokeDynamicInstruction) {
+      return false;
+    }
+    IInvokeInstruction.IDispatch mode = inv.getInvocationCode();
+    if (mode != Dispatch.STATIC && mode != Dispatch.SPECIAL) {
+      return false;
+    }
+    String type = inv.getClassType();
+    if (!type.startsWith("L")) {
+      return false;
+    }
+    String className = type.substring(1, type.length() - 1);
+    return filter.contains(className) || filter.contains(className + "." + inv.getMethodName());
+  }
+
   private final static boolean disasm = true;
   private final static boolean verify = true;
 
@@ -114,11 +148,21 @@ public class OfflineDynamicCallGraph {
     ClassInstrumenter ci;
     try (final Writer w = new BufferedWriter(new FileWriter("report", false))) {
 
+      // the options are static, so do not let those of an earlier run leak into this one
+      runtime = Runtime.class;
+      filter = null;
+      cha = new ClassHierarchyStore();
+      int threads = 1;
+      String cacheDir = null;
+      long cacheSize = 1L << 30;
+      String exclusions = "";
+
       for(int i = 0; i < args.length; i++) {
         if ("--runtime".equals(args[i])) {
           runtime = Class.forName(args[i+1]);
         } else if ("--exclusions".equals(args[i])) {
           filter = new FileOfClasses(new FileInputStream(args[i+1]));
+          exclusions = new String(Files.readAllBytes(Paths.get(args[i+1])), "UTF-8");
         } else if ("--dont-patch-exits".equals(args[i])) {
           patchExits = false;
         } else if ("--patch-calls".equals(args[i])) {
@@ -127,6 +171,12 @@ public class OfflineDynamicCallGraph {
           extractDynamicCalls = true;
         } else if ("--extract-constructors".equals(args[i])) {
           extractConstructors = true;
+        } else if ("--threads".equals(args[i])) {
+          threads = Integer.parseInt(args[i+1]);
+        } else if ("--cache".equals(args[i])) {
+          cacheDir = args[i+1];
+        } else if ("--cache-size".equals(args[i])) {
+          cacheSize = Long.parseLong(args[i+1]);
         } else if ("--rt-jar".equals(args[i])) {
           System.err.println("using " + args[i+1] + " as stdlib");
           OfflineInstrumenter libReader = new OfflineInstrumenter();
@@ -149,11 +199,29 @@ public class OfflineDynamicCallGraph {
 
       instrumenter.setClassHierarchyProvider(cha);
 
-      instrumenter.beginTraversal();
-      while ((ci = instrumenter.nextClass()) != null) {
-        ClassWriter cw = doClass(ci, w);
-        if (cw != null) {
-          instrumenter.outputModifiedClass(ci, cw);
+      if (cacheDir != null) {
+        // everything other than the class that affects how every class is instrumented; the parts of the hierarchy that the stack
+        // map frames of a class may use are keyed per class, so that changing one class invalidates only the classes that use it
+        String configuration = OfflineDynamicCallGraph.class.getName() + "\n" + runtime.getName() + "\n" + patchExits + patchCalls
+            + extractCalls + extractDynamicCalls + extractConstructors + "\n" + exclusions;
+        instrumenter.setInstrumentationCache(new InstrumentationCache(new File(cacheDir), configuration, cacheSize,
+            OfflineDynamicCallGraph::hierarchyUsedBy));
+      }
+
+      if (threads > 1 || cacheDir != null) {
+        // classes are instrumented independently, so this writes the same jar and report
+        instrumenter.instrumentInParallel(OfflineDynamicCallGraph::doClass, w, threads);
+        if (cacheDir != null) {
+          w.write(instrumenter.getInstrumentationCache() + "\n");
+          System.err.println(instrumenter.getInstrumentationCache());
+        }
+      } else {
+        instrumenter.beginTraversal();
+        while ((ci = instrumenter.nextClass()) != null) {
+          ClassWriter cw = doClass(ci, w);
+          if (cw != null) {
+            instrumenter.outputModifiedClass(ci, cw);
+          }
         }
       }
     }
@@ -161,6 +229,59 @@ public class OfflineDynamicCallGraph {
     instrumenter.close();
   }
 
+  private static final Pattern TYPE_IN_DESCRIPTOR = Pattern.compile("L[^;()\\[<>]+;");
+
+  /**
+   * @return what the hierarchy says about the types the stack map frames of the class with the given bytes may hold, and about
+   *         their supertypes. Every such type is named in its constant pool, as a class or within a descriptor; so is the
+   *         runtime, whose calls are added.
+   */
+  static String hierarchyUsedBy(byte[] classBytes) {
+    Set<String> named = new TreeSet<>();
+    named.add(CTDecoder.convertClassToType(runtime.getName().replace('.', '/')));
+    try {
+      ConstantPoolParser cp = new ClassReader(classBytes).getCP();
+      for (int i = 1; i < cp.getItemCount(); i++) {
+        byte type = cp.getItemType(i);
+        if (type == ClassConstants.CONSTANT_Class) {
+          named.add(CTDecoder.convertClassToType(cp.getCPClass(i)));
+        } else if (type == ClassConstants.CONSTANT_Utf8) {
+          Matcher m = TYPE_IN_DESCRIPTOR.matcher(cp.getCPUtf8(i));
+          while (m.find()) {
+            named.add(m.group());
+          }
+        }
+      }
+    } catch (InvalidClassFileException e) {
+      // the class is not instrumented anyway
+      return "";
+    }
+
+    StringBuilder facts = new StringBuilder();
+    Set<String> done = HashSetFactory.make();
+    ArrayDeque<String> todo = new ArrayDeque<>(named);
+    while (!todo.isEmpty()) {
+      String t = todo.poll();
+      if (t.startsWith("[") || !done.add(t)) {
+        continue;
+      }
+      facts.append(t);
+      if (cha.containsClass(t)) {
+        facts.append(' ').append(cha.isInterface(t)).append(' ').append(cha.getSubClasses(t) != null).append(' ')
+            .append(cha.getSuperClass(t));
+        if (cha.getSuperClass(t) != null) {
+          todo.add(cha.getSuperClass(t));
+        }
+        for (String s : cha.getSuperInterfaces(t)) {
+          facts.append(' ').append(s);
+          todo.add(s);
+        }
+      }
+      facts.append('\n');
+    }
+    return facts.toString();
+  }
+
   static ClassWriter doClass(final ClassInstrumenter ci, Writer w) throws InvalidClassFileException, IOException, FailureException {
     final String className = ci.getReader().getName();
     if (filter != null && filter.contains(className)) {
@@ -249,6 +370,9 @@ public class OfflineDynamicCallGraph {
             me.visitInstructions(new AddTracingToInvokes() {
               @Override
               public void visitInvoke(final IInvokeInstruction inv) {
+                if (isUntracedCall(inv)) {
+                  return;
+                }
                 if ((!extractConstructors && inv.getMethodName().equals("<init>")) || 
                     (r.getAccessFlags()&Constants.ACC_INTERFACE) != 0 ||
                     (!extractDynamicCalls && inv instanceof InvokeDynamicInstruction)) 
@@ -152,7 +152,7 @@ public class CopyWriter {
     }
 
     if (!needTransform) {
-      return new ClassWriter.RawElement(cr.getBytes(), offset, end - offset);
+      return new ClassWriter.ReaderElement(cr, offset, end - offset);
     }
 
     if (name.equals("Code")) {
@@ -157,6 +157,12 @@ public abstract class Decoder implements Constants {
 
   private RetInfo[] retInfo;
 
+  /**
+   * stack word arrays no longer in use, for decoding branch targets; since decodeAt calls nest, they are used in stack order, and
+   * there are only as many as the deepest nesting of branches
+   */
+  private ArrayList<byte[]> spareStackWords;
+
   /**
    * This constructor is only supposed to be used by subclasses.
    * 
@@ -572,7 +578,7 @@ public abstract class Decoder implements Constants {
         if (retInfo == null) {
           throw new InvalidBytecodeException("'ret' outside of subroutine");
         }
-        retInfo[index - (wide ? 2 : 1)] = new RetInfo(-1, v, stackLen, stackWords);
+        retInfo[index - (wide ? 2 : 1)] = new RetInfo(-1, v, stackLen, stackWords.clone());
 
         index += wide ? 2 : 1;
         break;
@@ -762,8 +768,13 @@ public abstract class Decoder implements Constants {
           int[] targets = instr.getBranchTargets();
 
           for (int t : targets) {
-            if (t >= 0) {
-              decodeAt(t, stackLen, stackWords.clone());
+            // targets already decoded need no copy of the stack; decodeAt would return at once
+            if (t >= 0 && (t >= decodedOffset.length || decodedOffset[t] < 0)) {
+              byte[] targetStackWords = spareStackWords.isEmpty() ? new byte[stackWords.length] : spareStackWords.remove(spareStackWords
+                  .size() - 1);
+              System.arraycopy(stackWords, 0, targetStackWords, 0, stackLen);
+              decodeAt(t, stackLen, targetStackWords);
+              spareStackWords.add(targetStackWords);
             }
           }
 
@@ -947,7 +958,9 @@ public abstract class Decoder implements Constants {
   final public void decode() throws InvalidBytecodeException {
     byte[] stackWords = new byte[code.length * 2];
 
-    decoded = new ArrayList<>();
+    // most instructions take two or more bytes, so this rarely needs to grow
+    decoded = new ArrayList<>(code.length / 2 + 1);
+    spareStackWords = new ArrayList<>();
     decodedOffset = new int[code.length];
     for (int i = 0; i < decodedOffset.length; i++) {
       decodedOffset[i] = UNSEEN;
@@ -1057,6 +1070,7 @@ public abstract class Decoder implements Constants {
     }
 
     decoded = null;
+    spareStackWords = null;
     decodedOffset = null;
     decodedSize = null;
     belongsToSub = null;
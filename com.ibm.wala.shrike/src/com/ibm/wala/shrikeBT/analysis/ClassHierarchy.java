@@ -275,7 +275,7 @@ public final class ClassHierarchy {
     return r;
   }
 
-  private static String findCommonSupertypeHierarchy(ClassHierarchyProvider hierarchy, String t1, String t2) {    
+  static String findCommonSupertypeHierarchy(ClassHierarchyProvider hierarchy, String t1, String t2) {
     if (isSubtypeOf(hierarchy, t1, t2) == YES) {
       return t2;
     } else if (isSubtypeOf(hierarchy, t2, t1) == YES) {
@@ -374,6 +374,9 @@ public final class ClassHierarchy {
         } else if (hierarchy == null) {
           // don't have a class hierarchy
           return Constants.TYPE_unknown;
+        } else if (hierarchy instanceof ClassHierarchyStore) {
+          // remembers the answers
+          return ((ClassHierarchyStore) hierarchy).findCommonSupertype(t1, t2);
         } else {
           return findCommonSupertypeHierarchy(hierarchy, t1, t2);
         }
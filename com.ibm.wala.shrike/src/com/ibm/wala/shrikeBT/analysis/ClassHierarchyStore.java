@@ -12,8 +12,10 @@ package com.ibm.wala.shrikeBT.analysis;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.util.collections.Pair;
 
 /**
  * This implementation of ClassHierarchyProvider is a simple writable data structure representing a class hierarchy. You call
@@ -41,6 +43,12 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
 
   final private HashMap<String, ClassInfo> contents = new HashMap<>();
 
+  /**
+   * common supertypes of pairs of class types, which stack map computation asks for again and again; cleared whenever the store
+   * changes. Instrumenting threads may share a store once it is built, so this is concurrent.
+   */
+  final private ConcurrentHashMap<Pair<String, String>, String> commonSupertypes = new ConcurrentHashMap<>();
+
   /**
    * Create an empty store.
    */
@@ -66,6 +74,7 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
       throw new IllegalArgumentException("Class " + cl + " cannot be its own superclass");
     }
     contents.put(cl, new ClassInfo(isInterface, isFinal, superClass, superInterfaces));
+    commonSupertypes.clear();
   }
 
   /**
@@ -73,6 +82,20 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    */
   public void removeClassInfo(String cl) {
     contents.remove(cl);
+    commonSupertypes.clear();
+  }
+
+  /**
+   * @return the common supertype of two class types, as computed by {@link ClassHierarchy#findCommonSupertype}
+   */
+  String findCommonSupertype(String t1, String t2) {
+    Pair<String, String> key = Pair.make(t1, t2);
+    String result = commonSupertypes.get(key);
+    if (result == null) {
+      result = ClassHierarchy.findCommonSupertypeHierarchy(this, t1, t2);
+      commonSupertypes.put(key, result);
+    }
+    return result;
   }
 
   /**
@@ -286,14 +286,14 @@ final public class ClassInstrumenter {
 
     int fieldCount = cr.getFieldCount();
     for (int i = 0; i < fieldCount; i++) {
-      w.addRawField(new ClassWriter.RawElement(cr.getBytes(), cr.getFieldRawOffset(i), cr.getFieldRawSize(i)));
+      w.addRawField(new ClassWriter.ReaderElement(cr, cr.getFieldRawOffset(i), cr.getFieldRawSize(i)));
     }
 
     for (int i = 0; i < methods.length; i++) {
       MethodData md = methods[i];
       if (!deletedMethods[i]) {
         if (md == null || !md.getHasChanged()) {
-          w.addRawMethod(new ClassWriter.RawElement(cr.getBytes(), cr.getMethodRawOffset(i), cr.getMethodRawSize(i)));
+          w.addRawMethod(new ClassWriter.ReaderElement(cr, cr.getMethodRawOffset(i), cr.getMethodRawSize(i)));
         } else {
           CTCompiler comp = CTCompiler.make(w, md);
           comp.setPresetConstants(cpr);
@@ -326,7 +326,7 @@ final public class ClassInstrumenter {
     ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
     cr.initClassAttributeIterator(iter);
     for (; iter.isValid(); iter.advance()) {
-      w.addClassAttribute(new ClassWriter.RawElement(cr.getBytes(), iter.getRawOffset(), iter.getRawSize()));
+      w.addClassAttribute(new ClassWriter.ReaderElement(cr, iter.getRawOffset(), iter.getRawSize()));
     }
   }
 
@@ -478,7 +478,7 @@ final public class ClassInstrumenter {
           throw new Error("No old code provided, but Code attribute found");
         }
       } else {
-        methodAttributes[i] = new ClassWriter.RawElement(cr.getBytes(), iter.getRawOffset(), iter.getRawSize());
+        methodAttributes[i] = new ClassWriter.ReaderElement(cr, iter.getRawOffset(), iter.getRawSize());
       }
       i++;
     }
@@ -13,6 +13,7 @@ package com.ibm.wala.shrikeBT.shrikeCT;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
 
 import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.tools.OfflineInstrumenterBase;
@@ -25,6 +26,18 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
  */
 final public class OfflineInstrumenter extends OfflineInstrumenterBase {
 
+  /**
+   * Instrumentation of a single class, for {@link OfflineInstrumenter#instrumentInParallel(ClassTransformer, Writer, int, int)}.
+   * Classes are transformed concurrently, so implementations must not update shared state.
+   */
+  public interface ClassTransformer {
+    /**
+     * @param log where to write messages about this class
+     * @return the instrumented class, or null if the class is not modified
+     */
+    ClassWriter transform(ClassInstrumenter ci, Writer log) throws Exception;
+  }
+
   @Override
   protected Object makeClassFromStream(String inputName, BufferedInputStream s) throws IOException {
     byte[] bytes = new byte[s.available()];
@@ -63,6 +76,29 @@ final public class OfflineInstrumenter extends OfflineInstrumenterBase {
     return (ClassInstrumenter) internalNextClass();
   }
 
+  /**
+   * Instrument all classes on nThreads threads, and output the modified classes in the order of the inputs, with the same bytes
+   * as calling {@link #outputModifiedClass(ClassInstrumenter, ClassWriter)} on the result of the transformer for each class
+   * returned by {@link #nextClass()} in turn. At most window classes are held in memory at a time.
+   * 
+   * @param log if not null, receives what the transformer writes about each class, in the order of the inputs
+   */
+  public void instrumentInParallel(final ClassTransformer transformer, Writer log, int nThreads, int window) throws IOException {
+    if (transformer == null) {
+      throw new IllegalArgumentException("transformer is null");
+    }
+    internalTransformInParallel((cl, classLog) -> transformer.transform((ClassInstrumenter) cl, classLog), log, nThreads, window);
+  }
+
+  /**
+   * Instrument all classes on nThreads threads, holding a few classes per thread in memory at a time.
+   * 
+   * @see #instrumentInParallel(ClassTransformer, Writer, int, int)
+   */
+  public void instrumentInParallel(ClassTransformer transformer, Writer log, int nThreads) throws IOException {
+    instrumentInParallel(transformer, log, nThreads, 4 * nThreads);
+  }
+
   /**
    * Update the original class with some method changes. 'code' should be the result of out.emitClass(). You can add new fields and
    * methods to 'code' (or make other changes) before calling this method.
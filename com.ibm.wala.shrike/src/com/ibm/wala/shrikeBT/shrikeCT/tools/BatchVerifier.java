@@ -13,11 +13,19 @@ package com.ibm.wala.shrikeBT.shrikeCT.tools;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ibm.wala.shrikeBT.Decoder;
 import com.ibm.wala.shrikeBT.Disassembler;
 import com.ibm.wala.shrikeBT.MethodData;
 import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.analysis.ClassHierarchyProvider;
 import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
@@ -31,14 +39,14 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
 /**
  * This is a demo class.
  * 
- * Class files are taken as input arguments (or if there are none, from standard input). The methods in those files are
- * instrumented: we insert a System.err.println() at ever method call, and a System.err.println() at every method entry.
+ * Class files are taken as input arguments (or if there are none, from standard input). Every method in those files is verified,
+ * using a class hierarchy of all the inputs. With "--threads N", the classes are verified on N threads sharing that hierarchy.
  * 
- * In Unix, I run it like this: java -cp ~/dev/shrike/shrike com.ibm.wala.shrikeBT.shrikeCT.tools.BatchVerifier test.jar -o
- * output.jar
+ * In Unix, I run it like this: java -cp ~/dev/shrike/shrike com.ibm.wala.shrikeBT.shrikeCT.tools.BatchVerifier test.jar --threads 4
  * 
- * The instrumented classes are placed in the directory "output" under the current directory. Disassembled code is written to the
- * file "report" under the current directory.
+ * The methods verified, and the reasons any of them failed verification, are written to the file "report" under the current
+ * directory, in the order of the inputs; "-d" adds the disassembled code. The report ends with a list of the methods that failed
+ * and the number of methods verified per second, which are also printed to standard error.
  */
 public class BatchVerifier {
   private static boolean disasm = false;
@@ -47,16 +55,40 @@ public class BatchVerifier {
 
   private static int errors = 0;
 
+  /**
+   * The outcome of verifying one class.
+   */
+  private static final class Result {
+    final String report;
+
+    final int methods;
+
+    final ArrayList<String> failures;
+
+    Result(String report, int methods, ArrayList<String> failures) {
+      this.report = report;
+      this.methods = methods;
+      this.failures = failures;
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     OfflineInstrumenter oi = new OfflineInstrumenter();
     args = oi.parseStandardArgs(args);
 
-    for (String arg : args) {
-      if (arg.equals("-d")) {
+    int threads = 1;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-d")) {
         disasm = true;
+      } else if (args[i].equals("--threads") && i + 1 < args.length) {
+        threads = Integer.parseInt(args[++i]);
       }
     }
 
+    ArrayList<String> failures = new ArrayList<>();
+    int methods = 0;
+    long start;
+    long time;
     try (final PrintWriter w = new PrintWriter(new BufferedWriter(new FileWriter("report", false)))) {
 
       oi.beginTraversal();
@@ -66,23 +98,89 @@ public class BatchVerifier {
         CTUtils.addClassToHierarchy(store, cr);
       }
 
-      oi.beginTraversal();
-      while ((ci = oi.nextClass()) != null) {
-        doClass(ci.getReader(), w);
+      // the store is not changed from here on, so the verifying threads can share it
+      start = System.nanoTime();
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      ArrayDeque<Future<Result>> pending = new ArrayDeque<>();
+      try {
+        oi.beginTraversal();
+        while ((ci = oi.nextClass()) != null) {
+          final ClassReader cr = ci.getReader();
+          pending.add(pool.submit(() -> doClass(cr, store)));
+          if (pending.size() >= 4 * threads) {
+            methods += report(pending.poll(), w, failures);
+          }
+        }
+        while (!pending.isEmpty()) {
+          methods += report(pending.poll(), w, failures);
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+      time = System.nanoTime() - start;
+
+      errors = failures.size();
+      if (errors > 0) {
+        w.println();
+        w.println("Failed verification:");
+        for (String f : failures) {
+          w.println(f);
+        }
       }
+      w.println();
+      w.println(summary(methods, time, threads));
     }
 
     oi.close();
 
     if (errors > 0) {
-      System.err.println(errors + " error" + (errors > 1 ? "s" : "") + " detected");
+      System.err.println(errors + " error" + (errors > 1 ? "s" : "") + " detected:");
+      for (String f : failures) {
+        System.err.println("  " + f);
+      }
+    }
+    System.err.println(summary(methods, time, threads));
+  }
+
+  private static String summary(int methods, long nanos, int threads) {
+    long ms = nanos / 1000000;
+    return methods + " methods verified in " + ms + "ms on " + threads + " thread" + (threads > 1 ? "s" : "") + " ("
+        + (ms == 0 ? methods : methods * 1000L / ms) + " methods/s)";
+  }
+
+  /**
+   * Wait for the verification of a class and write its report.
+   * 
+   * @return the number of methods verified
+   */
+  private static int report(Future<Result> f, PrintWriter w, ArrayList<String> failures) throws Exception {
+    Result r;
+    try {
+      r = f.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
+      }
     }
+    w.write(r.report);
+    w.flush();
+    failures.addAll(r.failures);
+    return r.methods;
   }
 
-  private static void doClass(final ClassReader cr, PrintWriter w) throws Exception {
+  private static Result doClass(final ClassReader cr, ClassHierarchyProvider hierarchy) throws Exception {
+    StringWriter s = new StringWriter();
+    PrintWriter w = new PrintWriter(s);
+    ArrayList<String> failures = new ArrayList<>();
+    int methods = 0;
+
     int methodCount = cr.getMethodCount();
     w.write("Verifying " + cr.getName() + "\n");
-    w.flush();
 
     ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
 
@@ -90,8 +188,8 @@ public class BatchVerifier {
       cr.initMethodAttributeIterator(i, iter);
       for (; iter.isValid(); iter.advance()) {
         if (iter.getName().equals("Code")) {
-          w.write("Verifying " + cr.getName() + "." + cr.getMethodName(i) + " " + cr.getMethodType(i) + ":\n");
-          w.flush();
+          String method = cr.getName() + "." + cr.getMethodName(i) + " " + cr.getMethodType(i);
+          w.write("Verifying " + method + ":\n");
 
           CodeReader code = new CodeReader(iter);
           CTDecoder d = new CTDecoder(code);
@@ -106,23 +204,25 @@ public class BatchVerifier {
           if (disasm) {
             w.write("ShrikeBT code:\n");
             (new Disassembler(md)).disassembleTo(w);
-            w.flush();
           }
 
           Verifier v = new Verifier(md);
+          v.setClassHierarchy(hierarchy);
           try {
             v.verify();
           } catch (FailureException e) {
             w.println("ERROR: VERIFICATION FAILED");
             e.printStackTrace(w);
             e.printPath(w);
-            errors++;
-            w.flush();
+            failures.add(method + ": " + e.getMessage());
           }
+          methods++;
 
           break;
         }
       }
     }
+    w.flush();
+    return new Result(s.toString(), methods, failures);
   }
 }
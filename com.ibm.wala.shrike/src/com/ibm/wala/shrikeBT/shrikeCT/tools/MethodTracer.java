@@ -26,6 +26,7 @@ import com.ibm.wala.shrikeBT.Util;
 import com.ibm.wala.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
 import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
 
 /**
  * This is a demo class.
@@ -57,11 +58,7 @@ public class MethodTracer {
 
         instrumenter.parseStandardArgs(args);
         instrumenter.setPassUnmodifiedClasses(false);
-        instrumenter.beginTraversal();
-        ClassInstrumenter ci;
-        while ((ci = instrumenter.nextClass()) != null) {
-          doClass(ci, w);
-        }
+        instrumenter.instrumentInParallel(MethodTracer::doClass, w, Runtime.getRuntime().availableProcessors());
       }
       instrumenter.close();
     }
@@ -74,7 +71,7 @@ public class MethodTracer {
 
   static final Instruction callPrintln = Util.makeInvoke(PrintStream.class, "println", new Class[] { String.class });
 
-  private static void doClass(final ClassInstrumenter ci, Writer w) throws Exception {
+  private static ClassWriter doClass(final ClassInstrumenter ci, Writer w) throws Exception {
     w.write("Class: " + ci.getReader().getName() + "\n");
     w.flush();
 
@@ -147,8 +144,6 @@ public class MethodTracer {
       }
     }
 
-    if (ci.isChanged()) {
-      instrumenter.outputModifiedClass(ci);
-    }
+    return ci.isChanged() ? ci.emitClass() : null;
   }
 }
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2002,2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.shrikeBT.shrikeCT.tools;
+
+import java.util.ArrayList;
+
+import com.ibm.wala.shrikeBT.Compiler;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrikeBT.shrikeCT.CTCompiler;
+import com.ibm.wala.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.StackMapTableWriter;
+
+/**
+ * This is a benchmark.
+ *
+ * Class files are taken as input arguments, as for {@link OfflineInstrumenter}. Every method is compiled, and then the stack map
+ * frames of all the methods are computed repeatedly, using a class hierarchy of all the inputs; the time taken by each repetition
+ * is printed. With -lazy, methods are only type checked when a frame must be computed.
+ *
+ * In Unix, I run it like this: java -cp ~/dev/shrike/shrike com.ibm.wala.shrikeBT.shrikeCT.tools.StackMapTimer rt.jar -r 20
+ */
+public class StackMapTimer {
+
+  public static void main(String[] args) throws Exception {
+    OfflineInstrumenter oi = new OfflineInstrumenter();
+    args = oi.parseStandardArgs(args);
+
+    int reps = 10;
+    boolean verify = true;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-r") && i < args.length - 1) {
+        reps = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-lazy")) {
+        verify = false;
+      }
+    }
+
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    oi.beginTraversal();
+    ClassInstrumenter ci;
+    while ((ci = oi.nextClass()) != null) {
+      CTUtils.addClassToHierarchy(store, ci.getReader());
+    }
+
+    ArrayList<MethodData> methods = new ArrayList<>();
+    ArrayList<Compiler.Output> outputs = new ArrayList<>();
+    oi.beginTraversal();
+    while ((ci = oi.nextClass()) != null) {
+      ClassWriter w = new ClassWriter();
+      for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+        MethodData md = ci.visitMethod(m);
+        if (md != null) {
+          CTCompiler compiler = CTCompiler.make(w, md);
+          compiler.compile();
+          methods.add(md);
+          outputs.add(compiler.getOutput());
+        }
+      }
+    }
+    System.out.println(methods.size() + " methods");
+
+    for (int r = 0; r < reps; r++) {
+      long start = System.nanoTime();
+      int frames = 0;
+      int failures = 0;
+      for (int m = 0; m < methods.size(); m++) {
+        try {
+          frames += StackMapTableWriter.stackMapTable(methods.get(m), outputs.get(m), store, null, null, verify).size();
+        } catch (FailureException e) {
+          failures++;
+        }
+      }
+      System.out.println((System.nanoTime() - start) / 1000000 + "ms: " + frames + " frames, " + failures + " failures");
+    }
+  }
+}
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2002,2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.shrikeBT.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A directory of previously instrumented classes, keyed by a hash of the bytes of the original class and of a string describing
+ * the instrumentation. Used by {@link OfflineInstrumenterBase#internalTransformInParallel} to skip decoding and instrumenting
+ * classes that were instrumented the same way before, e.g. the unchanged dependency jars of repeated builds.
+ *
+ * The configuration string must identify everything other than the class itself that the instrumented bytes depend on: the tool,
+ * its options, and any input such as an exclusions file. The cache cannot tell when it is not. What only some classes depend on,
+ * such as the parts of the class hierarchy their stack map frames use, is better described per class by {@link Dependencies}, so
+ * that a change to it invalidates only those classes.
+ *
+ * The cache keeps its total size on disk below a limit by deleting the entries least recently used. Several processes may share
+ * a cache directory, since entries are written to a temporary file and then renamed.
+ */
+public class InstrumentationCache {
+
+  private static final int MAGIC = 0x53434331;
+
+  private final File dir;
+
+  private final byte[] configuration;
+
+  private final Dependencies dependencies;
+
+  private final long maxBytes;
+
+  private long size;
+
+  private int hits;
+
+  private int misses;
+
+  private int evictions;
+
+  /**
+   * A class found in the cache.
+   */
+  public static final class Entry {
+    private final String className;
+
+    private final byte[] bytes;
+
+    Entry(String className, byte[] bytes) {
+      this.className = className;
+      this.bytes = bytes;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * @return the instrumented class, or null if the instrumentation left the class unmodified
+     */
+    public byte[] getBytes() {
+      return bytes;
+    }
+  }
+
+  /**
+   * Describes what the instrumentation of each class depends on, other than the class itself and the configuration.
+   */
+  public interface Dependencies {
+    /**
+     * @return a description of the inputs the instrumentation of the class with the given bytes depends on; classes with the same
+     *         bytes and description are instrumented the same way. Called on the thread that reads the inputs.
+     */
+    String of(byte[] classBytes);
+  }
+
+  /**
+   * @param dir the cache directory, which is created if needed
+   * @param configuration a description of the instrumentation; see the class comment
+   * @param maxBytes the largest total size of the cached classes
+   */
+  public InstrumentationCache(File dir, String configuration, long maxBytes) throws IOException {
+    this(dir, configuration, maxBytes, null);
+  }
+
+  /**
+   * @param dir the cache directory, which is created if needed
+   * @param configuration a description of the instrumentation; see the class comment
+   * @param maxBytes the largest total size of the cached classes
+   * @param dependencies what each class depends on besides the configuration, or null if nothing
+   */
+  public InstrumentationCache(File dir, String configuration, long maxBytes, Dependencies dependencies) throws IOException {
+    if (dir == null) {
+      throw new IllegalArgumentException("dir is null");
+    }
+    if (configuration == null) {
+      throw new IllegalArgumentException("configuration is null");
+    }
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("invalid maxBytes: " + maxBytes);
+    }
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("cannot create cache directory " + dir);
+    }
+    this.dir = dir;
+    this.configuration = toUTF8(configuration);
+    this.dependencies = dependencies;
+    this.maxBytes = maxBytes;
+    for (File f : entryFiles()) {
+      size += f.length();
+    }
+  }
+
+  private static byte[] toUTF8(String s) {
+    try {
+      return s.getBytes("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new Error(e);
+    }
+  }
+
+  /**
+   * @return the key of the given original class bytes under this cache's configuration and the class's dependencies
+   */
+  public String key(byte[] classBytes) {
+    if (classBytes == null) {
+      throw new IllegalArgumentException("classBytes is null");
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new Error(e);
+    }
+    digest.update(configuration);
+    digest.update((byte) 0);
+    if (dependencies != null) {
+      digest.update(toUTF8(dependencies.of(classBytes)));
+      digest.update((byte) 0);
+    }
+    byte[] hash = digest.digest(classBytes);
+    StringBuilder result = new StringBuilder(2 * hash.length);
+    for (byte b : hash) {
+      result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+  private File fileOf(String key) {
+    return new File(new File(dir, key.substring(0, 2)), key.substring(2));
+  }
+
+  private ArrayList<File> entryFiles() {
+    ArrayList<File> result = new ArrayList<>();
+    File[] subdirs = dir.listFiles();
+    if (subdirs != null) {
+      for (File d : subdirs) {
+        File[] files = d.listFiles();
+        if (files != null) {
+          for (File f : files) {
+            if (f.isFile() && !f.getName().endsWith(".tmp")) {
+              result.add(f);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the class cached under key, or null if there is none
+   */
+  public Entry lookup(String key) {
+    File f = fileOf(key);
+    if (f.isFile()) {
+      try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+        if (in.readInt() == MAGIC) {
+          String className = in.readUTF();
+          int length = in.readInt();
+          byte[] bytes = null;
+          if (length >= 0) {
+            bytes = new byte[length];
+            in.readFully(bytes);
+          }
+          f.setLastModified(System.currentTimeMillis());
+          hits++;
+          return new Entry(className, bytes);
+        }
+      } catch (IOException e) {
+        // a damaged entry is rebuilt
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Record the instrumented form of a class.
+   *
+   * @param bytes the instrumented class, or null if the instrumentation left the class unmodified
+   */
+  public void store(String key, String className, byte[] bytes) throws IOException {
+    if (className == null) {
+      throw new IllegalArgumentException("className is null");
+    }
+    File f = fileOf(key);
+    File d = f.getParentFile();
+    if (!d.isDirectory() && !d.mkdirs()) {
+      throw new IOException("cannot create cache directory " + d);
+    }
+    File tmp = File.createTempFile(key.substring(2), ".tmp", d);
+    try {
+      try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(className);
+        if (bytes == null) {
+          out.writeInt(-1);
+        } else {
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      }
+      long old = f.length();
+      Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      size += f.length() - old;
+    } finally {
+      tmp.delete();
+    }
+    if (size > maxBytes) {
+      trim(f);
+    }
+  }
+
+  /**
+   * Delete the least recently used entries other than keep until the cache is well below its limit, so that it is not trimmed
+   * again at once. keep is the entry just stored, which may look no newer than others since times on files can be coarse.
+   */
+  private void trim(File keep) {
+    ArrayList<File> files = entryFiles();
+    final long[] lastUse = new long[files.size()];
+    Integer[] order = new Integer[files.size()];
+    size = 0;
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      lastUse[i] = files.get(i).lastModified();
+      size += files.get(i).length();
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(lastUse[a], lastUse[b]));
+    long target = maxBytes - maxBytes / 4;
+    for (int i = 0; i < order.length && size > target; i++) {
+      File f = files.get(order[i]);
+      long length = f.length();
+      if (!f.equals(keep) && f.delete()) {
+        size -= length;
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * @return the number of lookups that found a class
+   */
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that did not find a class, so that it was instrumented again
+   */
+  public int getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of entries deleted to keep the cache within its limit
+   */
+  public int getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the total size of the cached classes, in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "instrumentation cache " + dir + ": " + hits + " hits, " + misses + " rebuilt, " + evictions + " evicted, " + size
+        + " bytes";
+  }
+}
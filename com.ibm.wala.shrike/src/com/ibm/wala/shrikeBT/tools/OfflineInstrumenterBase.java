@@ -12,16 +12,27 @@ package com.ibm.wala.shrikeBT.tools;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -46,6 +57,8 @@ public abstract class OfflineInstrumenterBase {
 
   private boolean passUnmodifiedClasses = false;
 
+  private InstrumentationCache instrumentationCache;
+
   private JarOutputStream outputJar;
 
   private JarFile cachedJar;
@@ -226,6 +239,20 @@ public abstract class OfflineInstrumenterBase {
     passUnmodifiedClasses = pass;
   }
 
+  /**
+   * Reuse the classes instrumented earlier with the same configuration, as recorded in the given cache, when transforming in
+   * parallel. Cached classes are not passed to the transformer, so it writes nothing about them to the log.
+   * 
+   * @param cache the cache, or null to instrument all classes
+   */
+  final public void setInstrumentationCache(InstrumentationCache cache) {
+    instrumentationCache = cache;
+  }
+
+  final public InstrumentationCache getInstrumentationCache() {
+    return instrumentationCache;
+  }
+
   /**
    * Add a JAR file containing source classes to instrument.
    */
@@ -392,6 +419,182 @@ public abstract class OfflineInstrumenterBase {
     }
   }
 
+  /**
+   * A transformation of a single class, for {@link #internalTransformInParallel(InternalTransformer, Writer, int, int)}.
+   */
+  protected interface InternalTransformer {
+    /**
+     * @param cl the class, as made by {@link #makeClassFromStream(String, BufferedInputStream)}
+     * @param log where to write messages about this class
+     * @return the modifications to pass to {@link #writeClassTo(Object, Object, OutputStream)}, or null if the class is not modified
+     */
+    Object transform(Object cl, Writer log) throws Exception;
+  }
+
+  /**
+   * The outcome of transforming one class on a worker thread, or of finding it in the cache.
+   */
+  private static final class Transformed {
+    final String className;
+
+    /**
+     * the transformed class, or null if it was not modified
+     */
+    final byte[] bytes;
+
+    final String log;
+
+    Transformed(String className, byte[] bytes, String log) {
+      this.className = className;
+      this.bytes = bytes;
+      this.log = log;
+    }
+  }
+
+  /**
+   * A class read but not yet written.
+   */
+  private static final class Pending {
+    final Input input;
+
+    /**
+     * the cache key under which to record the result, or null if it is not to be recorded
+     */
+    final String key;
+
+    final Future<Transformed> result;
+
+    Pending(Input input, String key, Future<Transformed> result) {
+      this.input = input;
+      this.key = key;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Transform every class not being ignored on a pool of threads, and output the modified classes. The output is the same as that
+   * of the sequential loop
+   * 
+   * <pre>
+   * beginTraversal();
+   * while ((cl = internalNextClass()) != null) {
+   *   mods = transform(cl);
+   *   if (mods != null) {
+   *     internalOutputModifiedClass(cl, name, mods);
+   *   }
+   * }
+   * </pre>
+   * 
+   * provided the transformer does not depend on the order in which classes are transformed. Inputs are read, and results are
+   * written, on the calling thread and in the order of the inputs; parsing and transforming the classes happens on the pool. If
+   * there is an {@link #setInstrumentationCache(InstrumentationCache) instrumentation cache}, classes found in it are written
+   * without being parsed, and the others are recorded in it.
+   * 
+   * @param log if not null, receives what the transformer writes about each class, in the order of the inputs
+   * @param nThreads the number of worker threads
+   * @param window the largest number of classes read but not yet written at any time, which bounds the memory used
+   */
+  final protected void internalTransformInParallel(final InternalTransformer transformer, Writer log, int nThreads, int window)
+      throws IOException {
+    if (transformer == null) {
+      throw new IllegalArgumentException("transformer is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    if (window < 1) {
+      throw new IllegalArgumentException("invalid window: " + window);
+    }
+    makeOutputJar();
+    ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+    ArrayDeque<Pending> pending = new ArrayDeque<>();
+    try {
+      for (inputIndex = 0; inputIndex < inputs.size(); inputIndex++) {
+        Input in = inputs.get(inputIndex);
+        if (ignoringInputs.get(inputIndex) || !in.isClass()) {
+          continue;
+        }
+        final String inputName = in.getInputName();
+        final byte[] bytes;
+        try (final InputStream s = in.open()) {
+          ByteArrayOutputStream b = new ByteArrayOutputStream();
+          copyStream(s, b);
+          bytes = b.toByteArray();
+        }
+        String key = null;
+        Future<Transformed> result = null;
+        if (instrumentationCache != null) {
+          key = instrumentationCache.key(bytes);
+          InstrumentationCache.Entry cached = instrumentationCache.lookup(key);
+          if (cached != null) {
+            key = null;
+            result = CompletableFuture.completedFuture(new Transformed(cached.getClassName(), cached.getBytes(), ""));
+          }
+        }
+        if (result == null) {
+          result = pool.submit(() -> {
+            Object cl = makeClassFromStream(inputName, new BufferedInputStream(new ByteArrayInputStream(bytes)));
+            StringWriter classLog = new StringWriter();
+            Object mods = transformer.transform(cl, classLog);
+            byte[] transformed = null;
+            if (mods != null) {
+              ByteArrayOutputStream b = new ByteArrayOutputStream();
+              writeClassTo(cl, mods, b);
+              transformed = b.toByteArray();
+            }
+            return new Transformed(getClassName(cl), transformed, classLog.toString());
+          });
+        }
+        pending.add(new Pending(in, key, result));
+        if (pending.size() >= window) {
+          outputTransformed(pending.poll(), log);
+        }
+      }
+      while (!pending.isEmpty()) {
+        outputTransformed(pending.poll(), log);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void outputTransformed(Pending p, Writer log) throws IOException {
+    Input in = p.input;
+    Transformed t;
+    try {
+      t = p.result.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("interrupted while transforming " + in);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException("Error transforming " + in + ": " + cause, cause);
+      }
+    }
+    in.setClassName(t.className);
+    if (log != null) {
+      log.write(t.log);
+      log.flush();
+    }
+    if (t.bytes != null) {
+      String name = in.getInputName();
+      if (!entryNames.contains(name)) {
+        putNextEntry(new ZipEntry(name));
+        outputJar.write(t.bytes);
+        outputJar.closeEntry();
+      }
+    }
+    if (p.key != null) {
+      instrumentationCache.store(p.key, t.className, t.bytes);
+    }
+  }
+
   private static String toEntryName(String className) {
     return className.replace('.', '/') + ".class";
   }
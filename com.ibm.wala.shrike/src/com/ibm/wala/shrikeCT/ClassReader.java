@@ -10,13 +10,25 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 /**
  * This is the core class for reading class file data.
  * 
  * ClassReader performs lazy parsing, and thus most of the methods can throw an InvalidClassFileException.
+ * 
+ * The class file data may be an array or any ByteBuffer, such as a memory-mapped file, which is read in place.
  */
 public final class ClassReader implements ClassConstants {
-  private final byte[] bytes;
+  /**
+   * the class file data, starting at index 0
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * the class file data as an array, or null if it is not in an array and no one has asked for one yet
+   */
+  private byte[] bytes;
 
   private int[] methodOffsets;
 
@@ -41,13 +53,32 @@ public final class ClassReader implements ClassConstants {
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
     this.bytes = bytes;
+    this.buffer = ByteBuffer.wrap(bytes);
+    parse();
+  }
+
+  /**
+   * Build a reader of the class file data from the current position to the limit of a buffer, without copying it. The buffer's
+   * position, limit and byte order are left alone, and its contents must not change while the reader is in use.
+   * 
+   * @param buffer the class file data, e.g. a memory-mapped class file
+   * @throws InvalidClassFileException the class file data is corrupt
+   */
+  public ClassReader(ByteBuffer buffer) throws InvalidClassFileException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("buffer is null");
+    }
+    this.buffer = buffer.slice();
+    if (this.buffer.hasArray() && this.buffer.arrayOffset() == 0 && this.buffer.array().length == this.buffer.capacity()) {
+      this.bytes = this.buffer.array();
+    }
     parse();
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (buffer.capacity() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (buffer.capacity() - offset));
     }
   }
 
@@ -68,7 +99,7 @@ public final class ClassReader implements ClassConstants {
       throw new InvalidClassFileException(offset, "unknown class file version: " + majorVersion + "." + minorVersion);
     }
     
-    cpParser = new ConstantPoolParser(bytes, offset, constantPoolCount);
+    cpParser = new ConstantPoolParser(this, buffer, offset, constantPoolCount);
     offset += cpParser.getRawSize();
 
     classInfoOffset = offset;
@@ -103,7 +134,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != buffer.capacity()) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -149,12 +180,45 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
-   * @return the raw class data bytes
+   * @return the raw class data bytes; if the reader was built from a buffer not backed by an array of just the class file data,
+   *         they are copied out of it the first time
    */
   public byte[] getBytes() {
+    if (bytes == null) {
+      byte[] b = new byte[buffer.capacity()];
+      copyBytes(0, b, 0, b.length);
+      bytes = b;
+    }
     return bytes;
   }
 
+  /**
+   * @return the raw class data, as a read-only buffer whose index 0 is the start of the class file
+   */
+  public ByteBuffer getByteBuffer() {
+    return buffer.asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the size of the class file data, in bytes
+   */
+  public int getLength() {
+    return buffer.capacity();
+  }
+
+  /**
+   * Copy len bytes of the class data starting at offset i into dest, starting at destOffset.
+   */
+  public void copyBytes(int i, byte[] dest, int destOffset, int len) {
+    if (bytes != null) {
+      System.arraycopy(bytes, i, dest, destOffset, len);
+    } else {
+      ByteBuffer b = buffer.duplicate();
+      b.position(i);
+      b.get(dest, destOffset, len);
+    }
+  }
+
   /**
    * @return the magic number at the start of the class file.
    */
@@ -302,35 +366,35 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return buffer.getInt(i);
   }
 
   /**
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return buffer.getShort(i) & 0xFFFF;
   }
 
   /**
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
-    return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
+    return buffer.getShort(i);
   }
 
   /**
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
-    return bytes[i];
+    return buffer.get(i);
   }
   
   /**
    * @return the unsigned 8-bit value at offset i in the class data
    */
   public int getUnsignedByte(int i) {
-    return bytes[i] & 0xff;
+    return buffer.get(i) & 0xff;
   }
 
   /**
@@ -612,6 +612,41 @@ public class ClassWriter implements ClassConstants {
     }
   }
 
+  /**
+   * A ReaderElement is an Element that is some chunk of the class file data read by a ClassReader. It is copied straight from the
+   * reader's data, which need not be an array.
+   */
+  public static final class ReaderElement extends Element {
+    final private ClassReader cr;
+
+    final private int offset;
+
+    final private int len;
+
+    /**
+     * Create an Element for the 'len' bytes of the class file data of 'cr' at offset 'offset'.
+     */
+    public ReaderElement(ClassReader cr, int offset, int len) {
+      if (cr == null) {
+        throw new IllegalArgumentException("cr is null");
+      }
+      this.cr = cr;
+      this.offset = offset;
+      this.len = len;
+    }
+
+    @Override
+    public int getSize() {
+      return len;
+    }
+
+    @Override
+    public int copyInto(byte[] dest, int destOffset) {
+      cr.copyBytes(offset, dest, destOffset, len);
+      return destOffset + len;
+    }
+  }
+
   /**
    * Add a method to the class, the method data given as "raw" bytes (probably obtained from a ClassReader).
    */
@@ -781,11 +816,85 @@ public class ClassWriter implements ClassConstants {
 
   private static final char[] noChars = new char[0];
 
+  /**
+   * Allocate the entries that new constant pool entry o refers to, just as emitConstantPool will, so that it finds them already
+   * allocated.
+   * 
+   * @return the size of entry o in the class file
+   */
+  private int prepareNewCPEntry(Object o) {
+    if (o instanceof CWItem) {
+      CWItem item = (CWItem) o;
+      switch (item.getType()) {
+      case CONSTANT_Class:
+      case CONSTANT_String:
+      case CONSTANT_MethodType:
+        addCPUtf8(((CWStringItem) item).s);
+        return 3;
+      case CONSTANT_NameAndType: {
+        CWNAT nat = (CWNAT) item;
+        addCPUtf8(nat.n);
+        addCPUtf8(nat.t);
+        return 5;
+      }
+      case CONSTANT_InvokeDynamic: {
+        CWInvokeDynamic inv = (CWInvokeDynamic) item;
+        addCPNAT(inv.n, inv.t);
+        return 5;
+      }
+      case CONSTANT_MethodHandle: {
+        CWHandle handle = (CWHandle) item;
+        switch (handle.getKind()) {
+        case REF_getStatic:
+        case REF_getField:
+        case REF_putField:
+        case REF_putStatic:
+          addCPFieldRef(handle.c, handle.n, handle.t);
+          break;
+        case REF_invokeInterface:
+          addCPInterfaceMethodRef(handle.c, handle.n, handle.t);
+          break;
+        default:
+          addCPMethodRef(handle.c, handle.n, handle.t);
+        }
+        return 4;
+      }
+      case CONSTANT_MethodRef:
+      case CONSTANT_FieldRef:
+      case CONSTANT_InterfaceMethodRef: {
+        CWRef ref = (CWRef) item;
+        addCPClass(ref.c);
+        addCPNAT(ref.n, ref.t);
+        return 5;
+      }
+      default:
+        throw new Error("Invalid type: " + item.getType());
+      }
+    } else if (o instanceof String) {
+      return 3 + utf8Length((String) o);
+    } else if (o instanceof Long || o instanceof Double) {
+      return 9;
+    } else {
+      return 5;
+    }
+  }
+
+  /**
+   * @return the number of bytes in the modified UTF-8 encoding of s, as stored in a CONSTANT_Utf8 entry
+   */
+  private static int utf8Length(String s) {
+    int length = 0;
+    for (int j = 0; j < s.length(); j++) {
+      char ch = s.charAt(j);
+      length += (ch != 0 && ch < 0x80) ? 1 : (ch < 0x800 ? 2 : 3);
+    }
+    return length;
+  }
+
   private void emitConstantPool() {
     if (rawCP != null) {
-      int len = rawCP.getRawSize();
-      int offset = reserveBuf(len);
-      System.arraycopy(rawCP.getRawBytes(), rawCP.getRawOffset(), buf, offset, len);
+      int offset = reserveBuf(rawCP.getRawSize());
+      rawCP.copyRawBytes(buf, offset);
     }
 
     char[] chars = noChars;
@@ -877,12 +986,15 @@ public class ClassWriter implements ClassConstants {
           }
           s.getChars(0, slen, chars, 0);
 
-          int offset = reserveBuf(3);
+          int bytes = utf8Length(s);
+          if (bytes > 0xFFFF) {
+            throw new IllegalArgumentException("String too long: " + bytes + " bytes");
+          }
+          int offset = reserveBuf(3 + bytes);
           buf[offset] = CONSTANT_Utf8;
+          setUShort(buf, offset + 1, bytes);
 
-          int maxBytes = slen * 3;
-          int p = reserveBuf(maxBytes); // worst case reservation
-
+          int p = offset + 3;
           for (int j = 0; j < slen; j++) {
             char ch = chars[j];
             if (ch == 0) {
@@ -902,13 +1014,6 @@ public class ClassWriter implements ClassConstants {
               p += 3;
             }
           }
-          int bytes = p - (offset + 3);
-          reserveBuf(bytes - maxBytes); // negative reservation to push back buf
-          // size
-          if (bytes > 0xFFFF) {
-            throw new IllegalArgumentException("String too long: " + bytes + " bytes");
-          }
-          setUShort(buf, offset + 1, bytes);
         } else if (o instanceof Integer) {
           int offset = reserveBuf(5);
           buf[offset] = CONSTANT_Integer;
@@ -943,6 +1048,28 @@ public class ClassWriter implements ClassConstants {
       throw new IllegalArgumentException("No class name set");
     }
 
+    // Allocate the whole buffer at once, so that raw elements copied from a ClassReader are not copied again as it grows.
+    int size = 10 + (rawCP == null ? 0 : rawCP.getRawSize()) + 8 + (superInterfaces == null ? 0 : superInterfaces.length * 2) + 6;
+    if (forceAddCPEntries) {
+      // emitConstantPool will add entries we cannot predict; the buffer grows if this guess is short
+      size += newCPEntries.size() * 16;
+    } else {
+      // BE CAREFUL: the newCPEntries array grows during this loop.
+      for (int i = 0; i < newCPEntries.size(); i++) {
+        size += prepareNewCPEntry(newCPEntries.get(i));
+      }
+    }
+    for (Element e : fields) {
+      size += e.getSize();
+    }
+    for (Element e : methods) {
+      size += e.getSize();
+    }
+    for (Element e : classAttributes) {
+      size += e.getSize();
+    }
+    buf = new byte[size];
+
     reserveBuf(10);
     setInt(buf, 0, MAGIC);
     setUShort(buf, 4, minorVersion);
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ClassReader.AttrIterator;
 
@@ -87,7 +89,15 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
-  final private byte[] bytes;
+  /**
+   * the raw class file data, starting at index 0
+   */
+  final private ByteBuffer buffer;
+
+  /**
+   * the reader of the class, or null if this parser was built from the raw bytes alone
+   */
+  final private ClassReader reader;
 
   private int[] cpOffsets;
 
@@ -100,7 +110,7 @@ public final class ConstantPoolParser implements ClassConstants {
 
   private BootstrapMethodsReader getBootstrapReader() throws InvalidClassFileException {
     if (invokeDynamicBootstraps == null) { 
-      ClassReader thisClass = new ClassReader(bytes);
+      ClassReader thisClass = reader != null ? reader : new ClassReader(buffer.array());
       AttrIterator attrs = new AttrIterator();
       thisClass.initClassAttributeIterator(attrs);
       for (; attrs.isValid(); attrs.advance()) {
@@ -121,7 +131,16 @@ public final class ConstantPoolParser implements ClassConstants {
    * @param itemCount the number of items in the pool
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount) throws InvalidClassFileException {
-    this.bytes = bytes;
+    this(null, ByteBuffer.wrap(bytes), offset, itemCount);
+  }
+
+  /**
+   * @param reader the reader of the class whose constant pool this is
+   * @param buffer the raw class file data, as held by reader
+   */
+  ConstantPoolParser(ClassReader reader, ByteBuffer buffer, int offset, int itemCount) throws InvalidClassFileException {
+    this.reader = reader;
+    this.buffer = buffer;
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
     }
@@ -135,7 +154,16 @@ public final class ConstantPoolParser implements ClassConstants {
    * @return the buffer holding the raw class file data
    */
   public byte[] getRawBytes() {
-    return bytes;
+    return reader != null ? reader.getBytes() : buffer.array();
+  }
+
+  /**
+   * Copy the raw constant pool data, as located by {@link #getRawOffset()} and {@link #getRawSize()}, into dest at destOffset.
+   */
+  void copyRawBytes(byte[] dest, int destOffset) {
+    ByteBuffer b = buffer.duplicate();
+    b.position(getRawOffset());
+    b.get(dest, destOffset, getRawSize());
   }
 
   /**
@@ -166,9 +194,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (buffer.capacity() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (buffer.capacity() - offset));
     }
   }
 
@@ -560,7 +588,9 @@ public final class ConstantPoolParser implements ClassConstants {
     if (s == null) {
       int count = getUShort(offset + 1);
       int end = count + offset + 3;
-      StringBuffer buf = new StringBuffer(count);
+      // a string has no more characters than its encoding has bytes
+      char[] chars = new char[count];
+      int length = 0;
       offset += 3;
       while (offset < end) {
         byte x = getByte(offset);
@@ -568,7 +598,7 @@ public final class ConstantPoolParser implements ClassConstants {
           if (x == 0) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) x);
+          chars[length++] = (char) x;
           offset++;
         } else if ((x & 0xE0) == 0xC0) {
           if (offset + 1 >= end) {
@@ -578,7 +608,7 @@ public final class ConstantPoolParser implements ClassConstants {
           if ((y & 0xC0) != 0x80) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) (((x & 0x1F) << 6) + (y & 0x3F)));
+          chars[length++] = (char) (((x & 0x1F) << 6) + (y & 0x3F));
           offset += 2;
         } else if ((x & 0xF0) == 0xE0) {
           if (offset + 2 >= end) {
@@ -589,14 +619,14 @@ public final class ConstantPoolParser implements ClassConstants {
           if ((y & 0xC0) != 0x80 || (z & 0xC0) != 0x80) {
             throw invalidUtf8(i, offset);
           }
-          buf.append((char) (((x & 0x0F) << 12) + ((y & 0x3F) << 6) + (z & 0x3F)));
+          chars[length++] = (char) (((x & 0x0F) << 12) + ((y & 0x3F) << 6) + (z & 0x3F));
           offset += 3;
         } else {
           throw invalidUtf8(i, offset);
         }
       }
-      // s = buf.toString().intern(); // removed intern() call --MS
-      s = buf.toString();
+      // s = new String(chars, 0, length).intern(); // removed intern() call --MS
+      s = new String(chars, 0, length);
       cpItems[i] = s;
     }
     return s;
@@ -649,23 +679,19 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
-    return bytes[i];
+    return buffer.get(i);
   }
 
   private int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return buffer.getShort(i) & 0xFFFF;
   }
 
-  // private short getShort(int i) {
-  // return (short) ((bytes[i] << 8) + (bytes[i + 1] & 0xFF));
-  // }
-
   private int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return buffer.getInt(i);
   }
 
   private long getLong(int i) {
-    return ((long) getInt(i) << 32) + (getInt(i + 4) & 0xFFFFFFFFL);
+    return buffer.getLong(i);
   }
 
   private float getFloat(int i) {
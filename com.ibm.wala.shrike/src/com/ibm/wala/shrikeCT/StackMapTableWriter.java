@@ -63,6 +63,10 @@ public class StackMapTableWriter extends Element {
     this(writer, stackMapTable(method, output, cha, vars, reuseFrames));
   }
 
+  public StackMapTableWriter(ClassWriter writer, MethodData method, Output output, ClassHierarchyProvider cha, String[][] vars, List<StackMapFrame> reuseFrames, boolean verify) throws FailureException, IOException {
+    this(writer, stackMapTable(method, output, cha, vars, reuseFrames, verify));
+  }
+
   private static List<StackMapFrame> remapStackFrames(List<StackMapFrame> sm, int[] newBytecodesToOldBytecodes) {
     // mapping to new bytecode
     Map<Integer,Integer> oldToNew = HashMapFactory.make();
@@ -161,7 +165,7 @@ public class StackMapTableWriter extends Element {
   }
   
   private static String hackUnknown(String type) {
-    if (type == null) {
+    if (type == null || !type.endsWith("L?;")) {
       return type;
     } else if (type.startsWith("[")) {
       return "[" + hackUnknown(type.substring(1));
@@ -198,6 +202,15 @@ public class StackMapTableWriter extends Element {
   }
   
   public static List<StackMapFrame> stackMapTable(MethodData method, Output output, ClassHierarchyProvider cha, String[][] vars, List<StackMapFrame> reuseFrames) throws FailureException {
+    return stackMapTable(method, output, cha, vars, reuseFrames, true);
+  }
+
+  /**
+   * @param verify if true, the method is always type checked, so a {@link FailureException} is thrown for any invalid bytecode. If
+   *          false, it is only type checked once a frame is needed that cannot be taken from reuseFrames, so straight-line methods
+   *          and methods whose old frames all still apply are not analyzed, and invalid bytecode in them goes unreported.
+   */
+  public static List<StackMapFrame> stackMapTable(MethodData method, Output output, ClassHierarchyProvider cha, String[][] vars, List<StackMapFrame> reuseFrames, boolean verify) throws FailureException {
     int idx = 0;
     
     List<StackMapFrame> frames = new ArrayList<>();
@@ -209,7 +222,11 @@ public class StackMapTableWriter extends Element {
     if (cha != null) {
       typeChecker.setClassHierarchy(cha);
     }
-    typeChecker.computeTypes();
+    boolean typesComputed = false;
+    if (verify) {
+      typeChecker.computeTypes();
+      typesComputed = true;
+    }
     BitSet bbs = typeChecker.getBasicBlockStarts();
     
     int offset = 0;
@@ -236,6 +253,11 @@ public class StackMapTableWriter extends Element {
           } 
         } 
         
+        if (!typesComputed) {
+          typeChecker.computeTypes();
+          typesComputed = true;
+        }
+
         // full frame
         byte frameType = (byte)255;
 
@@ -10,9 +10,12 @@
  *******************************************************************************/
 package com.ibm.wala.fixpoint;
 
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.OffHeapBitVectorIntSet;
 
 /**
  * A variable for dataflow analysis, representing a set of integers.
@@ -22,6 +25,9 @@ import com.ibm.wala.util.intset.MutableIntSet;
 @SuppressWarnings("rawtypes")
 public abstract class IntSetVariable<T extends IntSetVariable<T>> extends AbstractVariable<T> {
 
+  /**
+   * the value of this variable; a {@link SharedIntSet} if it is shared with other variables, see {@link #share(IntSetVariable)}
+   */
   MutableIntSet V;
 
   @Override
@@ -30,12 +36,16 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       if (other.V == null) {
         return;
       } else {
-        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(unwrap(other.V));
         return;
       }
     } else {
       if (other.V != null) {
-        V.copySet(other.V);
+        if (isShared() && V.sameValue(other.V)) {
+          return;
+        }
+        unshare();
+        V.copySet(unwrap(other.V));
       }
     }
   }
@@ -46,10 +56,15 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    * @return true iff the value of this changes
    */
   public boolean addAll(IntSet B) {
+    B = unwrap(B);
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
       return (B.size() > 0);
     } else {
+      if (isShared() && B.isSubset(unwrap(V))) {
+        return false;
+      }
+      unshare();
       boolean result = V.addAll(B);
       return result;
     }
@@ -102,6 +117,11 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   public void add(int b) {
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().make();
+    } else if (isShared()) {
+      if (V.contains(b)) {
+        return;
+      }
+      unshare();
     }
     V.add(b);
   }
@@ -120,10 +140,11 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   /**
-   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty.
+   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty. If the value is shared with other
+   *         variables, the set returned is the one they share, and must not be changed.
    */
   public MutableIntSet getValue() {
-    return V;
+    return isShared() ? ((SharedIntSet) V).value : V;
   }
 
   /**
@@ -131,6 +152,10 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    */
   public void remove(int i) {
     if (V != null) {
+      if (isShared() && !V.contains(i)) {
+        return;
+      }
+      unshare();
       V.remove(i);
     }
   }
@@ -164,6 +189,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   }
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    other = unwrap(other);
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
@@ -172,6 +198,10 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       }
       return (V != null);
     } else {
+      if (isShared() && !addsAnyInIntersection(V, other, filter)) {
+        return false;
+      }
+      unshare();
       boolean result = V.addAllInIntersection(other, filter);
       return result;
     }
@@ -180,4 +210,192 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   public void removeAll() {
     V = null;
   }
+
+  /**
+   * Like {@link #removeAll()}, but for a variable that is dead: if the value holds storage that must be given back explicitly, give
+   * it back now. Sets previously obtained from {@link #getValue()} must not be used afterwards. A shared value is left alone, since
+   * other variables still use it.
+   */
+  public void release() {
+    if (V instanceof OffHeapBitVectorIntSet) {
+      ((OffHeapBitVectorIntSet) V).free();
+    }
+    V = null;
+  }
+
+  /**
+   * Make this variable share the value of other, which must be equal to the value of this variable. The shared set is never changed:
+   * a variable sharing it copies it before its own value next changes, and only if that value really changes. The old value of this
+   * variable is dropped, not released, so sets obtained from {@link #getValue()} before stay valid.
+   *
+   * @throws IllegalArgumentException if other is null or has an empty value
+   */
+  public void share(T other) {
+    if (other == null) {
+      throw new IllegalArgumentException("null other");
+    }
+    if (other.V == null) {
+      throw new IllegalArgumentException("nothing to share in " + other);
+    }
+    if (!other.isShared()) {
+      other.V = new SharedIntSet(other.V);
+    }
+    V = other.V;
+  }
+
+  /**
+   * @return true iff the value of this variable may be shared with other variables
+   */
+  public boolean isShared() {
+    return V instanceof SharedIntSet;
+  }
+
+  /**
+   * make sure V is private to this variable before changing it
+   */
+  private void unshare() {
+    if (isShared()) {
+      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(((SharedIntSet) V).value);
+    }
+  }
+
+  /**
+   * @return the set underlying s if s is shared, so that set implementations can use their fast paths on it
+   */
+  private static IntSet unwrap(IntSet s) {
+    return (s instanceof SharedIntSet) ? ((SharedIntSet) s).value : s;
+  }
+
+  /**
+   * @return true iff some element of other that is in filter is not in S
+   */
+  private static boolean addsAnyInIntersection(IntSet S, IntSet other, IntSet filter) {
+    for (IntIterator it = other.intIterator(); it.hasNext();) {
+      int i = it.next();
+      if (filter.contains(i) && !S.contains(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A set shared by several variables. The set it wraps is no longer changed by any variable, so all changes through this one are
+   * refused. It never leaves this class: {@link #getValue()} returns the set it wraps.
+   */
+  private static final class SharedIntSet implements MutableIntSet {
+
+    private static final long serialVersionUID = 2803515693851407522L;
+
+    private final MutableIntSet value;
+
+    SharedIntSet(MutableIntSet value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean contains(int i) {
+      return value.contains(i);
+    }
+
+    @Override
+    public boolean containsAny(IntSet set) {
+      return value.containsAny(unwrap(set));
+    }
+
+    @Override
+    public IntSet intersection(IntSet that) {
+      return value.intersection(unwrap(that));
+    }
+
+    @Override
+    public IntSet union(IntSet that) {
+      return value.union(unwrap(that));
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return value.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      return value.size();
+    }
+
+    @Override
+    public IntIterator intIterator() {
+      return value.intIterator();
+    }
+
+    @Override
+    public void foreach(IntSetAction action) {
+      value.foreach(action);
+    }
+
+    @Override
+    public void foreachExcluding(IntSet X, IntSetAction action) {
+      value.foreachExcluding(unwrap(X), action);
+    }
+
+    @Override
+    public int nextElement(int start) {
+      return value.nextElement(start);
+    }
+
+    @Override
+    public int max() {
+      return value.max();
+    }
+
+    @Override
+    public boolean sameValue(IntSet that) {
+      return value.sameValue(unwrap(that));
+    }
+
+    @Override
+    public boolean isSubset(IntSet that) {
+      return value.isSubset(unwrap(that));
+    }
+
+    @Override
+    public void copySet(IntSet set) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public boolean addAll(IntSet set) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public boolean add(int i) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public boolean remove(int i) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public void clear() {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public void intersectWith(IntSet set) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public boolean addAllInIntersection(IntSet other, IntSet filter) {
+      throw new UnsupportedOperationException("shared set");
+    }
+
+    @Override
+    public String toString() {
+      return value.toString();
+    }
+  }
 }
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from objects to ints, which does not box its values.
+ *
+ * Entries are kept densely in insertion order, and found through an open-addressing table of entry numbers. So, iteration is in
+ * insertion order, like the {@link java.util.LinkedHashMap}s made by {@link HashMapFactory}, as long as no entries are removed;
+ * removing an entry moves the last entry into its place. Null keys are allowed.
+ */
+public class ObjectIntHashMap<K> implements Serializable {
+
+  private static final long serialVersionUID = 5170329467916446254L;
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private Object[] keys;
+
+  private int[] values;
+
+  private int size = 0;
+
+  /**
+   * open-addressing table; each slot holds 1 + the number of an entry, or 0 if free. Kept at most half full.
+   */
+  private int[] table;
+
+  public ObjectIntHashMap() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public ObjectIntHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("invalid expectedSize: " + expectedSize);
+    }
+    int capacity = Math.max(INITIAL_CAPACITY, expectedSize);
+    keys = new Object[capacity];
+    values = new int[capacity];
+    table = new int[tableSizeFor(capacity)];
+  }
+
+  public ObjectIntHashMap(ObjectIntHashMap<K> other) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    keys = other.keys.clone();
+    values = other.values.clone();
+    table = other.table.clone();
+    size = other.size;
+  }
+
+  private static int tableSizeFor(int capacity) {
+    return Integer.highestOneBit(Math.max(2, capacity) - 1) << 2;
+  }
+
+  private static int hash(Object key) {
+    int h = (key == null) ? 0 : key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean same(Object a, Object b) {
+    return a == b || (a != null && a.equals(b));
+  }
+
+  /**
+   * @return the slot in table for key, or the free slot where it would go
+   */
+  private int slot(Object key) {
+    int mask = table.length - 1;
+    for (int s = hash(key) & mask;; s = (s + 1) & mask) {
+      int e = table[s];
+      if (e == 0 || same(keys[e - 1], key)) {
+        return s;
+      }
+    }
+  }
+
+  /**
+   * @return the slot in table holding entry number e
+   */
+  private int slotOfEntry(int e) {
+    int mask = table.length - 1;
+    int s = hash(keys[e]) & mask;
+    while (table[s] != e + 1) {
+      s = (s + 1) & mask;
+    }
+    return s;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(Object key) {
+    return table[slot(key)] != 0;
+  }
+
+  /**
+   * @return the value mapped to key, or defaultValue if there is none
+   */
+  public int get(Object key, int defaultValue) {
+    int e = table[slot(key)];
+    return (e == 0) ? defaultValue : values[e - 1];
+  }
+
+  /**
+   * map key to value, replacing any previous value
+   */
+  public void put(K key, int value) {
+    int s = slot(key);
+    int e = table[s];
+    if (e != 0) {
+      values[e - 1] = value;
+      return;
+    }
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * size);
+      values = Arrays.copyOf(values, 2 * size);
+    }
+    keys[size] = key;
+    values[size] = value;
+    size++;
+    if (2 * size > table.length) {
+      rehash(tableSizeFor(keys.length));
+    } else {
+      table[s] = size;
+    }
+  }
+
+  /**
+   * @return true iff key was mapped
+   */
+  public boolean remove(Object key) {
+    int s = slot(key);
+    int e = table[s];
+    if (e == 0) {
+      return false;
+    }
+    deleteSlot(s);
+    int last = size - 1;
+    if (e - 1 != last) {
+      // move the last entry into the hole
+      table[slotOfEntry(last)] = e;
+      keys[e - 1] = keys[last];
+      values[e - 1] = values[last];
+    }
+    keys[last] = null;
+    size--;
+    return true;
+  }
+
+  /**
+   * free slot s, shifting back later entries of its probe sequence
+   */
+  private void deleteSlot(int s) {
+    int mask = table.length - 1;
+    int hole = s;
+    for (int t = (s + 1) & mask; table[t] != 0; t = (t + 1) & mask) {
+      int ideal = hash(keys[table[t] - 1]) & mask;
+      boolean canMove = (hole <= t) ? (ideal <= hole || ideal > t) : (ideal <= hole && ideal > t);
+      if (canMove) {
+        table[hole] = table[t];
+        hole = t;
+      }
+    }
+    table[hole] = 0;
+  }
+
+  private void rehash(int tableSize) {
+    table = new int[tableSize];
+    int mask = tableSize - 1;
+    for (int e = 0; e < size; e++) {
+      int s = hash(keys[e]) & mask;
+      while (table[s] != 0) {
+        s = (s + 1) & mask;
+      }
+      table[s] = e + 1;
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0, size, null);
+    Arrays.fill(table, 0);
+    size = 0;
+  }
+
+  /**
+   * @return an iterator over the keys of this map; the map must not change during iteration
+   */
+  public Iterator<K> keyIterator() {
+    return new Iterator<K>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public K next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        return (K) keys[next++];
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int e = 0; e < size; e++) {
+      if (e > 0) {
+        result.append(", ");
+      }
+      result.append(keys[e]).append('=').append(values[e]);
+    }
+    result.append('}');
+    return result.toString();
+  }
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.FilterIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Computes, for each graph node, the set of "interesting" nodes that are reachable, like {@link GraphReachability}, but without
+ * iterating to a fixed point.
+ *
+ * Strongly connected components are found with an iterative version of Tarjan's algorithm, which completes each component after
+ * every component reachable from it. The reachable set of a component is then the union of its own interesting nodes and the
+ * sets of its successor components. All nodes of a component share one set, a component that adds nothing to the set of one of
+ * its successors shares that set, and sets built from scratch are interned, so identical results are stored once.
+ */
+public class SCCReachability<T, S> {
+
+  private static final int SOLVE_PROGRESS_INTERVAL = 1024;
+
+  /**
+   * Governing graph
+   */
+  private final Graph<T> g;
+
+  /**
+   * set of "interesting" nodes
+   */
+  private final OrdinalSetMapping<S> domain;
+
+  /**
+   * dense numbering of the nodes of g, valid after solve()
+   */
+  private Map<Object, Integer> nodeIndex;
+
+  /**
+   * for each node, the index of its strongly connected component
+   */
+  private int[] component;
+
+  /**
+   * for each component, the set of interesting nodes reachable from it
+   */
+  private IntSet[] reachable;
+
+  /**
+   * @param g graph to analyze
+   * @param filter "interesting" node definition
+   * @throws IllegalArgumentException if g is null
+   */
+  public SCCReachability(Graph<T> g, Predicate<? super T> filter) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    this.g = g;
+    Iterator<T> i = new FilterIterator<>(g.iterator(), filter);
+    domain = new MutableMapping<>((Iterator2Collection.toSet(i)).toArray());
+  }
+
+  /**
+   * @return the set of interesting nodes reachable from n, or the empty set if n is not a node of the graph
+   */
+  public OrdinalSet<S> getReachableSet(Object n) throws IllegalStateException {
+    if (nodeIndex == null) {
+      throw new IllegalStateException("must call solve() before calling getReachableSet()");
+    }
+    Integer i = nodeIndex.get(n);
+    if (i == null) {
+      return OrdinalSet.empty();
+    }
+    IntSet s = reachable[component[i]];
+    if (s.isEmpty()) {
+      return OrdinalSet.empty();
+    } else {
+      return new OrdinalSet<>(s, domain);
+    }
+  }
+
+  /**
+   * @return the number of strongly connected components of the graph, valid after solve()
+   */
+  public int getComponentCount() {
+    if (reachable == null) {
+      throw new IllegalStateException("must call solve() before calling getComponentCount()");
+    }
+    return reachable.length;
+  }
+
+  public void solve(IProgressMonitor monitor) throws CancelException {
+    List<T> nodes = new ArrayList<>();
+    Map<Object, Integer> index = HashMapFactory.make();
+    for (T n : g) {
+      index.put(n, nodes.size());
+      nodes.add(n);
+    }
+
+    int size = nodes.size();
+    int[] dfsNumber = new int[size];
+    int[] lowLink = new int[size];
+    int[] comp = new int[size];
+    Arrays.fill(dfsNumber, -1);
+    Arrays.fill(comp, -1);
+
+    // nodes visited but not yet assigned to a component, in visiting order
+    int[] sccStack = new int[size];
+    int sccTop = 0;
+
+    // the explicit DFS stack, with the successors left to visit for each node on it
+    int[] dfsStack = new int[size];
+    List<Iterator<T>> dfsSuccs = new ArrayList<>();
+    int dfsTop = 0;
+
+    int[] lastSeen = new int[size];
+    Arrays.fill(lastSeen, -1);
+    List<IntSet> sets = new ArrayList<>();
+    Interner interner = new Interner();
+
+    int counter = 0;
+    for (int root = 0; root < size; root++) {
+      if (dfsNumber[root] != -1) {
+        continue;
+      }
+
+      dfsNumber[root] = lowLink[root] = counter++;
+      sccStack[sccTop++] = root;
+      dfsStack[dfsTop++] = root;
+      dfsSuccs.add(g.getSuccNodes(nodes.get(root)));
+
+      while (dfsTop > 0) {
+        int v = dfsStack[dfsTop - 1];
+        Iterator<T> succs = dfsSuccs.get(dfsTop - 1);
+        if (succs.hasNext()) {
+          int w = index.get(succs.next());
+          if (dfsNumber[w] == -1) {
+            dfsNumber[w] = lowLink[w] = counter++;
+            sccStack[sccTop++] = w;
+            dfsStack[dfsTop++] = w;
+            dfsSuccs.add(g.getSuccNodes(nodes.get(w)));
+          } else if (comp[w] == -1) {
+            lowLink[v] = Math.min(lowLink[v], dfsNumber[w]);
+          }
+        } else {
+          dfsSuccs.remove(--dfsTop);
+          if (dfsTop > 0) {
+            int u = dfsStack[dfsTop - 1];
+            lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+          }
+
+          if (lowLink[v] == dfsNumber[v]) {
+            int c = sets.size();
+            int bottom = sccTop;
+            do {
+              comp[sccStack[--bottom]] = c;
+            } while (sccStack[bottom] != v);
+
+            sets.add(union(nodes, index, comp, sets, lastSeen, c, sccStack, bottom, sccTop, interner));
+            sccTop = bottom;
+
+            if (c % SOLVE_PROGRESS_INTERVAL == 0) {
+              MonitorUtil.throwExceptionIfCanceled(monitor);
+            }
+          }
+        }
+      }
+    }
+
+    nodeIndex = index;
+    component = comp;
+    reachable = sets.toArray(new IntSet[sets.size()]);
+  }
+
+  /**
+   * compute the reachable set of component c, whose members are sccStack[from..to), given the sets of all components it reaches
+   */
+  private IntSet union(List<T> nodes, Map<Object, Integer> index, int[] comp, List<IntSet> sets, int[] lastSeen, int c,
+      int[] sccStack, int from, int to, Interner interner) {
+    IntSet result = EmptyIntSet.instance;
+    MutableIntSet copy = null;
+
+    List<IntSet> succSets = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      for (Iterator<T> succs = g.getSuccNodes(nodes.get(sccStack[i])); succs.hasNext();) {
+        int sc = comp[index.get(succs.next())];
+        if (sc != c && lastSeen[sc] != c) {
+          lastSeen[sc] = c;
+          IntSet s = sets.get(sc);
+          if (!s.isEmpty()) {
+            succSets.add(s);
+            if (s.size() > result.size()) {
+              result = s;
+            }
+          }
+        }
+      }
+    }
+
+    for (IntSet s : succSets) {
+      if (s != result && !s.isSubset(result)) {
+        if (copy == null) {
+          copy = interner.factory.makeCopy(result);
+          result = copy;
+        }
+        copy.addAll(s);
+      }
+    }
+
+    for (int i = from; i < to; i++) {
+      int d = domain.getMappedIndex(nodes.get(sccStack[i]));
+      if (d > -1 && !result.contains(d)) {
+        if (copy == null) {
+          copy = interner.factory.makeCopy(result);
+          result = copy;
+        }
+        copy.add(d);
+      }
+    }
+
+    return copy == null ? result : interner.intern(copy);
+  }
+
+  /**
+   * canonical copies of the sets built during solve()
+   */
+  private static class Interner {
+    private final MutableIntSetFactory<?> factory = IntSetUtil.getDefaultIntSetFactory();
+
+    private final Map<Integer, List<IntSet>> sets = HashMapFactory.make();
+
+    IntSet intern(IntSet s) {
+      int hash = s.size();
+      for (IntIterator it = s.intIterator(); it.hasNext();) {
+        hash = 31 * hash + it.next();
+      }
+      List<IntSet> bucket = sets.get(hash);
+      if (bucket == null) {
+        bucket = new ArrayList<>(1);
+        sets.put(hash, bucket);
+      }
+      for (IntSet t : bucket) {
+        if (t.sameValue(s)) {
+          return t;
+        }
+      }
+      bucket.add(s);
+      return s;
+    }
+  }
+}
@@ -300,6 +300,14 @@ public class BimodalMutableIntSet implements MutableIntSet {
     return impl.sameValue(that);
   }
 
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    return impl.nextElement(start);
+  }
+
   /*
    * @see com.ibm.wala.util.intset.IntSet#isSubset(com.ibm.wala.util.intset.SparseIntSet)
    */
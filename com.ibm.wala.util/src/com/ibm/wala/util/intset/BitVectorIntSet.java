@@ -391,6 +391,14 @@ public final class BitVectorIntSet implements MutableIntSet {
     return true;
   }
 
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    return bitVector.nextSetBit(Math.max(0, start));
+  }
+
   /*
    * @see com.ibm.wala.util.intset.IntSet#isSubset(com.ibm.wala.util.intset.IntSet)
    */
@@ -186,6 +186,14 @@ class DebuggingMutableIntSet implements MutableIntSet {
     }
   }
 
+  @Override
+  public int nextElement(int start) {
+    int i = primaryImpl.nextElement(start);
+    int j = secondaryImpl.nextElement(start);
+    assert i == j;
+    return i;
+  }
+
   /**
    * @return true iff <code>this</code> is a subset of <code>that</code>.
    */
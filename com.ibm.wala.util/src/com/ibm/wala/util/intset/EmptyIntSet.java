@@ -87,6 +87,11 @@ public class EmptyIntSet implements IntSet {
 		return that.isEmpty();
 	}
 
+	@Override
+	public int nextElement(int start) {
+		return -1;
+	}
+
 	@Override
 	public boolean isSubset(IntSet that) {
 		return true;
@@ -66,6 +66,27 @@ public interface IntSet extends Serializable {
    */
   public void foreachExcluding(IntSet X, IntSetAction action);
 
+  /**
+   * Each call is an independent lookup: a sparse set binary-searches, and the default implementation walks
+   * {@link #intIterator()}, taking time linear in the size of this set. To visit every element, use {@link #foreach(IntSetAction)}
+   * or {@link #intIterator()} instead of a loop over this method.
+   * 
+   * @return the least element of this set that is &gt;= start, or -1 if there is none
+   */
+  public default int nextElement(int start) {
+    int result = -1;
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      int i = it.next();
+      if (i >= start && (result == -1 || i < result)) {
+        result = i;
+        if (i == start) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * @return maximum integer in this set.
    */
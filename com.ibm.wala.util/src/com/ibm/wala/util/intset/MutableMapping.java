@@ -11,12 +11,11 @@
 package com.ibm.wala.util.intset;
 
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 
 /**
  * A bit set mapping based on an object array. This is not terribly efficient, but is useful for prototyping.
@@ -38,9 +37,9 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
   private int nextIndex = 0;
 
   /**
-   * A mapping from object to Integer.
+   * A mapping from object to index.
    */
-  final HashMap<T, Integer> map = HashMapFactory.make();
+  final ObjectIntHashMap<T> map = new ObjectIntHashMap<>();
 
   /**
    * @throws IllegalArgumentException if array is null
@@ -53,7 +52,7 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
     this.array = new Object[2 * array.length];
     for (int i = 0; i < array.length; i++) {
       this.array[i] = array[i];
-      map.put((T) array[i], Integer.valueOf(i));
+      map.put((T) array[i], i);
     }
     nextIndex = array.length;
   }
@@ -75,18 +74,12 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
 
   @Override
   public int getMappedIndex(Object o) {
-    Integer I = map.get(o);
-    if (I == null) {
-      return -1;
-    } else {
-      return I.intValue();
-    }
-
+    return map.get(o, -1);
   }
 
   @Override
   public boolean hasMappedIndex(T o) {
-    return map.get(o) != null;
+    return map.containsKey(o);
   }
 
   /**
@@ -96,9 +89,9 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
    */
   @Override
   public int add(T o) {
-    Integer I = map.get(o);
-    if (I != null) {
-      return I.intValue();
+    int i = map.get(o, -1);
+    if (i != -1) {
+      return i;
     }
     map.put(o, nextIndex);
     if (nextIndex >= array.length) {
@@ -125,7 +118,7 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
    */
   @Override
   public Iterator<T> iterator() {
-    return map.keySet().iterator();
+    return map.keyIterator();
   }
 
   /*
@@ -147,7 +140,22 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
   }
 
   public Collection<T> getObjects() {
-    return Collections.unmodifiableCollection(map.keySet());
+    return new AbstractCollection<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        return map.keyIterator();
+      }
+
+      @Override
+      public int size() {
+        return map.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return map.containsKey(o);
+      }
+    };
   }
 
   /**
@@ -171,8 +179,7 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
     if (i < 0 || i > MAX_SIZE) {
       throw new IllegalArgumentException("invalid i: " + i);
     }
-    Integer I = Integer.valueOf(i);
-    map.put(o, I);
+    map.put(o, i);
     if (i >= array.length) {
       Object[] old = array;
       array = new Object[2 * i];
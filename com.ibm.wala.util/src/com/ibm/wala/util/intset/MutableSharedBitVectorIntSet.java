@@ -470,6 +470,20 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     }
   }
 
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    int p = (privatePart == null) ? -1 : privatePart.nextElement(start);
+    int s = (sharedPart == null) ? -1 : sharedPart.nextElement(start);
+    if (p == -1) {
+      return s;
+    } else {
+      return (s == -1 || p < s) ? p : s;
+    }
+  }
+
   /*
    * @see com.ibm.wala.util.intset.IntSet#isSubset(com.ibm.wala.util.intset.IntSet)
    */
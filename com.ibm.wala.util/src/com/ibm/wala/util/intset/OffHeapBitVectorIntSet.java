@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.nio.IntBuffer;
+
+/**
+ * A bit vector implementation of {@link MutableIntSet} whose words live outside the Java heap, in storage managed by an
+ * {@link OffHeapBitVectorIntSetFactory}.
+ *
+ * Note that this is NOT a value with regard to hashCode and equals.
+ */
+public final class OffHeapBitVectorIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -2496158366101932012L;
+
+  private final static int LOG_BITS_PER_UNIT = 5;
+
+  private final static int BITS_PER_UNIT = 32;
+
+  private final static int LOW_MASK = 0x1f;
+
+  // population count of -1 means needs to be computed again.
+  private int populationCount = 0;
+
+  private static final int UNDEFINED = -1;
+
+  private final transient OffHeapBitVectorIntSetFactory factory;
+
+  /**
+   * the storage for the bits of this set, or null if this set has no storage yet
+   */
+  private transient OffHeapBitVectorIntSetFactory.Block block;
+
+  private transient IntBuffer words;
+
+  private int base;
+
+  /**
+   * number of words of storage
+   */
+  private int length = 0;
+
+  OffHeapBitVectorIntSet(OffHeapBitVectorIntSetFactory factory) {
+    this.factory = factory;
+  }
+
+  OffHeapBitVectorIntSetFactory getFactory() {
+    return factory;
+  }
+
+  private int word(int i) {
+    return words.get(base + i);
+  }
+
+  private void setWord(int i, int value) {
+    words.put(base + i, value);
+  }
+
+  /**
+   * make sure this set has storage for at least nWords words
+   */
+  private void ensureCapacity(int nWords) {
+    if (nWords <= length) {
+      return;
+    }
+    OffHeapBitVectorIntSetFactory.Block b = factory.allocate(this, nWords);
+    IntBuffer w = factory.getSlab(b);
+    for (int i = 0; i < length; i++) {
+      w.put(b.offset + i, word(i));
+    }
+    if (block != null) {
+      factory.release(block);
+    }
+    block = b;
+    words = w;
+    base = b.offset;
+    length = b.length();
+  }
+
+  /**
+   * @return number of words up to and including the last non-zero word
+   */
+  private int usedLength() {
+    int n = length;
+    while (n > 0 && word(n - 1) == 0) {
+      n--;
+    }
+    return n;
+  }
+
+  /**
+   * Empty this set and give its storage back to the factory. Unlike {@link #clear()}, this is meant for sets that are dead; any
+   * set obtained from this one by sharing, e.g. a view, must not be used afterwards.
+   */
+  public void free() {
+    if (block != null) {
+      factory.release(block);
+      block = null;
+      words = null;
+      base = 0;
+      length = 0;
+    }
+    populationCount = 0;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#clear()
+   */
+  @Override
+  public void clear() {
+    for (int i = 0; i < length; i++) {
+      setWord(i, 0);
+    }
+    populationCount = 0;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#copySet(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public void copySet(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    clear();
+    if (set instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) set;
+      int n = S.usedLength();
+      ensureCapacity(n);
+      for (int i = 0; i < n; i++) {
+        setWord(i, S.word(i));
+      }
+      populationCount = S.populationCount;
+    } else {
+      addAll(set);
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#addAll(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public boolean addAll(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) set;
+      int n = S.usedLength();
+      ensureCapacity(n);
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        int old = word(i);
+        int w = old | S.word(i);
+        if (w != old) {
+          setWord(i, w);
+          changed = true;
+        }
+      }
+      if (changed) {
+        populationCount = UNDEFINED;
+      }
+      return changed;
+    } else {
+      ensureCapacity((set.max() >> LOG_BITS_PER_UNIT) + 1);
+      boolean changed = false;
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        changed |= add(it.next());
+      }
+      return changed;
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#add(int)
+   */
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    int w = i >> LOG_BITS_PER_UNIT;
+    ensureCapacity(w + 1);
+    int old = word(w);
+    int updated = old | (1 << (i & LOW_MASK));
+    if (updated == old) {
+      return false;
+    }
+    setWord(w, updated);
+    if (populationCount != UNDEFINED) {
+      populationCount++;
+    }
+    return true;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#remove(int)
+   */
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    int w = i >> LOG_BITS_PER_UNIT;
+    if (w >= length) {
+      return false;
+    }
+    int old = word(w);
+    int updated = old & ~(1 << (i & LOW_MASK));
+    if (updated == old) {
+      return false;
+    }
+    setWord(w, updated);
+    if (populationCount != UNDEFINED) {
+      populationCount--;
+    }
+    return true;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#intersectWith(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) set;
+      for (int i = 0; i < length; i++) {
+        setWord(i, i < S.length ? word(i) & S.word(i) : 0);
+      }
+      populationCount = UNDEFINED;
+    } else {
+      for (int i = nextElement(0); i != -1; i = nextElement(i + 1)) {
+        if (!set.contains(i)) {
+          remove(i);
+        }
+      }
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSet#addAllInIntersection(com.ibm.wala.util.intset.IntSet,
+   * com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof OffHeapBitVectorIntSet && filter instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet O = (OffHeapBitVectorIntSet) other;
+      OffHeapBitVectorIntSet F = (OffHeapBitVectorIntSet) filter;
+      int n = Math.min(O.usedLength(), F.length);
+      ensureCapacity(n);
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        int old = word(i);
+        int w = old | (O.word(i) & F.word(i));
+        if (w != old) {
+          setWord(i, w);
+          changed = true;
+        }
+      }
+      if (changed) {
+        populationCount = UNDEFINED;
+      }
+      return changed;
+    } else {
+      boolean changed = false;
+      for (IntIterator it = other.intIterator(); it.hasNext();) {
+        int i = it.next();
+        if (filter.contains(i)) {
+          changed |= add(i);
+        }
+      }
+      return changed;
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#contains(int)
+   */
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    int w = i >> LOG_BITS_PER_UNIT;
+    return w < length && (word(w) & (1 << (i & LOW_MASK))) != 0;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#containsAny(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) set;
+      int n = Math.min(length, S.length);
+      for (int i = 0; i < n; i++) {
+        if ((word(i) & S.word(i)) != 0) {
+          return true;
+        }
+      }
+      return false;
+    } else {
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#intersection(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public IntSet intersection(IntSet that) {
+    OffHeapBitVectorIntSet result = factory.makeCopy(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#union(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public IntSet union(IntSet that) {
+    OffHeapBitVectorIntSet result = factory.makeCopy(this);
+    result.addAll(that);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#isEmpty()
+   */
+  @Override
+  public boolean isEmpty() {
+    if (populationCount != UNDEFINED) {
+      return populationCount == 0;
+    }
+    return usedLength() == 0;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#size()
+   */
+  @Override
+  public int size() {
+    if (populationCount == UNDEFINED) {
+      int count = 0;
+      for (int i = 0; i < length; i++) {
+        count += Integer.bitCount(word(i));
+      }
+      populationCount = count;
+    }
+    return populationCount;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    if (start < 0) {
+      start = 0;
+    }
+    int w = start >> LOG_BITS_PER_UNIT;
+    if (w >= length) {
+      return -1;
+    }
+    int bits = word(w) & (-1 << (start & LOW_MASK));
+    while (bits == 0) {
+      if (++w >= length) {
+        return -1;
+      }
+      bits = word(w);
+    }
+    return (w << LOG_BITS_PER_UNIT) + Integer.numberOfTrailingZeros(bits);
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#intIterator()
+   */
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      int next = nextElement(0);
+
+      @Override
+      public boolean hasNext() {
+        return next != -1;
+      }
+
+      @Override
+      public int next() {
+        int result = next;
+        next = nextElement(next + 1);
+        return result;
+      }
+    };
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#foreach(com.ibm.wala.util.intset.IntSetAction)
+   */
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = nextElement(0); i != -1; i = nextElement(i + 1)) {
+      action.act(i);
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#foreachExcluding(com.ibm.wala.util.intset.IntSet,
+   * com.ibm.wala.util.intset.IntSetAction)
+   */
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = nextElement(0); i != -1; i = nextElement(i + 1)) {
+      if (!X.contains(i)) {
+        action.act(i);
+      }
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#max()
+   */
+  @Override
+  public int max() {
+    int n = usedLength();
+    if (n == 0) {
+      return -1;
+    }
+    return (n - 1) * BITS_PER_UNIT + (BITS_PER_UNIT - 1 - Integer.numberOfLeadingZeros(word(n - 1)));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#sameValue(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) that;
+      int n = Math.max(length, S.length);
+      for (int i = 0; i < n; i++) {
+        int a = i < length ? word(i) : 0;
+        int b = i < S.length ? S.word(i) : 0;
+        if (a != b) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return size() == that.size() && isSubset(that);
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#isSubset(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof OffHeapBitVectorIntSet) {
+      OffHeapBitVectorIntSet S = (OffHeapBitVectorIntSet) that;
+      for (int i = 0; i < length; i++) {
+        int b = i < S.length ? S.word(i) : 0;
+        if ((word(i) & ~b) != 0) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      for (int i = nextElement(0); i != -1; i = nextElement(i + 1)) {
+        if (!that.contains(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    boolean needSeparator = false;
+    buffer.append('{');
+    for (int i = nextElement(0); i != -1; i = nextElement(i + 1)) {
+      if (needSeparator) {
+        buffer.append(", ");
+      } else {
+        needSeparator = true;
+      }
+      buffer.append(i);
+    }
+    buffer.append('}');
+    return buffer.toString();
+  }
+
+  /**
+   * The words of this set are not on the heap, so serialize an on-heap copy instead.
+   */
+  private Object writeReplace() {
+    return new BitVectorIntSet(this);
+  }
+}
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+/**
+ * A {@link MutableIntSetFactory} whose sets keep their bits outside the Java heap.
+ *
+ * The bits of every set made by this factory live in a few large direct buffers ("slabs"), carved into blocks of power-of-two
+ * words; so, the garbage collector sees a handful of slabs rather than one word array per set. Blocks are recycled when a client
+ * calls {@link OffHeapBitVectorIntSet#free()} on a set it knows to be dead, or, failing that, once the set itself has been
+ * collected. {@link #dispose()} drops all slabs at once.
+ *
+ * To use this for points-to sets, install it with {@link IntSetUtil#setDefaultIntSetFactory(MutableIntSetFactory)} before building
+ * the call graph, and dispose of it once the pointer analysis is no longer needed. Note that direct buffers count against the JVM's
+ * -XX:MaxDirectMemorySize.
+ *
+ * Like the other sets in this package, this is not thread-safe.
+ */
+public class OffHeapBitVectorIntSetFactory implements MutableIntSetFactory<OffHeapBitVectorIntSet> {
+
+  /**
+   * number of words in a shared slab; larger blocks get a slab of their own
+   */
+  private final static int SLAB_WORDS = 1 << 18;
+
+  /**
+   * log of the number of words in the smallest block
+   */
+  private final static int MIN_LOG_WORDS = 1;
+
+  /**
+   * A block of words in some slab. The block is phantom-reachable from the set that owns it, so that we learn when the set has been
+   * collected without having been freed.
+   */
+  final static class Block extends PhantomReference<OffHeapBitVectorIntSet> {
+    final int slab;
+
+    final int offset;
+
+    final int logWords;
+
+    /**
+     * links in the list of live blocks, which keeps the blocks themselves reachable until they are freed
+     */
+    Block prev, next;
+
+    Block(OffHeapBitVectorIntSet owner, ReferenceQueue<OffHeapBitVectorIntSet> queue, int slab, int offset, int logWords) {
+      super(owner, queue);
+      this.slab = slab;
+      this.offset = offset;
+      this.logWords = logWords;
+    }
+
+    int length() {
+      return 1 << logWords;
+    }
+  }
+
+  private final ArrayList<IntBuffer> slabs = new ArrayList<>();
+
+  /**
+   * index of the shared slab blocks are currently carved out of, or -1 if none
+   */
+  private int currentSlab = -1;
+
+  /**
+   * next free word in the current slab
+   */
+  private int top = SLAB_WORDS;
+
+  /**
+   * freeLists[k] is a stack of (slab, offset) pairs of free blocks of 2^k words, packed into longs
+   */
+  private final long[][] freeLists = new long[32][];
+
+  private final int[] freeCounts = new int[32];
+
+  private final ReferenceQueue<OffHeapBitVectorIntSet> collected = new ReferenceQueue<>();
+
+  /**
+   * head of the list of live blocks
+   */
+  private Block live;
+
+  private boolean disposed = false;
+
+  /**
+   * @param set
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public OffHeapBitVectorIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    OffHeapBitVectorIntSet result = new OffHeapBitVectorIntSet(this);
+    for (int element : set) {
+      result.add(element);
+    }
+    return result;
+  }
+
+  /**
+   * @param string
+   */
+  @Override
+  public OffHeapBitVectorIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#makeCopy(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public OffHeapBitVectorIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    OffHeapBitVectorIntSet result = new OffHeapBitVectorIntSet(this);
+    result.copySet(x);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make()
+   */
+  @Override
+  public OffHeapBitVectorIntSet make() {
+    return new OffHeapBitVectorIntSet(this);
+  }
+
+  /**
+   * Release all storage held by this factory. Sets made by this factory must not be used afterwards. The memory of a direct buffer
+   * is returned to the system when the buffer itself is collected.
+   */
+  public void dispose() {
+    slabs.clear();
+    for (int k = 0; k < freeLists.length; k++) {
+      freeLists[k] = null;
+      freeCounts[k] = 0;
+    }
+    for (Block b = live; b != null; b = b.next) {
+      b.clear();
+    }
+    live = null;
+    currentSlab = -1;
+    top = SLAB_WORDS;
+    disposed = true;
+  }
+
+  /**
+   * @return number of words currently held in slabs, whether in use or free
+   */
+  public long getReservedWords() {
+    long result = 0;
+    for (IntBuffer slab : slabs) {
+      result += slab.capacity();
+    }
+    return result;
+  }
+
+  IntBuffer getSlab(Block b) {
+    return slabs.get(b.slab);
+  }
+
+  /**
+   * Allocate a zeroed block of at least nWords words for a set.
+   */
+  Block allocate(OffHeapBitVectorIntSet owner, int nWords) {
+    if (disposed) {
+      throw new IllegalStateException("factory has been disposed");
+    }
+    reclaimCollected();
+    int logWords = Math.max(MIN_LOG_WORDS, 32 - Integer.numberOfLeadingZeros(nWords - 1));
+    int length = 1 << logWords;
+    int slab;
+    int offset;
+    if (freeCounts[logWords] > 0) {
+      long address = freeLists[logWords][--freeCounts[logWords]];
+      slab = (int) (address >>> 32);
+      offset = (int) address;
+      IntBuffer buffer = slabs.get(slab);
+      for (int i = 0; i < length; i++) {
+        buffer.put(offset + i, 0);
+      }
+    } else if (length > SLAB_WORDS) {
+      slab = newSlab(length);
+      offset = 0;
+    } else {
+      if (top + length > SLAB_WORDS) {
+        retireCurrentSlab();
+        currentSlab = newSlab(SLAB_WORDS);
+        top = 0;
+      }
+      slab = currentSlab;
+      offset = top;
+      top += length;
+    }
+    Block b = new Block(owner, collected, slab, offset, logWords);
+    b.next = live;
+    if (live != null) {
+      live.prev = b;
+    }
+    live = b;
+    return b;
+  }
+
+  /**
+   * Return a block to the free lists.
+   */
+  void release(Block b) {
+    if (disposed) {
+      return;
+    }
+    b.clear();
+    if (b.prev != null) {
+      b.prev.next = b.next;
+    } else {
+      live = b.next;
+    }
+    if (b.next != null) {
+      b.next.prev = b.prev;
+    }
+    b.prev = b.next = null;
+    pushFree(b.slab, b.offset, b.logWords);
+  }
+
+  /**
+   * Recycle the blocks of sets that were collected without having been freed.
+   */
+  private void reclaimCollected() {
+    for (Reference<? extends OffHeapBitVectorIntSet> r = collected.poll(); r != null; r = collected.poll()) {
+      release((Block) r);
+    }
+  }
+
+  private int newSlab(int nWords) {
+    slabs.add(ByteBuffer.allocateDirect(nWords * 4).order(ByteOrder.nativeOrder()).asIntBuffer());
+    return slabs.size() - 1;
+  }
+
+  /**
+   * Put the unused tail of the current slab on the free lists, as blocks of decreasing power-of-two size.
+   */
+  private void retireCurrentSlab() {
+    if (currentSlab == -1) {
+      return;
+    }
+    int remaining = SLAB_WORDS - top;
+    while (remaining >= (1 << MIN_LOG_WORDS)) {
+      int logWords = 31 - Integer.numberOfLeadingZeros(remaining);
+      pushFree(currentSlab, top, logWords);
+      top += 1 << logWords;
+      remaining -= 1 << logWords;
+    }
+  }
+
+  private void pushFree(int slab, int offset, int logWords) {
+    long[] stack = freeLists[logWords];
+    if (stack == null) {
+      stack = freeLists[logWords] = new long[16];
+    } else if (freeCounts[logWords] == stack.length) {
+      long[] bigger = new long[stack.length * 2];
+      System.arraycopy(stack, 0, bigger, 0, stack.length);
+      stack = freeLists[logWords] = bigger;
+    }
+    stack[freeCounts[logWords]++] = ((long) slab << 32) | (offset & 0xffffffffL);
+  }
+}
@@ -429,6 +429,20 @@ public class SemiSparseMutableIntSet implements MutableIntSet {
     return true;
   }
 
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    int s = sparsePart.nextElement(start);
+    int d = (densePart == null) ? -1 : densePart.nextSetBit(start);
+    if (s == -1) {
+      return d;
+    } else {
+      return (d == -1 || s < d) ? s : d;
+    }
+  }
+
   /**
    * @return true iff <code>this</code> is a subset of <code>that</code>.
    * @throws IllegalArgumentException if that is null
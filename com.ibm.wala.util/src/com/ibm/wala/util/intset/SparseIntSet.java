@@ -486,6 +486,25 @@ public class SparseIntSet implements IntSet {
     return result;
   }
 
+  /*
+   * @see com.ibm.wala.util.intset.IntSet#nextElement(int)
+   */
+  @Override
+  public int nextElement(int start) {
+    // binary search for the first element >= start
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (elements[mid] < start) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return (low < size) ? elements[low] : -1;
+  }
+
   /*
    * @see com.ibm.wala.util.intset.IntSet#isSubset(com.ibm.wala.util.intset.IntSet)
    */